@@ -0,0 +1,106 @@
+package cn.zhangziming.auth.client.reactive.aspect;
+
+import cn.zhangziming.auth.client.reactive.context.ReactiveUserContext;
+import cn.zhangziming.auth.common.constant.ErrorCode;
+import cn.zhangziming.auth.common.exception.BusinessException;
+import cn.zhangziming.auth.security.access.AccessPlan;
+import cn.zhangziming.auth.security.access.AccessPlanResolver;
+import cn.zhangziming.auth.security.context.UserInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.Order;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+
+/**
+ * 响应式权限切面
+ *
+ * <p>处理权限注解，从Reactor Context读取用户信息进行校验
+ * <p>注解可以标注在方法或类上，每个方法第一次调用时编译为{@link AccessPlan}并缓存
+ * <p>只支持返回Mono/Flux的方法：校验通过后才订阅原方法返回的发布者，校验失败以错误信号结束
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Aspect
+@Order(100)
+public class ReactivePermissionAspect {
+
+    private final AccessPlanResolver planResolver = new AccessPlanResolver();
+
+    /**
+     * 处理方法或类上的权限注解，合并规则见{@link AccessPlan}
+     */
+    @Around("@annotation(cn.zhangziming.auth.security.annotation.RequireLogin)"
+            + " || @annotation(cn.zhangziming.auth.security.annotation.RequirePermission)"
+            + " || @annotation(cn.zhangziming.auth.security.annotation.RequireRole)"
+            + " || @within(cn.zhangziming.auth.security.annotation.RequireLogin)"
+            + " || @within(cn.zhangziming.auth.security.annotation.RequirePermission)"
+            + " || @within(cn.zhangziming.auth.security.annotation.RequireRole)")
+    public Object checkAccess(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Method method = signature.getMethod();
+        Object target = joinPoint.getTarget();
+        AccessPlan plan = planResolver.resolve(method,
+                target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass());
+        if (plan.isPermitAll()) {
+            return joinPoint.proceed();
+        }
+        return guard(joinPoint, plan);
+    }
+
+    /**
+     * 在原方法返回的发布者之前插入校验
+     */
+    private Object guard(ProceedingJoinPoint joinPoint, AccessPlan plan) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Class<?> returnType = signature.getReturnType();
+
+        Mono<UserInfo> authorized = ReactiveUserContext.getCurrentUser()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.warn("用户未登录，拒绝访问: {}", signature.toLongString());
+                    return new BusinessException(ErrorCode.UNAUTHORIZED, "用户未登录");
+                }))
+                .flatMap(userInfo -> {
+                    AccessPlan.Decision decision = plan.check(userInfo);
+                    if (decision == AccessPlan.Decision.GRANTED) {
+                        return Mono.just(userInfo);
+                    }
+                    if (decision == AccessPlan.Decision.UNAUTHENTICATED) {
+                        return Mono.error(new BusinessException(ErrorCode.UNAUTHORIZED, "用户未登录"));
+                    }
+                    log.warn("权限校验未通过，拒绝访问: userId={}, permissions={}, roles={}, method={}",
+                            userInfo.getUserId(), plan.describePermissions(), plan.describeRoles(),
+                            signature.toLongString());
+                    return Mono.error(new BusinessException(ErrorCode.NO_PERMISSION,
+                            decision == AccessPlan.Decision.ROLE_DENIED ? "角色不足" : "权限不足"));
+                });
+
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return authorized.then(Mono.defer(() -> Mono.from(proceed(joinPoint))));
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return authorized.thenMany(Flux.defer(() -> proceed(joinPoint)));
+        }
+        throw new IllegalStateException("响应式权限注解只支持返回Mono/Flux的方法: " + signature.toLongString());
+    }
+
+    private static Publisher<?> proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return (Publisher<?>) joinPoint.proceed();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cn.zhangziming.auth.client.reactive.autoconfigure;
+
+import cn.zhangziming.auth.client.reactive.aspect.ReactivePermissionAspect;
+import cn.zhangziming.auth.client.reactive.config.ReactiveClientProperties;
+import cn.zhangziming.auth.client.reactive.filter.ReactiveJwtAuthenticationFilter;
+import cn.zhangziming.auth.security.jwks.JwksKeySource;
+import cn.zhangziming.auth.security.jwks.RemoteClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.JwtKeySource;
+import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+/**
+ * 响应式客户端自动配置
+ *
+ * <p>WebFlux应用中自动配置JWT WebFilter和响应式权限切面
+ * <p>不注册Token吊销检查：布隆过滤器误判时需要同步查询Redis，会阻塞事件循环；
+ * 响应式服务中被吊销的Token在过期前仍然有效，需要立即失效时应缩短AccessToken有效期
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Configuration
+@EnableAspectJAutoProxy
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "auth-boot.client", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(ReactiveClientProperties.class)
+public class ReactiveClientAutoConfiguration {
+
+    public ReactiveClientAutoConfiguration() {
+        log.info("======= Auth Boot Reactive Client Auto Configuration Initialized =======");
+    }
+
+    /**
+     * 注册远程JWKS验签密钥来源
+     * 配置auth-boot.client.jwks.uri后生效，JwtUtil随之切换为只验签模式
+     */
+    @Bean
+    @ConditionalOnMissingBean(JwtKeySource.class)
+    @ConditionalOnProperty(prefix = "auth-boot.client.jwks", name = "uri")
+    public JwksKeySource jwksKeySource(ReactiveClientProperties clientProperties) {
+        ReactiveClientProperties.Jwks config = clientProperties.getJwks();
+        log.info("JWT使用远程JWKS验签: uri={}", config.getUri());
+        return new JwksKeySource(config.getUri(), config.getRefreshInterval(), config.getTimeout());
+    }
+
+    /**
+     * 注册远程声明字典来源
+     * 配置auth-boot.client.claims-dictionary.uri后生效，Token中的角色/权限位图在本地解码；
+     * 字典由后台线程拉取，验签时只查本地缓存
+     */
+    @Bean
+    @ConditionalOnMissingBean(ClaimsDictionarySource.class)
+    @ConditionalOnProperty(prefix = "auth-boot.client.claims-dictionary", name = "uri")
+    public RemoteClaimsDictionarySource remoteClaimsDictionarySource(ReactiveClientProperties clientProperties) {
+        ReactiveClientProperties.ClaimsDictionary config = clientProperties.getClaimsDictionary();
+        log.info("使用远程声明字典: uri={}", config.getUri());
+        return new RemoteClaimsDictionarySource(config.getUri(), config.getRefreshInterval(), config.getTimeout(),
+                config.getApiKey());
+    }
+
+    /**
+     * 注册响应式JWT认证过滤器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactiveJwtAuthenticationFilter reactiveJwtAuthenticationFilter(
+            JwtUtil jwtUtil, ObjectProvider<TokenRenewer> tokenRenewer, RouteRegistry routeRegistry) {
+        TokenRenewer renewer = tokenRenewer.getIfAvailable();
+        log.info("Reactive JWT Authentication Filter registered");
+        return new ReactiveJwtAuthenticationFilter(jwtUtil,
+                renewer != null && renewer.isEnabled() ? renewer : null, routeRegistry);
+    }
+
+    /**
+     * 注册响应式权限切面
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ReactivePermissionAspect reactivePermissionAspect() {
+        log.info("Reactive Permission Aspect registered");
+        return new ReactivePermissionAspect();
+    }
+}
@@ -0,0 +1,83 @@
+package cn.zhangziming.auth.client.reactive.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 响应式客户端配置属性
+ *
+ * <p>与Servlet客户端共用auth-boot.client前缀，两种客户端的配置可以互换
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.client")
+public class ReactiveClientProperties {
+
+    /**
+     * 是否启用客户端
+     */
+    private boolean enabled = true;
+
+    /**
+     * 远程JWKS配置
+     */
+    private Jwks jwks = new Jwks();
+
+    /**
+     * 远程声明字典配置
+     */
+    private ClaimsDictionary claimsDictionary = new ClaimsDictionary();
+
+    /**
+     * 远程JWKS配置
+     * 配置uri后客户端只用认证服务发布的公钥验签，不再需要共享的签名密钥
+     */
+    @Data
+    public static class Jwks {
+
+        /**
+         * JWKS地址，如 http://auth-server:8080/.well-known/jwks.json
+         */
+        private String uri;
+
+        /**
+         * 后台刷新间隔（秒）
+         */
+        private long refreshInterval = 300L;
+
+        /**
+         * 拉取超时时间（秒）
+         */
+        private long timeout = 5L;
+    }
+
+    /**
+     * 远程声明字典配置
+     * 配置uri后可以解码Token中压缩的角色/权限位图，本地完成权限校验
+     */
+    @Data
+    public static class ClaimsDictionary {
+
+        /**
+         * 字典地址，如 http://auth-server:8080/.well-known/claims-dictionary
+         */
+        private String uri;
+
+        /**
+         * 拉取超时时间（秒）
+         */
+        private long timeout = 5L;
+
+        /**
+         * 当前版本的拉取间隔（秒），认证服务发布新版本后在此时间内生效
+         */
+        private long refreshInterval = 60L;
+
+        /**
+         * 访问密钥，与认证服务的auth-boot.server.claims-dictionary.api-key一致
+         */
+        private String apiKey;
+    }
+}
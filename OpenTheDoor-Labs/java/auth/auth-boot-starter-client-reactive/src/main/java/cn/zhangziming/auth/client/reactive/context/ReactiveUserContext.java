@@ -0,0 +1,90 @@
+package cn.zhangziming.auth.client.reactive.context;
+
+import cn.zhangziming.auth.security.context.UserInfo;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * 响应式用户上下文
+ *
+ * <p>用户信息保存在Reactor Context中，随订阅链传递，不依赖线程
+ * <p>对应Servlet环境下基于ThreadLocal的UserContext
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class ReactiveUserContext {
+
+    /**
+     * Context中的key
+     */
+    private static final Object CONTEXT_KEY = ReactiveUserContext.class;
+
+    private ReactiveUserContext() {
+    }
+
+    /**
+     * 把用户信息写入Context
+     *
+     * @param userInfo 用户信息
+     * @return Context，用于contextWrite
+     */
+    public static Context withUser(UserInfo userInfo) {
+        return Context.of(CONTEXT_KEY, userInfo);
+    }
+
+    /**
+     * 获取当前用户
+     *
+     * @return 用户信息，未登录时为空
+     */
+    public static Mono<UserInfo> getCurrentUser() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(context.<UserInfo>getOrEmpty(CONTEXT_KEY)));
+    }
+
+    /**
+     * 获取当前用户ID
+     */
+    public static Mono<Long> getUserId() {
+        return getCurrentUser().mapNotNull(UserInfo::getUserId);
+    }
+
+    /**
+     * 获取当前用户名
+     */
+    public static Mono<String> getUsername() {
+        return getCurrentUser().mapNotNull(UserInfo::getUsername);
+    }
+
+    /**
+     * 获取当前租户ID
+     */
+    public static Mono<String> getTenantId() {
+        return getCurrentUser().mapNotNull(UserInfo::getTenantId);
+    }
+
+    /**
+     * 是否已登录
+     */
+    public static Mono<Boolean> isLogin() {
+        return getCurrentUser().hasElement();
+    }
+
+    /**
+     * 是否拥有角色
+     */
+    public static Mono<Boolean> hasRole(String role) {
+        return getCurrentUser()
+                .map(userInfo -> userInfo.getRoles() != null && userInfo.getRoles().contains(role))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 是否拥有权限（支持通配符授权）
+     */
+    public static Mono<Boolean> hasPermission(String permission) {
+        return getCurrentUser()
+                .map(userInfo -> userInfo.hasPermission(permission))
+                .defaultIfEmpty(false);
+    }
+}
@@ -0,0 +1,119 @@
+package cn.zhangziming.auth.client.reactive.filter;
+
+import cn.zhangziming.auth.client.reactive.context.ReactiveUserContext;
+import cn.zhangziming.auth.common.constant.CommonConstant;
+import cn.zhangziming.auth.security.context.UserInfo;
+import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.jwt.TokenValidationResult;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * 响应式JWT认证过滤器
+ *
+ * <p>从请求头中提取JWT Token，验签后把用户信息写入Reactor Context
+ * <p>验签只使用内存中的密钥和声明字典做CPU计算，不阻塞事件循环；远程JWKS和声明字典由后台线程刷新
+ * <p>启用静默续期时，即将过期的Token在响应头中返回新Token
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveJwtAuthenticationFilter implements WebFilter, Ordered {
+
+    private final JwtUtil jwtUtil;
+
+    /**
+     * 静默续期，为null时不启用
+     */
+    private final TokenRenewer tokenRenewer;
+
+    /**
+     * 路由表，公开路由跳过认证
+     */
+    private final RouteRegistry routeRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+
+        // 跳过公开路由
+        if (routeRegistry.isPublic(request.getMethod().name(),
+                RouteRegistry.normalizePath(request.getPath().pathWithinApplication().value()))) {
+            return chain.filter(exchange);
+        }
+
+        // 1. 从请求头获取Token
+        String token = extractToken(request);
+        if (token == null || token.isEmpty()) {
+            return chain.filter(exchange);
+        }
+
+        // 2. 验签并解析Token
+        TokenValidationResult result = jwtUtil.validate(token);
+        if (!result.isValid()) {
+            // 失败次数和限流日志由JwtUtil统一记录
+            log.debug("Token验证失败: reason={}", result.getStatus());
+            if (result.getStatus() == TokenValidationResult.Status.STALE_CLAIMS) {
+                // 字典版本无法解析，提示客户端刷新Token
+                exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE,
+                        TokenValidationResult.STALE_CLAIMS_CHALLENGE);
+                exchange.getResponse().getHeaders().add(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS,
+                        HttpHeaders.WWW_AUTHENTICATE);
+            }
+            return chain.filter(exchange);
+        }
+        VerifiedToken verifiedToken = result.getVerifiedToken();
+        UserInfo userInfo = verifiedToken.toUserInfo();
+        renewIfNeeded(verifiedToken, exchange.getResponse());
+
+        log.debug("JWT认证成功: userId={}, username={}", userInfo.getUserId(), userInfo.getUsername());
+
+        // 3. 用户信息随订阅链传递
+        return chain.filter(exchange).contextWrite(ReactiveUserContext.withUser(userInfo));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    /**
+     * 从请求头提取Token
+     */
+    private String extractToken(ServerHttpRequest request) {
+        String bearerToken = request.getHeaders().getFirst(CommonConstant.AUTHORIZATION_HEADER);
+
+        if (bearerToken != null && bearerToken.startsWith(CommonConstant.TOKEN_PREFIX)) {
+            return bearerToken.substring(CommonConstant.TOKEN_PREFIX.length());
+        }
+
+        return null;
+    }
+
+    /**
+     * Token即将过期时在响应头中返回新Token
+     */
+    private void renewIfNeeded(VerifiedToken verifiedToken, ServerHttpResponse response) {
+        if (tokenRenewer == null) {
+            return;
+        }
+        String renewed = tokenRenewer.renewIfNeeded(verifiedToken);
+        if (renewed != null) {
+            response.getHeaders().set(tokenRenewer.getHeader(), renewed);
+            response.getHeaders().add(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, tokenRenewer.getHeader());
+        }
+    }
+}
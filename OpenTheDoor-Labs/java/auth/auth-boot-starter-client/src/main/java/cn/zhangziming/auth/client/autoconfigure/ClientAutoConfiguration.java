@@ -1,11 +1,26 @@
 package cn.zhangziming.auth.client.autoconfigure;
 
 import cn.zhangziming.auth.client.aspect.PermissionAspect;
+import cn.zhangziming.auth.client.cache.VerifiedTokenCache;
+import cn.zhangziming.auth.client.config.ClientProperties;
 import cn.zhangziming.auth.client.filter.JwtAuthenticationFilter;
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
+import cn.zhangziming.auth.security.jwks.JwksKeySource;
+import cn.zhangziming.auth.security.jwks.RemoteClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.JwtKeySource;
 import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.jwt.TokenRevocationChecker;
+import cn.zhangziming.auth.security.route.RouteRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,28 +31,75 @@ import org.springframework.core.Ordered;
  * 客户端自动配置
  * 
  * <p>自动配置JWT过滤器和权限切面
+ * <p>业务系统同时引入auth-boot-starter-redis（与认证服务连接同一个Redis）时，自动注册Token吊销检查，
+ * 登出、下线会话后被吊销的Token在本服务同样失效；未引入时只校验签名和有效期
  *
  * @author zhangziming
  * @since 2024-10-29
  */
 @Slf4j
 @Configuration
+@AutoConfigureAfter(name = "cn.zhangziming.auth.redis.autoconfigure.RedisAutoConfiguration")
 @EnableAspectJAutoProxy
 @ConditionalOnProperty(prefix = "auth-boot.client", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(ClientProperties.class)
 public class ClientAutoConfiguration {
 
     public ClientAutoConfiguration() {
         log.info("======= Auth Boot Client Auto Configuration Initialized =======");
     }
 
+    /**
+     * 注册远程JWKS验签密钥来源
+     * 配置auth-boot.client.jwks.uri后生效，JwtUtil随之切换为只验签模式
+     */
+    @Bean
+    @ConditionalOnMissingBean(JwtKeySource.class)
+    @ConditionalOnProperty(prefix = "auth-boot.client.jwks", name = "uri")
+    public JwksKeySource jwksKeySource(ClientProperties clientProperties) {
+        ClientProperties.Jwks config = clientProperties.getJwks();
+        log.info("JWT使用远程JWKS验签: uri={}", config.getUri());
+        return new JwksKeySource(config.getUri(), config.getRefreshInterval(), config.getTimeout());
+    }
+
+    /**
+     * 注册远程声明字典来源
+     * 配置auth-boot.client.claims-dictionary.uri后生效，Token中的角色/权限位图在本地解码；
+     * 字典由后台线程拉取，验签时只查本地缓存
+     */
+    @Bean
+    @ConditionalOnMissingBean(ClaimsDictionarySource.class)
+    @ConditionalOnProperty(prefix = "auth-boot.client.claims-dictionary", name = "uri")
+    public RemoteClaimsDictionarySource remoteClaimsDictionarySource(ClientProperties clientProperties) {
+        ClientProperties.ClaimsDictionary config = clientProperties.getClaimsDictionary();
+        log.info("使用远程声明字典: uri={}", config.getUri());
+        return new RemoteClaimsDictionarySource(config.getUri(), config.getRefreshInterval(), config.getTimeout(),
+                config.getApiKey());
+    }
+
+    /**
+     * 注册已验签Token缓存
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "auth-boot.client.token-cache", name = "enabled", havingValue = "true")
+    public VerifiedTokenCache verifiedTokenCache(ClientProperties clientProperties) {
+        ClientProperties.TokenCache config = clientProperties.getTokenCache();
+        return new VerifiedTokenCache(config.getMaximumSize(), config.getMaxTtl());
+    }
+
     /**
      * 注册JWT认证过滤器
      */
     @Bean
     @ConditionalOnMissingBean
-    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilter(
+            JwtUtil jwtUtil, ObjectProvider<VerifiedTokenCache> tokenCache, ObjectProvider<TokenRenewer> tokenRenewer,
+            RouteRegistry routeRegistry) {
         FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new JwtAuthenticationFilter(jwtUtil));
+        TokenRenewer renewer = tokenRenewer.getIfAvailable();
+        registration.setFilter(new JwtAuthenticationFilter(jwtUtil, tokenCache.getIfAvailable(),
+                renewer != null && renewer.isEnabled() ? renewer : null, routeRegistry));
         registration.addUrlPatterns("/*");
         registration.setName("jwtAuthenticationFilter");
         registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
@@ -55,5 +117,22 @@ public class ClientAutoConfiguration {
         log.info("Permission Aspect registered");
         return new PermissionAspect();
     }
-}
 
+    /**
+     * Token吊销检查（与认证服务共用Redis中的吊销列表和广播频道）
+     * 正常Token只查本地布隆过滤器，不访问网络
+     */
+    @Configuration
+    @ConditionalOnClass(name = "cn.zhangziming.auth.redis.service.TokenRevocationService")
+    @ConditionalOnProperty(prefix = "auth-boot.redis.token-revocation", name = "enabled", havingValue = "true", matchIfMissing = true)
+    static class TokenRevocationCheckerConfiguration {
+
+        @Bean
+        @ConditionalOnBean(TokenRevocationService.class)
+        @ConditionalOnMissingBean(TokenRevocationChecker.class)
+        public TokenRevocationChecker tokenRevocationChecker(TokenRevocationService tokenRevocationService) {
+            log.info("Token吊销检查已启用（Redis）");
+            return tokenRevocationService::isRevoked;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package cn.zhangziming.auth.client.cache;
+
+import cn.zhangziming.auth.security.context.UserInfo;
+import cn.zhangziming.auth.security.jwt.TokenFingerprint;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 已验签Token缓存
+ *
+ * <p>以Token指纹为key缓存已验签的Token和构建好的UserInfo，命中时跳过HMAC验签和声明解析
+ * <p>每条缓存的过期时间不晚于Token的exp声明，也不超过配置的最长缓存时间
+ * <p>缓存的条目由多个请求共享：UserInfo是可变对象，不直接交给请求，每次取用时复制一份；
+ * 角色和权限集合不可变，复制时共享，不重新构建
+ * <p>命中时仍按jti检查吊销状态，登出的Token不会因缓存继续可用
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class VerifiedTokenCache {
+
+    /**
+     * 指纹 -> 缓存条目
+     */
+    private final Cache<String, CachedToken> cache;
+
+    public VerifiedTokenCache(long maximumSize, long maxTtlSeconds) {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, CachedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedToken entry, long currentTime) {
+                        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(
+                                entry.verifiedToken.getExpirationMillis() - System.currentTimeMillis());
+                        return Math.max(0L, Math.min(remainingNanos, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedToken entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedToken entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        log.info("已验签Token缓存已启用: maximumSize={}, maxTtl={}s", maximumSize, maxTtlSeconds);
+    }
+
+    /**
+     * 获取Token对应的缓存条目
+     * 未命中时调用verifier验签，验签失败（返回null）不会写入缓存
+     *
+     * @param token      Token字符串
+     * @param verifier   验签函数，失败返回null
+     * @param revocation 吊销检查（入参为jti）
+     * @return 缓存条目，验签失败或已吊销返回null
+     */
+    public CachedToken get(String token, Function<String, VerifiedToken> verifier, Predicate<String> revocation) {
+        String fingerprint = TokenFingerprint.of(token);
+        CachedToken entry = cache.getIfPresent(fingerprint);
+        if (entry != null) {
+            String tokenId = entry.verifiedToken.getTokenId();
+            if (tokenId != null && revocation.test(tokenId)) {
+                cache.invalidate(fingerprint);
+                return null;
+            }
+            return entry;
+        }
+
+        VerifiedToken verifiedToken = verifier.apply(token);
+        if (verifiedToken == null) {
+            return null;
+        }
+        entry = new CachedToken(verifiedToken, verifiedToken.toUserInfo());
+        cache.put(fingerprint, entry);
+        return entry;
+    }
+
+    /**
+     * 使指定Token的缓存失效
+     *
+     * @param token Token字符串
+     */
+    public void invalidate(String token) {
+        cache.invalidate(TokenFingerprint.of(token));
+    }
+
+    /**
+     * 获取命中统计
+     *
+     * @return 命中/未命中/淘汰等统计
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * 当前缓存条数（近似值）
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 缓存条目，不可变
+     */
+    public static final class CachedToken {
+
+        private final VerifiedToken verifiedToken;
+
+        /**
+         * 构建好的用户信息，只作为复制的模板，不对外暴露
+         */
+        private final UserInfo userInfo;
+
+        private CachedToken(VerifiedToken verifiedToken, UserInfo userInfo) {
+            this.verifiedToken = verifiedToken;
+            this.userInfo = userInfo;
+        }
+
+        /**
+         * 不经缓存直接包装（未启用缓存时使用）
+         */
+        public static CachedToken of(VerifiedToken verifiedToken) {
+            return new CachedToken(verifiedToken, verifiedToken.toUserInfo());
+        }
+
+        public VerifiedToken getVerifiedToken() {
+            return verifiedToken;
+        }
+
+        /**
+         * 本次请求使用的用户信息，每次调用返回新的实例，修改它不影响其他请求
+         *
+         * @return 用户信息
+         */
+        public UserInfo getUserInfo() {
+            return UserInfo.builder()
+                    .userId(userInfo.getUserId())
+                    .username(userInfo.getUsername())
+                    .nickname(userInfo.getNickname())
+                    .tenantId(userInfo.getTenantId())
+                    .userType(userInfo.getUserType())
+                    .roles(userInfo.getRoles())
+                    .permissions(userInfo.getPermissions())
+                    .ipAddress(userInfo.getIpAddress())
+                    .build();
+        }
+    }
+}
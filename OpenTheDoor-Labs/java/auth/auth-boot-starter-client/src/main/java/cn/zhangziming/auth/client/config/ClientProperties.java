@@ -0,0 +1,112 @@
+package cn.zhangziming.auth.client.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 客户端配置属性
+ *
+ * <p>从配置文件中读取auth-boot.client相关配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.client")
+public class ClientProperties {
+
+    /**
+     * 是否启用客户端
+     */
+    private boolean enabled = true;
+
+    /**
+     * 已验签Token缓存配置
+     */
+    private TokenCache tokenCache = new TokenCache();
+
+    /**
+     * 远程JWKS配置
+     */
+    private Jwks jwks = new Jwks();
+
+    /**
+     * 远程声明字典配置
+     */
+    private ClaimsDictionary claimsDictionary = new ClaimsDictionary();
+
+    /**
+     * 已验签Token缓存配置
+     */
+    @Data
+    public static class TokenCache {
+
+        /**
+         * 是否启用
+         * 默认关闭，开启后同一Token的重复请求跳过验签和声明解析
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最大缓存条数
+         */
+        private long maximumSize = 10000L;
+
+        /**
+         * 单条最长缓存时间（秒）
+         * 实际过期时间取此值与Token剩余有效期中的较小者
+         */
+        private long maxTtl = 300L;
+    }
+
+    /**
+     * 远程JWKS配置
+     * 配置uri后客户端只用认证服务发布的公钥验签，不再需要共享的签名密钥
+     */
+    @Data
+    public static class Jwks {
+
+        /**
+         * JWKS地址，如 http://auth-server:8080/.well-known/jwks.json
+         */
+        private String uri;
+
+        /**
+         * 后台刷新间隔（秒）
+         */
+        private long refreshInterval = 300L;
+
+        /**
+         * 拉取超时时间（秒）
+         */
+        private long timeout = 5L;
+    }
+
+    /**
+     * 远程声明字典配置
+     * 配置uri后可以解码Token中压缩的角色/权限位图，本地完成权限校验
+     */
+    @Data
+    public static class ClaimsDictionary {
+
+        /**
+         * 字典地址，如 http://auth-server:8080/.well-known/claims-dictionary
+         */
+        private String uri;
+
+        /**
+         * 拉取超时时间（秒）
+         */
+        private long timeout = 5L;
+
+        /**
+         * 当前版本的拉取间隔（秒），认证服务发布新版本后在此时间内生效
+         */
+        private long refreshInterval = 60L;
+
+        /**
+         * 访问密钥，与认证服务的auth-boot.server.claims-dictionary.api-key一致
+         */
+        private String apiKey;
+    }
+}
@@ -1,28 +1,32 @@
 package cn.zhangziming.auth.client.filter;
 
+import cn.zhangziming.auth.client.cache.VerifiedTokenCache;
 import cn.zhangziming.auth.common.constant.CommonConstant;
 import cn.zhangziming.auth.security.context.UserContext;
 import cn.zhangziming.auth.security.context.UserInfo;
 import cn.zhangziming.auth.security.jwt.JwtUtil;
-import io.jsonwebtoken.Claims;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.jwt.TokenValidationResult;
+import cn.zhangziming.auth.security.route.RouteProperties;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 /**
  * JWT认证过滤器
  * 
  * <p>从请求头中提取JWT Token，解析并设置用户上下文
+ * <p>启用Token缓存时，同一Token的重复请求直接复用已构建的用户信息
+ * <p>启用静默续期时，即将过期的Token在响应头中返回新Token
  *
  * @author zhangziming
  * @since 2024-10-29
@@ -34,22 +38,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
 
     /**
-     * 不需要认证的路径
+     * 已验签Token缓存，为null时不启用
      */
-    private static final Set<String> EXCLUDE_PATHS = new HashSet<>(Arrays.asList(
-            "/api/auth/login",
-            "/api/auth/register",
-            "/api/auth/refresh"
-    ));
+    private final VerifiedTokenCache tokenCache;
+
+    /**
+     * 静默续期，为null时不启用
+     */
+    private final TokenRenewer tokenRenewer;
+
+    /**
+     * 路由表，公开路由跳过认证
+     */
+    private final RouteRegistry routeRegistry;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+        this(jwtUtil, null, null, new RouteRegistry(new RouteProperties()));
+    }
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, VerifiedTokenCache tokenCache) {
+        this(jwtUtil, tokenCache, null, new RouteRegistry(new RouteProperties()));
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                      HttpServletResponse response,
                                      FilterChain filterChain) throws ServletException, IOException {
-        String requestUri = request.getRequestURI();
-        
-        // 跳过不需要认证的路径
-        if (shouldSkipFilter(requestUri)) {
+        // 跳过公开路由
+        if (routeRegistry.isPublic(request.getMethod(),
+                RouteRegistry.pathWithinApplication(request.getRequestURI(), request.getContextPath()))) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -59,32 +76,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = extractToken(request);
 
             if (token != null && !token.isEmpty()) {
-                // 2. 验证Token
-                if (jwtUtil.validateToken(token)) {
-                    // 3. 解析Token获取用户信息
-                    Claims claims = jwtUtil.parseToken(token);
-                    
-                    // 4. 构建用户上下文
-                    UserInfo userInfo = buildUserInfo(claims);
-                    
-                    // 5. 设置到ThreadLocal
+                // 2. 验签并构建用户上下文（缓存命中时跳过验签）
+                VerifiedTokenCache.CachedToken resolved = resolve(token, response);
+                if (resolved != null) {
+                    UserInfo userInfo = resolved.getUserInfo();
+                    // 3. 设置到ThreadLocal
                     UserContext.setCurrentUser(userInfo);
+                    renewIfNeeded(resolved.getVerifiedToken(), response);
                     
                     log.debug("JWT认证成功: userId={}, username={}", 
                             userInfo.getUserId(), userInfo.getUsername());
                 } else {
-                    log.warn("Token验证失败: {}", token);
+                    // 失败次数和限流日志由JwtUtil统一记录
+                    log.debug("Token验证失败");
                 }
             }
 
-            // 6. 继续过滤链
+            // 4. 继续过滤链
             filterChain.doFilter(request, response);
 
         } catch (Exception e) {
             log.error("JWT认证失败", e);
             filterChain.doFilter(request, response);
         } finally {
-            // 7. 清除上下文
+            // 5. 清除上下文
             UserContext.clear();
         }
     }
@@ -103,36 +118,45 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * 构建用户信息
+     * 验签Token并构建用户信息
+     *
+     * @return 已验签Token和用户信息，验签失败返回null
      */
-    private UserInfo buildUserInfo(Claims claims) {
-        UserInfo userInfo = new UserInfo();
-        userInfo.setUserId(claims.get("userId", Long.class));
-        userInfo.setUsername(claims.getSubject());
-        userInfo.setTenantId(claims.get("tenantId", String.class));
-        
-        // 解析角色
-        @SuppressWarnings("unchecked")
-        List<String> roles = claims.get("roles", List.class);
-        if (roles != null) {
-            userInfo.setRoles(new HashSet<>(roles));
+    private VerifiedTokenCache.CachedToken resolve(String token, HttpServletResponse response) {
+        if (tokenCache != null) {
+            return tokenCache.get(token, candidate -> verify(candidate, response), jwtUtil::isRevoked);
         }
-        
-        // 解析权限
-        @SuppressWarnings("unchecked")
-        List<String> permissions = claims.get("permissions", List.class);
-        if (permissions != null) {
-            userInfo.setPermissions(new HashSet<>(permissions));
+        VerifiedToken verifiedToken = verify(token, response);
+        return verifiedToken != null ? VerifiedTokenCache.CachedToken.of(verifiedToken) : null;
+    }
+
+    /**
+     * Token即将过期时在响应头中返回新Token
+     * 必须在继续过滤链之前设置，否则响应可能已提交
+     */
+    private void renewIfNeeded(VerifiedToken verifiedToken, HttpServletResponse response) {
+        if (tokenRenewer == null) {
+            return;
+        }
+        String renewed = tokenRenewer.renewIfNeeded(verifiedToken);
+        if (renewed != null) {
+            response.setHeader(tokenRenewer.getHeader(), renewed);
+            response.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, tokenRenewer.getHeader());
         }
-        
-        return userInfo;
     }
 
     /**
-     * 是否跳过过滤
+     * 验签Token，失败返回null（不写入缓存）
+     * 字典版本无法解析时提示客户端刷新Token
      */
-    private boolean shouldSkipFilter(String requestUri) {
-        return EXCLUDE_PATHS.stream().anyMatch(requestUri::startsWith);
+    private VerifiedToken verify(String token, HttpServletResponse response) {
+        TokenValidationResult result = jwtUtil.validate(token);
+        if (result.getStatus() == TokenValidationResult.Status.STALE_CLAIMS) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, TokenValidationResult.STALE_CLAIMS_CHALLENGE);
+            response.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.WWW_AUTHENTICATE);
+        }
+        return result.getVerifiedToken();
     }
+
 }
 
@@ -41,6 +41,11 @@ public interface ErrorCode {
      */
     Integer NOT_FOUND = 404;
     
+    /**
+     * 请求过多
+     */
+    Integer TOO_MANY_REQUESTS = 429;
+    
     /**
      * 服务器错误
      */
@@ -115,6 +120,21 @@ public interface ErrorCode {
      */
     Integer PASSWORD_ERROR = 2006;
     
+    /**
+     * 用户导入文件格式错误
+     */
+    Integer USER_IMPORT_FORMAT_ERROR = 2007;
+    
+    /**
+     * 用户导入任务不存在
+     */
+    Integer USER_IMPORT_NOT_FOUND = 2008;
+    
+    /**
+     * 用户导入任务过多
+     */
+    Integer USER_IMPORT_BUSY = 2009;
+    
     // ==================== 权限相关错误码 (3000-3999) ====================
     
     /**
@@ -142,6 +162,11 @@ public interface ErrorCode {
      */
     Integer ROLE_IN_USE = 3005;
     
+    /**
+     * 角色继承关系无效
+     */
+    Integer ROLE_HIERARCHY_INVALID = 3006;
+    
     // ==================== 租户相关错误码 (4000-4999) ====================
     
     /**
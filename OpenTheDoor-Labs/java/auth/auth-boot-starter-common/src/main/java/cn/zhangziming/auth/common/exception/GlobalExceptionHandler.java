@@ -2,9 +2,11 @@ package cn.zhangziming.auth.common.exception;
 
 import cn.zhangziming.auth.common.model.Result;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
@@ -28,6 +30,18 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     
+    /**
+     * 处理限流异常，返回429和Retry-After
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Result<?> handleTooManyRequestsException(TooManyRequestsException e, HttpServletRequest request,
+                                                    HttpServletResponse response) {
+        log.warn("请求被限流: URI={}, Message={}", request.getRequestURI(), e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return Result.error(e.getCode(), e.getMessage());
+    }
+    
     /**
      * 处理业务异常
      */
@@ -0,0 +1,37 @@
+package cn.zhangziming.auth.common.exception;
+
+import cn.zhangziming.auth.common.constant.ErrorCode;
+import lombok.Getter;
+
+/**
+ * 限流异常
+ * 
+ * <p>资源已满（如登录密码校验队列已满）时快速拒绝，返回HTTP 429，客户端按Retry-After稍后重试
+ * 
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Getter
+public class TooManyRequestsException extends BusinessException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * 默认建议重试间隔（秒）
+     */
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 1L;
+    
+    /**
+     * 建议重试间隔（秒）
+     */
+    private final long retryAfterSeconds;
+    
+    public TooManyRequestsException(String message) {
+        this(message, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+    
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(ErrorCode.TOO_MANY_REQUESTS, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
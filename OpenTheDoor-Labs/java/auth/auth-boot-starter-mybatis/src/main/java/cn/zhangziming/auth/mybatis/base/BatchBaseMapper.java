@@ -0,0 +1,73 @@
+package cn.zhangziming.auth.mybatis.base;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 支持多行批量插入的基础Mapper
+ *
+ * <p>insertBatchSomeColumn由{@link cn.zhangziming.auth.mybatis.injector.BatchSqlInjector}注入，
+ * 一次插入多行只发一条SQL；与逐条insert相比语句数、往返次数和binlog事件都少得多
+ * <p>不放在mapper包下，避免被@MapperScan当作具体Mapper注册
+ *
+ * @param <T> 实体类型
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface BatchBaseMapper<T> extends BaseMapper<T> {
+
+    /**
+     * 单条语句默认最多插入的行数，避免超过MySQL的max_allowed_packet
+     */
+    int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * 多行插入，一条SQL（不能传空列表；生成的SQL按list参数遍历，因此只接受List）
+     *
+     * @param entityList 实体列表
+     * @return 插入行数
+     */
+    int insertBatchSomeColumn(List<T> entityList);
+
+    /**
+     * 按默认批大小分批多行插入
+     *
+     * @param entityList 实体列表，为空时不执行
+     * @return 插入行数
+     */
+    default int insertBatch(Collection<T> entityList) {
+        return insertBatch(entityList, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 分批多行插入，每批一条SQL
+     *
+     * @param entityList 实体列表，为空时不执行
+     * @param batchSize  每条SQL的最大行数
+     * @return 插入行数
+     */
+    default int insertBatch(Collection<T> entityList, int batchSize) {
+        if (entityList == null || entityList.isEmpty()) {
+            return 0;
+        }
+        if (entityList.size() <= batchSize) {
+            return insertBatchSomeColumn(entityList instanceof List<T> list ? list : new ArrayList<>(entityList));
+        }
+        int rows = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        for (T entity : entityList) {
+            batch.add(entity);
+            if (batch.size() == batchSize) {
+                rows += insertBatchSomeColumn(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            rows += insertBatchSomeColumn(batch);
+        }
+        return rows;
+    }
+}
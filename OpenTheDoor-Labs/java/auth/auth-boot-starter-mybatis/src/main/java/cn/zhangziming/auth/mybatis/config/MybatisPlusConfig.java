@@ -1,6 +1,8 @@
 package cn.zhangziming.auth.mybatis.config;
 
+import cn.zhangziming.auth.mybatis.injector.BatchSqlInjector;
 import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.injector.ISqlInjector;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.BlockAttackInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
@@ -12,7 +14,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 /**
  * MyBatis Plus 配置
  * 
- * <p>配置分页插件、乐观锁插件、逻辑删除等
+ * <p>配置分页插件、乐观锁插件、逻辑删除、批量插入等
  *
  * @author zhangziming
  * @since 2024-10-29
@@ -44,5 +46,12 @@ public class MybatisPlusConfig {
         
         return interceptor;
     }
-}
 
+    /**
+     * SQL注入器，增加多行批量插入方法
+     */
+    @Bean
+    public ISqlInjector sqlInjector() {
+        return new BatchSqlInjector();
+    }
+}
@@ -0,0 +1,30 @@
+package cn.zhangziming.auth.mybatis.injector;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.injector.DefaultSqlInjector;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.extension.injector.methods.InsertBatchSomeColumn;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.List;
+
+/**
+ * 批量SQL注入器
+ *
+ * <p>在默认方法之外注入 insertBatchSomeColumn，生成一条 INSERT ... VALUES (...), (...) 多行插入语句，
+ * 供{@link cn.zhangziming.auth.mybatis.base.BatchBaseMapper}使用
+ * <p>插入列排除仅在更新时填充的字段，自动填充（创建时间、创建人等）对每一行照常生效
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class BatchSqlInjector extends DefaultSqlInjector {
+
+    @Override
+    public List<AbstractMethod> getMethodList(Class<?> mapperClass, TableInfo tableInfo) {
+        List<AbstractMethod> methods = super.getMethodList(mapperClass, tableInfo);
+        methods.add(new InsertBatchSomeColumn(field -> field.getFieldFill() != FieldFill.UPDATE));
+        return methods;
+    }
+}
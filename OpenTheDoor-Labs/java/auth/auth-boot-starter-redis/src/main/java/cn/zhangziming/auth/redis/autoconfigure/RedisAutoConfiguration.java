@@ -1,6 +1,9 @@
 package cn.zhangziming.auth.redis.autoconfigure;
 
 import cn.zhangziming.auth.redis.config.RedisConfig;
+import cn.zhangziming.auth.redis.config.SessionConfig;
+import cn.zhangziming.auth.redis.config.TokenRevocationConfig;
+import cn.zhangziming.auth.redis.config.UserAuthorityCacheConfig;
 import cn.zhangziming.auth.redis.lock.RedisLock;
 import cn.zhangziming.auth.redis.service.RedisService;
 import cn.zhangziming.auth.redis.service.impl.RedisServiceImpl;
@@ -20,7 +23,8 @@ import org.springframework.context.annotation.Import;
 @AutoConfiguration
 @ConditionalOnClass(name = "org.springframework.data.redis.core.RedisTemplate")
 @ConditionalOnProperty(prefix = "auth-boot.redis", name = "enabled", havingValue = "true", matchIfMissing = true)
-@Import({RedisConfig.class, RedisServiceImpl.class, RedisLock.class})
+@Import({RedisConfig.class, RedisServiceImpl.class, RedisLock.class, TokenRevocationConfig.class, SessionConfig.class,
+        UserAuthorityCacheConfig.class})
 public class RedisAutoConfiguration {
     
     // 配置类，主要通过@Import引入其他配置
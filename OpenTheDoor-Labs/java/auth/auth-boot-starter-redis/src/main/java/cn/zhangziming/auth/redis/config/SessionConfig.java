@@ -0,0 +1,30 @@
+package cn.zhangziming.auth.redis.config;
+
+import cn.zhangziming.auth.redis.service.SessionService;
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
+import cn.zhangziming.auth.redis.service.impl.SessionServiceImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 用户会话配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@EnableConfigurationProperties(SessionProperties.class)
+@ConditionalOnProperty(prefix = "auth-boot.redis.session", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SessionConfig {
+
+    @Bean
+    public SessionService sessionService(StringRedisTemplate stringRedisTemplate,
+                                         SessionProperties properties,
+                                         ObjectProvider<TokenRevocationService> tokenRevocationService) {
+        return new SessionServiceImpl(stringRedisTemplate, properties, tokenRevocationService.getIfAvailable());
+    }
+}
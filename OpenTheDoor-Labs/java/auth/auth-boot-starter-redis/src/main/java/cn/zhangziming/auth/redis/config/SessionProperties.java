@@ -0,0 +1,28 @@
+package cn.zhangziming.auth.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 用户会话配置属性
+ *
+ * <p>从配置文件中读取auth-boot.redis.session相关配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.redis.session")
+public class SessionProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单用户最大会话数，0表示不限制
+     * 超出时最早登录的会话被踢下线
+     */
+    private int maxSessionsPerUser = 0;
+}
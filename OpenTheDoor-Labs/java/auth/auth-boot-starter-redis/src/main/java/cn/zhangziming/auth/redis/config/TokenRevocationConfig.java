@@ -0,0 +1,44 @@
+package cn.zhangziming.auth.redis.config;
+
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.service.impl.TokenRevocationServiceImpl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Token吊销配置
+ *
+ * <p>注册吊销服务，并订阅吊销广播频道
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@EnableConfigurationProperties(TokenRevocationProperties.class)
+@ConditionalOnProperty(prefix = "auth-boot.redis.token-revocation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TokenRevocationConfig {
+
+    @Bean
+    public TokenRevocationServiceImpl tokenRevocationService(StringRedisTemplate stringRedisTemplate,
+                                                             TokenRevocationProperties properties) {
+        return new TokenRevocationServiceImpl(stringRedisTemplate, properties);
+    }
+
+    /**
+     * 订阅吊销广播
+     */
+    @Bean
+    public RedisMessageListenerContainer tokenRevocationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                          TokenRevocationServiceImpl tokenRevocationService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenRevocationService, new ChannelTopic(CacheConstant.TOKEN_REVOKED_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,39 @@
+package cn.zhangziming.auth.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Token吊销配置属性
+ *
+ * <p>从配置文件中读取auth-boot.redis.token-revocation相关配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.redis.token-revocation")
+public class TokenRevocationProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 布隆过滤器预期容量（同时有效的吊销记录数）
+     */
+    private long expectedInsertions = 100000L;
+
+    /**
+     * 布隆过滤器误判率
+     * 误判时才会查询一次Redis
+     */
+    private double falsePositiveRate = 0.001;
+
+    /**
+     * 全量同步间隔（秒）
+     * 定期从Redis重建本地布隆过滤器，清理已过期记录并补齐丢失的广播
+     */
+    private long resyncInterval = 300L;
+}
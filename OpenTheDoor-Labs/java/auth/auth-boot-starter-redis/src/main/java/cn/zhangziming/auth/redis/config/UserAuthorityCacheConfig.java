@@ -0,0 +1,44 @@
+package cn.zhangziming.auth.redis.config;
+
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.service.impl.UserAuthorityCacheImpl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 用户权限缓存配置
+ *
+ * <p>注册两级缓存，并订阅失效广播频道
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@EnableConfigurationProperties(UserAuthorityCacheProperties.class)
+@ConditionalOnProperty(prefix = "auth-boot.redis.authority-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserAuthorityCacheConfig {
+
+    @Bean
+    public UserAuthorityCacheImpl userAuthorityCache(StringRedisTemplate stringRedisTemplate,
+                                                     UserAuthorityCacheProperties properties) {
+        return new UserAuthorityCacheImpl(stringRedisTemplate, properties);
+    }
+
+    /**
+     * 订阅失效广播
+     */
+    @Bean
+    public RedisMessageListenerContainer userAuthorityCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                             UserAuthorityCacheImpl userAuthorityCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(userAuthorityCache, new ChannelTopic(CacheConstant.AUTHORITY_EVICT_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.zhangziming.auth.redis.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 用户权限缓存配置属性
+ *
+ * <p>从配置文件中读取auth-boot.redis.authority-cache相关配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.redis.authority-cache")
+public class UserAuthorityCacheProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大用户数（角色和权限分别计数）
+     */
+    private long localMaximumSize = 10000L;
+
+    /**
+     * 本地缓存过期时间（秒）
+     * 正常情况下靠失效广播更新，过期只兜底丢失的广播
+     */
+    private long localExpire = 300L;
+
+    /**
+     * Redis缓存过期时间（秒）
+     */
+    private long remoteExpire = 1800L;
+
+    /**
+     * 单次精确失效的最大用户数
+     * 超过时改为整体失效（代数自增），避免广播过大的用户列表
+     */
+    private int maxPreciseEvictions = 1000;
+}
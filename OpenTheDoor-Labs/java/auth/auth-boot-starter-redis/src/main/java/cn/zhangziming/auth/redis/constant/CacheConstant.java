@@ -16,12 +16,30 @@ public interface CacheConstant {
     /** Token缓存前缀 */
     String TOKEN_CACHE_PREFIX = "token:";
     
+    /** 已吊销Token集合（ZSet，member为jti，score为Token过期时间戳毫秒） */
+    String TOKEN_REVOKED_KEY = "token:revoked";
+    
+    /** Token吊销广播频道 */
+    String TOKEN_REVOKED_CHANNEL = "token:revoked:channel";
+    
+    /** 用户会话前缀（Hash，field为会话ID） */
+    String SESSION_USER_PREFIX = "session:user:";
+    
     /** 权限缓存前缀 */
     String PERMISSION_CACHE_PREFIX = "permission:";
     
     /** 角色缓存前缀 */
     String ROLE_CACHE_PREFIX = "role:";
     
+    /** 用户权限缓存代数（String，自增后旧代数的缓存全部失效） */
+    String AUTHORITY_GENERATION_KEY = "authority:generation";
+    
+    /** 用户权限缓存失效广播频道 */
+    String AUTHORITY_EVICT_CHANNEL = "authority:evict:channel";
+    
+    /** RBAC模型（角色、角色→权限、继承关系）变更广播频道 */
+    String RBAC_MODEL_CHANNEL = "rbac:model:channel";
+    
     /** 菜单缓存前缀 */
     String MENU_CACHE_PREFIX = "menu:";
     
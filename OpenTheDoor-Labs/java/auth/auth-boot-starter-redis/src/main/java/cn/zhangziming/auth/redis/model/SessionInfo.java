@@ -0,0 +1,62 @@
+package cn.zhangziming.auth.redis.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 登录会话
+ *
+ * <p>一次登录对应一个会话，会话ID即RefreshToken的jti；刷新AccessToken时会话ID不变
+ * <p>刷新或续期后旧AccessToken在过期前仍可使用（客户端换上新Token前的并发请求），会话保留这些jti，下线时一并吊销
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@NoArgsConstructor
+public class SessionInfo implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 会话ID（RefreshToken的jti）
+     */
+    private String sessionId;
+
+    /**
+     * 当前AccessToken的jti
+     */
+    private String accessTokenId;
+
+    /**
+     * 当前AccessToken过期时间戳（毫秒）
+     */
+    private long accessExpiresAt;
+
+    /**
+     * 会话过期时间戳（毫秒），即RefreshToken过期时间
+     */
+    private long expiresAt;
+
+    /**
+     * 登录时间戳（毫秒）
+     */
+    private long loginTime;
+
+    /**
+     * 此前签发、尚未过期的AccessToken（jti -> 过期时间戳毫秒）
+     */
+    private Map<String, Long> previousAccessTokens = new LinkedHashMap<>();
+
+    public SessionInfo(String sessionId, String accessTokenId, long accessExpiresAt, long expiresAt, long loginTime) {
+        this.sessionId = sessionId;
+        this.accessTokenId = accessTokenId;
+        this.accessExpiresAt = accessExpiresAt;
+        this.expiresAt = expiresAt;
+        this.loginTime = loginTime;
+    }
+}
@@ -0,0 +1,79 @@
+package cn.zhangziming.auth.redis.service;
+
+import cn.zhangziming.auth.redis.model.SessionInfo;
+
+import java.util.List;
+
+/**
+ * 用户会话服务
+ *
+ * <p>每个用户的会话保存在一个Redis Hash中（field为会话ID），列表、计数、全部下线都只需一次往返
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface SessionService {
+
+    /**
+     * 登记会话
+     * 超过单用户会话上限时，最早登录的会话被踢下线
+     *
+     * @param userId  用户ID
+     * @param session 会话
+     * @return 被踢下线的会话
+     */
+    List<SessionInfo> create(Long userId, SessionInfo session);
+
+    /**
+     * 刷新AccessToken后更新会话
+     *
+     * @param userId          用户ID
+     * @param sessionId       会话ID
+     * @param accessTokenId   新AccessToken的jti
+     * @param accessExpiresAt 新AccessToken过期时间戳（毫秒）
+     * @return false-会话不存在（已下线或已过期）
+     */
+    boolean renew(Long userId, String sessionId, String accessTokenId, long accessExpiresAt);
+
+    /**
+     * 查询用户的有效会话，按登录时间倒序
+     *
+     * @param userId 用户ID
+     * @return 会话列表
+     */
+    List<SessionInfo> list(Long userId);
+
+    /**
+     * 统计用户的有效会话数
+     *
+     * @param userId 用户ID
+     * @return 会话数
+     */
+    int count(Long userId);
+
+    /**
+     * 按AccessToken的jti查找会话
+     *
+     * @param userId        用户ID
+     * @param accessTokenId AccessToken的jti
+     * @return 会话，不存在返回null
+     */
+    SessionInfo findByAccessTokenId(Long userId, String accessTokenId);
+
+    /**
+     * 下线指定会话，并吊销其AccessToken和RefreshToken
+     *
+     * @param userId    用户ID
+     * @param sessionId 会话ID
+     * @return false-会话不存在
+     */
+    boolean remove(Long userId, String sessionId);
+
+    /**
+     * 下线用户的全部会话
+     *
+     * @param userId 用户ID
+     * @return 下线的会话数
+     */
+    int removeAll(Long userId);
+}
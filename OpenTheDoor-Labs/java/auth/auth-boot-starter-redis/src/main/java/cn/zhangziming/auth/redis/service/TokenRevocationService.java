@@ -0,0 +1,28 @@
+package cn.zhangziming.auth.redis.service;
+
+/**
+ * Token吊销服务
+ *
+ * <p>以jti为粒度的黑名单，登出、踢下线时写入，Token自然过期后自动移除
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface TokenRevocationService {
+
+    /**
+     * 吊销Token
+     *
+     * @param tokenId          Token唯一标识（jti）
+     * @param expirationMillis Token过期时间戳（毫秒），吊销记录保留到此时刻
+     */
+    void revoke(String tokenId, long expirationMillis);
+
+    /**
+     * 判断Token是否已吊销
+     *
+     * @param tokenId Token唯一标识（jti）
+     * @return true-已吊销 false-未吊销
+     */
+    boolean isRevoked(String tokenId);
+}
@@ -0,0 +1,101 @@
+package cn.zhangziming.auth.redis.service;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * 用户角色/权限缓存
+ *
+ * <p>缓存用户的角色ID和有效权限编码，本地缓存未命中时查Redis，都未命中时调用加载函数并回填
+ * <p>数据变更提交后调用失效方法，所有节点通过发布订阅同步失效本地缓存
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface UserAuthorityCache {
+
+    /**
+     * 获取用户的角色ID
+     *
+     * @param userId 用户ID
+     * @param loader 缓存未命中时的加载函数
+     * @return 角色ID（不可修改）
+     */
+    Set<Long> getRoleIds(Long userId, Function<Long, ? extends Collection<Long>> loader);
+
+    /**
+     * 获取用户的有效权限编码
+     *
+     * @param userId 用户ID
+     * @param loader 缓存未命中时的加载函数
+     * @return 权限编码（不可修改）
+     */
+    Set<String> getPermissionCodes(Long userId, Function<Long, ? extends Collection<String>> loader);
+
+    /**
+     * 用户的角色分配已变更，同时失效角色和权限
+     *
+     * @param userIds 用户ID
+     */
+    void evictRoles(Collection<Long> userIds);
+
+    /**
+     * 用户的有效权限已变更（角色的权限或继承关系变化），只失效权限
+     *
+     * @param userIds 用户ID
+     */
+    void evictPermissions(Collection<Long> userIds);
+
+    /**
+     * 失效全部用户的缓存
+     */
+    void evictAll();
+
+    /**
+     * 注册失效监听
+     * 收到其他节点的失效广播时调用，等返回的结果完成后才清除本地缓存，
+     * 用于让本节点依赖的其他内存数据（如RBAC模型）先行刷新；监听器在订阅线程上调用，不应在其中阻塞
+     *
+     * @param listener 监听器
+     */
+    void addRemoteEvictionListener(EvictionListener listener);
+
+    /**
+     * 失效类型
+     */
+    enum EvictionKind {
+
+        /**
+         * 用户的角色分配变更，失效这些用户的角色和权限
+         */
+        USER_ROLES,
+
+        /**
+         * 角色的权限或继承关系变更，失效受影响用户的权限
+         */
+        ROLE_PERMISSIONS,
+
+        /**
+         * 整体失效
+         */
+        ALL
+    }
+
+    /**
+     * 失效监听器
+     */
+    @FunctionalInterface
+    interface EvictionListener {
+
+        /**
+         * 其他节点发起了失效
+         *
+         * @param userIds 失效的用户ID，整体失效时为null
+         * @param kind    失效类型
+         * @return 依赖的数据刷新完成（成功或失败）时完成
+         */
+        CompletionStage<?> onEvicted(Collection<Long> userIds, EvictionKind kind);
+    }
+}
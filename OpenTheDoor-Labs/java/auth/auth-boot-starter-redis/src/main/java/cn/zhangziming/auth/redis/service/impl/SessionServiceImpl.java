@@ -0,0 +1,249 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.SessionProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.model.SessionInfo;
+import cn.zhangziming.auth.redis.service.SessionService;
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户会话服务实现
+ *
+ * <p>Redis结构：session:user:{userId} -> Hash{会话ID: "accessJti,accessExp,expiresAt,loginTime[,旧jti:旧exp...]"}
+ * <p>刷新AccessToken时旧jti保留到它过期，下线会话时与当前AccessToken一起吊销
+ * <p>刷新按字段值比较后写入（Lua脚本），并发刷新不会丢失旧jti，也不会把已下线的会话写回
+ * <p>每个会话只占一个Hash字段（约百字节），不再以完整Token作为key；Hash整体的过期时间跟随最近登录的会话，
+ * 单个已过期的字段在读取时顺带清理
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class SessionServiceImpl implements SessionService {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * 旧AccessToken的jti与过期时间之间的分隔符
+     */
+    private static final String PREVIOUS_SEPARATOR = ":";
+
+    /**
+     * Lua脚本：字段值仍是读取时的值才写入；返回1-已写入，0-字段已删除，-1-字段已被并发修改
+     */
+    private static final String RENEW_LUA_SCRIPT =
+            "local current = redis.call('hget', KEYS[1], ARGV[1]) " +
+            "if not current then " +
+            "    return 0 " +
+            "end " +
+            "if current ~= ARGV[2] then " +
+            "    return -1 " +
+            "end " +
+            "redis.call('hset', KEYS[1], ARGV[1], ARGV[3]) " +
+            "return 1";
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(RENEW_LUA_SCRIPT, Long.class);
+
+    /**
+     * 刷新时字段被并发修改后的最大重试次数
+     */
+    private static final int RENEW_MAX_ATTEMPTS = 8;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final SessionProperties properties;
+
+    /**
+     * Token吊销服务，未启用时为null（只删除会话，已签发的Token在过期前仍可使用）
+     */
+    private final TokenRevocationService revocationService;
+
+    public SessionServiceImpl(StringRedisTemplate redisTemplate, SessionProperties properties,
+                              TokenRevocationService revocationService) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.revocationService = revocationService;
+    }
+
+    @Override
+    public List<SessionInfo> create(Long userId, SessionInfo session) {
+        String key = key(userId);
+        hash().put(key, session.getSessionId(), encode(session));
+        redisTemplate.expireAt(key, new Date(session.getExpiresAt()));
+
+        int maxSessions = properties.getMaxSessionsPerUser();
+        if (maxSessions <= 0) {
+            return List.of();
+        }
+        List<SessionInfo> sessions = list(userId);
+        if (sessions.size() <= maxSessions) {
+            return List.of();
+        }
+        // list按登录时间倒序，超出上限的尾部即最早登录的会话
+        List<SessionInfo> evicted = new ArrayList<>(sessions.subList(maxSessions, sessions.size()));
+        hash().delete(key, evicted.stream().map(SessionInfo::getSessionId).toArray());
+        evicted.forEach(this::revoke);
+        log.info("超出会话上限，踢下线最早的会话: userId={}, count={}", userId, evicted.size());
+        return evicted;
+    }
+
+    @Override
+    public boolean renew(Long userId, String sessionId, String accessTokenId, long accessExpiresAt) {
+        String key = key(userId);
+        List<String> keys = Collections.singletonList(key);
+        for (int attempt = 0; attempt < RENEW_MAX_ATTEMPTS; attempt++) {
+            String value = hash().get(key, sessionId);
+            SessionInfo session = decode(sessionId, value);
+            if (session == null) {
+                return false;
+            }
+            // 旧AccessToken在过期前仍有效，记在会话上，下线时一并吊销
+            long now = System.currentTimeMillis();
+            Map<String, Long> previous = session.getPreviousAccessTokens();
+            previous.values().removeIf(expiresAt -> expiresAt <= now);
+            if (!session.getAccessTokenId().equals(accessTokenId) && session.getAccessExpiresAt() > now) {
+                previous.put(session.getAccessTokenId(), session.getAccessExpiresAt());
+            }
+            session.setAccessTokenId(accessTokenId);
+            session.setAccessExpiresAt(accessExpiresAt);
+            Long result = redisTemplate.execute(RENEW_SCRIPT, keys, sessionId, value, encode(session));
+            if (result == null || result == 0) {
+                // 读取后会话被下线
+                return false;
+            }
+            if (result > 0) {
+                return true;
+            }
+            // 同一会话被并发刷新，基于最新的值重新合并
+        }
+        log.warn("会话并发刷新冲突次数过多: userId={}, sessionId={}", userId, sessionId);
+        return false;
+    }
+
+    @Override
+    public List<SessionInfo> list(Long userId) {
+        String key = key(userId);
+        Map<String, String> entries = hash().entries(key);
+        long now = System.currentTimeMillis();
+        List<SessionInfo> sessions = new ArrayList<>(entries.size());
+        List<Object> expired = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            SessionInfo session = decode(entry.getKey(), entry.getValue());
+            if (session == null || session.getExpiresAt() <= now) {
+                expired.add(entry.getKey());
+            } else {
+                sessions.add(session);
+            }
+        }
+        if (!expired.isEmpty()) {
+            hash().delete(key, expired.toArray());
+        }
+        sessions.sort(Comparator.comparingLong(SessionInfo::getLoginTime).reversed());
+        return sessions;
+    }
+
+    @Override
+    public int count(Long userId) {
+        return list(userId).size();
+    }
+
+    @Override
+    public SessionInfo findByAccessTokenId(Long userId, String accessTokenId) {
+        for (SessionInfo session : list(userId)) {
+            if (session.getAccessTokenId().equals(accessTokenId)
+                    || session.getPreviousAccessTokens().containsKey(accessTokenId)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean remove(Long userId, String sessionId) {
+        String key = key(userId);
+        SessionInfo session = decode(sessionId, hash().get(key, sessionId));
+        if (session == null) {
+            return false;
+        }
+        hash().delete(key, sessionId);
+        revoke(session);
+        return true;
+    }
+
+    @Override
+    public int removeAll(Long userId) {
+        List<SessionInfo> sessions = list(userId);
+        redisTemplate.delete(key(userId));
+        sessions.forEach(this::revoke);
+        log.info("用户全部会话已下线: userId={}, count={}", userId, sessions.size());
+        return sessions.size();
+    }
+
+    /**
+     * 吊销会话的AccessToken（含尚未过期的旧AccessToken）和RefreshToken
+     */
+    private void revoke(SessionInfo session) {
+        if (revocationService == null) {
+            return;
+        }
+        revocationService.revoke(session.getAccessTokenId(), session.getAccessExpiresAt());
+        session.getPreviousAccessTokens().forEach(revocationService::revoke);
+        revocationService.revoke(session.getSessionId(), session.getExpiresAt());
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redisTemplate.opsForHash();
+    }
+
+    private static String key(Long userId) {
+        return CacheConstant.SESSION_USER_PREFIX + userId;
+    }
+
+    private static String encode(SessionInfo session) {
+        StringBuilder value = new StringBuilder()
+                .append(session.getAccessTokenId()).append(SEPARATOR).append(session.getAccessExpiresAt())
+                .append(SEPARATOR).append(session.getExpiresAt()).append(SEPARATOR).append(session.getLoginTime());
+        session.getPreviousAccessTokens().forEach((tokenId, expiresAt) ->
+                value.append(SEPARATOR).append(tokenId).append(PREVIOUS_SEPARATOR).append(expiresAt));
+        return value.toString();
+    }
+
+    /**
+     * 解析Hash字段值，格式错误返回null
+     */
+    private static SessionInfo decode(String sessionId, String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.split(SEPARATOR);
+        if (parts.length < 4) {
+            return null;
+        }
+        try {
+            SessionInfo session = new SessionInfo(sessionId, parts[0], Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            for (int i = 4; i < parts.length; i++) {
+                int separator = parts[i].lastIndexOf(PREVIOUS_SEPARATOR);
+                if (separator <= 0) {
+                    return null;
+                }
+                session.getPreviousAccessTokens().put(parts[i].substring(0, separator),
+                        Long.parseLong(parts[i].substring(separator + 1)));
+            }
+            return session;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
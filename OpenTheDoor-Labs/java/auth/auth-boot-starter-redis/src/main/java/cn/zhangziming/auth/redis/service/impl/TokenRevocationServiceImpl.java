@@ -0,0 +1,186 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.TokenRevocationProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token吊销服务实现
+ *
+ * <p>Redis中用ZSet保存吊销记录（member为jti，score为Token过期时间），每条记录的有效期等于Token剩余寿命
+ * <p>每个节点在本地维护一份镜像：布隆过滤器 + 精确集合，通过Redis发布订阅增量更新，定期全量同步
+ * <p>判断流程：
+ * <ol>
+ *     <li>布隆过滤器判定不存在（绝大多数正常Token）：直接放行，不访问网络</li>
+ *     <li>精确集合命中：已吊销</li>
+ *     <li>布隆过滤器误判：查询一次Redis确认</li>
+ * </ol>
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class TokenRevocationServiceImpl implements TokenRevocationService, MessageListener,
+        InitializingBean, DisposableBean {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final TokenRevocationProperties properties;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 本地布隆过滤器，全量同步时整体替换
+     */
+    private volatile BloomFilter<CharSequence> bloomFilter;
+
+    /**
+     * 本地精确集合（jti -> 过期时间戳毫秒）
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationServiceImpl(StringRedisTemplate redisTemplate, TokenRevocationProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.bloomFilter = newBloomFilter(properties.getExpectedInsertions());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        resync();
+        scheduler.scheduleWithFixedDelay(this::resync,
+                properties.getResyncInterval(), properties.getResyncInterval(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void revoke(String tokenId, long expirationMillis) {
+        if (expirationMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        redisTemplate.opsForZSet().add(CacheConstant.TOKEN_REVOKED_KEY, tokenId, expirationMillis);
+        addLocal(tokenId, expirationMillis);
+        redisTemplate.convertAndSend(CacheConstant.TOKEN_REVOKED_CHANNEL, tokenId + ":" + expirationMillis);
+        log.info("Token已吊销: jti={}", tokenId);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        if (!bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        Long expirationMillis = revoked.get(tokenId);
+        if (expirationMillis != null) {
+            return expirationMillis > System.currentTimeMillis();
+        }
+        return isRevokedRemotely(tokenId);
+    }
+
+    /**
+     * 接收其他节点的吊销广播
+     * 消息格式: jti:过期时间戳
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("忽略格式错误的Token吊销广播: {}", body);
+            return;
+        }
+        try {
+            addLocal(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的Token吊销广播: {}", body);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 布隆过滤器误判时查询Redis确认，确认吊销后写入精确集合
+     * Redis不可用时放行：已知的吊销记录都在精确集合中，这里只会漏掉尚未同步到本节点的记录
+     */
+    private boolean isRevokedRemotely(String tokenId) {
+        try {
+            Double score = redisTemplate.opsForZSet().score(CacheConstant.TOKEN_REVOKED_KEY, tokenId);
+            if (score != null && score.longValue() > System.currentTimeMillis()) {
+                revoked.put(tokenId, score.longValue());
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            log.warn("查询Token吊销状态失败: jti={}, {}", tokenId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 写入本地镜像：先写精确集合再写布隆过滤器，全量同步据此补齐并发写入
+     */
+    private void addLocal(String tokenId, long expirationMillis) {
+        revoked.put(tokenId, expirationMillis);
+        bloomFilter.put(tokenId);
+    }
+
+    /**
+     * 全量同步：清理Redis中已过期的记录，用剩余记录重建本地布隆过滤器和精确集合
+     */
+    private void resync() {
+        try {
+            long now = System.currentTimeMillis();
+            ZSetOperations<String, String> zSet = redisTemplate.opsForZSet();
+            zSet.removeRangeByScore(CacheConstant.TOKEN_REVOKED_KEY, 0, now);
+            Set<ZSetOperations.TypedTuple<String>> entries =
+                    zSet.rangeByScoreWithScores(CacheConstant.TOKEN_REVOKED_KEY, now, Double.MAX_VALUE);
+
+            int size = entries != null ? entries.size() : 0;
+            BloomFilter<CharSequence> fresh = newBloomFilter(Math.max(properties.getExpectedInsertions(), size * 2L));
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        revoked.put(entry.getValue(), entry.getScore().longValue());
+                    }
+                }
+            }
+            revoked.values().removeIf(expirationMillis -> expirationMillis <= now);
+            revoked.keySet().forEach(fresh::put);
+            bloomFilter = fresh;
+            // 替换前并发写入精确集合的记录可能只进了旧过滤器，替换后再补一次
+            revoked.keySet().forEach(fresh::put);
+
+            log.debug("Token吊销列表已同步: {}条", revoked.size());
+        } catch (Exception e) {
+            log.warn("同步Token吊销列表失败，继续使用本地镜像: {}", e.getMessage());
+        }
+    }
+
+    private BloomFilter<CharSequence> newBloomFilter(long expectedInsertions) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                expectedInsertions, properties.getFalsePositiveRate());
+    }
+}
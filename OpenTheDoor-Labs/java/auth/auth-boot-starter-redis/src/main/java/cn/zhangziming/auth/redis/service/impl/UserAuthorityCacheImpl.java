@@ -0,0 +1,344 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.UserAuthorityCacheProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.service.UserAuthorityCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 用户角色/权限两级缓存实现
+ *
+ * <p>L1为本地Caffeine缓存（容量有界），L2为Redis字符串；权限检查绝大多数只访问本地内存
+ * <p>失效流程：变更提交后删除Redis中的键并广播用户ID，各节点收到后失效本地缓存；
+ * 约1秒后再删一次Redis键，清除并发加载在失效前读到旧数据后回填的值
+ * <p>整体失效时自增Redis中的代数，代数是L2键的一部分，旧代数的键不再被读取，随过期时间自然清理
+ * <p>广播带有节点ID，节点忽略自己发出的广播；收到失效广播时先通知监听器，等监听器刷新完依赖的数据后再清除本地缓存，
+ * 期间本节点继续使用原缓存；刷新期间按旧数据回填到Redis的值由发起节点的二次删除清除
+ * <p>本地维护失效序号：加载期间发生过失效则不回填，避免旧数据覆盖失效结果
+ * <p>Redis不可用时退回直接加载，只记录警告
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class UserAuthorityCacheImpl implements UserAuthorityCache, MessageListener,
+        InitializingBean, DisposableBean {
+
+    /**
+     * 二次删除的延迟（毫秒）
+     */
+    private static final long DOUBLE_DELETE_DELAY_MILLIS = 1000L;
+
+    private static final String ROLE_KEY_PREFIX = CacheConstant.ROLE_CACHE_PREFIX + "user:";
+
+    private static final String PERMISSION_KEY_PREFIX = CacheConstant.PERMISSION_CACHE_PREFIX + "user:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final UserAuthorityCacheProperties properties;
+
+    private final Cache<Long, Set<Long>> roleIds;
+
+    private final Cache<Long, Set<String>> permissionCodes;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 本节点ID，用于忽略自己发出的广播
+     */
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final List<EvictionListener> remoteEvictionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 本地失效序号，每次失效（本节点发起或收到广播）都自增
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 当前缓存代数
+     */
+    private volatile long generation;
+
+    public UserAuthorityCacheImpl(StringRedisTemplate redisTemplate, UserAuthorityCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.roleIds = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(properties.getLocalExpire()))
+                .build();
+        this.permissionCodes = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(properties.getLocalExpire()))
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-authority-cache-evict");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            String value = redisTemplate.opsForValue().get(CacheConstant.AUTHORITY_GENERATION_KEY);
+            generation = value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("读取用户权限缓存代数失败，按代数{}读写: {}", generation, e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<Long> getRoleIds(Long userId, Function<Long, ? extends Collection<Long>> loader) {
+        return get(roleIds, ROLE_KEY_PREFIX, userId, loader,
+                UserAuthorityCacheImpl::encodeIds, UserAuthorityCacheImpl::decodeIds);
+    }
+
+    @Override
+    public Set<String> getPermissionCodes(Long userId, Function<Long, ? extends Collection<String>> loader) {
+        return get(permissionCodes, PERMISSION_KEY_PREFIX, userId, loader,
+                UserAuthorityCacheImpl::encodeCodes, UserAuthorityCacheImpl::decodeCodes);
+    }
+
+    @Override
+    public void evictRoles(Collection<Long> userIds) {
+        evict(userIds, true);
+    }
+
+    @Override
+    public void evictPermissions(Collection<Long> userIds) {
+        evict(userIds, false);
+    }
+
+    @Override
+    public void evictAll() {
+        evictions.incrementAndGet();
+        try {
+            Long next = redisTemplate.opsForValue().increment(CacheConstant.AUTHORITY_GENERATION_KEY);
+            if (next != null) {
+                generation = next;
+                redisTemplate.convertAndSend(CacheConstant.AUTHORITY_EVICT_CHANNEL, "g:" + nodeId + ":" + next);
+            }
+        } catch (Exception e) {
+            log.warn("用户权限缓存整体失效广播失败: {}", e.getMessage());
+        }
+        roleIds.invalidateAll();
+        permissionCodes.invalidateAll();
+        log.info("用户权限缓存已整体失效: generation={}", generation);
+    }
+
+    @Override
+    public void addRemoteEvictionListener(EvictionListener listener) {
+        remoteEvictionListeners.add(listener);
+    }
+
+    /**
+     * 接收失效广播
+     * 消息格式: 类型:节点ID:内容，类型为 r（角色和权限，内容为用户ID列表）、p（仅权限，内容为用户ID列表）、g（整体失效，内容为代数）
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':', 2);
+        if (body.length() < 2 || body.charAt(1) != ':' || separator < 0) {
+            log.warn("忽略格式错误的用户权限缓存失效广播: {}", body);
+            return;
+        }
+        if (nodeId.equals(body.substring(2, separator))) {
+            return;
+        }
+        try {
+            char type = body.charAt(0);
+            String payload = body.substring(separator + 1);
+            if (type == 'g') {
+                long next = Long.parseLong(payload);
+                afterRemoteListeners(null, EvictionKind.ALL, () -> {
+                    evictions.incrementAndGet();
+                    generation = Math.max(generation, next);
+                    roleIds.invalidateAll();
+                    permissionCodes.invalidateAll();
+                });
+                return;
+            }
+            Set<Long> userIds = decodeIds(payload);
+            boolean roles = type == 'r';
+            afterRemoteListeners(userIds, roles ? EvictionKind.USER_ROLES : EvictionKind.ROLE_PERMISSIONS,
+                    () -> evictLocal(userIds, roles));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的用户权限缓存失效广播: {}", body);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * L1 -> L2 -> 加载函数，逐级回填
+     */
+    private <T> Set<T> get(Cache<Long, Set<T>> local, String keyPrefix, Long userId,
+                           Function<Long, ? extends Collection<T>> loader,
+                           Function<Set<T>, String> encoder, Function<String, Set<T>> decoder) {
+        Set<T> cached = local.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long sequence = evictions.get();
+        String key = keyPrefix + generation + ":" + userId;
+        try {
+            String value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                Set<T> decoded = decoder.apply(value);
+                putLocal(local, userId, decoded, sequence);
+                return decoded;
+            }
+        } catch (Exception e) {
+            log.warn("读取用户权限缓存失败: key={}, {}", key, e.getMessage());
+        }
+
+        Set<T> loaded = Set.copyOf(loader.apply(userId));
+        if (evictions.get() != sequence) {
+            return loaded;
+        }
+        putLocal(local, userId, loaded, sequence);
+        try {
+            redisTemplate.opsForValue().set(key, encoder.apply(loaded), Duration.ofSeconds(properties.getRemoteExpire()));
+            if (evictions.get() != sequence) {
+                redisTemplate.delete(key);
+            }
+        } catch (Exception e) {
+            log.warn("写入用户权限缓存失败: key={}, {}", key, e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * 失效方先自增序号再清除，回填方写入后复查序号，两种先后顺序下旧值都不会留下
+     */
+    private <T> void putLocal(Cache<Long, Set<T>> local, Long userId, Set<T> value, long sequence) {
+        local.put(userId, value);
+        if (evictions.get() != sequence) {
+            local.invalidate(userId);
+        }
+    }
+
+    private void evict(Collection<Long> userIds, boolean roles) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        if (userIds.size() > properties.getMaxPreciseEvictions()) {
+            evictAll();
+            return;
+        }
+        Set<Long> distinct = new LinkedHashSet<>(userIds);
+        evictLocal(distinct, roles);
+        List<String> keys = remoteKeys(distinct, roles);
+        try {
+            redisTemplate.delete(keys);
+            redisTemplate.convertAndSend(CacheConstant.AUTHORITY_EVICT_CHANNEL,
+                    (roles ? "r:" : "p:") + nodeId + ":" + encodeIds(distinct));
+            scheduler.schedule(() -> deleteQuietly(keys), DOUBLE_DELETE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("用户权限缓存失效广播失败: users={}, {}", distinct.size(), e.getMessage());
+        }
+        log.debug("用户权限缓存已失效: users={}, roles={}", distinct, roles);
+    }
+
+    private void evictLocal(Collection<Long> userIds, boolean roles) {
+        evictions.incrementAndGet();
+        if (roles) {
+            roleIds.invalidateAll(userIds);
+        }
+        permissionCodes.invalidateAll(userIds);
+    }
+
+    /**
+     * 通知监听器，全部完成后执行本地失效；没有监听器时立即执行
+     */
+    private void afterRemoteListeners(Collection<Long> userIds, EvictionKind kind, Runnable evict) {
+        List<CompletableFuture<?>> pending = new ArrayList<>(remoteEvictionListeners.size());
+        for (EvictionListener listener : remoteEvictionListeners) {
+            try {
+                pending.add(listener.onEvicted(userIds, kind).toCompletableFuture());
+            } catch (Exception e) {
+                log.warn("用户权限缓存失效监听执行失败: {}", e.getMessage());
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> evict.run());
+    }
+
+    private List<String> remoteKeys(Collection<Long> userIds, boolean roles) {
+        long current = generation;
+        List<String> keys = new ArrayList<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            if (roles) {
+                keys.add(ROLE_KEY_PREFIX + current + ":" + userId);
+            }
+            keys.add(PERMISSION_KEY_PREFIX + current + ":" + userId);
+        }
+        return keys;
+    }
+
+    private void deleteQuietly(List<String> keys) {
+        try {
+            redisTemplate.delete(keys);
+        } catch (Exception e) {
+            log.warn("用户权限缓存二次删除失败: {}", e.getMessage());
+        }
+    }
+
+    private static String encodeIds(Collection<Long> ids) {
+        StringJoiner joiner = new StringJoiner(",");
+        ids.forEach(id -> joiner.add(String.valueOf(id)));
+        return joiner.toString();
+    }
+
+    private static Set<Long> decodeIds(String value) {
+        if (value.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String id : value.split(",")) {
+            ids.add(Long.parseLong(id));
+        }
+        return Set.copyOf(ids);
+    }
+
+    /**
+     * 权限编码不含换行，按换行拼接；空集合存为空串，与"未缓存"区分
+     */
+    private static String encodeCodes(Collection<String> codes) {
+        return String.join("\n", codes);
+    }
+
+    private static Set<String> decodeCodes(String value) {
+        return value.isEmpty() ? Set.of() : Set.copyOf(Arrays.asList(value.split("\n")));
+    }
+}
@@ -0,0 +1,124 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.SessionProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.model.SessionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 会话刷新测试
+ *
+ * <p>Redis Hash用内存Map模拟，刷新脚本按相同语义比较后写入
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class SessionServiceImplTest {
+
+    private static final Long USER_ID = 1L;
+
+    private static final String KEY = CacheConstant.SESSION_USER_PREFIX + USER_ID;
+
+    private final Map<String, String> fields = new HashMap<>();
+
+    /**
+     * 在脚本执行前调用，模拟读取和写入之间的并发修改
+     */
+    private Runnable beforeScript = () -> { };
+
+    private SessionServiceImpl sessionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hash = mock(HashOperations.class);
+        when(template.opsForHash()).thenReturn(hash);
+        when(hash.get(any(), any())).thenAnswer(invocation -> fields.get(invocation.<String>getArgument(1)));
+        when(hash.entries(KEY)).thenAnswer(invocation -> new HashMap<>(fields));
+        doAnswer(invocation -> {
+            Runnable concurrent = beforeScript;
+            beforeScript = () -> { };
+            concurrent.run();
+            String field = invocation.getArgument(2);
+            String current = fields.get(field);
+            if (current == null) {
+                return 0L;
+            }
+            if (!current.equals(invocation.getArgument(3))) {
+                return -1L;
+            }
+            fields.put(field, invocation.getArgument(4));
+            return 1L;
+        }).when(template).execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString());
+        sessionService = new SessionServiceImpl(template, new SessionProperties(), null);
+    }
+
+    @Test
+    void renewPointsToNewTokenAndKeepsSupersededJti() {
+        long future = System.currentTimeMillis() + 60_000;
+        seed("s1", "a1", future);
+
+        assertTrue(sessionService.renew(USER_ID, "s1", "a2", future + 1000));
+
+        SessionInfo session = sessionService.findByAccessTokenId(USER_ID, "a2");
+        assertEquals("a2", session.getAccessTokenId());
+        assertEquals(future, session.getPreviousAccessTokens().get("a1"));
+        // 旧AccessToken仍能找到所在会话，登出时可一并吊销
+        assertEquals("s1", sessionService.findByAccessTokenId(USER_ID, "a1").getSessionId());
+    }
+
+    @Test
+    void renewDoesNotResurrectRemovedSession() {
+        long future = System.currentTimeMillis() + 60_000;
+        seed("s1", "a1", future);
+        // 读取之后、写入之前会话被踢下线
+        beforeScript = () -> fields.remove("s1");
+
+        assertFalse(sessionService.renew(USER_ID, "s1", "a2", future));
+        assertNull(fields.get("s1"));
+    }
+
+    @Test
+    void concurrentRenewKeepsBothSupersededJtis() {
+        long future = System.currentTimeMillis() + 60_000;
+        seed("s1", "a1", future);
+        // 读取之后另一个请求先把会话刷新到 a2
+        beforeScript = () -> sessionService.renew(USER_ID, "s1", "a2", future + 1000);
+
+        assertTrue(sessionService.renew(USER_ID, "s1", "a3", future + 2000));
+
+        SessionInfo session = sessionService.findByAccessTokenId(USER_ID, "a3");
+        assertEquals("a3", session.getAccessTokenId());
+        assertEquals(List.of("a1", "a2"), List.copyOf(session.getPreviousAccessTokens().keySet()));
+    }
+
+    @Test
+    void renewOfMissingSessionFails() {
+        assertFalse(sessionService.renew(USER_ID, "missing", "a2", System.currentTimeMillis() + 60_000));
+    }
+
+    private void seed(String sessionId, String accessTokenId, long expiresAt) {
+        fields.put(sessionId, accessTokenId + "," + expiresAt + "," + (expiresAt + 600_000) + ","
+                + System.currentTimeMillis());
+    }
+}
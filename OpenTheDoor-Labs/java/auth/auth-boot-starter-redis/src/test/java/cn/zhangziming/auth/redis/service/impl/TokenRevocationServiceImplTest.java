@@ -0,0 +1,135 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.TokenRevocationProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Token吊销本地镜像测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class TokenRevocationServiceImplTest {
+
+    private StringRedisTemplate redisTemplate;
+
+    private ZSetOperations<String, String> zSet;
+
+    private TokenRevocationServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        zSet = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSet);
+        service = new TokenRevocationServiceImpl(redisTemplate, new TokenRevocationProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void revokeWritesRedisBroadcastsAndMirrorsLocally() {
+        long expiration = System.currentTimeMillis() + 60_000L;
+
+        service.revoke("jti-1", expiration);
+
+        verify(zSet).add(CacheConstant.TOKEN_REVOKED_KEY, "jti-1", expiration);
+        verify(redisTemplate).convertAndSend(CacheConstant.TOKEN_REVOKED_CHANNEL, "jti-1:" + expiration);
+        assertTrue(service.isRevoked("jti-1"));
+        // 精确集合命中，不再查询Redis
+        verify(zSet, never()).score(anyString(), anyString());
+    }
+
+    @Test
+    void expiredTokenIsNotRecorded() {
+        service.revoke("jti-1", System.currentTimeMillis() - 1L);
+
+        verify(zSet, never()).add(anyString(), anyString(), anyDouble());
+        assertFalse(service.isRevoked("jti-1"));
+    }
+
+    @Test
+    void unknownTokenIsAcceptedWithoutNetwork() {
+        assertFalse(service.isRevoked("jti-unknown"));
+
+        verify(zSet, never()).score(anyString(), anyString());
+    }
+
+    @Test
+    void broadcastFromOtherNodeIsMirrored() {
+        long expiration = System.currentTimeMillis() + 60_000L;
+
+        // jti本身可能含冒号，按最后一个冒号切分
+        service.onMessage(message("tenant:jti-1:" + expiration), null);
+        service.onMessage(message("jti-2:" + (System.currentTimeMillis() - 1L)), null);
+
+        assertTrue(service.isRevoked("tenant:jti-1"));
+        assertFalse(service.isRevoked("tenant"));
+        // 已过期的记录不再视为吊销
+        assertFalse(service.isRevoked("jti-2"));
+    }
+
+    @Test
+    void malformedBroadcastIsIgnored() {
+        service.onMessage(message("jti-1"), null);
+        service.onMessage(message(":123"), null);
+        service.onMessage(message("jti-2:abc"), null);
+
+        assertFalse(service.isRevoked("jti-1"));
+        assertFalse(service.isRevoked("jti-2"));
+    }
+
+    @Test
+    void resyncLoadsRecordsMissedByBroadcast() {
+        long now = System.currentTimeMillis();
+        when(zSet.rangeByScoreWithScores(eq(CacheConstant.TOKEN_REVOKED_KEY), anyDouble(), anyDouble()))
+                .thenReturn(Set.of(new DefaultTypedTuple<>("jti-1", (double) (now + 60_000L))));
+
+        service.afterPropertiesSet();
+
+        verify(zSet).removeRangeByScore(eq(CacheConstant.TOKEN_REVOKED_KEY), eq(0D), anyDouble());
+        assertTrue(service.isRevoked("jti-1"));
+        assertFalse(service.isRevoked("jti-2"));
+    }
+
+    @Test
+    void resyncFailureKeepsLocalMirror() {
+        long expiration = System.currentTimeMillis() + 60_000L;
+        service.onMessage(message("jti-1:" + expiration), null);
+        when(zSet.removeRangeByScore(anyString(), anyDouble(), anyDouble()))
+                .thenThrow(new IllegalStateException("redis down"));
+
+        service.afterPropertiesSet();
+
+        assertTrue(service.isRevoked("jti-1"));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CacheConstant.TOKEN_REVOKED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
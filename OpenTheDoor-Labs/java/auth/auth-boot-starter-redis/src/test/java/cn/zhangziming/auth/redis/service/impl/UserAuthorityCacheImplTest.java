@@ -0,0 +1,354 @@
+package cn.zhangziming.auth.redis.service.impl;
+
+import cn.zhangziming.auth.redis.config.UserAuthorityCacheProperties;
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.redis.service.UserAuthorityCache.EvictionKind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户权限两级缓存测试
+ *
+ * <p>Redis字符串用内存Map模拟；失效广播直接调用onMessage投递
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class UserAuthorityCacheImplTest {
+
+    private static final String OTHER_NODE = "othernode";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final List<String> published = new ArrayList<>();
+
+    /**
+     * 在Redis读取或写入时调用，模拟期间到达的失效广播
+     */
+    private Runnable onRedisGet = () -> { };
+
+    private Runnable onRedisSet = () -> { };
+
+    private StringRedisTemplate template;
+
+    private UserAuthorityCacheImpl cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> operations = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(operations);
+        when(operations.get(anyString())).thenAnswer(invocation -> {
+            String value = values.get(invocation.<String>getArgument(0));
+            runOnce(true);
+            return value;
+        });
+        doAnswer(invocation -> {
+            values.put(invocation.getArgument(0), invocation.getArgument(1));
+            runOnce(false);
+            return null;
+        }).when(operations).set(anyString(), anyString(), any(Duration.class));
+        when(template.delete(anyString()))
+                .thenAnswer(invocation -> values.remove(invocation.<String>getArgument(0)) != null);
+        when(template.delete(anyCollection())).thenAnswer(invocation -> {
+            invocation.<Collection<String>>getArgument(0).forEach(values::remove);
+            return 0L;
+        });
+        when(template.convertAndSend(eq(CacheConstant.AUTHORITY_EVICT_CHANNEL), anyString())).thenAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            return 1L;
+        });
+        cache = new UserAuthorityCacheImpl(template, new UserAuthorityCacheProperties());
+        cache.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.destroy();
+    }
+
+    // ==================== 回填与失效的竞争 ====================
+
+    @Test
+    void cachedAfterFirstLoad() {
+        CountingLoader loader = new CountingLoader(Set.of(10L));
+
+        assertEquals(Set.of(10L), cache.getRoleIds(1L, loader));
+        assertEquals(Set.of(10L), cache.getRoleIds(1L, loader));
+
+        assertEquals(1, loader.calls.get());
+        assertEquals("10", values.get(roleKey(0, 1L)));
+    }
+
+    @Test
+    void loadOverlappingEvictionIsNotBackFilled() {
+        // 加载期间收到失效广播：加载结果可能是旧数据，本地和Redis都不回填
+        CountingLoader loader = new CountingLoader(Set.of(10L), () -> deliver("r:" + OTHER_NODE + ":1"));
+
+        assertEquals(Set.of(10L), cache.getRoleIds(1L, loader));
+
+        assertNull(values.get(roleKey(0, 1L)));
+        cache.getRoleIds(1L, loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    void redisValueReadBeforeEvictionIsNotKeptLocally() {
+        values.put(roleKey(0, 1L), "10");
+        onRedisGet = () -> deliver("r:" + OTHER_NODE + ":1");
+        CountingLoader loader = new CountingLoader(Set.of(20L));
+
+        // 本次返回读到的值，但不留在本地缓存
+        assertEquals(Set.of(10L), cache.getRoleIds(1L, loader));
+
+        values.remove(roleKey(0, 1L));
+        assertEquals(Set.of(20L), cache.getRoleIds(1L, loader));
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void backFillWrittenAfterEvictionIsDeletedFromRedis() {
+        // 写入Redis之后、复查序号之前收到失效广播
+        onRedisSet = () -> deliver("r:" + OTHER_NODE + ":1");
+        CountingLoader loader = new CountingLoader(Set.of(10L));
+
+        cache.getRoleIds(1L, loader);
+
+        assertNull(values.get(roleKey(0, 1L)));
+        cache.getRoleIds(1L, loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    void evictionOfOtherUserDoesNotBlockBackFillAfterIt() {
+        cache.getRoleIds(2L, new CountingLoader(Set.of(20L)));
+        deliver("r:" + OTHER_NODE + ":2");
+        CountingLoader loader = new CountingLoader(Set.of(10L));
+
+        cache.getRoleIds(1L, loader);
+        cache.getRoleIds(1L, loader);
+
+        assertEquals(1, loader.calls.get());
+    }
+
+    // ==================== 失效广播解析 ====================
+
+    @Test
+    void roleBroadcastEvictsRolesAndPermissions() {
+        List<String> notified = recordListener();
+        CountingLoader roles = new CountingLoader(Set.of(10L));
+        CountingCodeLoader codes = new CountingCodeLoader(Set.of("user:view"));
+        cache.getRoleIds(1L, roles);
+        cache.getPermissionCodes(1L, codes);
+        values.clear();
+
+        deliver("r:" + OTHER_NODE + ":1,3");
+        cache.getRoleIds(1L, roles);
+        cache.getPermissionCodes(1L, codes);
+
+        assertEquals(List.of("USER_ROLES[1, 3]"), notified);
+        assertEquals(2, roles.calls.get());
+        assertEquals(2, codes.calls.get());
+    }
+
+    @Test
+    void permissionBroadcastKeepsRoles() {
+        List<String> notified = recordListener();
+        CountingLoader roles = new CountingLoader(Set.of(10L));
+        CountingCodeLoader codes = new CountingCodeLoader(Set.of("user:view"));
+        cache.getRoleIds(1L, roles);
+        cache.getPermissionCodes(1L, codes);
+        values.clear();
+
+        deliver("p:" + OTHER_NODE + ":1");
+        cache.getRoleIds(1L, roles);
+        cache.getPermissionCodes(1L, codes);
+
+        assertEquals(List.of("ROLE_PERMISSIONS[1]"), notified);
+        assertEquals(1, roles.calls.get());
+        assertEquals(2, codes.calls.get());
+    }
+
+    @Test
+    void generationBroadcastSwitchesKeys() {
+        List<String> notified = recordListener();
+        cache.getRoleIds(1L, new CountingLoader(Set.of(10L)));
+
+        deliver("g:" + OTHER_NODE + ":5");
+        cache.getRoleIds(1L, new CountingLoader(Set.of(11L)));
+
+        assertEquals(List.of("ALL"), notified);
+        assertEquals("11", values.get(roleKey(5, 1L)));
+        assertEquals("10", values.get(roleKey(0, 1L)));
+    }
+
+    @Test
+    void ownBroadcastIsIgnored() {
+        List<String> notified = recordListener();
+        cache.evictRoles(List.of(1L));
+
+        assertEquals(1, published.size());
+        assertTrue(published.get(0).startsWith("r:"));
+        deliver(published.get(0));
+
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void malformedBroadcastIsIgnored() {
+        List<String> notified = recordListener();
+        CountingLoader loader = new CountingLoader(Set.of(10L));
+        cache.getRoleIds(1L, loader);
+
+        for (String body : List.of("", "r", "r1", "r:", "r:" + OTHER_NODE, "r:" + OTHER_NODE + ":x",
+                "g:" + OTHER_NODE + ":", "r:" + OTHER_NODE + ":1,,2")) {
+            deliver(body);
+        }
+        cache.getRoleIds(1L, loader);
+
+        assertTrue(notified.isEmpty());
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void localEvictionWaitsForListeners() {
+        CompletableFuture<Void> reload = new CompletableFuture<>();
+        cache.addRemoteEvictionListener((userIds, kind) -> reload);
+        CountingLoader loader = new CountingLoader(Set.of(10L));
+        cache.getRoleIds(1L, loader);
+        values.clear();
+
+        deliver("r:" + OTHER_NODE + ":1");
+        // 监听器刷新完成前继续使用原缓存
+        cache.getRoleIds(1L, loader);
+        assertEquals(1, loader.calls.get());
+
+        reload.complete(null);
+        cache.getRoleIds(1L, loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    void preciseEvictionDeletesRemoteKeys() {
+        cache.getRoleIds(1L, new CountingLoader(Set.of(10L)));
+        cache.getPermissionCodes(1L, new CountingCodeLoader(Set.of("user:view")));
+
+        cache.evictPermissions(List.of(1L));
+
+        assertFalse(values.containsKey(permissionKey(0, 1L)));
+        assertTrue(values.containsKey(roleKey(0, 1L)));
+        verify(template).convertAndSend(eq(CacheConstant.AUTHORITY_EVICT_CHANNEL), eq(published.get(0)));
+    }
+
+    private List<String> recordListener() {
+        List<String> notified = new ArrayList<>();
+        cache.addRemoteEvictionListener((userIds, kind) -> {
+            notified.add(kind == EvictionKind.ALL ? kind.name() : kind.name() + new TreeSet<>(userIds));
+            return CompletableFuture.completedFuture(null);
+        });
+        return notified;
+    }
+
+    private void deliver(String body) {
+        cache.onMessage(new DefaultMessage(CacheConstant.AUTHORITY_EVICT_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private void runOnce(boolean get) {
+        Runnable action = get ? onRedisGet : onRedisSet;
+        if (get) {
+            onRedisGet = () -> { };
+        } else {
+            onRedisSet = () -> { };
+        }
+        action.run();
+    }
+
+    private static String roleKey(long generation, Long userId) {
+        return CacheConstant.ROLE_CACHE_PREFIX + "user:" + generation + ":" + userId;
+    }
+
+    private static String permissionKey(long generation, Long userId) {
+        return CacheConstant.PERMISSION_CACHE_PREFIX + "user:" + generation + ":" + userId;
+    }
+
+    /**
+     * 计数的角色加载函数，可在加载期间执行额外动作
+     */
+    private static final class CountingLoader implements Function<Long, Collection<Long>> {
+
+        private final Set<Long> result;
+
+        private final Runnable during;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingLoader(Set<Long> result) {
+            this(result, () -> { });
+        }
+
+        CountingLoader(Set<Long> result, Runnable during) {
+            this.result = result;
+            this.during = during;
+        }
+
+        @Override
+        public Collection<Long> apply(Long userId) {
+            if (calls.incrementAndGet() == 1) {
+                during.run();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 计数的权限加载函数
+     */
+    private static final class CountingCodeLoader implements Function<Long, Collection<String>> {
+
+        private final Set<String> result;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingCodeLoader(Set<String> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Collection<String> apply(Long userId) {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+}
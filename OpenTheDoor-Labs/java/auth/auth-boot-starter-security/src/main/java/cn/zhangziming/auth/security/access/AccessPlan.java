@@ -0,0 +1,164 @@
+package cn.zhangziming.auth.security.access;
+
+import cn.zhangziming.auth.security.annotation.RequireLogin;
+import cn.zhangziming.auth.security.annotation.RequirePermission;
+import cn.zhangziming.auth.security.annotation.RequireRole;
+import cn.zhangziming.auth.security.context.UserInfo;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 方法访问计划
+ *
+ * <p>由方法和所在类上的权限注解编译而成，创建后不可变
+ * <p>合并规则：同一种注解方法上的覆盖类上的，不同种注解同时生效；声明了权限或角色即隐含要求登录
+ * <p>校验过程不反射、不分配对象：用户集合是{@link PermissionSet}时按位图字比较，否则逐个Set查找
+ * <p>权限支持通配符授权（见{@link PermissionTrie}），位图未命中且用户持有通配符授权时逐个按前缀树判断；角色只精确匹配
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class AccessPlan {
+
+    /**
+     * 没有任何要求的计划
+     */
+    public static final AccessPlan PERMIT_ALL = new AccessPlan(false, null, false, null, false);
+
+    private final boolean requireLogin;
+
+    /**
+     * 要求的权限，null表示不校验权限
+     */
+    private final String[] permissions;
+
+    private final PermissionSet permissionMask;
+
+    private final boolean requireAllPermissions;
+
+    /**
+     * 要求的角色，null表示不校验角色
+     */
+    private final String[] roles;
+
+    private final PermissionSet roleMask;
+
+    private final boolean requireAllRoles;
+
+    private AccessPlan(boolean requireLogin, String[] permissions, boolean requireAllPermissions,
+                       String[] roles, boolean requireAllRoles) {
+        this.requireLogin = requireLogin;
+        this.permissions = permissions;
+        this.permissionMask = permissions != null ? PermissionSet.of(Arrays.asList(permissions)) : null;
+        this.requireAllPermissions = requireAllPermissions;
+        this.roles = roles;
+        this.roleMask = roles != null ? PermissionSet.of(Arrays.asList(roles)) : null;
+        this.requireAllRoles = requireAllRoles;
+    }
+
+    /**
+     * 编译访问计划
+     *
+     * @param requireLogin      生效的RequireLogin注解（方法上优先），可为null
+     * @param requirePermission 生效的RequirePermission注解（方法上优先），可为null
+     * @param requireRole       生效的RequireRole注解（方法上优先），可为null
+     * @return 访问计划
+     */
+    public static AccessPlan of(RequireLogin requireLogin, RequirePermission requirePermission,
+                                RequireRole requireRole) {
+        if (requirePermission == null && requireRole == null
+                && (requireLogin == null || !requireLogin.required())) {
+            return PERMIT_ALL;
+        }
+        return new AccessPlan(true,
+                requirePermission != null ? requirePermission.value().clone() : null,
+                requirePermission == null || requirePermission.logical() == RequirePermission.Logical.AND,
+                requireRole != null ? requireRole.value().clone() : null,
+                requireRole == null || requireRole.logical() == RequireRole.Logical.AND);
+    }
+
+    /**
+     * 是否没有任何要求
+     */
+    public boolean isPermitAll() {
+        return !requireLogin;
+    }
+
+    /**
+     * 校验当前用户
+     *
+     * @param userInfo 当前用户，未登录为null
+     * @return 校验结果
+     */
+    public Decision check(UserInfo userInfo) {
+        if (!requireLogin) {
+            return Decision.GRANTED;
+        }
+        if (userInfo == null || userInfo.getUserId() == null) {
+            return Decision.UNAUTHENTICATED;
+        }
+        if (permissions != null && !matches(userInfo.getPermissions(), permissions, permissionMask, requireAllPermissions, true)) {
+            return Decision.PERMISSION_DENIED;
+        }
+        if (roles != null && !matches(userInfo.getRoles(), roles, roleMask, requireAllRoles, false)) {
+            return Decision.ROLE_DENIED;
+        }
+        return Decision.GRANTED;
+    }
+
+    /**
+     * AND逻辑需要拥有全部，OR逻辑拥有任一即可
+     * 用户集合和要求都是位图时按字比较；字典已满时要求的位图为null，退回逐个查找
+     * 允许通配符时，位图未命中不能直接拒绝，用户持有通配符授权则逐个按前缀树判断
+     */
+    private static boolean matches(Set<String> owned, String[] required, PermissionSet mask, boolean requireAll,
+                                   boolean wildcard) {
+        if (owned == null || owned.isEmpty()) {
+            return false;
+        }
+        if (mask != null && owned instanceof PermissionSet ownedSet) {
+            if (requireAll ? ownedSet.containsAll(mask) : ownedSet.intersects(mask)) {
+                return true;
+            }
+            if (!wildcard || !ownedSet.hasWildcard()) {
+                return false;
+            }
+        }
+        for (String item : required) {
+            boolean owns = wildcard ? PermissionSet.implies(owned, item) : owned.contains(item);
+            if (owns != requireAll) {
+                return !requireAll;
+            }
+        }
+        return requireAll;
+    }
+
+    /**
+     * 要求的权限，用于拒绝时记录日志
+     */
+    public String describePermissions() {
+        return permissions != null ? Arrays.toString(permissions) + (requireAllPermissions ? " AND" : " OR") : "-";
+    }
+
+    /**
+     * 要求的角色，用于拒绝时记录日志
+     */
+    public String describeRoles() {
+        return roles != null ? Arrays.toString(roles) + (requireAllRoles ? " AND" : " OR") : "-";
+    }
+
+    /**
+     * 校验结果
+     */
+    public enum Decision {
+        /** 通过 */
+        GRANTED,
+        /** 未登录 */
+        UNAUTHENTICATED,
+        /** 权限不足 */
+        PERMISSION_DENIED,
+        /** 角色不足 */
+        ROLE_DENIED
+    }
+}
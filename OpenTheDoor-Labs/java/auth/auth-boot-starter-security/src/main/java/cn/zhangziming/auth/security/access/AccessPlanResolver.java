@@ -0,0 +1,65 @@
+package cn.zhangziming.auth.security.access;
+
+import cn.zhangziming.auth.security.annotation.RequireLogin;
+import cn.zhangziming.auth.security.annotation.RequirePermission;
+import cn.zhangziming.auth.security.annotation.RequireRole;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 访问计划解析器
+ *
+ * <p>每个(目标类, 方法)只在第一次调用时读取注解并编译，之后直接返回缓存的{@link AccessPlan}
+ * <p>先按目标类用ClassValue取到该类的缓存，再按Method查找，命中时不创建组合key
+ * <p>注解按Spring的合并语义查找：支持接口、父类上的声明和组合注解
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class AccessPlanResolver {
+
+    private final ClassValue<Map<Method, AccessPlan>> plans = new ClassValue<>() {
+        @Override
+        protected Map<Method, AccessPlan> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * 获取方法的访问计划
+     *
+     * @param method      被调用的方法（可以是接口方法）
+     * @param targetClass 目标对象的类，未知时传method的声明类
+     * @return 访问计划
+     */
+    public AccessPlan resolve(Method method, Class<?> targetClass) {
+        Map<Method, AccessPlan> classPlans = plans.get(targetClass);
+        AccessPlan plan = classPlans.get(method);
+        if (plan == null) {
+            plan = compile(method, targetClass);
+            classPlans.putIfAbsent(method, plan);
+        }
+        return plan;
+    }
+
+    private static AccessPlan compile(Method method, Class<?> targetClass) {
+        Method specificMethod = ClassUtils.getMostSpecificMethod(method, targetClass);
+        return AccessPlan.of(
+                find(specificMethod, targetClass, RequireLogin.class),
+                find(specificMethod, targetClass, RequirePermission.class),
+                find(specificMethod, targetClass, RequireRole.class));
+    }
+
+    /**
+     * 方法上的注解优先，没有时取类上的
+     */
+    private static <A extends Annotation> A find(Method method, Class<?> targetClass, Class<A> annotationType) {
+        A annotation = AnnotatedElementUtils.findMergedAnnotation(method, annotationType);
+        return annotation != null ? annotation : AnnotatedElementUtils.findMergedAnnotation(targetClass, annotationType);
+    }
+}
@@ -0,0 +1,86 @@
+package cn.zhangziming.auth.security.access;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限编码字典
+ *
+ * <p>进程内全局共享，把权限/角色编码映射为从0开始的连续整数，供{@link PermissionSet}按位存储
+ * <p>编号只增不减，一旦分配就不再变化，已编译的位图在进程生命周期内一直有效
+ * <p>编码来自已验签的Token和注解，数量有限；超过上限后不再分配新编号，调用方退回字符串集合
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class PermissionDictionary {
+
+    /**
+     * 最多登记的编码数
+     */
+    public static final int MAX_CODES = 1 << 16;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * 编号 -> 编码，扩容时整体替换
+     */
+    private static volatile String[] codes = new String[256];
+
+    private static int size;
+
+    private PermissionDictionary() {
+    }
+
+    /**
+     * 获取编码的编号，未登记时分配新编号
+     *
+     * @param code 权限或角色编码
+     * @return 编号，超过上限返回-1
+     */
+    public static int register(String code) {
+        Integer id = IDS.get(code);
+        if (id != null) {
+            return id;
+        }
+        synchronized (LOCK) {
+            id = IDS.get(code);
+            if (id != null) {
+                return id;
+            }
+            if (size >= MAX_CODES) {
+                return -1;
+            }
+            String[] current = codes;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = code;
+            // 先发布编码数组再发布编号，拿到编号的线程一定能查到编码
+            codes = current;
+            IDS.put(code, size);
+            return size++;
+        }
+    }
+
+    /**
+     * 查询编码的编号，不登记
+     *
+     * @param code 权限或角色编码
+     * @return 编号，未登记返回-1
+     */
+    public static int lookup(String code) {
+        Integer id = IDS.get(code);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 根据编号获取编码
+     */
+    static String codeOf(int id) {
+        return codes[id];
+    }
+}
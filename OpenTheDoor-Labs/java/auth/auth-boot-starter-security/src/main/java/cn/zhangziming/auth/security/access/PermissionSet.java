@@ -0,0 +1,321 @@
+package cn.zhangziming.auth.security.access;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限编码集合
+ *
+ * <p>按{@link PermissionDictionary}的编号存为位图（长度由最大编号决定，末尾没有全0的字），不可变；对外仍是{@code Set<String>}，原有调用方无需修改
+ * <p>单个编码查询是一次字典查找加一次位运算；两个PermissionSet之间的AND/OR判断按64位字逐个比较
+ * <p>通过{@link #of(Collection)}创建的集合会规范化：相同内容共享同一个实例，角色组合相同的用户不再各自持有一份副本
+ * <p>包含通配符授权（如 system:user:*）时，{@link #implies(String)}在精确位图未命中后查询{@link PermissionTrie}；
+ * 前缀树首次使用时编译，随规范化实例共享
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class PermissionSet extends AbstractSet<String> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 空集合
+     */
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0], 0, 0, false);
+
+    /**
+     * 规范化实例的最大数量，超过后新集合不再共享（只影响内存占用，不影响正确性）
+     */
+    private static final int MAX_CANONICAL = 4096;
+
+    private static final Map<PermissionSet, PermissionSet> CANONICAL = new ConcurrentHashMap<>();
+
+    private final transient long[] words;
+
+    private final transient int size;
+
+    /**
+     * 与Set约定一致：各元素hashCode之和
+     */
+    private final transient int hash;
+
+    /**
+     * 是否包含通配符授权
+     */
+    private final transient boolean wildcard;
+
+    /**
+     * 通配符前缀树，首次使用时编译；内容由集合决定，并发编译只会重复计算
+     */
+    private transient volatile PermissionTrie trie;
+
+    private PermissionSet(long[] words, int size, int hash, boolean wildcard) {
+        this.words = words;
+        this.size = size;
+        this.hash = hash;
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * 创建规范化的权限集合
+     *
+     * @param codes 权限或角色编码
+     * @return 权限集合；编码数量超过字典上限时返回null，调用方应退回普通Set
+     */
+    public static PermissionSet of(Collection<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return EMPTY;
+        }
+        if (codes instanceof PermissionSet permissionSet) {
+            return permissionSet;
+        }
+        PermissionSet set = compile(codes);
+        if (set == null) {
+            return null;
+        }
+        if (set == EMPTY) {
+            return EMPTY;
+        }
+        PermissionSet canonical = CANONICAL.get(set);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (CANONICAL.size() >= MAX_CANONICAL) {
+            return set;
+        }
+        canonical = CANONICAL.putIfAbsent(set, set);
+        return canonical != null ? canonical : set;
+    }
+
+    /**
+     * 创建权限集合，编码数量超过字典上限时退回不可变的普通Set
+     *
+     * @param codes 权限或角色编码
+     * @return 集合
+     */
+    public static Set<String> copyOf(Collection<String> codes) {
+        PermissionSet set = of(codes);
+        return set != null ? set : Set.copyOf(codes);
+    }
+
+    /**
+     * 授权集合是否覆盖指定权限（支持通配符授权）
+     * PermissionSet直接判断；字典已满时的普通Set每次编译前缀树，只在极端情况下出现
+     *
+     * @param grants     授权集合，可为null
+     * @param permission 要求的权限编码
+     * @return 是否覆盖
+     */
+    public static boolean implies(Set<String> grants, String permission) {
+        if (grants == null || permission == null) {
+            return false;
+        }
+        if (grants instanceof PermissionSet permissionSet) {
+            return permissionSet.implies(permission);
+        }
+        if (grants.contains(permission)) {
+            return true;
+        }
+        for (String grant : grants) {
+            if (PermissionTrie.isWildcard(grant)) {
+                return PermissionTrie.compile(grants).implies(permission);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 第一遍登记编号并确定位图长度，第二遍置位，位图只分配一次；
+     * Set约定的hashCode（各元素hashCode之和）顺带算出，规范化查找不需要遍历
+     */
+    private static PermissionSet compile(Collection<String> codes) {
+        int maxId = -1;
+        for (String code : codes) {
+            if (code == null) {
+                continue;
+            }
+            int id = PermissionDictionary.register(code);
+            if (id < 0) {
+                return null;
+            }
+            maxId = Math.max(maxId, id);
+        }
+        if (maxId < 0) {
+            return EMPTY;
+        }
+        long[] words = new long[(maxId >>> 6) + 1];
+        int size = 0;
+        int hash = 0;
+        boolean wildcard = false;
+        for (String code : codes) {
+            if (code == null) {
+                continue;
+            }
+            int id = PermissionDictionary.lookup(code);
+            long bit = 1L << id;
+            if ((words[id >>> 6] & bit) == 0) {
+                words[id >>> 6] |= bit;
+                size++;
+                hash += code.hashCode();
+                wildcard |= PermissionTrie.isWildcard(code);
+            }
+        }
+        return new PermissionSet(words, size, hash, wildcard);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String code)) {
+            return false;
+        }
+        return containsId(PermissionDictionary.lookup(code));
+    }
+
+    private boolean containsId(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = id >>> 6;
+        return index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    /**
+     * 是否覆盖指定权限：先查精确位图，未命中且有通配符授权时查前缀树
+     *
+     * @param permission 要求的权限编码
+     * @return 是否覆盖
+     */
+    public boolean implies(String permission) {
+        if (contains(permission)) {
+            return true;
+        }
+        if (!wildcard || permission == null) {
+            return false;
+        }
+        PermissionTrie compiled = trie;
+        if (compiled == null) {
+            compiled = PermissionTrie.compile(this);
+            trie = compiled;
+        }
+        return compiled.implies(permission);
+    }
+
+    /**
+     * 是否包含通配符授权
+     */
+    public boolean hasWildcard() {
+        return wildcard;
+    }
+
+    /**
+     * 是否包含另一个集合的全部编码（AND）
+     */
+    public boolean containsAll(PermissionSet other) {
+        long[] required = other.words;
+        if (required.length > words.length) {
+            return false;
+        }
+        for (int i = 0; i < required.length; i++) {
+            if ((required[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含另一个集合中的任一编码（OR）
+     */
+    public boolean intersects(PermissionSet other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof PermissionSet other) {
+            return containsAll(other);
+        }
+        return super.containsAll(c);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int wordIndex = 0;
+
+            private long word = words.length > 0 ? words[0] : 0L;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0 && wordIndex + 1 < words.length) {
+                    word = words[++wordIndex];
+                }
+                return word != 0;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return PermissionDictionary.codeOf((wordIndex << 6) + bit);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof PermissionSet other) {
+            return Arrays.equals(words, other.words);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * 按编码序列化，反序列化时在当前进程的字典中重新编号
+     */
+    @Serial
+    private Object writeReplace() {
+        return new SerializedForm(toArray(new String[0]));
+    }
+
+    private record SerializedForm(String[] codes) implements Serializable {
+
+        @Serial
+        private Object readResolve() {
+            return copyOf(Arrays.asList(codes));
+        }
+    }
+}
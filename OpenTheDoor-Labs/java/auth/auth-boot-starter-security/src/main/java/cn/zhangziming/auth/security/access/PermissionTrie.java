@@ -0,0 +1,210 @@
+package cn.zhangziming.auth.security.access;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 权限前缀树
+ *
+ * <p>权限编码按冒号分段（如 system:user:add），授权可以使用通配符：
+ * <ul>
+ *     <li>末段为 {@code *}：匹配该前缀下任意层级，如 system:user:* 匹配 system:user:add、system:user:export:excel</li>
+ *     <li>中间段为 {@code *}：匹配任意一段，如 system:*:list 匹配 system:user:list</li>
+ *     <li>单独的 {@code *}：匹配所有权限</li>
+ * </ul>
+ * <p>不含通配符的授权只精确匹配，system:user 不隐含 system:user:add
+ * <p>一组授权编译为一棵按段索引的前缀树，判断时逐段查找子节点，访问的节点数只与编码段数有关，与授权数量无关；
+ * 查找直接比较原字符串的区段，不截取子串、不分配对象
+ * <p>编译后不可变，可在线程间共享
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class PermissionTrie {
+
+    /**
+     * 段分隔符
+     */
+    public static final char SEPARATOR = ':';
+
+    /**
+     * 通配符
+     */
+    public static final String WILDCARD = "*";
+
+    private final Node root;
+
+    private PermissionTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 编译授权集合
+     *
+     * @param grants 授权编码，可包含通配符
+     * @return 前缀树
+     */
+    public static PermissionTrie compile(Collection<String> grants) {
+        Node root = new Node();
+        if (grants != null) {
+            for (String grant : grants) {
+                if (grant != null) {
+                    add(root, grant);
+                }
+            }
+        }
+        root.freeze();
+        return new PermissionTrie(root);
+    }
+
+    /**
+     * 编码是否包含通配符
+     */
+    public static boolean isWildcard(String code) {
+        return code != null && code.indexOf('*') >= 0;
+    }
+
+    /**
+     * 授权是否覆盖指定权限
+     *
+     * @param permission 要求的权限编码（不含通配符）
+     * @return 是否覆盖
+     */
+    public boolean implies(String permission) {
+        return permission != null && match(root, permission, 0);
+    }
+
+    private static void add(Node root, String grant) {
+        Node node = root;
+        int from = 0;
+        while (true) {
+            int separator = grant.indexOf(SEPARATOR, from);
+            int to = separator < 0 ? grant.length() : separator;
+            String segment = grant.substring(from, to);
+            if (separator < 0 && WILDCARD.equals(segment)) {
+                node.rest = true;
+                return;
+            }
+            node = WILDCARD.equals(segment) ? node.any() : node.child(segment);
+            if (separator < 0) {
+                node.terminal = true;
+                return;
+            }
+            from = separator + 1;
+        }
+    }
+
+    /**
+     * 从from开始匹配剩余的段；from超过长度表示所有段已匹配完
+     * 每层最多尝试精确子节点和单段通配两个分支
+     */
+    private static boolean match(Node node, String permission, int from) {
+        int length = permission.length();
+        if (from > length) {
+            return node.terminal;
+        }
+        if (node.rest) {
+            return true;
+        }
+        int separator = permission.indexOf(SEPARATOR, from);
+        int to = separator < 0 ? length : separator;
+        Node child = node.find(permission, from, to);
+        if (child != null && match(child, permission, to + 1)) {
+            return true;
+        }
+        return node.any != null && match(node.any, permission, to + 1);
+    }
+
+    /**
+     * 前缀树节点
+     * 编译阶段用HashMap收集子节点，完成后转为开放寻址表，按区段哈希查找
+     */
+    private static final class Node {
+
+        /**
+         * 有授权在此结束（精确匹配）
+         */
+        private boolean terminal;
+
+        /**
+         * 有授权以 :* 在此结束，匹配之后的任意层级
+         */
+        private boolean rest;
+
+        /**
+         * 单段通配子节点
+         */
+        private Node any;
+
+        private Map<String, Node> building = new HashMap<>();
+
+        private String[] keys;
+
+        private int[] hashes;
+
+        private Node[] children;
+
+        private Node child(String segment) {
+            return building.computeIfAbsent(segment, key -> new Node());
+        }
+
+        private Node any() {
+            if (any == null) {
+                any = new Node();
+            }
+            return any;
+        }
+
+        private void freeze() {
+            if (any != null) {
+                any.freeze();
+            }
+            if (!building.isEmpty()) {
+                int capacity = Integer.highestOneBit(building.size() * 2 - 1) << 1;
+                keys = new String[capacity];
+                hashes = new int[capacity];
+                children = new Node[capacity];
+                int mask = capacity - 1;
+                for (Map.Entry<String, Node> entry : building.entrySet()) {
+                    int hash = spread(entry.getKey().hashCode());
+                    int index = hash & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = entry.getKey();
+                    hashes[index] = hash;
+                    children[index] = entry.getValue();
+                    entry.getValue().freeze();
+                }
+            }
+            building = null;
+        }
+
+        private Node find(String permission, int from, int to) {
+            if (keys == null) {
+                return null;
+            }
+            // 与String.hashCode相同的算法，只计算区段
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + permission.charAt(i);
+            }
+            hash = spread(hash);
+            int mask = keys.length - 1;
+            int length = to - from;
+            for (int index = hash & mask; keys[index] != null; index = (index + 1) & mask) {
+                String key = keys[index];
+                if (hashes[index] == hash && key.length() == length
+                        && permission.regionMatches(from, key, 0, length)) {
+                    return children[index];
+                }
+            }
+            return null;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package cn.zhangziming.auth.security.autoconfigure;
 
 import cn.zhangziming.auth.security.config.SecurityConfig;
+import cn.zhangziming.auth.security.crypto.PasswordProperties;
 import cn.zhangziming.auth.security.jwt.JwtProperties;
 import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.route.RouteProperties;
+import cn.zhangziming.auth.security.route.RouteRegistry;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -20,8 +24,8 @@ import org.springframework.context.annotation.Import;
 @AutoConfiguration
 @ConditionalOnClass(name = "org.springframework.security.core.Authentication")
 @ConditionalOnProperty(prefix = "auth-boot.security", name = "enabled", havingValue = "true", matchIfMissing = true)
-@EnableConfigurationProperties(JwtProperties.class)
-@Import({SecurityConfig.class, JwtUtil.class})
+@EnableConfigurationProperties({JwtProperties.class, RouteProperties.class, PasswordProperties.class})
+@Import({SecurityConfig.class, JwtUtil.class, TokenRenewer.class, RouteRegistry.class})
 public class SecurityAutoConfiguration {
     
     // 配置类，主要通过@Import引入其他配置
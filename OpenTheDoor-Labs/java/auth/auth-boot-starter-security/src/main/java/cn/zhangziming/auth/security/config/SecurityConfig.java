@@ -1,13 +1,18 @@
 package cn.zhangziming.auth.security.config;
 
+import cn.zhangziming.auth.security.context.ContextPropagatingTaskDecorator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import cn.zhangziming.auth.security.crypto.PasswordEncoders;
+import cn.zhangziming.auth.security.crypto.PasswordProperties;
 import cn.zhangziming.auth.security.jwt.JwtProperties;
+import cn.zhangziming.auth.security.util.SecurityUtil;
 
 /**
  * Spring Security基础配置
@@ -19,16 +24,28 @@ import cn.zhangziming.auth.security.jwt.JwtProperties;
  */
 @Configuration
 @RequiredArgsConstructor
-@EnableConfigurationProperties(JwtProperties.class)
+@EnableConfigurationProperties({JwtProperties.class, PasswordProperties.class})
 public class SecurityConfig {
 
     /**
      * 密码编码器
-     * 使用BCrypt算法
+     * 按auth-boot.security.password配置的算法和成本参数哈希，同时作为SecurityUtil使用的编码器
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordProperties passwordProperties) {
+        PasswordEncoder encoder = PasswordEncoders.create(passwordProperties);
+        SecurityUtil.setPasswordEncoder(encoder);
+        return encoder;
+    }
+
+    /**
+     * 上下文传递任务装饰器
+     * @Async默认线程池会自动使用，子线程中可以读取UserContext和traceId
+     */
+    @Bean
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public ContextPropagatingTaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
     }
 }
 
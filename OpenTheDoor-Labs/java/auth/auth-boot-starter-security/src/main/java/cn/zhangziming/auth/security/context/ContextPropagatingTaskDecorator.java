@@ -0,0 +1,19 @@
+package cn.zhangziming.auth.security.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 上下文传递任务装饰器
+ *
+ * <p>注册为Bean后，Spring Boot的@Async默认线程池会自动使用它；自定义ThreadPoolTaskExecutor可通过setTaskDecorator设置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return ContextSnapshot.capture().wrap(runnable);
+    }
+}
@@ -0,0 +1,73 @@
+package cn.zhangziming.auth.security.context;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * 上下文传递工具
+ *
+ * <p>请求内并行加载（如同时加载RBAC和用户资料）时，子任务可以照常使用UserContext和带traceId的日志
+ * <p>快照在执行线程上恢复、结束后还原，同样适用于JDK 21的虚拟线程执行器：
+ * <pre>
+ * ExecutorService executor = ContextPropagation.wrap(Executors.newFixedThreadPool(8));
+ * CompletableFuture&lt;Set&lt;String&gt;&gt; roles = ContextPropagation.supplyAsync(this::loadRoles, executor);
+ * </pre>
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class ContextPropagation {
+
+    private ContextPropagation() {
+    }
+
+    /**
+     * 包装Executor，提交的任务在执行时恢复提交线程的上下文
+     *
+     * @param executor 原Executor
+     * @return 包装后的Executor
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ExecutorService executorService) {
+            return wrap(executorService);
+        }
+        return command -> executor.execute(ContextSnapshot.capture().wrap(command));
+    }
+
+    /**
+     * 包装ExecutorService，提交的任务在执行时恢复提交线程的上下文
+     *
+     * @param executorService 原ExecutorService
+     * @return 包装后的ExecutorService
+     */
+    public static ExecutorService wrap(ExecutorService executorService) {
+        if (executorService instanceof ContextPropagatingExecutorService) {
+            return executorService;
+        }
+        return new ContextPropagatingExecutorService(executorService);
+    }
+
+    /**
+     * 异步执行并传递上下文
+     *
+     * @param supplier 任务
+     * @param executor 执行器
+     * @return CompletableFuture
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(ContextSnapshot.capture().wrap(supplier), executor);
+    }
+
+    /**
+     * 异步执行并传递上下文
+     *
+     * @param runnable 任务
+     * @param executor 执行器
+     * @return CompletableFuture
+     */
+    public static CompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+        return CompletableFuture.runAsync(ContextSnapshot.capture().wrap(runnable), executor);
+    }
+}
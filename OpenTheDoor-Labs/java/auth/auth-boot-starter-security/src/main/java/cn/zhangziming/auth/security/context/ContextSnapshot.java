@@ -0,0 +1,120 @@
+package cn.zhangziming.auth.security.context;
+
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * 上下文快照
+ *
+ * <p>在提交任务的线程上捕获用户信息和MDC（含traceId），在执行任务的线程上恢复，任务结束后还原执行线程原有的上下文
+ * <p>快照不可变，可以被多个任务共享；执行线程可以是线程池线程，也可以是虚拟线程
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class ContextSnapshot {
+
+    private static final ContextSnapshot EMPTY = new ContextSnapshot(null, null);
+
+    private final UserInfo userInfo;
+
+    private final Map<String, String> mdc;
+
+    private ContextSnapshot(UserInfo userInfo, Map<String, String> mdc) {
+        this.userInfo = userInfo;
+        this.mdc = mdc;
+    }
+
+    /**
+     * 捕获当前线程的上下文
+     *
+     * @return 快照
+     */
+    public static ContextSnapshot capture() {
+        UserInfo userInfo = UserContext.getCurrentUser();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        if (userInfo == null && (mdc == null || mdc.isEmpty())) {
+            return EMPTY;
+        }
+        return new ContextSnapshot(userInfo, mdc);
+    }
+
+    /**
+     * 快照中的用户信息
+     */
+    public UserInfo getUserInfo() {
+        return userInfo;
+    }
+
+    /**
+     * 在当前线程恢复快照
+     * 调用方必须关闭返回的Scope，以还原线程原有的上下文
+     *
+     * @return 作用域
+     */
+    public Scope restore() {
+        UserInfo previousUser = UserContext.getCurrentUser();
+        Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+        apply(userInfo, mdc);
+        return () -> apply(previousUser, previousMdc);
+    }
+
+    /**
+     * 包装Runnable，执行时恢复快照
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 包装Callable，执行时恢复快照
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * 包装Supplier，执行时恢复快照（用于CompletableFuture.supplyAsync）
+     */
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                return task.get();
+            }
+        };
+    }
+
+    private static void apply(UserInfo userInfo, Map<String, String> mdc) {
+        if (userInfo != null) {
+            UserContext.setCurrentUser(userInfo);
+        } else {
+            UserContext.clear();
+        }
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * 快照作用域
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -1,5 +1,6 @@
 package cn.zhangziming.auth.security.context;
 
+import cn.zhangziming.auth.security.access.PermissionSet;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -53,11 +54,13 @@ public class UserInfo implements Serializable {
 
     /**
      * 角色编码列表
+     * 从Token构建时为规范化的{@link PermissionSet}（不可修改）
      */
     private Set<String> roles;
 
     /**
      * 权限编码列表
+     * 从Token构建时为规范化的{@link PermissionSet}（不可修改）；可包含通配符授权，如 system:user:*
      */
     private Set<String> permissions;
 
@@ -118,10 +121,10 @@ public class UserInfo implements Serializable {
     }
 
     /**
-     * 是否拥有指定权限
+     * 是否拥有指定权限（支持通配符授权）
      */
     public boolean hasPermission(String permission) {
-        return permissions != null && permissions.contains(permission);
+        return PermissionSet.implies(permissions, permission);
     }
 
     /**
@@ -132,7 +135,7 @@ public class UserInfo implements Serializable {
             return false;
         }
         for (String permission : permissions) {
-            if (this.permissions.contains(permission)) {
+            if (PermissionSet.implies(this.permissions, permission)) {
                 return true;
             }
         }
@@ -147,7 +150,7 @@ public class UserInfo implements Serializable {
             return false;
         }
         for (String permission : permissions) {
-            if (!this.permissions.contains(permission)) {
+            if (!PermissionSet.implies(this.permissions, permission)) {
                 return false;
             }
         }
@@ -0,0 +1,115 @@
+package cn.zhangziming.auth.security.crypto;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 密码编码器工厂
+ *
+ * <p>创建按"{算法ID}"前缀委派的编码器：
+ * <ul>
+ *     <li>encode按配置的算法和成本参数哈希；算法为bcrypt时写出不带前缀的旧格式（$2a$...），
+ *     滚动发布和回滚期间旧版本节点仍能校验新写入的哈希；其他算法的结果带算法前缀</li>
+ *     <li>matches按前缀选择算法；没有前缀的哈希按BCrypt校验</li>
+ *     <li>upgradeEncoding只在算法不同或成本参数低于当前配置时返回true（PBKDF2不比较迭代次数）；
+ *     算法为bcrypt时，没有前缀、strength与当前配置一致的BCrypt哈希视为最新，不会重新哈希</li>
+ * </ul>
+ * <p>argon2和scrypt依赖BouncyCastle，classpath中没有时不注册，配置为新密码算法时启动失败
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+    public static final String ARGON2 = "argon2";
+    public static final String SCRYPT = "scrypt";
+
+    /**
+     * argon2、scrypt依赖的BouncyCastle类
+     */
+    private static final String BOUNCY_CASTLE_CLASS = "org.bouncycastle.crypto.generators.SCrypt";
+
+    private PasswordEncoders() {
+    }
+
+    /**
+     * 按配置创建委派编码器
+     *
+     * @param properties 密码哈希配置
+     * @return 委派编码器
+     * @throws IllegalStateException 配置的算法不支持或缺少依赖
+     */
+    public static PasswordEncoder create(PasswordProperties properties) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(properties.getBcrypt().getStrength());
+        encoders.put(BCRYPT, bcrypt);
+        PasswordProperties.Pbkdf2 pbkdf2 = properties.getPbkdf2();
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder("", pbkdf2.getSaltLength(), pbkdf2.getIterations(),
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+        if (isBouncyCastlePresent()) {
+            PasswordProperties.Argon2 argon2 = properties.getArgon2();
+            encoders.put(ARGON2, new Argon2PasswordEncoder(argon2.getSaltLength(), argon2.getHashLength(),
+                    argon2.getParallelism(), argon2.getMemory(), argon2.getIterations()));
+            PasswordProperties.Scrypt scrypt = properties.getScrypt();
+            encoders.put(SCRYPT, new SCryptPasswordEncoder(scrypt.getCpuCost(), scrypt.getMemoryCost(),
+                    scrypt.getParallelization(), scrypt.getKeyLength(), scrypt.getSaltLength()));
+        }
+
+        String algorithm = properties.getAlgorithm();
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("不支持的密码算法: " + algorithm
+                    + (ARGON2.equals(algorithm) || SCRYPT.equals(algorithm) ? "（需要引入bcprov-jdk18on）" : ""));
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        // 引入算法前缀之前的哈希没有前缀，均为BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return BCRYPT.equals(algorithm) ? new UnprefixedBcryptEncoder(encoder, bcrypt) : encoder;
+    }
+
+    private static boolean isBouncyCastlePresent() {
+        return ClassUtils.isPresent(BOUNCY_CASTLE_CLASS, PasswordEncoders.class.getClassLoader());
+    }
+
+    /**
+     * 算法为bcrypt时使用：新哈希不带前缀，没有前缀的BCrypt哈希只按strength判断是否需要升级
+     */
+    private static final class UnprefixedBcryptEncoder implements PasswordEncoder {
+
+        private final DelegatingPasswordEncoder delegate;
+
+        private final BCryptPasswordEncoder bcrypt;
+
+        private UnprefixedBcryptEncoder(DelegatingPasswordEncoder delegate, BCryptPasswordEncoder bcrypt) {
+            this.delegate = delegate;
+            this.bcrypt = bcrypt;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return bcrypt.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            if (encodedPassword != null && !encodedPassword.isEmpty() && encodedPassword.charAt(0) != '{') {
+                return bcrypt.upgradeEncoding(encodedPassword);
+            }
+            return delegate.upgradeEncoding(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package cn.zhangziming.auth.security.crypto;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 密码哈希配置属性
+ *
+ * <p>新密码按algorithm指定的算法哈希，哈希值带"{算法ID}"前缀（bcrypt沿用不带前缀的旧格式）；
+ * 已有哈希按前缀选择算法校验，没有前缀的数据按BCrypt校验。
+ * 算法或成本参数调整后，用户下次登录成功时自动按新策略重新哈希；配置不变时不会改写已有哈希
+ * <p>成本参数应在目标机器上用PasswordEncoderBenchmark实测后确定，单次校验建议控制在几十到一百毫秒
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.security.password")
+public class PasswordProperties {
+
+    /**
+     * 新密码使用的算法
+     * 可选: bcrypt（默认）、pbkdf2、argon2、scrypt；argon2和scrypt需要引入bcprov-jdk18on
+     */
+    private String algorithm = PasswordEncoders.BCRYPT;
+
+    /**
+     * BCrypt配置
+     */
+    private Bcrypt bcrypt = new Bcrypt();
+
+    /**
+     * PBKDF2配置
+     */
+    private Pbkdf2 pbkdf2 = new Pbkdf2();
+
+    /**
+     * Argon2配置
+     */
+    private Argon2 argon2 = new Argon2();
+
+    /**
+     * SCrypt配置
+     */
+    private Scrypt scrypt = new Scrypt();
+
+    @Data
+    public static class Bcrypt {
+
+        /**
+         * 成本因子（4-31），每加1计算量翻倍
+         */
+        private int strength = 10;
+    }
+
+    @Data
+    public static class Pbkdf2 {
+
+        /**
+         * 迭代次数（PBKDF2-HMAC-SHA256）
+         * 只对新哈希生效，已有哈希不会因迭代次数变化而重新哈希
+         */
+        private int iterations = 310000;
+
+        /**
+         * 盐长度（字节）
+         */
+        private int saltLength = 16;
+    }
+
+    @Data
+    public static class Argon2 {
+
+        /**
+         * 内存（KB）
+         */
+        private int memory = 16384;
+
+        /**
+         * 迭代次数
+         */
+        private int iterations = 2;
+
+        /**
+         * 并行度
+         */
+        private int parallelism = 1;
+
+        /**
+         * 盐长度（字节）
+         */
+        private int saltLength = 16;
+
+        /**
+         * 哈希长度（字节）
+         */
+        private int hashLength = 32;
+    }
+
+    @Data
+    public static class Scrypt {
+
+        /**
+         * CPU/内存成本（N，2的幂）
+         */
+        private int cpuCost = 16384;
+
+        /**
+         * 块大小（r）
+         */
+        private int memoryCost = 8;
+
+        /**
+         * 并行度（p）
+         */
+        private int parallelization = 1;
+
+        /**
+         * 密钥长度（字节）
+         */
+        private int keyLength = 32;
+
+        /**
+         * 盐长度（字节）
+         */
+        private int saltLength = 16;
+    }
+}
@@ -0,0 +1,158 @@
+package cn.zhangziming.auth.security.jwks;
+
+import cn.zhangziming.auth.security.jwt.JwtKeySource;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 远程JWKS验签密钥来源
+ *
+ * <p>启动时从认证服务拉取一次公钥并缓存，之后由后台线程定期刷新，验签路径上不发起网络请求
+ * <p>遇到未知kid时触发一次异步刷新（有最小间隔限制），以便尽快识别轮换后的新密钥
+ * <p>只接受公钥，JWKS中的对称密钥一律忽略，避免算法混淆攻击
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class JwksKeySource implements JwtKeySource, DisposableBean {
+
+    /**
+     * 未知kid触发刷新的最小间隔（毫秒），防止伪造kid的请求打满认证服务
+     */
+    private static final long MIN_REFRESH_INTERVAL_MILLIS = 30_000L;
+
+    private final URI jwksUri;
+
+    private final Duration timeout;
+
+    private final HttpClient httpClient;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * kid -> 公钥，整体替换
+     */
+    private volatile Map<String, Key> keys = Collections.emptyMap();
+
+    private volatile long lastRefreshMillis;
+
+    public JwksKeySource(String jwksUri, long refreshIntervalSeconds, long timeoutSeconds) {
+        this.jwksUri = URI.create(jwksUri);
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        refresh();
+        scheduler.scheduleWithFixedDelay(this::refresh,
+                refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 根据kid查找公钥
+     * 未携带kid的Token仅在JWKS只有一个公钥时可验签
+     */
+    @Override
+    public Key getVerificationKey(String keyId) {
+        Map<String, Key> current = keys;
+        Key key;
+        if (keyId == null) {
+            key = current.size() == 1 ? current.values().iterator().next() : null;
+        } else {
+            key = current.get(keyId);
+        }
+        if (key == null) {
+            requestRefresh();
+        }
+        return key;
+    }
+
+    /**
+     * 当前缓存的密钥ID
+     */
+    public Iterable<String> getKeyIds() {
+        return keys.keySet();
+    }
+
+    /**
+     * 异步刷新，距上次刷新不足最小间隔时忽略
+     */
+    private void requestRefresh() {
+        if (System.currentTimeMillis() - lastRefreshMillis >= MIN_REFRESH_INTERVAL_MILLIS
+                && !refreshing.get()) {
+            scheduler.execute(this::refresh);
+        }
+    }
+
+    /**
+     * 拉取JWKS并整体替换缓存；失败时保留已缓存的公钥
+     */
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                    .timeout(timeout)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("拉取JWKS失败: uri={}, status={}, 继续使用已缓存的{}个公钥",
+                        jwksUri, response.statusCode(), keys.size());
+                return;
+            }
+
+            JwkSet jwkSet = Jwks.setParser().ignoreUnsupported(true).build().parse(response.body());
+            Map<String, Key> fetched = new LinkedHashMap<>();
+            for (Jwk<?> jwk : jwkSet) {
+                if (jwk.getId() != null && jwk.toKey() instanceof PublicKey) {
+                    fetched.put(jwk.getId(), jwk.toKey());
+                }
+            }
+            if (!fetched.keySet().equals(keys.keySet())) {
+                log.info("JWKS公钥已更新: uri={}, keyIds={}", jwksUri, fetched.keySet());
+            }
+            keys = Collections.unmodifiableMap(fetched);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("拉取JWKS失败: uri={}, 继续使用已缓存的{}个公钥: {}", jwksUri, keys.size(), e.getMessage());
+        } finally {
+            lastRefreshMillis = System.currentTimeMillis();
+            refreshing.set(false);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,220 @@
+package cn.zhangziming.auth.security.jwks;
+
+import cn.zhangziming.auth.security.jwt.ClaimsDictionary;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionarySource;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 远程声明字典来源
+ *
+ * <p>从认证服务拉取角色/权限声明字典，按版本缓存；同一版本的字典内容不会变化，拉取成功后永久有效
+ * <p>与JwksKeySource一样，验签路径上不发起网络请求（响应式客户端在事件循环上验签）：
+ * <ul>
+ *     <li>启动时拉取一次当前版本，之后由后台线程定期拉取，认证服务发布新版本后尽快可用</li>
+ *     <li>遇到未知版本时本次返回null（Token按STALE_CLAIMS拒绝），同时在后台拉取该版本；
+ *     同一版本拉取失败后在最小间隔内不再重试</li>
+ * </ul>
+ * <p>拉取结果会重新计算版本号校验内容，防止错误的响应污染缓存
+ * <p>认证服务配置了访问密钥时，请求头{@value #API_KEY_HEADER}携带同一密钥
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public class RemoteClaimsDictionarySource implements ClaimsDictionarySource, DisposableBean {
+
+    /**
+     * 访问密钥请求头
+     */
+    public static final String API_KEY_HEADER = "X-Claims-Dictionary-Key";
+
+    /**
+     * 同一版本拉取失败后的重试间隔（毫秒）
+     */
+    private static final long MIN_RETRY_INTERVAL_MILLIS = 30_000L;
+
+    /**
+     * 最多缓存的字典版本数
+     */
+    private static final int MAX_VERSIONS = 16;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String dictionaryUri;
+
+    private final Duration timeout;
+
+    private final String apiKey;
+
+    private final HttpClient httpClient;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 版本 -> 字典
+     */
+    private final Map<String, ClaimsDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    /**
+     * 版本 -> 最近一次拉取失败的时间
+     */
+    private final Map<String, Long> failures = new ConcurrentHashMap<>();
+
+    /**
+     * 正在后台拉取的版本
+     */
+    private final Set<String> fetching = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param dictionaryUri          字典地址，如 http://auth-server:8080/.well-known/claims-dictionary
+     * @param refreshIntervalSeconds 当前版本的拉取间隔（秒）
+     * @param timeoutSeconds         拉取超时时间（秒）
+     * @param apiKey                 访问密钥，认证服务未要求时为null
+     */
+    public RemoteClaimsDictionarySource(String dictionaryUri, long refreshIntervalSeconds, long timeoutSeconds,
+                                        String apiKey) {
+        this.dictionaryUri = dictionaryUri.endsWith("/")
+                ? dictionaryUri.substring(0, dictionaryUri.length() - 1) : dictionaryUri;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.apiKey = apiKey;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-claims-dictionary-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        refreshCurrent();
+        scheduler.scheduleWithFixedDelay(this::refreshCurrent,
+                refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 只查内存缓存，不阻塞；未知版本交给后台线程拉取
+     */
+    @Override
+    public ClaimsDictionary get(String version) {
+        ClaimsDictionary dictionary = dictionaries.get(version);
+        if (dictionary == null) {
+            requestFetch(version);
+        }
+        return dictionary;
+    }
+
+    /**
+     * 异步拉取指定版本，最近失败过或已在拉取中时忽略
+     */
+    private void requestFetch(String version) {
+        Long failedAt = failures.get(version);
+        if (failedAt != null && System.currentTimeMillis() - failedAt < MIN_RETRY_INTERVAL_MILLIS) {
+            return;
+        }
+        if (fetching.size() >= MAX_VERSIONS || !fetching.add(version)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    fetchVersion(version);
+                } finally {
+                    fetching.remove(version);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fetching.remove(version);
+        }
+    }
+
+    private void refreshCurrent() {
+        ClaimsDictionary current = fetch(dictionaryUri);
+        if (current != null && !dictionaries.containsKey(current.getVersion())) {
+            cache(current);
+            log.info("声明字典已加载: version={}, roles={}, permissions={}",
+                    current.getVersion(), current.getRoles().size(), current.getPermissions().size());
+        }
+    }
+
+    private void fetchVersion(String version) {
+        if (dictionaries.containsKey(version)) {
+            return;
+        }
+        ClaimsDictionary dictionary = fetch(dictionaryUri + "/" + URLEncoder.encode(version, StandardCharsets.UTF_8));
+        if (dictionary == null || !dictionary.getVersion().equals(version)) {
+            if (failures.size() >= MAX_VERSIONS) {
+                failures.clear();
+            }
+            failures.put(version, System.currentTimeMillis());
+            return;
+        }
+        failures.remove(version);
+        cache(dictionary);
+        log.info("声明字典已加载: version={}", version);
+    }
+
+    private void cache(ClaimsDictionary dictionary) {
+        if (dictionaries.size() >= MAX_VERSIONS) {
+            // 版本只在权限数据变化时更新，数量很少；超过上限时整体清空，按需重新拉取
+            dictionaries.clear();
+        }
+        dictionaries.put(dictionary.getVersion(), dictionary);
+    }
+
+    private ClaimsDictionary fetch(String uri) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri))
+                    .timeout(timeout)
+                    .header("Accept", "application/json")
+                    .GET();
+            if (apiKey != null && !apiKey.isEmpty()) {
+                builder.header(API_KEY_HEADER, apiKey);
+            }
+            HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("拉取声明字典失败: uri={}, status={}", uri, response.statusCode());
+                return null;
+            }
+            JsonNode body = OBJECT_MAPPER.readTree(response.body());
+            return ClaimsDictionary.restore(body.path("version").asText(),
+                    toList(body.path("roles")), toList(body.path("permissions")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("拉取声明字典失败: uri={}, {}", uri, e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<String> toList(JsonNode node) {
+        List<String> values = new ArrayList<>(node.size());
+        node.forEach(item -> values.add(item.asText()));
+        return values;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,256 @@
+package cn.zhangziming.auth.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 角色/权限声明字典
+ *
+ * <p>把角色编码和权限编码各自编号，Token中只写字典版本和两个base64url位图，
+ * 几十个权限编码压缩为十几个字符
+ * <p>编号只追加不重排：新版本由上一版本{@link #extend(Collection, Collection)}得到，
+ * 已有编码的编号不变，新编码按字典序追加在末尾，删除的编码也保留占位
+ * <p>版本号由字典内容（含编号顺序）的SHA-256派生，内容相同的字典在任何节点上版本一致；
+ * 内容变化后版本随之变化，旧Token仍按旧版本解码
+ * <p>对象不可变，可在线程间共享
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class ClaimsDictionary {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String version;
+
+    private final List<String> roles;
+
+    private final List<String> permissions;
+
+    private final Map<String, Integer> roleIndex;
+
+    private final Map<String, Integer> permissionIndex;
+
+    private ClaimsDictionary(String version, List<String> roles, List<String> permissions) {
+        this.version = version;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.roleIndex = index(roles);
+        this.permissionIndex = index(permissions);
+    }
+
+    /**
+     * 创建第一版字典，编码去重后按字典序编号
+     *
+     * @param roles       全部角色编码
+     * @param permissions 全部权限编码
+     * @return 字典
+     */
+    public static ClaimsDictionary of(Collection<String> roles, Collection<String> permissions) {
+        List<String> sortedRoles = sorted(roles);
+        List<String> sortedPermissions = sorted(permissions);
+        return new ClaimsDictionary(versionOf(sortedRoles, sortedPermissions), sortedRoles, sortedPermissions);
+    }
+
+    /**
+     * 在当前字典后追加新编码，已有编码的编号不变
+     *
+     * @param roles       当前全部角色编码
+     * @param permissions 当前全部权限编码
+     * @return 新字典；没有新编码时返回当前字典
+     */
+    public ClaimsDictionary extend(Collection<String> roles, Collection<String> permissions) {
+        List<String> newRoles = appended(this.roles, roleIndex, roles);
+        List<String> newPermissions = appended(this.permissions, permissionIndex, permissions);
+        if (newRoles == this.roles && newPermissions == this.permissions) {
+            return this;
+        }
+        return new ClaimsDictionary(versionOf(newRoles, newPermissions), newRoles, newPermissions);
+    }
+
+    /**
+     * 还原持久化或远程发布的字典，校验版本号与内容一致
+     *
+     * @param version     字典版本
+     * @param roles       角色编码（按编号顺序）
+     * @param permissions 权限编码（按编号顺序）
+     * @return 字典
+     * @throws IllegalArgumentException 版本号与内容不符
+     */
+    public static ClaimsDictionary restore(String version, List<String> roles, List<String> permissions) {
+        List<String> sortedRoles = List.copyOf(roles);
+        List<String> sortedPermissions = List.copyOf(permissions);
+        if (!versionOf(sortedRoles, sortedPermissions).equals(version)) {
+            throw new IllegalArgumentException("声明字典版本与内容不符: " + version);
+        }
+        return new ClaimsDictionary(version, sortedRoles, sortedPermissions);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * 编码角色
+     *
+     * @param codes   角色编码
+     * @param unknown 字典中不存在的编码追加到这里
+     * @return base64url位图，没有可编码的角色时返回null
+     */
+    public String encodeRoles(Collection<String> codes, List<String> unknown) {
+        return encode(codes, roleIndex, unknown);
+    }
+
+    /**
+     * 编码权限
+     *
+     * @param codes   权限编码
+     * @param unknown 字典中不存在的编码追加到这里
+     * @return base64url位图，没有可编码的权限时返回null
+     */
+    public String encodePermissions(Collection<String> codes, List<String> unknown) {
+        return encode(codes, permissionIndex, unknown);
+    }
+
+    /**
+     * 解码角色位图
+     *
+     * @throws IllegalArgumentException 位图格式错误或超出字典范围
+     */
+    public List<String> decodeRoles(String bitmap) {
+        return decode(bitmap, roles);
+    }
+
+    /**
+     * 解码权限位图
+     *
+     * @throws IllegalArgumentException 位图格式错误或超出字典范围
+     */
+    public List<String> decodePermissions(String bitmap) {
+        return decode(bitmap, permissions);
+    }
+
+    private static String encode(Collection<String> codes, Map<String, Integer> index, List<String> unknown) {
+        if (codes == null || codes.isEmpty()) {
+            return null;
+        }
+        byte[] bits = new byte[0];
+        int length = 0;
+        for (String code : codes) {
+            Integer id = index.get(code);
+            if (id == null) {
+                if (code != null) {
+                    unknown.add(code);
+                }
+                continue;
+            }
+            int byteIndex = id >>> 3;
+            if (byteIndex >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(byteIndex + 1, bits.length * 2));
+            }
+            bits[byteIndex] |= (byte) (1 << (id & 7));
+            length = Math.max(length, byteIndex + 1);
+        }
+        return length == 0 ? null : ENCODER.encodeToString(Arrays.copyOf(bits, length));
+    }
+
+    private static List<String> decode(String bitmap, List<String> codes) {
+        if (bitmap == null || bitmap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[] bits = DECODER.decode(bitmap);
+        List<String> decoded = new ArrayList<>();
+        for (int byteIndex = 0; byteIndex < bits.length; byteIndex++) {
+            int value = bits[byteIndex] & 0xFF;
+            while (value != 0) {
+                int id = (byteIndex << 3) + Integer.numberOfTrailingZeros(value);
+                if (id >= codes.size()) {
+                    throw new IllegalArgumentException("声明位图超出字典范围");
+                }
+                decoded.add(codes.get(id));
+                value &= value - 1;
+            }
+        }
+        return List.copyOf(decoded);
+    }
+
+    private static List<String> sorted(Collection<String> codes) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (codes != null) {
+            for (String code : codes) {
+                if (code != null && !code.isEmpty()) {
+                    sorted.add(code);
+                }
+            }
+        }
+        return List.copyOf(sorted);
+    }
+
+    /**
+     * 追加index中没有的编码（按字典序），没有新编码时返回原列表
+     */
+    private static List<String> appended(List<String> existing, Map<String, Integer> index, Collection<String> codes) {
+        List<String> added = new ArrayList<>();
+        for (String code : sorted(codes)) {
+            if (!index.containsKey(code)) {
+                added.add(code);
+            }
+        }
+        if (added.isEmpty()) {
+            return existing;
+        }
+        List<String> merged = new ArrayList<>(existing.size() + added.size());
+        merged.addAll(existing);
+        merged.addAll(added);
+        return List.copyOf(merged);
+    }
+
+    private static Map<String, Integer> index(List<String> codes) {
+        Map<String, Integer> index = new HashMap<>(codes.size() * 2);
+        for (int i = 0; i < codes.size(); i++) {
+            index.put(codes.get(i), i);
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * 版本号：SHA-256(角色\n...\0权限\n...)的前9字节，base64url编码为12个字符
+     */
+    private static String versionOf(List<String> roles, List<String> permissions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String role : roles) {
+                digest.update(role.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            digest.update((byte) 0);
+            for (String permission : permissions) {
+                digest.update(permission.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return ENCODER.encodeToString(Arrays.copyOf(digest.digest(), 9));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
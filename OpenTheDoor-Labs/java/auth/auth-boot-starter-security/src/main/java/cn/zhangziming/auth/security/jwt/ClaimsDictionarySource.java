@@ -0,0 +1,32 @@
+package cn.zhangziming.auth.security.jwt;
+
+/**
+ * 角色/权限声明字典来源
+ *
+ * <p>容器中存在此类型的Bean时，JwtUtil签发Token用{@link #current()}把角色和权限压缩为位图，
+ * 验签后按Token中的字典版本用{@link #get(String)}解码
+ * <p>认证服务从数据库构建字典并对外发布，客户端从认证服务拉取
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface ClaimsDictionarySource {
+
+    /**
+     * 签发Token使用的当前字典
+     *
+     * @return 当前字典，没有时返回null（Token中写入原始编码列表）
+     */
+    default ClaimsDictionary current() {
+        return null;
+    }
+
+    /**
+     * 按版本查找字典
+     * 位于验签路径上（响应式客户端在事件循环上验签），实现应只查缓存，不能同步发起网络请求
+     *
+     * @param version 字典版本
+     * @return 字典，未知版本返回null（Token按STALE_CLAIMS拒绝）
+     */
+    ClaimsDictionary get(String version);
+}
@@ -0,0 +1,456 @@
+package cn.zhangziming.auth.security.jwt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.Claims;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * HS256快速验签器
+ *
+ * <p>只处理本项目JwtUtil签发的HS256 Token，绕过jjwt的通用Claims Map解析：
+ * <ul>
+ *     <li>已初始化的Mac和Base64URL解码缓冲区放在一个小的空闲池里复用，不绑定线程，
+ *     虚拟线程（每个请求一个新线程）下也不会每次重建</li>
+ *     <li>签名用MessageDigest.isEqual做常量时间比较</li>
+ *     <li>用Jackson流式解析只读取已知声明，直接构建VerifiedToken</li>
+ * </ul>
+ * <p>结构错误、签名不符、已过期可在快速路径上直接判定，不抛任何异常；
+ * 遇到不认识的头部/声明、未知kid时返回null，由调用方回退到jjwt
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class FastHs256Verifier {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+
+    private static final int SIGNATURE_LENGTH = 32;
+
+    /**
+     * 单个Token允许的最大长度，超长Token交给jjwt处理
+     */
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 空闲池最多保留的状态数，同时验签的线程数超过它时多出的状态用完即丢弃
+     */
+    private static final int MAX_IDLE_STATES = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final TokenValidationResult MALFORMED =
+            TokenValidationResult.failure(TokenValidationResult.Status.MALFORMED);
+    private static final TokenValidationResult BAD_SIGNATURE =
+            TokenValidationResult.failure(TokenValidationResult.Status.BAD_SIGNATURE);
+    private static final TokenValidationResult EXPIRED =
+            TokenValidationResult.failure(TokenValidationResult.Status.EXPIRED);
+
+    /**
+     * Base64URL字符 -> 6位值，非法字符为-1
+     */
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final JwtKeyRing keyRing;
+
+    /**
+     * 延迟加载完整Claims的解析函数
+     */
+    private final Function<String, Claims> claimsDecoder;
+
+    /**
+     * 空闲的Mac和缓冲区
+     * <p>不用ThreadLocal：虚拟线程每个请求一个新线程，ThreadLocal里的Mac每次都要重新初始化
+     */
+    private final ConcurrentLinkedQueue<VerifierState> idleStates = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public FastHs256Verifier(JwtKeyRing keyRing, Function<String, Claims> claimsDecoder) {
+        if (!JwtKeyRing.ALGORITHM_HS256.equals(keyRing.getAlgorithm())) {
+            throw new IllegalStateException("快速验签只支持HS256，当前算法: " + keyRing.getAlgorithm());
+        }
+        this.keyRing = keyRing;
+        this.claimsDecoder = claimsDecoder;
+    }
+
+    /**
+     * 验签并提取已知声明
+     *
+     * @param token Token字符串
+     * @return 已验签的Token；无法在快速路径上确认有效时返回null
+     */
+    public VerifiedToken verify(String token) {
+        TokenValidationResult result = validate(token);
+        return result != null ? result.getVerifiedToken() : null;
+    }
+
+    /**
+     * 校验Token
+     *
+     * @param token Token字符串
+     * @return 校验结果；快速路径无法判定时返回null
+     */
+    public TokenValidationResult validate(String token) {
+        int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            return MALFORMED;
+        }
+
+        VerifierState state = acquireState();
+        try {
+            // 1. 头部：alg必须是HS256，按kid选择Mac
+            int headerLength = decode(token, 0, firstDot, state);
+            if (headerLength < 0) {
+                return MALFORMED;
+            }
+            if (!parseHeader(state.json, headerLength, state)) {
+                return null;
+            }
+            String keyId = state.keyId != null ? state.keyId : keyRing.getActiveKeyId();
+            Mac mac = state.mac(keyId, keyRing);
+            if (mac == null) {
+                return null;
+            }
+
+            // 2. 签名：对"header.payload"的ASCII字节计算HMAC并常量时间比较
+            byte[] input = state.input(secondDot);
+            for (int i = 0; i < secondDot; i++) {
+                input[i] = (byte) token.charAt(i);
+            }
+            mac.update(input, 0, secondDot);
+            mac.doFinal(state.expected, 0);
+            if (decodeSignature(token, secondDot + 1, length, state.signature) != SIGNATURE_LENGTH
+                    || !MessageDigest.isEqual(state.expected, state.signature)) {
+                return BAD_SIGNATURE;
+            }
+
+            // 3. 载荷：只读取已知声明
+            int payloadLength = decode(token, firstDot + 1, secondDot, state);
+            if (payloadLength < 0) {
+                return MALFORMED;
+            }
+            return parsePayload(token, state.json, payloadLength);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            return null;
+        } finally {
+            releaseState(state);
+        }
+    }
+
+    private VerifierState acquireState() {
+        VerifierState state = idleStates.poll();
+        if (state == null) {
+            return new VerifierState();
+        }
+        idleCount.decrementAndGet();
+        return state;
+    }
+
+    private void releaseState(VerifierState state) {
+        if (idleCount.incrementAndGet() <= MAX_IDLE_STATES) {
+            idleStates.offer(state);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 解析头部，kid写入state.keyId（可为null）；出现不认识的字段或alg不是HS256时返回false
+     */
+    private static boolean parseHeader(byte[] json, int length, VerifierState state) throws IOException {
+        state.keyId = null;
+        boolean hs256 = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(json, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "alg":
+                        hs256 = value == JsonToken.VALUE_STRING && "HS256".equals(parser.getText());
+                        break;
+                    case "kid":
+                        if (value != JsonToken.VALUE_STRING) {
+                            return false;
+                        }
+                        state.keyId = parser.getText();
+                        break;
+                    case "typ":
+                        break;
+                    default:
+                        return false;
+                }
+            }
+        }
+        return hs256;
+    }
+
+    /**
+     * 解析载荷，只接受JwtUtil签发时写入的声明，出现其他声明时返回null
+     */
+    private TokenValidationResult parsePayload(String token, byte[] json, int length) throws IOException {
+        String tokenId = null;
+        Long userId = null;
+        String subject = null;
+        String tenantId = null;
+        String tokenType = null;
+        List<String> roles = Collections.emptyList();
+        List<String> permissions = Collections.emptyList();
+        String claimsVersion = null;
+        String roleBits = null;
+        String permissionBits = null;
+        long issuedAtMillis = 0L;
+        long expirationMillis = Long.MAX_VALUE;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "userId":
+                        if (value == JsonToken.VALUE_NUMBER_INT) {
+                            userId = parser.getLongValue();
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        break;
+                    case "sub":
+                        if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        subject = parser.getText();
+                        break;
+                    case "tenantId":
+                        if (value == JsonToken.VALUE_STRING) {
+                            tenantId = parser.getText();
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        break;
+                    case "tokenType":
+                        if (value == JsonToken.VALUE_STRING) {
+                            tokenType = parser.getText();
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        break;
+                    case "roles":
+                        roles = readStringArray(parser, value);
+                        if (roles == null) {
+                            return null;
+                        }
+                        break;
+                    case "permissions":
+                        permissions = readStringArray(parser, value);
+                        if (permissions == null) {
+                            return null;
+                        }
+                        break;
+                    case JwtUtil.CLAIM_DICTIONARY_VERSION:
+                    case JwtUtil.CLAIM_ROLE_BITS:
+                    case JwtUtil.CLAIM_PERMISSION_BITS:
+                        if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        if (JwtUtil.CLAIM_DICTIONARY_VERSION.equals(field)) {
+                            claimsVersion = parser.getText();
+                        } else if (JwtUtil.CLAIM_ROLE_BITS.equals(field)) {
+                            roleBits = parser.getText();
+                        } else {
+                            permissionBits = parser.getText();
+                        }
+                        break;
+                    case "iat":
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            return null;
+                        }
+                        issuedAtMillis = parser.getLongValue() * 1000L;
+                        break;
+                    case "exp":
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            return null;
+                        }
+                        expirationMillis = parser.getLongValue() * 1000L;
+                        break;
+                    case "jti":
+                        if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        tokenId = parser.getText();
+                        break;
+                    case "username":
+                    case "iss":
+                        if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                            return null;
+                        }
+                        break;
+                    case "aud":
+                        if (value == JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                        } else if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        break;
+                    default:
+                        // nbf等未知声明需要jjwt的完整语义
+                        return null;
+                }
+            }
+        }
+
+        if (System.currentTimeMillis() >= expirationMillis) {
+            return EXPIRED;
+        }
+        return TokenValidationResult.valid(new VerifiedToken(token, claimsDecoder, tokenId, userId, subject,
+                tenantId, tokenType, roles, permissions, claimsVersion, roleBits, permissionBits,
+                issuedAtMillis, expirationMillis));
+    }
+
+    /**
+     * 读取字符串数组，元素不是字符串时返回null
+     */
+    private static List<String> readStringArray(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return Collections.emptyList();
+        }
+        if (value != JsonToken.START_ARRAY) {
+            return null;
+        }
+        List<String> items = new ArrayList<>();
+        JsonToken item;
+        while ((item = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (item != JsonToken.VALUE_STRING) {
+                return null;
+            }
+            items.add(parser.getText());
+        }
+        return List.copyOf(items);
+    }
+
+    /**
+     * 把token[from, to)解码到状态缓冲区，返回字节数；含非法字符时返回-1
+     */
+    private static int decode(String token, int from, int to, VerifierState state) {
+        int chars = to - from;
+        if (chars % 4 == 1) {
+            return -1;
+        }
+        byte[] out = state.json(chars * 3 / 4);
+        return decodeInto(token, from, to, out);
+    }
+
+    /**
+     * 解码签名段，长度不是32字节时返回-1
+     */
+    /**
+     * 解码32字节签名（43个base64url字符）
+     * 最后一个字符只有高4位属于签名，低2位必须为0；否则同一签名可以有多种写法，拒绝以免Token可被改写后仍然有效
+     */
+    private static int decodeSignature(String token, int from, int to, byte[] out) {
+        if (to - from != 43) {
+            return -1;
+        }
+        char last = token.charAt(to - 1);
+        int lastValue = last < 128 ? BASE64URL[last] : -1;
+        if (lastValue < 0 || (lastValue & 0x3) != 0) {
+            return -1;
+        }
+        return decodeInto(token, from, to, out);
+    }
+
+    private static int decodeInto(String token, int from, int to, byte[] out) {
+        int bits = 0;
+        int bitCount = 0;
+        int written = 0;
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            int value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 验签状态：按kid缓存的Mac和可复用缓冲区，同一时刻只被一个线程使用
+     */
+    private static final class VerifierState {
+
+        private final Map<String, Mac> macs = new HashMap<>(4);
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+        private byte[] input = new byte[512];
+        private byte[] json = new byte[512];
+        private String keyId;
+
+        private Mac mac(String keyId, JwtKeyRing keyRing) throws GeneralSecurityException {
+            Mac mac = macs.get(keyId);
+            if (mac == null) {
+                Key key = keyRing.getVerificationKey(keyId);
+                if (!(key instanceof SecretKey)) {
+                    return null;
+                }
+                mac = Mac.getInstance(HMAC_SHA256);
+                mac.init(key);
+                macs.put(keyId, mac);
+            }
+            return mac;
+        }
+
+        private byte[] input(int length) {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            return input;
+        }
+
+        private byte[] json(int length) {
+            if (json.length < length) {
+                json = new byte[length];
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package cn.zhangziming.auth.security.jwt;
+
+/**
+ * Token无效异常
+ *
+ * <p>由{@link JwtUtil#parseToken(String)}、{@link JwtUtil#verify(String)}抛出
+ * <p>不填充堆栈、不记录suppressed，失败原因已经足够定位问题，构造开销接近普通对象
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TokenValidationResult.Status status;
+
+    public InvalidTokenException(TokenValidationResult.Status status) {
+        super(status.getDescription(), null, false, false);
+        this.status = status;
+    }
+
+    /**
+     * 失败原因
+     */
+    public TokenValidationResult.Status getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,165 @@
+package cn.zhangziming.auth.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * JWT编解码器
+ *
+ * <p>启动时一次性构建签名器和验签器，运行期不可变、线程安全
+ * <p>相比每次调用都重新派生密钥、重新构建Parser，单个Token可省去密钥派生和Parser构建的开销
+ * <p>使用外部验签密钥来源（如远程JWKS）时只能验签，不能签发
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class JwtCodec {
+
+    /**
+     * 本地密钥环
+     */
+    private final JwtKeyRing keyRing;
+
+    /**
+     * 验签密钥来源，默认为本地密钥环
+     */
+    private final JwtKeySource keySource;
+
+    /**
+     * 预构建的验签器（JwtParser本身不可变、线程安全）
+     */
+    private final JwtParser parser;
+
+    /**
+     * 签发者
+     */
+    private final String issuer;
+
+    /**
+     * 受众
+     */
+    private final String audience;
+
+    private JwtCodec(JwtKeyRing keyRing, JwtKeySource keySource, String issuer, String audience) {
+        this.keyRing = keyRing;
+        this.keySource = keySource;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.parser = Jwts.parser()
+                .keyLocator(new KeySourceLocator(keySource))
+                .build();
+    }
+
+    /**
+     * 根据配置构建编解码器
+     *
+     * @param jwtProperties JWT配置
+     * @return 编解码器
+     */
+    public static JwtCodec of(JwtProperties jwtProperties) {
+        JwtKeyRing keyRing = JwtKeyRing.of(jwtProperties);
+        return new JwtCodec(keyRing, keyRing, jwtProperties.getIssuer(), jwtProperties.getAudience());
+    }
+
+    /**
+     * 构建只验签的编解码器
+     *
+     * @param jwtProperties JWT配置（仅使用issuer/audience）
+     * @param keySource     验签密钥来源
+     * @return 编解码器
+     */
+    public static JwtCodec verifyOnly(JwtProperties jwtProperties, JwtKeySource keySource) {
+        return new JwtCodec(null, keySource, jwtProperties.getIssuer(), jwtProperties.getAudience());
+    }
+
+    /**
+     * 签发Token
+     *
+     * @param claims     自定义声明
+     * @param subject    主题（通常是用户名）
+     * @param expireTime 过期时间（秒）
+     * @return Token字符串
+     */
+    public String encode(Map<String, Object> claims, String subject, long expireTime) {
+        if (keyRing == null) {
+            throw new IllegalStateException("当前节点使用外部密钥验签，不能签发Token");
+        }
+        Date now = new Date();
+        Date expirationDate = new Date(now.getTime() + expireTime * 1000);
+
+        return Jwts.builder()
+                .header().keyId(keyRing.getActiveKeyId()).and()
+                .claims(claims)
+                .subject(subject)
+                .issuer(issuer)
+                .audience().single(audience)
+                .issuedAt(now)
+                .expiration(expirationDate)
+                .signWith(keyRing.getSigningKey(), keyRing.getSignatureAlgorithm())
+                .compact();
+    }
+
+    /**
+     * 验签并解析Token
+     *
+     * @param token Token字符串
+     * @return Claims
+     * @throws io.jsonwebtoken.JwtException 验签失败、过期或格式错误时抛出
+     */
+    public Claims decode(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * 是否可以签发Token
+     */
+    public boolean canSign() {
+        return keyRing != null;
+    }
+
+    /**
+     * 获取本地密钥环
+     *
+     * @return 密钥环，只验签模式下为null
+     */
+    public JwtKeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    /**
+     * 获取验签密钥来源
+     */
+    public JwtKeySource getKeySource() {
+        return keySource;
+    }
+
+    /**
+     * 按Token头部kid从密钥来源中选择验签密钥
+     * jjwt会校验密钥类型与头部alg是否匹配，HS256头部配公钥的算法混淆攻击会被拒绝
+     */
+    private static final class KeySourceLocator extends LocatorAdapter<Key> {
+
+        private final JwtKeySource keySource;
+
+        private KeySourceLocator(JwtKeySource keySource) {
+            this.keySource = keySource;
+        }
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            Key key = keySource.getVerificationKey(header.getKeyId());
+            if (key == null) {
+                throw new SignatureException("未知的签名密钥: kid=" + header.getKeyId());
+            }
+            return key;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package cn.zhangziming.auth.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JWT密钥环
+ *
+ * <p>按kid索引的签名/验签密钥集合，启动时一次性派生所有密钥，运行期只读
+ * <p>当前密钥用于签名，历史密钥只用于验签，以此实现不停机的密钥轮换
+ * <p>支持HS256（共享密钥）以及RS256、ES256、EdDSA（非对称，公钥可通过JWKS发布）
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public final class JwtKeyRing implements JwtKeySource {
+
+    /** 算法：HMAC-SHA256 */
+    public static final String ALGORITHM_HS256 = "HS256";
+
+    /** 算法：RSA-SHA256 */
+    public static final String ALGORITHM_RS256 = "RS256";
+
+    /** 算法：ECDSA P-256 */
+    public static final String ALGORITHM_ES256 = "ES256";
+
+    /** 算法：Ed25519 */
+    public static final String ALGORITHM_EDDSA = "EdDSA";
+
+    /**
+     * 签名算法名称
+     */
+    private final String algorithm;
+
+    /**
+     * 签名算法
+     */
+    private final SecureDigestAlgorithm<Key, Key> signatureAlgorithm;
+
+    /**
+     * 当前签名密钥ID
+     */
+    private final String activeKeyId;
+
+    /**
+     * 当前签名密钥（SecretKey或PrivateKey）
+     */
+    private final Key signingKey;
+
+    /**
+     * 全部验签密钥（kid -> key），包含当前密钥
+     */
+    private final Map<String, Key> keys;
+
+    /**
+     * 可公开发布的公钥（kid -> 公钥），HS256模式下为空
+     */
+    private final Map<String, PublicKey> publicKeys;
+
+    private JwtKeyRing(String algorithm, String activeKeyId, Key signingKey,
+                       Map<String, Key> keys, Map<String, PublicKey> publicKeys) {
+        this.algorithm = algorithm;
+        this.signatureAlgorithm = signatureAlgorithm(algorithm);
+        this.activeKeyId = activeKeyId;
+        this.signingKey = signingKey;
+        this.keys = Collections.unmodifiableMap(keys);
+        this.publicKeys = Collections.unmodifiableMap(publicKeys);
+    }
+
+    /**
+     * 根据配置构建密钥环
+     *
+     * @param jwtProperties JWT配置
+     * @return 密钥环
+     */
+    public static JwtKeyRing of(JwtProperties jwtProperties) {
+        String algorithm = jwtProperties.getAlgorithm();
+        String activeKeyId = jwtProperties.getKeyId();
+        Map<String, Key> keys = new LinkedHashMap<>();
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        Key signingKey;
+
+        if (ALGORITHM_HS256.equals(algorithm)) {
+            signingKey = deriveKey(jwtProperties.getSecret());
+            keys.put(activeKeyId, signingKey);
+        } else {
+            KeyPair keyPair = loadKeyPair(algorithm, jwtProperties);
+            signingKey = keyPair.getPrivate();
+            keys.put(activeKeyId, keyPair.getPublic());
+            publicKeys.put(activeKeyId, keyPair.getPublic());
+            if (jwtProperties.getVerificationPublicKeys() != null) {
+                jwtProperties.getVerificationPublicKeys().forEach((kid, pem) -> {
+                    if (!activeKeyId.equals(kid)) {
+                        PublicKey publicKey = decodePublicKey(algorithm, pem);
+                        keys.put(kid, publicKey);
+                        publicKeys.put(kid, publicKey);
+                    }
+                });
+            }
+        }
+
+        // HMAC历史密钥在两种模式下都可用于验签，便于从HS256平滑迁移到非对称算法
+        if (jwtProperties.getVerificationKeys() != null) {
+            jwtProperties.getVerificationKeys().forEach((kid, secret) -> {
+                if (!activeKeyId.equals(kid)) {
+                    keys.put(kid, deriveKey(secret));
+                }
+            });
+        }
+        return new JwtKeyRing(algorithm, activeKeyId, signingKey, keys, publicKeys);
+    }
+
+    /**
+     * 获取签名算法名称
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 获取签名算法
+     */
+    public SecureDigestAlgorithm<Key, Key> getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * 获取当前签名密钥ID
+     */
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * 获取当前签名密钥
+     */
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * 根据kid查找验签密钥
+     * 未携带kid的Token（轮换前签发）使用当前密钥验签
+     *
+     * @param keyId 密钥ID，可为null
+     * @return 密钥，未找到返回null
+     */
+    @Override
+    public Key getVerificationKey(String keyId) {
+        return keys.get(keyId != null ? keyId : activeKeyId);
+    }
+
+    /**
+     * 获取全部密钥ID
+     */
+    public Iterable<String> getKeyIds() {
+        return keys.keySet();
+    }
+
+    /**
+     * 获取可公开发布的公钥（用于JWKS）
+     *
+     * @return kid -> 公钥，HS256模式下为空
+     */
+    public Map<String, PublicKey> getPublicKeys() {
+        return publicKeys;
+    }
+
+    /**
+     * 由配置的字符串密钥派生HMAC密钥
+     */
+    private static Key deriveKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 加载非对称密钥对
+     * 未配置私钥时生成临时密钥对，仅适用于单节点开发环境
+     */
+    private static KeyPair loadKeyPair(String algorithm, JwtProperties jwtProperties) {
+        if (jwtProperties.getPrivateKey() == null || jwtProperties.getPrivateKey().isBlank()) {
+            log.warn("未配置JWT私钥，已生成临时{}密钥对，重启后已签发的Token全部失效，多节点部署必须配置固定密钥", algorithm);
+            return generateKeyPair(algorithm);
+        }
+        if (jwtProperties.getPublicKey() == null || jwtProperties.getPublicKey().isBlank()) {
+            throw new IllegalStateException("配置了JWT私钥时必须同时配置公钥: auth-boot.security.jwt.public-key");
+        }
+        return new KeyPair(decodePublicKey(algorithm, jwtProperties.getPublicKey()),
+                decodePrivateKey(algorithm, jwtProperties.getPrivateKey()));
+    }
+
+    private static KeyPair generateKeyPair(String algorithm) {
+        switch (algorithm) {
+            case ALGORITHM_RS256:
+                return Jwts.SIG.RS256.keyPair().build();
+            case ALGORITHM_ES256:
+                return Jwts.SIG.ES256.keyPair().build();
+            case ALGORITHM_EDDSA:
+                return Jwks.CRV.Ed25519.keyPair().build();
+            default:
+                throw new IllegalStateException("不支持的JWT签名算法: " + algorithm);
+        }
+    }
+
+    private static PublicKey decodePublicKey(String algorithm, String pem) {
+        try {
+            return keyFactory(algorithm).generatePublic(new X509EncodedKeySpec(decodePem(pem)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JWT公钥格式错误", e);
+        }
+    }
+
+    private static PrivateKey decodePrivateKey(String algorithm, String pem) {
+        try {
+            return keyFactory(algorithm).generatePrivate(new PKCS8EncodedKeySpec(decodePem(pem)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JWT私钥格式错误", e);
+        }
+    }
+
+    private static KeyFactory keyFactory(String algorithm) throws GeneralSecurityException {
+        switch (algorithm) {
+            case ALGORITHM_RS256:
+                return KeyFactory.getInstance("RSA");
+            case ALGORITHM_ES256:
+                return KeyFactory.getInstance("EC");
+            case ALGORITHM_EDDSA:
+                return KeyFactory.getInstance("Ed25519");
+            default:
+                throw new IllegalStateException("不支持的JWT签名算法: " + algorithm);
+        }
+    }
+
+    /**
+     * 解码PEM（去掉BEGIN/END行和空白）或纯Base64文本
+     */
+    private static byte[] decodePem(String pem) {
+        String base64 = pem.replaceAll("-----(BEGIN|END)[A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SecureDigestAlgorithm<Key, Key> signatureAlgorithm(String algorithm) {
+        switch (algorithm) {
+            case ALGORITHM_HS256:
+                return (SecureDigestAlgorithm<Key, Key>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.HS256;
+            case ALGORITHM_RS256:
+                return (SecureDigestAlgorithm<Key, Key>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.RS256;
+            case ALGORITHM_ES256:
+                return (SecureDigestAlgorithm<Key, Key>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.ES256;
+            case ALGORITHM_EDDSA:
+                return (SecureDigestAlgorithm<Key, Key>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.EdDSA;
+            default:
+                throw new IllegalStateException("不支持的JWT签名算法: " + algorithm);
+        }
+    }
+}
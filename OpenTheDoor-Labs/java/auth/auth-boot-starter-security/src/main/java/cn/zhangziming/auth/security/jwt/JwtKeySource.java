@@ -0,0 +1,23 @@
+package cn.zhangziming.auth.security.jwt;
+
+import java.security.Key;
+
+/**
+ * JWT验签密钥来源
+ *
+ * <p>按Token头部的kid返回验签密钥，本地密钥环和远程JWKS都实现此接口
+ * <p>容器中存在此类型的Bean时，JwtUtil只使用它验签，本节点不再签发Token
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface JwtKeySource {
+
+    /**
+     * 根据kid查找验签密钥
+     *
+     * @param keyId 密钥ID，Token未携带kid时为null
+     * @return 验签密钥（SecretKey或PublicKey），未找到返回null
+     */
+    Key getVerificationKey(String keyId);
+}
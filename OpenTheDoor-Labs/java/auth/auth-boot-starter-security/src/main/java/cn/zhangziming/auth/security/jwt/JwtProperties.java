@@ -3,6 +3,9 @@ package cn.zhangziming.auth.security.jwt;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * JWT配置属性
  * 
@@ -21,6 +24,55 @@ public class JwtProperties {
      */
     private String secret = "auth-boot-starter-default-secret-key-please-change-in-production";
 
+    /**
+     * 当前签名密钥ID
+     * 写入Token头部的kid，验签时据此从密钥环中选择密钥
+     */
+    private String keyId = "default";
+
+    /**
+     * 仅用于验签的历史密钥（kid -> secret）
+     * 密钥轮换时把旧密钥移到这里，旧Token在过期前仍可通过验证
+     */
+    private Map<String, String> verificationKeys = new LinkedHashMap<>();
+
+    /**
+     * 签名算法
+     * 可选: HS256（默认，共享密钥）、RS256、ES256、EdDSA
+     * 非对称算法下客户端只需公钥即可本地验签，公钥通过/.well-known/jwks.json发布
+     */
+    private String algorithm = "HS256";
+
+    /**
+     * 非对称签名私钥（PKCS#8，PEM或Base64）
+     * 仅签发Token的服务端需要；未配置时启动生成临时密钥对，仅适用于单节点开发环境
+     */
+    private String privateKey;
+
+    /**
+     * 非对称签名公钥（X.509，PEM或Base64）
+     */
+    private String publicKey;
+
+    /**
+     * 仅用于验签的历史公钥（kid -> 公钥PEM）
+     * 非对称密钥轮换时把旧公钥移到这里，会一并发布到JWKS
+     */
+    private Map<String, String> verificationPublicKeys = new LinkedHashMap<>();
+
+    /**
+     * 是否启用HS256快速验签路径，默认开启
+     * 开启后本项目签发的HS256 Token跳过jjwt的通用声明解析，过期、签名错误等常见失败不构造异常；其他形态的Token仍由jjwt处理
+     * 关闭后所有Token都由jjwt解析，每个被拒绝的Token都会构造一个带堆栈的jjwt异常
+     */
+    private boolean fastPath = true;
+
+    /**
+     * Token校验失败日志的输出周期（秒）
+     * 每种失败原因每个周期最多输出一条WARN，附带周期内的失败次数
+     */
+    private long failureLogInterval = 10L;
+
     /**
      * AccessToken过期时间（秒）
      * 默认2小时
@@ -33,6 +85,11 @@ public class JwtProperties {
      */
     private Long refreshExpireTime = 604800L;
 
+    /**
+     * 静默续期
+     */
+    private Renewal renewal = new Renewal();
+
     /**
      * Token请求头名称
      * 默认: Authorization
@@ -54,5 +111,35 @@ public class JwtProperties {
      * 受众
      */
     private String audience = "auth-boot-client";
-}
 
+    /**
+     * 静默续期配置
+     * 有效的AccessToken剩余时间低于阈值时，过滤器在响应头中返回新Token，客户端替换即可，无需等到401再刷新
+     * 只在认证服务上生效（需要会话存储）；新Token重新加载角色和权限，有效期不超过会话
+     */
+    @Data
+    public static class Renewal {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 续期阈值（秒）
+         * 剩余有效期低于此值时续期
+         */
+        private long threshold = 600L;
+
+        /**
+         * 过期抖动比例（0~1）
+         * 新Token的有效期在[expireTime*(1-jitter), expireTime]内随机，避免同时登录的用户同时续期
+         */
+        private double jitter = 0.1;
+
+        /**
+         * 返回新Token的响应头
+         */
+        private String header = "X-Renewed-Token";
+    }
+}
@@ -2,43 +2,125 @@ package cn.zhangziming.auth.security.jwt;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.UnsupportedJwtException;
-import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
-import lombok.RequiredArgsConstructor;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SecurityException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * JWT工具类
  * 
  * <p>提供JWT的生成、解析、验证功能
+ * <p>签名器、验签器和密钥环在构造时一次性创建，请求路径上不再派生密钥、构建Parser
  *
  * @author zhangziming
  * @since 2024-10-29
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtUtil {
 
     private final JwtProperties jwtProperties;
 
+    /**
+     * 预构建的编解码器
+     */
+    private final JwtCodec jwtCodec;
+
+    /**
+     * HS256快速验签器，未启用时为null
+     */
+    private final FastHs256Verifier fastVerifier;
+
+    /**
+     * 校验统计
+     */
+    private final TokenValidationStats validationStats;
+
+    /**
+     * Token吊销检查，未配置时为null
+     */
+    private final TokenRevocationChecker revocationChecker;
+
+    /**
+     * 角色/权限声明字典，未配置时Token中写入原始编码列表
+     */
+    private final ClaimsDictionarySource dictionarySource;
+
     /** Token类型：访问令牌 */
     public static final String TOKEN_TYPE_ACCESS = "access";
     
     /** Token类型：刷新令牌 */
     public static final String TOKEN_TYPE_REFRESH = "refresh";
 
+    /** 声明：角色/权限字典版本 */
+    public static final String CLAIM_DICTIONARY_VERSION = "dv";
+
+    /** 声明：角色位图（base64url） */
+    public static final String CLAIM_ROLE_BITS = "rb";
+
+    /** 声明：权限位图（base64url） */
+    public static final String CLAIM_PERMISSION_BITS = "pb";
+
+    public JwtUtil(JwtProperties jwtProperties) {
+        this(jwtProperties, (JwtKeySource) null, null, null);
+    }
+
+    /**
+     * 使用指定的声明字典（签发和解码角色/权限位图）
+     */
+    public JwtUtil(JwtProperties jwtProperties, ClaimsDictionarySource dictionarySource) {
+        this(jwtProperties, (JwtKeySource) null, null, dictionarySource);
+    }
+
+    /**
+     * 容器中存在JwtKeySource（如客户端的远程JWKS）时只用它验签，本节点不再签发Token
+     * 容器中存在TokenRevocationChecker时，验签通过后再按jti检查是否已吊销
+     * 容器中存在ClaimsDictionarySource时，角色和权限按字典压缩为位图
+     */
+    @Autowired
+    public JwtUtil(JwtProperties jwtProperties, ObjectProvider<JwtKeySource> keySourceProvider,
+                   ObjectProvider<TokenRevocationChecker> revocationCheckerProvider,
+                   ObjectProvider<ClaimsDictionarySource> dictionarySourceProvider) {
+        this(jwtProperties, keySourceProvider.getIfAvailable(), revocationCheckerProvider.getIfAvailable(),
+                dictionarySourceProvider.getIfAvailable());
+    }
+
+    private JwtUtil(JwtProperties jwtProperties, JwtKeySource keySource, TokenRevocationChecker revocationChecker,
+                    ClaimsDictionarySource dictionarySource) {
+        this.jwtProperties = jwtProperties;
+        this.validationStats = new TokenValidationStats(jwtProperties.getFailureLogInterval());
+        this.revocationChecker = revocationChecker;
+        this.dictionarySource = dictionarySource;
+        if (keySource == null) {
+            this.jwtCodec = JwtCodec.of(jwtProperties);
+            log.info("JWT密钥环初始化完成: algorithm={}, activeKeyId={}, keyIds={}",
+                    jwtCodec.getKeyRing().getAlgorithm(), jwtCodec.getKeyRing().getActiveKeyId(),
+                    jwtCodec.getKeyRing().getKeyIds());
+            if (jwtProperties.isFastPath()
+                    && JwtKeyRing.ALGORITHM_HS256.equals(jwtCodec.getKeyRing().getAlgorithm())) {
+                this.fastVerifier = new FastHs256Verifier(jwtCodec.getKeyRing(), jwtCodec::decode);
+                log.info("JWT快速验签路径已启用");
+            } else {
+                this.fastVerifier = null;
+            }
+        } else {
+            this.jwtCodec = JwtCodec.verifyOnly(jwtProperties, keySource);
+            this.fastVerifier = null;
+            log.info("JWT使用外部密钥验签: keySource={}", keySource.getClass().getSimpleName());
+        }
+    }
+
     /**
      * 生成AccessToken
      *
@@ -48,13 +130,95 @@ public class JwtUtil {
      * @return AccessToken
      */
     public String generateToken(Long userId, String username, String tenantId) {
+        return generateToken(userId, username, tenantId, newTokenId());
+    }
+
+    /**
+     * 生成AccessToken，使用调用方指定的jti（便于登记会话）
+     *
+     * @param userId   用户ID
+     * @param username 用户名
+     * @param tenantId 租户ID
+     * @param tokenId  Token唯一标识（jti）
+     * @return AccessToken
+     */
+    public String generateToken(Long userId, String username, String tenantId, String tokenId) {
+        return generateToken(userId, username, tenantId, tokenId, List.of(), List.of());
+    }
+
+    /**
+     * 生成携带角色和权限的AccessToken
+     * 配置了声明字典时角色和权限压缩为位图，字典中没有的编码仍以原始列表写入
+     *
+     * @param userId      用户ID
+     * @param username    用户名
+     * @param tenantId    租户ID
+     * @param tokenId     Token唯一标识（jti）
+     * @param roles       角色编码
+     * @param permissions 权限编码
+     * @return AccessToken
+     */
+    public String generateToken(Long userId, String username, String tenantId, String tokenId,
+                                Collection<String> roles, Collection<String> permissions) {
+        return generateToken(userId, username, tenantId, tokenId, roles, permissions, jwtProperties.getExpireTime());
+    }
+
+    /**
+     * 生成指定有效期的AccessToken（续期时用于叠加过期抖动）
+     */
+    String generateToken(Long userId, String username, String tenantId, String tokenId,
+                         Collection<String> roles, Collection<String> permissions, long expireTime) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("tenantId", tenantId);
         claims.put("tokenType", TOKEN_TYPE_ACCESS);
+        claims.put(Claims.ID, tokenId);
+        putAuthorities(claims, roles, permissions);
         
-        return createToken(claims, username, jwtProperties.getExpireTime());
+        return createToken(claims, username, expireTime);
+    }
+
+    /**
+     * 写入角色和权限声明
+     */
+    private void putAuthorities(Map<String, Object> claims, Collection<String> roles, Collection<String> permissions) {
+        ClaimsDictionary dictionary = dictionarySource != null ? dictionarySource.current() : null;
+        if (dictionary == null) {
+            putCodes(claims, "roles", roles);
+            putCodes(claims, "permissions", permissions);
+            return;
+        }
+        List<String> unknownRoles = new ArrayList<>(0);
+        List<String> unknownPermissions = new ArrayList<>(0);
+        String roleBits = dictionary.encodeRoles(roles, unknownRoles);
+        String permissionBits = dictionary.encodePermissions(permissions, unknownPermissions);
+        if (roleBits != null || permissionBits != null) {
+            claims.put(CLAIM_DICTIONARY_VERSION, dictionary.getVersion());
+        }
+        if (roleBits != null) {
+            claims.put(CLAIM_ROLE_BITS, roleBits);
+        }
+        if (permissionBits != null) {
+            claims.put(CLAIM_PERMISSION_BITS, permissionBits);
+        }
+        putCodes(claims, "roles", unknownRoles);
+        putCodes(claims, "permissions", unknownPermissions);
+    }
+
+    private static void putCodes(Map<String, Object> claims, String name, Collection<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return;
+        }
+        List<String> values = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            if (code != null) {
+                values.add(code);
+            }
+        }
+        if (!values.isEmpty()) {
+            claims.put(name, values);
+        }
     }
 
     /**
@@ -66,11 +230,25 @@ public class JwtUtil {
      * @return RefreshToken
      */
     public String generateRefreshToken(Long userId, String username, String tenantId) {
+        return generateRefreshToken(userId, username, tenantId, newTokenId());
+    }
+
+    /**
+     * 生成RefreshToken，使用调用方指定的jti（便于登记会话）
+     *
+     * @param userId   用户ID
+     * @param username 用户名
+     * @param tenantId 租户ID
+     * @param tokenId  Token唯一标识（jti）
+     * @return RefreshToken
+     */
+    public String generateRefreshToken(Long userId, String username, String tenantId, String tokenId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("tenantId", tenantId);
         claims.put("tokenType", TOKEN_TYPE_REFRESH);
+        claims.put(Claims.ID, tokenId);
         
         return createToken(claims, username, jwtProperties.getRefreshExpireTime());
     }
@@ -84,51 +262,99 @@ public class JwtUtil {
      * @return Token字符串
      */
     private String createToken(Map<String, Object> claims, String subject, Long expireTime) {
-        Date now = new Date();
-        Date expirationDate = new Date(now.getTime() + expireTime * 1000);
+        return jwtCodec.encode(claims, subject, expireTime);
+    }
 
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(subject)
-                .setIssuer(jwtProperties.getIssuer())
-                .setAudience(jwtProperties.getAudience())
-                .setIssuedAt(now)
-                .setExpiration(expirationDate)
-                .signWith(getSignKey(), SignatureAlgorithm.HS256)
-                .compact();
+    /**
+     * 生成Token唯一标识（jti），用于吊销
+     */
+    public static String newTokenId() {
+        return UUID.randomUUID().toString();
     }
 
     /**
      * 解析Token
+     * 只验签，不检查吊销状态；判断Token能否使用请用{@link #validate(String)}
      *
      * @param token Token字符串
      * @return Claims
+     * @throws InvalidTokenException Token无效（不含堆栈）
      */
     public Claims parseToken(String token) {
+        if (fastVerifier != null && token != null) {
+            // 快速路径能判定的Token不经过jjwt，失败时不构造jjwt异常
+            TokenValidationResult result = fastVerifier.validate(token);
+            if (result != null) {
+                validationStats.record(result.getStatus(), null);
+                if (!result.isValid()) {
+                    throw new InvalidTokenException(result.getStatus());
+                }
+                return result.getVerifiedToken().getClaims();
+            }
+        }
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSignKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (ExpiredJwtException e) {
-            log.warn("Token已过期: {}", e.getMessage());
-            throw new RuntimeException("Token已过期");
-        } catch (MalformedJwtException e) {
-            log.warn("Token格式错误: {}", e.getMessage());
-            throw new RuntimeException("Token格式错误");
-        } catch (SignatureException e) {
-            log.warn("Token签名验证失败: {}", e.getMessage());
-            throw new RuntimeException("Token签名验证失败");
-        } catch (UnsupportedJwtException e) {
-            log.warn("不支持的Token: {}", e.getMessage());
-            throw new RuntimeException("不支持的Token");
-        } catch (IllegalArgumentException e) {
-            log.warn("Token参数错误: {}", e.getMessage());
-            throw new RuntimeException("Token参数错误");
+            Claims claims = jwtCodec.decode(token);
+            validationStats.record(TokenValidationResult.Status.VALID, null);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            TokenValidationResult.Status status = classify(e);
+            validationStats.record(status, e);
+            throw new InvalidTokenException(status);
         }
     }
 
+    /**
+     * 校验Token，不抛异常
+     * 启用快速路径时过期、签名错误等常见失败不会构造任何异常对象
+     * 配置了TokenRevocationChecker时，已吊销的Token返回REVOKED
+     *
+     * @param token Token字符串
+     * @return 校验结果
+     */
+    public TokenValidationResult validate(String token) {
+        if (token == null || token.isEmpty()) {
+            return record(TokenValidationResult.failure(TokenValidationResult.Status.MALFORMED), null);
+        }
+        if (fastVerifier != null) {
+            TokenValidationResult result = fastVerifier.validate(token);
+            if (result != null) {
+                return record(decodeAuthorities(checkRevocation(result)), null);
+            }
+        }
+        try {
+            VerifiedToken verifiedToken = new VerifiedToken(token, jwtCodec.decode(token));
+            return record(decodeAuthorities(checkRevocation(TokenValidationResult.valid(verifiedToken))), null);
+        } catch (JwtException | IllegalArgumentException e) {
+            return record(TokenValidationResult.failure(classify(e)), e);
+        }
+    }
+
+    /**
+     * 验签并解析Token
+     * 一次验签得到不可变的VerifiedToken，后续读取声明不再重复验签
+     *
+     * @param token Token字符串
+     * @return 已验签的Token
+     * @throws InvalidTokenException Token无效（不含堆栈）
+     */
+    public VerifiedToken verify(String token) {
+        TokenValidationResult result = validate(token);
+        if (!result.isValid()) {
+            throw new InvalidTokenException(result.getStatus());
+        }
+        return result.getVerifiedToken();
+    }
+
+    /**
+     * 验签并解析Token，失败时返回空
+     *
+     * @param token Token字符串
+     * @return 已验签的Token，验签失败返回Optional.empty()
+     */
+    public Optional<VerifiedToken> tryVerify(String token) {
+        return validate(token).toOptional();
+    }
+
     /**
      * 验证Token是否有效
      *
@@ -136,12 +362,7 @@ public class JwtUtil {
      * @return true-有效 false-无效
      */
     public boolean validateToken(String token) {
-        try {
-            parseToken(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return validate(token).isValid();
     }
 
     /**
@@ -151,12 +372,7 @@ public class JwtUtil {
      * @return 用户ID
      */
     public Long extractUserId(String token) {
-        Claims claims = parseToken(token);
-        Object userId = claims.get("userId");
-        if (userId instanceof Integer) {
-            return ((Integer) userId).longValue();
-        }
-        return (Long) userId;
+        return verify(token).getUserId();
     }
 
     /**
@@ -166,8 +382,7 @@ public class JwtUtil {
      * @return 用户名
      */
     public String extractUsername(String token) {
-        Claims claims = parseToken(token);
-        return claims.getSubject();
+        return verify(token).getUsername();
     }
 
     /**
@@ -177,8 +392,7 @@ public class JwtUtil {
      * @return 租户ID
      */
     public String extractTenantId(String token) {
-        Claims claims = parseToken(token);
-        return (String) claims.get("tenantId");
+        return verify(token).getTenantId();
     }
 
     /**
@@ -188,8 +402,7 @@ public class JwtUtil {
      * @return 自定义声明Map
      */
     public Map<String, Object> extractClaims(String token) {
-        Claims claims = parseToken(token);
-        return new HashMap<>(claims);
+        return new HashMap<>(verify(token).getClaims());
     }
 
     /**
@@ -200,15 +413,20 @@ public class JwtUtil {
      * @return true-即将过期 false-未即将过期
      */
     public boolean isTokenExpiringSoon(String token, long thresholdSeconds) {
-        try {
-            Claims claims = parseToken(token);
-            Date expiration = claims.getExpiration();
-            Date now = new Date();
-            long remainingTime = (expiration.getTime() - now.getTime()) / 1000;
-            return remainingTime < thresholdSeconds;
-        } catch (Exception e) {
-            return true;
-        }
+        return tryVerify(token)
+                .map(verifiedToken -> isTokenExpiringSoon(verifiedToken, thresholdSeconds))
+                .orElse(true);
+    }
+
+    /**
+     * 检查已验签的Token是否即将过期
+     *
+     * @param verifiedToken    已验签的Token
+     * @param thresholdSeconds 阈值（秒）
+     * @return true-即将过期 false-未即将过期
+     */
+    public boolean isTokenExpiringSoon(VerifiedToken verifiedToken, long thresholdSeconds) {
+        return verifiedToken.isExpiringSoon(thresholdSeconds);
     }
 
     /**
@@ -225,13 +443,86 @@ public class JwtUtil {
     }
 
     /**
-     * 获取签名密钥
+     * 当前节点能否签发Token
+     * 使用外部密钥（如远程JWKS）只验签时返回false
+     */
+    public boolean canSign() {
+        return jwtCodec.canSign();
+    }
+
+    /**
+     * 获取校验统计
      *
-     * @return SecretKey
+     * @return 各校验状态的累计次数
      */
-    private SecretKey getSignKey() {
-        byte[] keyBytes = jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public TokenValidationStats getValidationStats() {
+        return validationStats;
+    }
+
+    /**
+     * 判断jti是否已吊销
+     *
+     * @param tokenId Token唯一标识，可为null
+     * @return true-已吊销 false-未吊销或未配置吊销检查
+     */
+    public boolean isRevoked(String tokenId) {
+        return revocationChecker != null && tokenId != null && revocationChecker.isRevoked(tokenId);
+    }
+
+    private TokenValidationResult checkRevocation(TokenValidationResult result) {
+        if (result.isValid() && isRevoked(result.getVerifiedToken().getTokenId())) {
+            return TokenValidationResult.failure(TokenValidationResult.Status.REVOKED);
+        }
+        return result;
+    }
+
+    /**
+     * 按字典解码角色和权限位图
+     * 找不到对应版本的字典时返回STALE_CLAIMS：不能把丢了角色和权限的Token当作有效Token（会被缓存），
+     * 客户端收到后刷新Token即可按当前字典重新签发；位图损坏按格式错误处理
+     */
+    private TokenValidationResult decodeAuthorities(TokenValidationResult result) {
+        if (!result.isValid() || result.getVerifiedToken().getClaimsVersion() == null) {
+            return result;
+        }
+        VerifiedToken verifiedToken = result.getVerifiedToken();
+        ClaimsDictionary dictionary = dictionarySource != null
+                ? dictionarySource.get(verifiedToken.getClaimsVersion()) : null;
+        if (dictionary == null) {
+            // 失败次数和限流日志由record统一记录
+            return TokenValidationResult.failure(TokenValidationResult.Status.STALE_CLAIMS);
+        }
+        try {
+            return TokenValidationResult.valid(verifiedToken.decodeAuthorities(dictionary));
+        } catch (IllegalArgumentException e) {
+            return TokenValidationResult.failure(TokenValidationResult.Status.MALFORMED);
+        }
+    }
+
+    private TokenValidationResult record(TokenValidationResult result, Throwable cause) {
+        validationStats.record(result.getStatus(), cause);
+        return result;
+    }
+
+    /**
+     * 把jjwt异常归类为校验状态
+     */
+    private static TokenValidationResult.Status classify(Exception e) {
+        if (e instanceof ExpiredJwtException) {
+            return TokenValidationResult.Status.EXPIRED;
+        }
+        if (e instanceof SecurityException) {
+            return TokenValidationResult.Status.BAD_SIGNATURE;
+        }
+        return TokenValidationResult.Status.MALFORMED;
     }
-}
 
+    /**
+     * 获取编解码器
+     *
+     * @return JwtCodec
+     */
+    public JwtCodec getJwtCodec() {
+        return jwtCodec;
+    }
+}
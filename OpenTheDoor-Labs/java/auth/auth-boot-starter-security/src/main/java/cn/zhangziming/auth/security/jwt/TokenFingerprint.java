@@ -0,0 +1,55 @@
+package cn.zhangziming.auth.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Token指纹
+ *
+ * <p>对完整Token做SHA-256摘要后Base64URL编码（43个字符），用作缓存/存储的短key
+ * <p>必须对完整Token取摘要：只取签名段时，攻击者可以把合法签名拼到篡改过的载荷上命中缓存
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class TokenFingerprint {
+
+    /**
+     * 初始化好的摘要原型，每次克隆一份使用，避免getInstance的provider查找开销
+     * <p>不用ThreadLocal：虚拟线程每个请求一个新线程，ThreadLocal缓存不到任何东西
+     */
+    private static final MessageDigest SHA256_PROTOTYPE;
+
+    static {
+        try {
+            SHA256_PROTOTYPE = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JDK不支持SHA-256", e);
+        }
+    }
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private TokenFingerprint() {
+    }
+
+    /**
+     * 计算Token指纹
+     *
+     * @param token Token字符串
+     * @return Base64URL编码的SHA-256摘要
+     */
+    public static String of(String token) {
+        return ENCODER.encodeToString(newDigest().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return (MessageDigest) SHA256_PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256摘要不支持克隆", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cn.zhangziming.auth.security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Token续期处理
+ *
+ * <p>{@link TokenRenewer}只在容器中存在此类型的Bean时启用：续期前从数据源重新加载用户状态和授权，
+ * 签发后把新Token登记到会话。只验签的资源服务没有会话存储，不注册此Bean，也就不续期
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface TokenRenewalHandler {
+
+    /**
+     * 加载续期所需的最新授权
+     *
+     * @param previous 原Token
+     * @return 授权，会话不存在、用户已禁用或已删除时返回null，本次不续期
+     */
+    RenewalGrant load(VerifiedToken previous);
+
+    /**
+     * 新Token已签发，登记到会话
+     *
+     * @param previous         原Token
+     * @param grant            {@link #load(VerifiedToken)}返回的授权
+     * @param tokenId          新Token的jti
+     * @param expirationMillis 新Token过期时间戳（毫秒）
+     * @return false-登记失败（会话已下线），新Token作废，本次不续期
+     */
+    boolean onRenewed(VerifiedToken previous, RenewalGrant grant, String tokenId, long expirationMillis);
+
+    /**
+     * 续期授权
+     */
+    @Getter
+    @AllArgsConstructor
+    class RenewalGrant {
+
+        /**
+         * 会话ID
+         */
+        private final String sessionId;
+
+        /**
+         * 会话过期时间戳（毫秒），新Token不会超过它
+         */
+        private final long sessionExpiresAt;
+
+        /**
+         * 当前角色编码
+         */
+        private final Collection<String> roles;
+
+        /**
+         * 当前权限编码
+         */
+        private final Collection<String> permissions;
+    }
+}
@@ -0,0 +1,188 @@
+package cn.zhangziming.auth.security.jwt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token静默续期
+ *
+ * <p>有效的AccessToken进入续期阈值后签发新Token，由过滤器放入响应头
+ * <p>需要容器中存在{@link TokenRenewalHandler}（认证服务的会话存储）：新Token的角色、权限和用户状态从数据源重新加载，
+ * 有效期不超过会话（RefreshToken）的过期时间，并且必须登记到会话，登出和全部下线才能吊销它；
+ * 只验签的资源服务没有会话存储，不续期
+ * <p>同一个旧Token只续期一次：第一个请求登记一个CompletableFuture并签发，并发请求等待同一个结果，
+ * 客户端换上新Token之前的后续请求也拿到同一个新Token，直到旧Token过期
+ * <p>签发和监听器（会写Redis）都在Map锁之外执行，等待方挂起在Future上，不会钉住虚拟线程的载体线程
+ * <p>新Token的有效期叠加随机抖动，同一时刻签发的Token不会再同一时刻进入续期
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+public class TokenRenewer {
+
+    /**
+     * 每签发多少次清理一次已过期的续期记录
+     */
+    private static final int CLEANUP_INTERVAL = 256;
+
+    private final JwtUtil jwtUtil;
+
+    private final JwtProperties jwtProperties;
+
+    private final TokenRenewalHandler handler;
+
+    private final boolean enabled;
+
+    /**
+     * 旧Token的jti -> 续期结果，旧Token过期后清理
+     */
+    private final Map<String, CompletableFuture<Renewal>> renewals = new ConcurrentHashMap<>();
+
+    private final AtomicInteger issuedSinceCleanup = new AtomicInteger();
+
+    public TokenRenewer(JwtUtil jwtUtil, JwtProperties jwtProperties, ObjectProvider<TokenRenewalHandler> handler) {
+        this.jwtUtil = jwtUtil;
+        this.jwtProperties = jwtProperties;
+        this.handler = handler.getIfAvailable();
+        boolean requested = jwtProperties.getRenewal().isEnabled();
+        this.enabled = requested && jwtUtil.canSign() && this.handler != null;
+        if (requested && !jwtUtil.canSign()) {
+            log.warn("当前节点只验签，不能签发Token，静默续期未启用");
+        } else if (requested && this.handler == null) {
+            log.warn("未配置会话存储（TokenRenewalHandler），续期Token无法登记和吊销，静默续期未启用");
+        } else if (enabled) {
+            log.info("Token静默续期已启用: threshold={}s, jitter={}",
+                    jwtProperties.getRenewal().getThreshold(), jwtProperties.getRenewal().getJitter());
+        }
+    }
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 返回新Token的响应头名称
+     */
+    public String getHeader() {
+        return jwtProperties.getRenewal().getHeader();
+    }
+
+    /**
+     * Token进入续期阈值时返回新Token
+     *
+     * @param verifiedToken 已验签且未吊销的Token
+     * @return 新AccessToken，无需续期或不允许续期返回null
+     */
+    public String renewIfNeeded(VerifiedToken verifiedToken) {
+        if (!enabled
+                || !verifiedToken.isAccessToken()
+                || verifiedToken.getTokenId() == null
+                || !verifiedToken.isExpiringSoon(jwtProperties.getRenewal().getThreshold())) {
+            return null;
+        }
+        CompletableFuture<Renewal> pending = new CompletableFuture<>();
+        CompletableFuture<Renewal> existing = renewals.putIfAbsent(verifiedToken.getTokenId(), pending);
+        if (existing != null) {
+            return awaitToken(existing);
+        }
+        try {
+            pending.complete(issue(verifiedToken));
+        } catch (RuntimeException e) {
+            // 签发失败时移除记录，下一个请求重新尝试
+            renewals.remove(verifiedToken.getTokenId(), pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        cleanupIfNeeded();
+        return pending.join().token;
+    }
+
+    /**
+     * 等待其他请求的签发结果，签发失败时本次不续期
+     */
+    private String awaitToken(CompletableFuture<Renewal> pending) {
+        try {
+            return pending.join().token;
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 签发续期Token，不允许续期时结果中的token为null（同一个旧Token的后续请求也不再尝试）
+     */
+    private Renewal issue(VerifiedToken previous) {
+        TokenRenewalHandler.RenewalGrant grant = handler.load(previous);
+        if (grant == null) {
+            log.debug("会话已下线或用户不可用，不续期: userId={}", previous.getUserId());
+            return new Renewal(null, previous.getExpirationMillis());
+        }
+        // 不超过会话（RefreshToken）的有效期，会话到期后必须重新登录
+        long now = System.currentTimeMillis();
+        long expireTime = Math.min(jitteredExpireTime(), (grant.getSessionExpiresAt() - now) / 1000);
+        if (expireTime <= jwtProperties.getRenewal().getThreshold()) {
+            log.debug("会话即将过期，不续期: userId={}", previous.getUserId());
+            return new Renewal(null, previous.getExpirationMillis());
+        }
+        String tokenId = JwtUtil.newTokenId();
+        long expirationMillis = now + expireTime * 1000;
+        String token = jwtUtil.generateToken(previous.getUserId(), previous.getUsername(), previous.getTenantId(),
+                tokenId, grant.getRoles(), grant.getPermissions(), expireTime);
+        if (!handler.onRenewed(previous, grant, tokenId, expirationMillis)) {
+            log.debug("续期Token登记会话失败，丢弃: userId={}", previous.getUserId());
+            return new Renewal(null, previous.getExpirationMillis());
+        }
+        log.debug("Token已续期: userId={}, expireTime={}s", previous.getUserId(), expireTime);
+        return new Renewal(token, previous.getExpirationMillis());
+    }
+
+    private long jitteredExpireTime() {
+        long expireTime = jwtProperties.getExpireTime();
+        double jitter = Math.min(Math.max(jwtProperties.getRenewal().getJitter(), 0D), 1D);
+        long spread = (long) (expireTime * jitter);
+        if (spread <= 0) {
+            return expireTime;
+        }
+        return expireTime - ThreadLocalRandom.current().nextLong(spread + 1);
+    }
+
+    /**
+     * 旧Token过期后不会再有请求带着它到达，对应的续期记录可以丢弃
+     */
+    private void cleanupIfNeeded() {
+        if (issuedSinceCleanup.incrementAndGet() < CLEANUP_INTERVAL) {
+            return;
+        }
+        issuedSinceCleanup.set(0);
+        long now = System.currentTimeMillis();
+        renewals.values().removeIf(pending -> pending.isDone() && !pending.isCompletedExceptionally()
+                && pending.join().previousExpirationMillis <= now);
+    }
+
+    /**
+     * 续期结果
+     */
+    private static final class Renewal {
+
+        private final String token;
+        private final long previousExpirationMillis;
+
+        private Renewal(String token, long previousExpirationMillis) {
+            this.token = token;
+            this.previousExpirationMillis = previousExpirationMillis;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cn.zhangziming.auth.security.jwt;
+
+/**
+ * Token吊销检查
+ *
+ * <p>容器中存在此类型的Bean时，{@link JwtUtil#validate(String)}在验签通过后按jti检查是否已吊销
+ * <p>实现必须足够快（本地判断为主），它位于每个认证请求的路径上
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@FunctionalInterface
+public interface TokenRevocationChecker {
+
+    /**
+     * 判断Token是否已吊销
+     *
+     * @param tokenId Token唯一标识（jti）
+     * @return true-已吊销 false-未吊销
+     */
+    boolean isRevoked(String tokenId);
+}
@@ -0,0 +1,130 @@
+package cn.zhangziming.auth.security.jwt;
+
+import java.util.Optional;
+
+/**
+ * Token校验结果
+ *
+ * <p>由{@link JwtUtil#validate(String)}返回，校验失败不抛异常，只返回失败原因
+ * <p>失败结果是共享的常量实例，不携带Token信息，校验失败路径上不产生额外对象
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class TokenValidationResult {
+
+    /**
+     * 校验状态
+     */
+    public enum Status {
+
+        /** 有效 */
+        VALID("Token有效"),
+
+        /** 已过期 */
+        EXPIRED("Token已过期"),
+
+        /** 签名验证失败（含未知kid） */
+        BAD_SIGNATURE("Token签名验证失败"),
+
+        /** 格式错误（含不支持的Token、声明类型错误） */
+        MALFORMED("Token格式错误"),
+
+        /** 已吊销（登出或被踢下线） */
+        REVOKED("Token已失效"),
+
+        /** 签名有效，但角色/权限位图的字典版本无法解析，需要刷新Token */
+        STALE_CLAIMS("Token声明字典已失效，请刷新Token");
+
+        private final String description;
+
+        Status(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final TokenValidationResult EXPIRED = new TokenValidationResult(Status.EXPIRED, null);
+    private static final TokenValidationResult BAD_SIGNATURE = new TokenValidationResult(Status.BAD_SIGNATURE, null);
+    private static final TokenValidationResult MALFORMED = new TokenValidationResult(Status.MALFORMED, null);
+    private static final TokenValidationResult REVOKED = new TokenValidationResult(Status.REVOKED, null);
+    private static final TokenValidationResult STALE_CLAIMS = new TokenValidationResult(Status.STALE_CLAIMS, null);
+
+    /**
+     * STALE_CLAIMS时返回给调用方的WWW-Authenticate（RFC 6750），提示客户端用RefreshToken换新Token后重试
+     */
+    public static final String STALE_CLAIMS_CHALLENGE =
+            "Bearer error=\"invalid_token\", error_description=\"stale claims dictionary, refresh the token\"";
+
+    private final Status status;
+
+    private final VerifiedToken verifiedToken;
+
+    private TokenValidationResult(Status status, VerifiedToken verifiedToken) {
+        this.status = status;
+        this.verifiedToken = verifiedToken;
+    }
+
+    /**
+     * 校验通过
+     *
+     * @param verifiedToken 已验签的Token
+     * @return 校验结果
+     */
+    public static TokenValidationResult valid(VerifiedToken verifiedToken) {
+        return new TokenValidationResult(Status.VALID, verifiedToken);
+    }
+
+    /**
+     * 校验失败
+     *
+     * @param status 失败原因，不能是VALID
+     * @return 共享的失败结果
+     */
+    public static TokenValidationResult failure(Status status) {
+        switch (status) {
+            case EXPIRED:
+                return EXPIRED;
+            case BAD_SIGNATURE:
+                return BAD_SIGNATURE;
+            case MALFORMED:
+                return MALFORMED;
+            case REVOKED:
+                return REVOKED;
+            case STALE_CLAIMS:
+                return STALE_CLAIMS;
+            default:
+                throw new IllegalArgumentException("校验失败结果不能是VALID");
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 是否有效
+     */
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /**
+     * 获取已验签的Token
+     *
+     * @return 已验签的Token，校验失败时返回null
+     */
+    public VerifiedToken getVerifiedToken() {
+        return verifiedToken;
+    }
+
+    /**
+     * 转为Optional，校验失败时为空
+     */
+    public Optional<VerifiedToken> toOptional() {
+        return Optional.ofNullable(verifiedToken);
+    }
+}
@@ -0,0 +1,92 @@
+package cn.zhangziming.auth.security.jwt;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token校验统计
+ *
+ * <p>按校验状态累计次数（LongAdder，高并发下无竞争）
+ * <p>失败日志按原因限流：每个原因每个周期最多输出一条WARN，附带周期内的失败次数，
+ * 避免Token集中过期（发版后、移动端唤醒）时每个请求一条日志
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+public final class TokenValidationStats {
+
+    private final long logIntervalMillis;
+
+    /**
+     * 累计次数
+     */
+    private final Map<TokenValidationResult.Status, LongAdder> totals =
+            new EnumMap<>(TokenValidationResult.Status.class);
+
+    /**
+     * 上次输出日志后的失败次数
+     */
+    private final Map<TokenValidationResult.Status, LongAdder> pending =
+            new EnumMap<>(TokenValidationResult.Status.class);
+
+    /**
+     * 下次允许输出日志的时间
+     */
+    private final Map<TokenValidationResult.Status, AtomicLong> nextLogMillis =
+            new EnumMap<>(TokenValidationResult.Status.class);
+
+    public TokenValidationStats(long logIntervalSeconds) {
+        this.logIntervalMillis = TimeUnit.SECONDS.toMillis(logIntervalSeconds);
+        for (TokenValidationResult.Status status : TokenValidationResult.Status.values()) {
+            totals.put(status, new LongAdder());
+            pending.put(status, new LongAdder());
+            nextLogMillis.put(status, new AtomicLong());
+        }
+    }
+
+    /**
+     * 记录一次校验结果
+     *
+     * @param status 校验状态
+     * @param cause  失败时的底层异常，可为null，只在输出日志时读取
+     */
+    public void record(TokenValidationResult.Status status, Throwable cause) {
+        totals.get(status).increment();
+        if (status == TokenValidationResult.Status.VALID) {
+            return;
+        }
+        pending.get(status).increment();
+
+        long now = System.currentTimeMillis();
+        AtomicLong next = nextLogMillis.get(status);
+        long nextAllowed = next.get();
+        if (now >= nextAllowed && next.compareAndSet(nextAllowed, now + logIntervalMillis)) {
+            long count = pending.get(status).sumThenReset();
+            log.warn("Token校验失败: reason={}, 距上次日志{}次, 累计{}次, 最近一次: {}",
+                    status, count, totals.get(status).sum(),
+                    cause != null ? cause.getMessage() : status.getDescription());
+        }
+    }
+
+    /**
+     * 获取某个状态的累计次数
+     */
+    public long getCount(TokenValidationResult.Status status) {
+        return totals.get(status).sum();
+    }
+
+    /**
+     * 获取全部状态的累计次数快照
+     */
+    public Map<TokenValidationResult.Status, Long> snapshot() {
+        Map<TokenValidationResult.Status, Long> snapshot = new EnumMap<>(TokenValidationResult.Status.class);
+        totals.forEach((status, adder) -> snapshot.put(status, adder.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,283 @@
+package cn.zhangziming.auth.security.jwt;
+
+import cn.zhangziming.auth.security.access.PermissionSet;
+import cn.zhangziming.auth.security.context.UserInfo;
+import io.jsonwebtoken.Claims;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 已验签的Token
+ *
+ * <p>由{@link JwtUtil#verify(String)}返回，构造时即完成签名校验和声明提取
+ * <p>对象不可变，可在同一请求内多次读取而无需重复验签和解析
+ * <p>由快速验签路径构建时不持有Claims，首次调用{@link #getClaims()}时才用jjwt解析
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class VerifiedToken {
+
+    /**
+     * 原始Token字符串
+     */
+    private final String token;
+
+    /**
+     * 全部声明（jjwt解析出的Claims本身不可变），快速路径下延迟加载
+     */
+    private volatile Claims claims;
+
+    /**
+     * 延迟加载Claims的解析函数
+     */
+    private final Function<String, Claims> claimsDecoder;
+
+    private final String tokenId;
+    private final Long userId;
+    private final String username;
+    private final String tenantId;
+    private final String tokenType;
+    private final List<String> roles;
+    private final List<String> permissions;
+    private final String claimsVersion;
+    private final String roleBits;
+    private final String permissionBits;
+    private final long issuedAtMillis;
+    private final long expirationMillis;
+
+    VerifiedToken(String token, Claims claims) {
+        this.token = token;
+        this.claims = claims;
+        this.claimsDecoder = null;
+        this.tokenId = claims.getId();
+        this.userId = toLong(claims.get("userId"));
+        this.username = claims.getSubject();
+        this.tenantId = claims.get("tenantId", String.class);
+        this.tokenType = claims.get("tokenType", String.class);
+        this.roles = toStringList(claims.get("roles"));
+        this.permissions = toStringList(claims.get("permissions"));
+        this.claimsVersion = claims.get(JwtUtil.CLAIM_DICTIONARY_VERSION, String.class);
+        this.roleBits = claims.get(JwtUtil.CLAIM_ROLE_BITS, String.class);
+        this.permissionBits = claims.get(JwtUtil.CLAIM_PERMISSION_BITS, String.class);
+        this.issuedAtMillis = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+        this.expirationMillis = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+    }
+
+    VerifiedToken(String token, Function<String, Claims> claimsDecoder, String tokenId,
+                  Long userId, String username, String tenantId, String tokenType,
+                  List<String> roles, List<String> permissions,
+                  String claimsVersion, String roleBits, String permissionBits,
+                  long issuedAtMillis, long expirationMillis) {
+        this.token = token;
+        this.claimsDecoder = claimsDecoder;
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.username = username;
+        this.tenantId = tenantId;
+        this.tokenType = tokenType;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.claimsVersion = claimsVersion;
+        this.roleBits = roleBits;
+        this.permissionBits = permissionBits;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expirationMillis = expirationMillis;
+    }
+
+    /**
+     * 复制Token并替换角色和权限（位图解码后使用）
+     */
+    private VerifiedToken(VerifiedToken source, List<String> roles, List<String> permissions) {
+        this.token = source.token;
+        this.claims = source.claims;
+        this.claimsDecoder = source.claimsDecoder;
+        this.tokenId = source.tokenId;
+        this.userId = source.userId;
+        this.username = source.username;
+        this.tenantId = source.tenantId;
+        this.tokenType = source.tokenType;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.claimsVersion = source.claimsVersion;
+        this.roleBits = source.roleBits;
+        this.permissionBits = source.permissionBits;
+        this.issuedAtMillis = source.issuedAtMillis;
+        this.expirationMillis = source.expirationMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Claims getClaims() {
+        Claims loaded = claims;
+        if (loaded == null) {
+            loaded = claimsDecoder.apply(token);
+            claims = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * Token唯一标识（jti），旧版本签发的Token没有jti时为null
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * 角色编码列表，Token未携带时为空列表
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * 权限编码列表，Token未携带时为空列表
+     */
+    public List<String> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * 角色/权限声明字典版本，Token未使用位图压缩时为null
+     */
+    public String getClaimsVersion() {
+        return claimsVersion;
+    }
+
+    /**
+     * 按字典解码角色和权限位图，与Token中的原始编码列表合并
+     *
+     * @param dictionary 与{@link #getClaimsVersion()}对应的字典
+     * @return 新的VerifiedToken
+     * @throws IllegalArgumentException 位图格式错误
+     */
+    VerifiedToken decodeAuthorities(ClaimsDictionary dictionary) {
+        return new VerifiedToken(this,
+                merge(roles, dictionary.decodeRoles(roleBits)),
+                merge(permissions, dictionary.decodePermissions(permissionBits)));
+    }
+
+    public Date getIssuedAt() {
+        return new Date(issuedAtMillis);
+    }
+
+    public Date getExpiration() {
+        return new Date(expirationMillis);
+    }
+
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    /**
+     * 是否是访问令牌
+     */
+    public boolean isAccessToken() {
+        return JwtUtil.TOKEN_TYPE_ACCESS.equals(tokenType);
+    }
+
+    /**
+     * 是否是刷新令牌
+     */
+    public boolean isRefreshToken() {
+        return JwtUtil.TOKEN_TYPE_REFRESH.equals(tokenType);
+    }
+
+    /**
+     * 剩余有效时间（秒）
+     */
+    public long getRemainingSeconds() {
+        return (expirationMillis - System.currentTimeMillis()) / 1000;
+    }
+
+    /**
+     * 是否即将过期
+     *
+     * @param thresholdSeconds 阈值（秒）
+     * @return true-即将过期 false-未即将过期
+     */
+    public boolean isExpiringSoon(long thresholdSeconds) {
+        return getRemainingSeconds() < thresholdSeconds;
+    }
+
+    /**
+     * 构建用户上下文信息
+     * 每次调用返回新对象；角色和权限是规范化的{@link PermissionSet}，不可修改，需要修改时先复制
+     *
+     * @return 用户信息
+     */
+    public UserInfo toUserInfo() {
+        UserInfo userInfo = new UserInfo();
+        userInfo.setUserId(userId);
+        userInfo.setUsername(username);
+        userInfo.setTenantId(tenantId);
+        if (!roles.isEmpty()) {
+            userInfo.setRoles(PermissionSet.copyOf(roles));
+        }
+        if (!permissions.isEmpty()) {
+            userInfo.setPermissions(PermissionSet.copyOf(permissions));
+        }
+        return userInfo;
+    }
+
+    private static List<String> merge(List<String> plain, List<String> decoded) {
+        if (plain.isEmpty()) {
+            return decoded;
+        }
+        if (decoded.isEmpty()) {
+            return plain;
+        }
+        String[] items = new String[plain.size() + decoded.size()];
+        int i = 0;
+        for (String item : decoded) {
+            items[i++] = item;
+        }
+        for (String item : plain) {
+            items[i++] = item;
+        }
+        return List.of(items);
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null;
+    }
+
+    private static List<String> toStringList(Object value) {
+        if (!(value instanceof Collection)) {
+            return Collections.emptyList();
+        }
+        Collection<?> collection = (Collection<?>) value;
+        String[] items = new String[collection.size()];
+        int i = 0;
+        for (Object item : collection) {
+            items[i++] = String.valueOf(item);
+        }
+        return List.of(items);
+    }
+}
@@ -0,0 +1,66 @@
+package cn.zhangziming.auth.security.route;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路由安全配置属性
+ *
+ * <p>从配置文件中读取auth-boot.security.routes相关配置
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@ConfigurationProperties(prefix = "auth-boot.security.routes")
+public class RouteProperties {
+
+    /**
+     * 公开路径（任意方法，无需认证）
+     */
+    private List<String> publicPaths = new ArrayList<>(List.of(
+            "/api/auth/login",
+            "/api/auth/register",
+            "/api/auth/refresh"
+    ));
+
+    /**
+     * 其他路由规则
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * 规则来源变更检测间隔（秒）
+     */
+    private long reloadInterval = 30L;
+
+    /**
+     * 路由规则
+     */
+    @Data
+    public static class Rule {
+
+        /**
+         * 请求方法，为空表示不限
+         */
+        private String method;
+
+        /**
+         * 路径模式
+         */
+        private String path;
+
+        /**
+         * 是否需要认证
+         */
+        private boolean requireAuth = true;
+
+        /**
+         * 访问所需权限
+         */
+        private String permission;
+    }
+}
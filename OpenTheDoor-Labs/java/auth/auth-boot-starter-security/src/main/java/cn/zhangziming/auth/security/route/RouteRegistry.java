@@ -0,0 +1,250 @@
+package cn.zhangziming.auth.security.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 路由安全注册表
+ *
+ * <p>配置文件和{@link RouteRuleSource}中的规则分别编译为{@link RouteTable}，供过滤器和鉴权使用
+ * <p>配置优先：先在配置规则中匹配，命中即返回，不论规则来源中是否有方法或路径更具体的规则；
+ * 配置规则都未命中时才匹配规则来源（如sys_api）。配置为公开的路径不会被数据库中的规则改为需要认证，反之亦然
+ * <p>存在支持版本检测的规则来源时，后台定期检查版本，变化后重新编译并整体替换路由表
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+public class RouteRegistry implements SmartInitializingSingleton, DisposableBean {
+
+    private final RouteProperties properties;
+
+    private final List<RouteRuleSource> sources;
+
+    /**
+     * 配置文件中的规则，启动后不变
+     */
+    private final RouteTable configTable;
+
+    /**
+     * 规则来源中的规则，重新加载时整体替换
+     */
+    private volatile RouteTable sourceTable = RouteTable.EMPTY;
+
+    private volatile String version;
+
+    /**
+     * 重载锁，加载规则会查询数据库，不用synchronized以免钉住虚拟线程的载体线程
+     */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 只使用配置文件中的规则
+     */
+    public RouteRegistry(RouteProperties properties) {
+        this.properties = properties;
+        this.sources = List.of();
+        this.configTable = RouteTable.compile(configuredRules());
+    }
+
+    @Autowired
+    public RouteRegistry(RouteProperties properties, ObjectProvider<RouteRuleSource> sources) {
+        this.properties = properties;
+        this.sources = sources.orderedStream().toList();
+        // 配置文件中的规则立即生效，规则来源在容器初始化完成后再加载
+        this.configTable = RouteTable.compile(configuredRules());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (sources.isEmpty()) {
+            log.info("路由表已加载: {}条规则", configTable.size());
+            return;
+        }
+        reload();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-route-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reloadIfChanged,
+                properties.getReloadInterval(), properties.getReloadInterval(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 匹配请求
+     *
+     * @param method 请求方法
+     * @param path   请求路径
+     * @return 命中的规则，未命中返回null（按需要认证处理）
+     */
+    public RouteRule match(String method, String path) {
+        RouteRule rule = configTable.match(method, path);
+        return rule != null ? rule : sourceTable.match(method, path);
+    }
+
+    /**
+     * 是否公开路由
+     *
+     * @param method 请求方法
+     * @param path   请求路径
+     * @return true-无需认证
+     */
+    public boolean isPublic(String method, String path) {
+        RouteRule rule = match(method, path);
+        return rule != null && !rule.isRequireAuth();
+    }
+
+    /**
+     * 重新加载全部规则
+     * 某个规则来源加载失败时保留当前路由表
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            String currentVersion = currentVersion();
+            List<RouteRule> rules = new ArrayList<>();
+            for (RouteRuleSource source : sources) {
+                rules.addAll(source.loadRules());
+            }
+            sourceTable = RouteTable.compile(rules);
+            version = currentVersion;
+            log.info("路由表已加载: 配置{}条规则，规则来源{}条规则", configTable.size(), sourceTable.size());
+        } catch (Exception e) {
+            log.warn("加载路由规则失败，继续使用当前路由表: {}", e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reloadIfChanged() {
+        try {
+            if (!Objects.equals(version, currentVersion())) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("检查路由规则版本失败: {}", e.getMessage());
+        }
+    }
+
+    private String currentVersion() {
+        StringBuilder builder = new StringBuilder();
+        for (RouteRuleSource source : sources) {
+            builder.append(source.getVersion()).append(';');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 去掉context-path后的请求路径，解码并规范化，与Servlet容器给出的servletPath口径一致
+     * 不依赖Servlet API，Servlet和WebFlux的过滤器共用
+     *
+     * @param requestUri  请求URI（未解码）
+     * @param contextPath 上下文路径
+     * @return 应用内路径
+     */
+    public static String pathWithinApplication(String requestUri, String contextPath) {
+        String path = contextPath != null && !contextPath.isEmpty() && requestUri.startsWith(contextPath)
+                ? requestUri.substring(contextPath.length()) : requestUri;
+        return normalizePath(path);
+    }
+
+    /**
+     * 规范化请求路径：先去掉路径参数（;jsessionid=...），再解码百分号编码，最后去掉空段和"."、按".."回退
+     * 路由表按原始URI匹配时，/api/user/%6Cist、/api/user;x/list、/api/public/../user/list
+     * 都会和规则中的 /api/user/list 错开，从而绕过权限规则
+     * 编码的斜杠（%2F）解码后按分隔符处理，与其后的".."一起参与回退
+     *
+     * @param path 未解码的路径
+     * @return 以"/"开头的规范路径
+     */
+    public static String normalizePath(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        String decoded = decode(removeSemicolonContent(path));
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : decoded.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                segments.pollLast();
+                continue;
+            }
+            segments.addLast(segment);
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    private static String removeSemicolonContent(String path) {
+        int semicolon = path.indexOf(';');
+        if (semicolon < 0) {
+            return path;
+        }
+        StringBuilder builder = new StringBuilder(path.length());
+        int start = 0;
+        while (semicolon >= 0) {
+            builder.append(path, start, semicolon);
+            int slash = path.indexOf('/', semicolon);
+            if (slash < 0) {
+                return builder.toString();
+            }
+            start = slash;
+            semicolon = path.indexOf(';', start);
+        }
+        return builder.append(path, start, path.length()).toString();
+    }
+
+    private static String decode(String path) {
+        if (path.indexOf('%') < 0) {
+            return path;
+        }
+        try {
+            return StringUtils.uriDecode(path, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // 非法编码原样参与匹配，Servlet容器和防火墙通常已拒绝此类请求
+            return path;
+        }
+    }
+
+    /**
+     * 配置文件中的规则
+     */
+    private List<RouteRule> configuredRules() {
+        List<RouteRule> rules = new ArrayList<>();
+        for (String path : properties.getPublicPaths()) {
+            rules.add(RouteRule.publicRoute(path));
+        }
+        for (RouteProperties.Rule rule : properties.getRules()) {
+            rules.add(new RouteRule(rule.getMethod(), rule.getPath(), rule.isRequireAuth(), rule.getPermission()));
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,74 @@
+package cn.zhangziming.auth.security.route;
+
+import java.util.Locale;
+
+/**
+ * 路由安全规则
+ *
+ * <p>路径模式按"/"分段：普通段精确匹配，"*"或"{变量}"匹配任意一段，"**"匹配剩余的零到多段
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class RouteRule {
+
+    /**
+     * 匹配任意请求方法
+     */
+    public static final String ANY_METHOD = "*";
+
+    /**
+     * 请求方法（大写），ANY_METHOD表示不限
+     */
+    private final String method;
+
+    /**
+     * 路径模式
+     */
+    private final String pattern;
+
+    /**
+     * 是否需要认证
+     */
+    private final boolean requireAuth;
+
+    /**
+     * 访问所需权限，为null时只要求认证
+     */
+    private final String permission;
+
+    public RouteRule(String method, String pattern, boolean requireAuth, String permission) {
+        this.method = method == null || method.isBlank() ? ANY_METHOD : method.trim().toUpperCase(Locale.ROOT);
+        this.pattern = pattern;
+        this.requireAuth = requireAuth;
+        this.permission = permission == null || permission.isBlank() ? null : permission.trim();
+    }
+
+    /**
+     * 公开路由（任意方法，无需认证）
+     */
+    public static RouteRule publicRoute(String pattern) {
+        return new RouteRule(ANY_METHOD, pattern, false, null);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isRequireAuth() {
+        return requireAuth;
+    }
+
+    public String getPermission() {
+        return permission;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + pattern + (requireAuth ? (permission != null ? " [" + permission + "]" : " [auth]") : " [public]");
+    }
+}
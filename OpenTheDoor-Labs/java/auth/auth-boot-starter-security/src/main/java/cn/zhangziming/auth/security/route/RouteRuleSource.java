@@ -0,0 +1,31 @@
+package cn.zhangziming.auth.security.route;
+
+import java.util.List;
+
+/**
+ * 路由规则来源
+ *
+ * <p>容器中的实现（如服务端的sys_api表）会合并进{@link RouteRegistry}；配置文件中的规则整体优先，配置规则未命中的请求才按这里的规则匹配
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface RouteRuleSource {
+
+    /**
+     * 加载全部规则
+     *
+     * @return 规则列表
+     */
+    List<RouteRule> loadRules();
+
+    /**
+     * 数据版本
+     * 版本变化时重新加载路由表；返回null表示不支持变更检测，只在启动时加载
+     *
+     * @return 版本标识
+     */
+    default String getVersion() {
+        return null;
+    }
+}
@@ -0,0 +1,160 @@
+package cn.zhangziming.auth.security.route;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 编译后的路由表
+ *
+ * <p>每个请求方法一棵按路径分段的前缀树，另有一棵不限方法的树；匹配时逐段下行，耗时与路径长度成正比，与规则数量无关
+ * <p>同一段上的优先级：精确段 > 单段通配 > "**"；同一张表内指定方法的规则优先于不限方法的规则
+ * <p>配置规则与规则来源各编译一张表，两张表之间的优先级由{@link RouteRegistry}决定（配置优先）
+ * <p>不可变，重新加载时整体替换
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public final class RouteTable {
+
+    /**
+     * 空路由表
+     */
+    public static final RouteTable EMPTY = new RouteTable(Collections.emptyMap(), 0);
+
+    /**
+     * 请求方法 -> 前缀树根节点
+     */
+    private final Map<String, Node> roots;
+
+    private final int size;
+
+    private RouteTable(Map<String, Node> roots, int size) {
+        this.roots = roots;
+        this.size = size;
+    }
+
+    /**
+     * 编译路由表
+     * 同一方法同一路径出现多次时保留先出现的规则
+     *
+     * @param rules 规则（按优先级排列）
+     * @return 路由表
+     */
+    public static RouteTable compile(Collection<RouteRule> rules) {
+        Map<String, Node> roots = new HashMap<>();
+        int size = 0;
+        for (RouteRule rule : rules) {
+            Node node = roots.computeIfAbsent(rule.getMethod(), method -> new Node());
+            boolean tail = false;
+            for (String segment : rule.getPattern().split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if ("**".equals(segment)) {
+                    tail = true;
+                    break;
+                }
+                if ("*".equals(segment) || (segment.startsWith("{") && segment.endsWith("}"))) {
+                    if (node.wildcard == null) {
+                        node.wildcard = new Node();
+                    }
+                    node = node.wildcard;
+                } else {
+                    node = node.children.computeIfAbsent(segment, key -> new Node());
+                }
+            }
+            if (tail) {
+                if (node.tailRule == null) {
+                    node.tailRule = rule;
+                    size++;
+                }
+            } else if (node.rule == null) {
+                node.rule = rule;
+                size++;
+            }
+        }
+        return new RouteTable(roots, size);
+    }
+
+    /**
+     * 匹配请求
+     *
+     * @param method 请求方法
+     * @param path   请求路径（不含查询参数）
+     * @return 命中的规则，未命中返回null
+     */
+    public RouteRule match(String method, String path) {
+        if (roots.isEmpty()) {
+            return null;
+        }
+        Node root = roots.get(method);
+        if (root != null) {
+            RouteRule rule = match(root, path, 0);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        root = roots.get(RouteRule.ANY_METHOD);
+        return root != null ? match(root, path, 0) : null;
+    }
+
+    /**
+     * 规则数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private static RouteRule match(Node node, String path, int from) {
+        int length = path.length();
+        int start = from;
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start >= length) {
+            return node.rule != null ? node.rule : node.tailRule;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        if (!node.children.isEmpty()) {
+            Node child = node.children.get(path.substring(start, end));
+            if (child != null) {
+                RouteRule rule = match(child, path, end);
+                if (rule != null) {
+                    return rule;
+                }
+            }
+        }
+        if (node.wildcard != null) {
+            RouteRule rule = match(node.wildcard, path, end);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        return node.tailRule;
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private Node wildcard;
+
+        /**
+         * 路径恰好在此结束时的规则
+         */
+        private RouteRule rule;
+
+        /**
+         * 此处为"**"时的规则，匹配剩余的零到多段
+         */
+        private RouteRule tailRule;
+    }
+}
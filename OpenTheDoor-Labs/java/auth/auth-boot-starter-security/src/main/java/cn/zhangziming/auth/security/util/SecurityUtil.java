@@ -1,15 +1,17 @@
 package cn.zhangziming.auth.security.util;
 
+import cn.zhangziming.auth.security.crypto.PasswordEncoders;
+import cn.zhangziming.auth.security.crypto.PasswordProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
  * 安全工具类
  * 
  * <p>提供密码加密、Spring Security认证信息获取等功能
+ * <p>密码编码器默认按默认配置创建，Spring容器启动时替换为按auth-boot.security.password配置的编码器
  *
  * @author zhangziming
  * @since 2024-10-29
@@ -18,9 +20,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class SecurityUtil {
 
     /**
-     * 密码编码器（单例）
+     * 密码编码器（按算法前缀委派）
      */
-    private static final PasswordEncoder PASSWORD_ENCODER = new BCryptPasswordEncoder();
+    private static volatile PasswordEncoder passwordEncoder = PasswordEncoders.create(new PasswordProperties());
 
     /**
      * 加密密码
@@ -32,7 +34,7 @@ public class SecurityUtil {
         if (rawPassword == null || rawPassword.isEmpty()) {
             throw new IllegalArgumentException("密码不能为空");
         }
-        return PASSWORD_ENCODER.encode(rawPassword);
+        return passwordEncoder.encode(rawPassword);
     }
 
     /**
@@ -47,13 +49,31 @@ public class SecurityUtil {
             return false;
         }
         try {
-            return PASSWORD_ENCODER.matches(rawPassword, encodedPassword);
+            return passwordEncoder.matches(rawPassword, encodedPassword);
         } catch (Exception e) {
             log.error("密码校验异常", e);
             return false;
         }
     }
 
+    /**
+     * 密码哈希是否需要按当前策略重新计算（算法不同或成本参数低于当前配置）
+     *
+     * @param encodedPassword 加密后的密码
+     * @return true-需要重新哈希 false-不需要
+     */
+    public static boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        try {
+            return passwordEncoder.upgradeEncoding(encodedPassword);
+        } catch (Exception e) {
+            log.warn("无法判断密码哈希是否需要升级: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * 获取当前认证信息
      *
@@ -143,7 +163,16 @@ public class SecurityUtil {
      * @return PasswordEncoder
      */
     public static PasswordEncoder getPasswordEncoder() {
-        return PASSWORD_ENCODER;
+        return passwordEncoder;
+    }
+
+    /**
+     * 设置密码编码器
+     *
+     * @param encoder 密码编码器
+     */
+    public static void setPasswordEncoder(PasswordEncoder encoder) {
+        passwordEncoder = encoder;
     }
 }
 
@@ -0,0 +1,116 @@
+package cn.zhangziming.auth.security.access;
+
+import cn.zhangziming.auth.security.annotation.RequireLogin;
+import cn.zhangziming.auth.security.annotation.RequirePermission;
+import cn.zhangziming.auth.security.annotation.RequireRole;
+import cn.zhangziming.auth.security.context.UserInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限切面单次调用开销基准测试
+ *
+ * <p>对比切面原来的做法（每次反射读取注解、Stream匹配、重复校验登录）和预编译访问计划（缓存查找 + 数组遍历）
+ * <p>建议同时加 -prof gc 观察每次操作的分配字节数
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessPlanBenchmark {
+
+    private AccessPlanResolver resolver;
+    private Method method;
+    private UserInfo userInfo;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        resolver = new AccessPlanResolver();
+        method = SampleController.class.getMethod("deleteUser", Long.class);
+        userInfo = new UserInfo();
+        userInfo.setUserId(1L);
+        userInfo.setRoles(Set.of("ADMIN", "USER"));
+        userInfo.setPermissions(Set.of("system:user:list", "system:user:add", "system:user:delete",
+                "system:role:list", "system:role:add", "system:menu:list"));
+    }
+
+    @Benchmark
+    public boolean reflectivePerCall() {
+        return legacyCheckPermission(method, userInfo) && legacyCheckRole(method, userInfo);
+    }
+
+    @Benchmark
+    public AccessPlan.Decision compiledPlan() {
+        return resolver.resolve(method, SampleController.class).check(userInfo);
+    }
+
+    /**
+     * 原切面RequirePermission的处理流程
+     */
+    private static boolean legacyCheckPermission(Method method, UserInfo userInfo) {
+        if (userInfo == null || userInfo.getUserId() == null) {
+            return false;
+        }
+        RequirePermission annotation = method.getAnnotation(RequirePermission.class);
+        if (annotation == null) {
+            return true;
+        }
+        Set<String> owned = userInfo.getPermissions();
+        return annotation.logical() == RequirePermission.Logical.AND
+                ? Arrays.stream(annotation.value()).allMatch(owned::contains)
+                : Arrays.stream(annotation.value()).anyMatch(owned::contains);
+    }
+
+    /**
+     * 原切面RequireRole的处理流程（再次校验登录）
+     */
+    private static boolean legacyCheckRole(Method method, UserInfo userInfo) {
+        if (userInfo == null || userInfo.getUserId() == null) {
+            return false;
+        }
+        RequireRole annotation = method.getAnnotation(RequireRole.class);
+        if (annotation == null) {
+            return true;
+        }
+        Set<String> owned = userInfo.getRoles();
+        return annotation.logical() == RequireRole.Logical.AND
+                ? Arrays.stream(annotation.value()).allMatch(owned::contains)
+                : Arrays.stream(annotation.value()).anyMatch(owned::contains);
+    }
+
+    @RequireLogin
+    public static class SampleController {
+
+        @RequirePermission(value = {"system:user:list", "system:user:delete"})
+        @RequireRole(value = {"ADMIN", "SUPER_ADMIN"}, logical = RequireRole.Logical.OR)
+        public void deleteUser(Long id) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccessPlanBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,134 @@
+package cn.zhangziming.auth.security.access;
+
+import cn.zhangziming.auth.security.annotation.RequireLogin;
+import cn.zhangziming.auth.security.annotation.RequirePermission;
+import cn.zhangziming.auth.security.annotation.RequireRole;
+import cn.zhangziming.auth.security.context.UserInfo;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 方法访问计划测试
+ *
+ * <p>用户权限分别用位图集合（PermissionSet）和普通Set表示，两条校验路径的结果必须一致
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class AccessPlanTest {
+
+    @Test
+    void andRequiresEveryPermission() {
+        AccessPlan plan = plan("andPermissions");
+
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("user:view", "user:edit"));
+        assertDecision(AccessPlan.Decision.PERMISSION_DENIED, plan, Set.of("user:view"));
+    }
+
+    @Test
+    void orRequiresAnyPermission() {
+        AccessPlan plan = plan("orPermissions");
+
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("user:edit"));
+        assertDecision(AccessPlan.Decision.PERMISSION_DENIED, plan, Set.of("role:view"));
+    }
+
+    @Test
+    void wildcardGrantSatisfiesAnd() {
+        AccessPlan plan = plan("andPermissions");
+
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("user:*"));
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("*"));
+        // 通配符只覆盖其中一个，AND仍然拒绝
+        assertDecision(AccessPlan.Decision.PERMISSION_DENIED, plan, Set.of("*:view"));
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("*:view", "user:edit"));
+    }
+
+    @Test
+    void wildcardGrantSatisfiesOr() {
+        AccessPlan plan = plan("orPermissions");
+
+        assertDecision(AccessPlan.Decision.GRANTED, plan, Set.of("*:edit"));
+        assertDecision(AccessPlan.Decision.PERMISSION_DENIED, plan, Set.of("role:*"));
+        // 不含通配符的授权不隐含下级权限
+        assertDecision(AccessPlan.Decision.PERMISSION_DENIED, plan, Set.of("user"));
+    }
+
+    @Test
+    void rolesMatchExactlyWithAndOr() {
+        UserInfo admin = user(Set.of(), Set.of("ADMIN"));
+        UserInfo auditor = user(Set.of(), Set.of("AUDITOR"));
+
+        assertEquals(AccessPlan.Decision.ROLE_DENIED, plan("andRoles").check(admin));
+        assertEquals(AccessPlan.Decision.GRANTED, plan("andRoles").check(user(Set.of(), Set.of("ADMIN", "AUDITOR"))));
+        assertEquals(AccessPlan.Decision.GRANTED, plan("orRoles").check(auditor));
+        // 角色不支持通配符
+        assertEquals(AccessPlan.Decision.ROLE_DENIED, plan("orRoles").check(user(Set.of(), Set.of("*"))));
+    }
+
+    @Test
+    void loginIsRequiredWhenPermissionsAreDeclared() {
+        assertEquals(AccessPlan.Decision.UNAUTHENTICATED, plan("andPermissions").check(null));
+        assertSame(AccessPlan.PERMIT_ALL, plan("open"));
+    }
+
+    /**
+     * 位图集合和普通Set两种表示都校验一遍
+     */
+    private static void assertDecision(AccessPlan.Decision expected, AccessPlan plan, Set<String> permissions) {
+        assertEquals(expected, plan.check(user(PermissionSet.of(permissions), Set.of())), "PermissionSet");
+        assertEquals(expected, plan.check(user(new HashSet<>(permissions), Set.of())), "HashSet");
+    }
+
+    private static UserInfo user(Set<String> permissions, Set<String> roles) {
+        return UserInfo.builder()
+                .userId(1L)
+                .username("tester")
+                .permissions(permissions)
+                .roles(roles)
+                .build();
+    }
+
+    private static AccessPlan plan(String methodName) {
+        try {
+            Method method = Endpoints.class.getDeclaredMethod(methodName);
+            return AccessPlan.of(method.getAnnotation(RequireLogin.class),
+                    method.getAnnotation(RequirePermission.class),
+                    method.getAnnotation(RequireRole.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(methodName, e);
+        }
+    }
+
+    /**
+     * 声明注解的示例方法
+     */
+    @SuppressWarnings("unused")
+    private static final class Endpoints {
+
+        @RequirePermission({"user:view", "user:edit"})
+        void andPermissions() {
+        }
+
+        @RequirePermission(value = {"user:view", "user:edit"}, logical = RequirePermission.Logical.OR)
+        void orPermissions() {
+        }
+
+        @RequireRole({"ADMIN", "AUDITOR"})
+        void andRoles() {
+        }
+
+        @RequireRole(value = {"ADMIN", "AUDITOR"}, logical = RequireRole.Logical.OR)
+        void orRoles() {
+        }
+
+        void open() {
+        }
+    }
+}
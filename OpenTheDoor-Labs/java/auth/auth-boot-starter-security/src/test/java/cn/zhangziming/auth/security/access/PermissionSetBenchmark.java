@@ -0,0 +1,90 @@
+package cn.zhangziming.auth.security.access;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限集合基准测试
+ *
+ * <p>对比按Token声明构建HashSet再逐个校验，和构建规范化PermissionSet再按位图校验的开销
+ * <p>建议同时加 -prof gc 观察每次操作的分配字节数
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionSetBenchmark {
+
+    private List<String> claims;
+    private String[] required;
+    private PermissionSet requiredMask;
+    private Set<String> hashSet;
+    private PermissionSet permissionSet;
+
+    @Setup
+    public void setup() {
+        claims = new ArrayList<>();
+        for (String module : new String[]{"user", "role", "menu", "dept", "post", "dict", "config", "log"}) {
+            for (String action : new String[]{"list", "query", "add", "edit", "remove", "export"}) {
+                claims.add("system:" + module + ":" + action);
+            }
+        }
+        required = new String[]{"system:user:list", "system:user:edit", "system:role:query", "system:log:export"};
+        requiredMask = PermissionSet.of(List.of(required));
+        hashSet = new HashSet<>(claims);
+        permissionSet = PermissionSet.of(claims);
+    }
+
+    @Benchmark
+    public Set<String> buildHashSet() {
+        return new HashSet<>(claims);
+    }
+
+    @Benchmark
+    public Set<String> buildPermissionSet() {
+        return PermissionSet.of(claims);
+    }
+
+    @Benchmark
+    public boolean checkAllHashSet() {
+        for (String permission : required) {
+            if (!hashSet.contains(permission)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean checkAllPermissionSet() {
+        return permissionSet.containsAll(requiredMask);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PermissionSetBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package cn.zhangziming.auth.security.access;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限前缀树基准测试
+ *
+ * <p>对比逐条授权按段比较通配符，和编译为前缀树后逐段查找的开销；授权数量越多差距越大
+ * <p>建议同时加 -prof gc 观察每次操作的分配字节数
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionTrieBenchmark {
+
+    @Param({"16", "256"})
+    private int modules;
+
+    private List<String> grants;
+    private PermissionTrie trie;
+    private String required;
+
+    @Setup
+    public void setup() {
+        grants = new ArrayList<>();
+        for (int i = 0; i < modules; i++) {
+            grants.add("module" + i + ":*:list");
+            grants.add("module" + i + ":report:*");
+        }
+        // 命中最后一条授权，线性扫描需要比较全部授权
+        required = "module" + (modules - 1) + ":report:export";
+        trie = PermissionTrie.compile(grants);
+    }
+
+    @Benchmark
+    public boolean linearScan() {
+        for (String grant : grants) {
+            if (matches(grant, required)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean trie() {
+        return trie.implies(required);
+    }
+
+    private static boolean matches(String grant, String permission) {
+        String[] granted = grant.split(":");
+        String[] parts = permission.split(":");
+        for (int i = 0; i < granted.length; i++) {
+            boolean last = i == granted.length - 1;
+            if (last && "*".equals(granted[i])) {
+                return parts.length > i;
+            }
+            if (i >= parts.length || (!"*".equals(granted[i]) && !granted[i].equals(parts[i]))) {
+                return false;
+            }
+        }
+        return granted.length == parts.length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PermissionTrieBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package cn.zhangziming.auth.security.access;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 权限前缀树测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class PermissionTrieTest {
+
+    @Test
+    void exactGrantDoesNotImplyChildren() {
+        PermissionTrie trie = PermissionTrie.compile(Set.of("system:user"));
+
+        assertTrue(trie.implies("system:user"));
+        assertFalse(trie.implies("system:user:add"));
+        assertFalse(trie.implies("system"));
+    }
+
+    @Test
+    void trailingWildcardMatchesAnyDepth() {
+        PermissionTrie trie = PermissionTrie.compile(Set.of("system:user:*"));
+
+        assertTrue(trie.implies("system:user:add"));
+        assertTrue(trie.implies("system:user:export:excel"));
+        assertFalse(trie.implies("system:user"));
+        assertFalse(trie.implies("system:role:add"));
+    }
+
+    @Test
+    void middleWildcardMatchesOneSegment() {
+        PermissionTrie trie = PermissionTrie.compile(Set.of("system:*:list"));
+
+        assertTrue(trie.implies("system:user:list"));
+        assertFalse(trie.implies("system:user:dept:list"));
+        assertFalse(trie.implies("system:user:add"));
+    }
+
+    @Test
+    void bareWildcardMatchesEverything() {
+        PermissionTrie trie = PermissionTrie.compile(Set.of("*"));
+
+        assertTrue(trie.implies("system:user:add"));
+        assertTrue(trie.implies("anything"));
+        assertFalse(trie.implies(null));
+    }
+
+    @Test
+    void exactBranchFailureFallsBackToWildcardBranch() {
+        // system:user 下没有 list，需要回到 system:* 分支继续匹配
+        PermissionTrie trie = PermissionTrie.compile(Set.of("system:user:add", "system:*:list"));
+
+        assertTrue(trie.implies("system:user:list"));
+        assertTrue(trie.implies("system:user:add"));
+        assertFalse(trie.implies("system:user:delete"));
+    }
+
+    @Test
+    void allOfAndAnyOfOverMixedGrants() {
+        PermissionTrie trie = PermissionTrie.compile(Set.of("user:view", "order:*", "*:export"));
+        List<String> covered = List.of("user:view", "order:refund:approve", "report:export");
+        List<String> partial = List.of("user:view", "user:delete");
+
+        // AND：全部覆盖才通过
+        assertTrue(covered.stream().allMatch(trie::implies));
+        assertFalse(partial.stream().allMatch(trie::implies));
+        // OR：任一覆盖即通过
+        assertTrue(partial.stream().anyMatch(trie::implies));
+        assertFalse(List.of("user:delete", "report:view").stream().anyMatch(trie::implies));
+    }
+
+    @Test
+    void emptyGrantsImplyNothing() {
+        assertFalse(PermissionTrie.compile(Set.of()).implies("user:view"));
+        assertFalse(PermissionTrie.compile(null).implies("user:view"));
+    }
+}
@@ -0,0 +1,80 @@
+package cn.zhangziming.auth.security.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密码哈希基准测试
+ *
+ * <p>测量各算法和成本参数下单次校验（登录延迟）和单次哈希的耗时，用于在部署机器上确定auth-boot.security.password的配置
+ * <p>policy格式为"算法:成本"，成本含义：bcrypt为strength，pbkdf2为迭代次数，argon2为内存（KB），scrypt为N；
+ * argon2和scrypt需要test classpath中有bcprov-jdk18on，可用 -p policy=argon2:16384,scrypt:16384 追加
+ * <p>运行方式: 在IDE中直接运行main方法，或执行 mvn test-compile 后以test classpath启动
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String RAW_PASSWORD = "Admin@123456";
+
+    @Param({"bcrypt:10", "bcrypt:12", "pbkdf2:310000", "pbkdf2:600000"})
+    private String policy;
+
+    private PasswordEncoder encoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setup() {
+        String[] parts = policy.split(":");
+        int cost = Integer.parseInt(parts[1]);
+        PasswordProperties properties = new PasswordProperties();
+        properties.setAlgorithm(parts[0]);
+        switch (parts[0]) {
+            case PasswordEncoders.BCRYPT -> properties.getBcrypt().setStrength(cost);
+            case PasswordEncoders.PBKDF2 -> properties.getPbkdf2().setIterations(cost);
+            case PasswordEncoders.ARGON2 -> properties.getArgon2().setMemory(cost);
+            case PasswordEncoders.SCRYPT -> properties.getScrypt().setCpuCost(cost);
+            default -> throw new IllegalArgumentException("未知算法: " + parts[0]);
+        }
+        encoder = PasswordEncoders.create(properties);
+        encodedPassword = encoder.encode(RAW_PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(RAW_PASSWORD, encodedPassword);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(RAW_PASSWORD);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PasswordEncoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,71 @@
+package cn.zhangziming.auth.security.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 密码编码器升级判断测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class PasswordEncodersTest {
+
+    private static final String RAW_PASSWORD = "Admin@123456";
+
+    @Test
+    void unprefixedBcryptAtCurrentStrengthIsUpToDate() {
+        PasswordEncoder encoder = PasswordEncoders.create(bcrypt(10));
+        String legacy = new BCryptPasswordEncoder(10).encode(RAW_PASSWORD);
+
+        assertTrue(encoder.matches(RAW_PASSWORD, legacy));
+        assertFalse(encoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void bcryptEncodeKeepsLegacyFormat() {
+        PasswordEncoder encoder = PasswordEncoders.create(bcrypt(10));
+        String encoded = encoder.encode(RAW_PASSWORD);
+
+        assertTrue(encoded.startsWith("$2a$10$"));
+        assertTrue(new BCryptPasswordEncoder().matches(RAW_PASSWORD, encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    void lowerBcryptStrengthNeedsUpgrade() {
+        PasswordEncoder encoder = PasswordEncoders.create(bcrypt(12));
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(10).encode(RAW_PASSWORD)));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(10).encode(RAW_PASSWORD)));
+    }
+
+    @Test
+    void prefixedBcryptAtCurrentStrengthIsUpToDate() {
+        PasswordEncoder encoder = PasswordEncoders.create(bcrypt(10));
+
+        assertFalse(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(10).encode(RAW_PASSWORD)));
+    }
+
+    @Test
+    void changedAlgorithmNeedsUpgrade() {
+        PasswordProperties properties = new PasswordProperties();
+        properties.setAlgorithm(PasswordEncoders.PBKDF2);
+        PasswordEncoder encoder = PasswordEncoders.create(properties);
+        String legacy = new BCryptPasswordEncoder(10).encode(RAW_PASSWORD);
+
+        assertTrue(encoder.matches(RAW_PASSWORD, legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertFalse(encoder.upgradeEncoding(encoder.encode(RAW_PASSWORD)));
+    }
+
+    private static PasswordProperties bcrypt(int strength) {
+        PasswordProperties properties = new PasswordProperties();
+        properties.getBcrypt().setStrength(strength);
+        return properties;
+    }
+}
@@ -0,0 +1,123 @@
+package cn.zhangziming.auth.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 声明字典编码/解码测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class ClaimsDictionaryTest {
+
+    @Test
+    void extendKeepsExistingIdsAndAppendsNewCodes() {
+        ClaimsDictionary first = ClaimsDictionary.of(List.of("USER", "ADMIN"), List.of("user:view", "user:edit"));
+        String roleBits = first.encodeRoles(List.of("USER"), new ArrayList<>());
+        String permissionBits = first.encodePermissions(List.of("user:view"), new ArrayList<>());
+
+        ClaimsDictionary second = first.extend(List.of("AUDITOR", "USER"), List.of("audit:view", "user:view"));
+
+        assertNotEquals(first.getVersion(), second.getVersion());
+        assertEquals(List.of("ADMIN", "USER", "AUDITOR"), second.getRoles());
+        assertEquals(List.of("user:edit", "user:view", "audit:view"), second.getPermissions());
+        // 旧位图用新版本解码结果不变
+        assertEquals(List.of("USER"), second.decodeRoles(roleBits));
+        assertEquals(List.of("user:view"), second.decodePermissions(permissionBits));
+    }
+
+    @Test
+    void extendWithoutNewCodesReturnsSameVersion() {
+        ClaimsDictionary first = ClaimsDictionary.of(List.of("USER"), List.of("user:view"));
+        assertSame(first, first.extend(List.of("USER"), List.of()));
+    }
+
+    @Test
+    void restoreKeepsAppendOrder() {
+        ClaimsDictionary extended = ClaimsDictionary.of(List.of("USER"), List.of("b"))
+                .extend(List.of(), List.of("a"));
+        ClaimsDictionary restored = ClaimsDictionary.restore(extended.getVersion(),
+                extended.getRoles(), extended.getPermissions());
+        assertEquals(List.of("b", "a"), restored.getPermissions());
+    }
+
+    @Test
+    void tokenWithKnownVersionDecodesAuthorities() {
+        MapDictionarySource source = new MapDictionarySource();
+        source.publish(ClaimsDictionary.of(List.of("ADMIN"), List.of("user:view", "user:edit")));
+        JwtUtil jwtUtil = new JwtUtil(new JwtProperties(), source);
+
+        String token = jwtUtil.generateToken(1L, "admin", "DEFAULT", JwtUtil.newTokenId(),
+                List.of("ADMIN"), List.of("user:edit"));
+        TokenValidationResult result = jwtUtil.validate(token);
+
+        assertEquals(TokenValidationResult.Status.VALID, result.getStatus());
+        assertEquals(List.of("ADMIN"), result.getVerifiedToken().getRoles());
+        assertEquals(List.of("user:edit"), result.getVerifiedToken().getPermissions());
+    }
+
+    @Test
+    void tokenWithUnknownVersionIsRejectedAsStale() {
+        MapDictionarySource issuer = new MapDictionarySource();
+        issuer.publish(ClaimsDictionary.of(List.of("ADMIN"), List.of("user:view")));
+        JwtProperties properties = new JwtProperties();
+        String token = new JwtUtil(properties, issuer).generateToken(1L, "admin", "DEFAULT",
+                JwtUtil.newTokenId(), List.of("ADMIN"), List.of("user:view"));
+
+        JwtUtil verifier = new JwtUtil(properties, new MapDictionarySource());
+        TokenValidationResult result = verifier.validate(token);
+
+        assertEquals(TokenValidationResult.Status.STALE_CLAIMS, result.getStatus());
+        assertNull(result.getVerifiedToken());
+        assertEquals(1L, verifier.getValidationStats().getCount(TokenValidationResult.Status.STALE_CLAIMS));
+    }
+
+    @Test
+    void fastPathAlsoRejectsUnknownVersion() {
+        MapDictionarySource issuer = new MapDictionarySource();
+        issuer.publish(ClaimsDictionary.of(List.of("ADMIN"), List.of("user:view")));
+        JwtProperties properties = new JwtProperties();
+        properties.setFastPath(true);
+        String token = new JwtUtil(properties, issuer).generateToken(1L, "admin", "DEFAULT",
+                JwtUtil.newTokenId(), List.of("ADMIN"), List.of("user:view"));
+
+        TokenValidationResult result = new JwtUtil(properties, new MapDictionarySource()).validate(token);
+
+        assertEquals(TokenValidationResult.Status.STALE_CLAIMS, result.getStatus());
+    }
+
+    /**
+     * 内存字典来源
+     */
+    private static final class MapDictionarySource implements ClaimsDictionarySource {
+
+        private final Map<String, ClaimsDictionary> dictionaries = new ConcurrentHashMap<>();
+
+        private volatile ClaimsDictionary current;
+
+        void publish(ClaimsDictionary dictionary) {
+            dictionaries.put(dictionary.getVersion(), dictionary);
+            current = dictionary;
+        }
+
+        @Override
+        public ClaimsDictionary current() {
+            return current;
+        }
+
+        @Override
+        public ClaimsDictionary get(String version) {
+            return dictionaries.get(version);
+        }
+    }
+}
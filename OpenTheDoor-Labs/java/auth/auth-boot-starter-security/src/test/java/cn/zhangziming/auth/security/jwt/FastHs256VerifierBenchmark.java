@@ -0,0 +1,85 @@
+package cn.zhangziming.auth.security.jwt;
+
+import cn.zhangziming.auth.security.context.UserInfo;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HS256快速验签基准测试
+ *
+ * <p>对比JwtUtil.parseToken（jjwt通用解析）、jjwt验签后构建UserInfo、快速路径构建UserInfo的单Token开销
+ * <p>建议同时加 -prof gc 观察每次操作的分配字节数
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastHs256VerifierBenchmark {
+
+    private JwtUtil jjwtUtil;
+    private JwtUtil fastUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        JwtProperties jjwtProperties = new JwtProperties();
+        jjwtProperties.setFastPath(false);
+        jjwtUtil = new JwtUtil(jjwtProperties);
+
+        JwtProperties fastProperties = new JwtProperties();
+        fastProperties.setFastPath(true);
+        fastUtil = new JwtUtil(fastProperties);
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", 1L);
+        claims.put("username", "admin");
+        claims.put("tenantId", "DEFAULT");
+        claims.put("tokenType", JwtUtil.TOKEN_TYPE_ACCESS);
+        claims.put("roles", List.of("ADMIN", "USER"));
+        claims.put("permissions", List.of("system:user:list", "system:user:add", "system:role:list"));
+        token = jjwtUtil.getJwtCodec().encode(claims, "admin", jjwtProperties.getExpireTime());
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jjwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public UserInfo jjwtUserInfo() {
+        return jjwtUtil.verify(token).toUserInfo();
+    }
+
+    @Benchmark
+    public UserInfo fastUserInfo() {
+        return fastUtil.verify(token).toUserInfo();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FastHs256VerifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
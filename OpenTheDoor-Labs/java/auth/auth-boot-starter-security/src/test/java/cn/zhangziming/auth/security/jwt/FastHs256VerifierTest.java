@@ -0,0 +1,149 @@
+package cn.zhangziming.auth.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HS256快速验签测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class FastHs256VerifierTest {
+
+    private static final String SECRET = "fast-path-test-secret-key-at-least-32-bytes";
+
+    private static final String BASE64URL_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private static final String OTHER_SECRET = "another-test-secret-key-also-at-least-32-bytes";
+
+    @Test
+    void validTokenPassesWithKnownClaims() {
+        JwtProperties properties = properties("k1", SECRET);
+        String token = issue(properties);
+
+        TokenValidationResult result = verifier(properties).validate(token);
+
+        assertEquals(TokenValidationResult.Status.VALID, result.getStatus());
+        assertEquals(1L, result.getVerifiedToken().getUserId());
+        assertEquals("admin", result.getVerifiedToken().getUsername());
+        assertEquals(List.of("ADMIN"), result.getVerifiedToken().getRoles());
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        JwtProperties properties = properties("k1", SECRET);
+        String token = issue(properties);
+        int index = token.lastIndexOf('.') + 5;
+        char replaced = token.charAt(index) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, index) + replaced + token.substring(index + 1);
+
+        TokenValidationResult result = verifier(properties).validate(tampered);
+
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, result.getStatus());
+    }
+
+    @Test
+    void nonCanonicalSignatureEncodingIsRejected() {
+        JwtProperties properties = properties("k1", SECRET);
+        String token = issue(properties);
+        // 最后一个字符的低2位不属于签名，置位后解码出的字节不变，但必须拒绝
+        char last = token.charAt(token.length() - 1);
+        int value = BASE64URL_ALPHABET.indexOf(last);
+        String malleated = token.substring(0, token.length() - 1) + BASE64URL_ALPHABET.charAt(value | 0x1);
+
+        assertEquals(TokenValidationResult.Status.VALID, verifier(properties).validate(token).getStatus());
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, verifier(properties).validate(malleated).getStatus());
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        JwtProperties properties = properties("k1", SECRET);
+        String[] parts = issue(properties).split("\\.");
+        String other = issue(properties("k1", SECRET), 2L).split("\\.")[1];
+
+        TokenValidationResult result = verifier(properties).validate(parts[0] + "." + other + "." + parts[2]);
+
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, result.getStatus());
+    }
+
+    @Test
+    void sameKidWithDifferentSecretIsRejected() {
+        String token = issue(properties("k1", OTHER_SECRET));
+
+        TokenValidationResult result = verifier(properties("k1", SECRET)).validate(token);
+
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, result.getStatus());
+    }
+
+    @Test
+    void unknownKidFallsBackToJjwt() {
+        String token = issue(properties("k2", OTHER_SECRET));
+        JwtProperties properties = properties("k1", SECRET);
+
+        // 快速路径不认识kid，交给jjwt判定
+        assertNull(verifier(properties).validate(token));
+        properties.setFastPath(true);
+        TokenValidationResult result = new JwtUtil(properties).validate(token);
+        assertNotEquals(TokenValidationResult.Status.VALID, result.getStatus());
+    }
+
+    @Test
+    void rotatedKeyStillVerifies() {
+        String token = issue(properties("old", OTHER_SECRET));
+        JwtProperties properties = properties("k1", SECRET);
+        properties.getVerificationKeys().put("old", OTHER_SECRET);
+
+        TokenValidationResult result = verifier(properties).validate(token);
+
+        assertEquals(TokenValidationResult.Status.VALID, result.getStatus());
+    }
+
+    @Test
+    void malformedTokenIsRejectedWithoutFallback() {
+        TokenValidationResult result = verifier(properties("k1", SECRET)).validate("a.b");
+
+        assertEquals(TokenValidationResult.Status.MALFORMED, result.getStatus());
+    }
+
+    @Test
+    void parseTokenUsesFastPathByDefault() {
+        JwtProperties properties = properties("k1", SECRET);
+        JwtUtil jwtUtil = new JwtUtil(properties);
+        String token = issue(properties);
+        String tampered = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA";
+
+        assertTrue(properties.isFastPath());
+        assertEquals("admin", jwtUtil.parseToken(token).getSubject());
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> jwtUtil.parseToken(tampered));
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, e.getStatus());
+    }
+
+    private static JwtProperties properties(String keyId, String secret) {
+        JwtProperties properties = new JwtProperties();
+        properties.setKeyId(keyId);
+        properties.setSecret(secret);
+        return properties;
+    }
+
+    private static String issue(JwtProperties properties) {
+        return issue(properties, 1L);
+    }
+
+    private static String issue(JwtProperties properties, Long userId) {
+        return new JwtUtil(properties).generateToken(userId, "admin", "DEFAULT", JwtUtil.newTokenId(),
+                List.of("ADMIN"), List.of("user:view"));
+    }
+
+    private static FastHs256Verifier verifier(JwtProperties properties) {
+        return new FastHs256Verifier(JwtKeyRing.of(properties), token -> null);
+    }
+}
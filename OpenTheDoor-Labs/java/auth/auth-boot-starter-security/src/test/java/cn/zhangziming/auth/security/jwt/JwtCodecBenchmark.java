@@ -0,0 +1,109 @@
+package cn.zhangziming.auth.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT编解码基准测试
+ *
+ * <p>对比旧版JwtUtil（每次调用派生密钥、构建Parser）与预构建JwtCodec的单Token开销
+ * <p>运行方式: 在IDE中直接运行main方法，或执行 mvn test-compile 后以test classpath启动
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtCodecBenchmark {
+
+    private JwtProperties jwtProperties;
+    private JwtCodec jwtCodec;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtProperties = new JwtProperties();
+        jwtCodec = JwtCodec.of(jwtProperties);
+
+        claims = new HashMap<>();
+        claims.put("userId", 1L);
+        claims.put("username", "admin");
+        claims.put("tenantId", "DEFAULT");
+        claims.put("tokenType", JwtUtil.TOKEN_TYPE_ACCESS);
+
+        token = jwtCodec.encode(claims, "admin", jwtProperties.getExpireTime());
+    }
+
+    @Benchmark
+    public Claims parseLegacy() {
+        return Jwts.parser()
+                .setSigningKey(legacySignKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public Claims parseCodec() {
+        return jwtCodec.decode(token);
+    }
+
+    @Benchmark
+    public String createLegacy() {
+        Date now = new Date();
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject("admin")
+                .setIssuer(jwtProperties.getIssuer())
+                .setAudience(jwtProperties.getAudience())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtProperties.getExpireTime() * 1000))
+                .signWith(legacySignKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String createCodec() {
+        return jwtCodec.encode(claims, "admin", jwtProperties.getExpireTime());
+    }
+
+    /**
+     * 旧版JwtUtil.getSignKey()：每次调用都重新编码密钥并派生SecretKey
+     */
+    private SecretKey legacySignKey() {
+        return Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
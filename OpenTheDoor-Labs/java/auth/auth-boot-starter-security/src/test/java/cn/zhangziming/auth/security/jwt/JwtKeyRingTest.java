@@ -0,0 +1,200 @@
+package cn.zhangziming.auth.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JWT密钥环测试（非对称算法、PEM加载、kid轮换）
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class JwtKeyRingTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void asymmetricTokenSignsAndVerifies(String algorithm) {
+        JwtProperties properties = properties(algorithm, "k1", generate(algorithm));
+        JwtUtil jwtUtil = new JwtUtil(properties);
+        String token = issue(jwtUtil);
+
+        TokenValidationResult result = jwtUtil.validate(token);
+
+        assertEquals(TokenValidationResult.Status.VALID, result.getStatus());
+        assertEquals(1L, result.getVerifiedToken().getUserId());
+        assertEquals(algorithm, header(token, "alg"));
+        assertEquals("k1", header(token, "kid"));
+        // 非对称算法不走HS256快速路径，parseToken同样可用
+        assertEquals("admin", jwtUtil.parseToken(token).getSubject());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void asymmetricTokenSignedByOtherKeyIsRejected(String algorithm) {
+        String token = issue(new JwtUtil(properties(algorithm, "k1", generate(algorithm))));
+
+        TokenValidationResult result = new JwtUtil(properties(algorithm, "k1", generate(algorithm))).validate(token);
+
+        assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, result.getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void pemKeysAreLoaded(String algorithm) {
+        KeyPair keyPair = generate(algorithm);
+        JwtProperties properties = properties(algorithm, "k1", keyPair);
+
+        JwtKeyRing keyRing = JwtKeyRing.of(properties);
+
+        assertEquals(algorithm, keyRing.getAlgorithm());
+        assertEquals("k1", keyRing.getActiveKeyId());
+        assertEquals(keyPair.getPublic(), keyRing.getVerificationKey("k1"));
+        assertEquals(keyPair.getPublic(), keyRing.getPublicKeys().get("k1"));
+        assertArrayEquals(keyPair.getPrivate().getEncoded(), keyRing.getSigningKey().getEncoded());
+        // 未携带kid时使用当前密钥
+        assertEquals(keyPair.getPublic(), keyRing.getVerificationKey(null));
+
+        // 两个节点配置同一对PEM，一个签发另一个可以验签
+        String token = issue(new JwtUtil(properties));
+        assertTrue(new JwtUtil(properties(algorithm, "k1", keyPair)).validateToken(token));
+    }
+
+    @Test
+    void barePemBase64IsAccepted() {
+        KeyPair keyPair = generate(JwtKeyRing.ALGORITHM_ES256);
+        JwtProperties properties = new JwtProperties();
+        properties.setAlgorithm(JwtKeyRing.ALGORITHM_ES256);
+        properties.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        properties.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+
+        assertEquals(keyPair.getPublic(), JwtKeyRing.of(properties).getPublicKeys().get(properties.getKeyId()));
+    }
+
+    @Test
+    void privateKeyWithoutPublicKeyIsRejected() {
+        JwtProperties properties = properties(JwtKeyRing.ALGORITHM_RS256, "k1", generate(JwtKeyRing.ALGORITHM_RS256));
+        properties.setPublicKey(null);
+
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.of(properties));
+    }
+
+    @Test
+    void malformedPemIsRejected() {
+        JwtProperties properties = properties(JwtKeyRing.ALGORITHM_RS256, "k1", generate(JwtKeyRing.ALGORITHM_RS256));
+        // EC公钥不能按RSA解析
+        properties.setPublicKey(pem("PUBLIC KEY", generate(JwtKeyRing.ALGORITHM_ES256).getPublic().getEncoded()));
+
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.of(properties));
+    }
+
+    @Test
+    void missingPrivateKeyGeneratesEphemeralKeyPair() {
+        JwtProperties properties = new JwtProperties();
+        properties.setAlgorithm(JwtKeyRing.ALGORITHM_EDDSA);
+
+        JwtKeyRing keyRing = JwtKeyRing.of(properties);
+
+        assertTrue(keyRing.getSigningKey() instanceof PrivateKey);
+        assertEquals(Set.of(properties.getKeyId()), keyRing.getPublicKeys().keySet());
+    }
+
+    @Test
+    void hs256PublishesNoPublicKeys() {
+        assertTrue(JwtKeyRing.of(new JwtProperties()).getPublicKeys().isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void tokenSignedBeforeRotationVerifiesByKid(String algorithm) {
+        KeyPair oldKeyPair = generate(algorithm);
+        KeyPair newKeyPair = generate(algorithm);
+        String oldToken = issue(new JwtUtil(properties(algorithm, "2024-01", oldKeyPair)));
+
+        // 轮换：新密钥签名，旧公钥只留作验签
+        JwtProperties rotated = properties(algorithm, "2024-02", newKeyPair);
+        rotated.getVerificationPublicKeys().put("2024-01", pem("PUBLIC KEY", oldKeyPair.getPublic().getEncoded()));
+        JwtUtil jwtUtil = new JwtUtil(rotated);
+        String newToken = issue(jwtUtil);
+
+        assertEquals("2024-02", header(newToken, "kid"));
+        assertEquals(TokenValidationResult.Status.VALID, jwtUtil.validate(oldToken).getStatus());
+        assertEquals(TokenValidationResult.Status.VALID, jwtUtil.validate(newToken).getStatus());
+        assertEquals(Set.of("2024-02", "2024-01"), jwtUtil.getJwtCodec().getKeyRing().getPublicKeys().keySet());
+
+        // 旧公钥下线后，旧Token按kid找不到密钥
+        JwtUtil retired = new JwtUtil(properties(algorithm, "2024-02", newKeyPair));
+        assertFalse(retired.validateToken(oldToken));
+        assertTrue(retired.validateToken(newToken));
+    }
+
+    @Test
+    void hmacVerificationKeysSurviveMigrationToAsymmetric() {
+        JwtProperties hs256 = new JwtProperties();
+        hs256.setKeyId("hs-old");
+        String oldToken = issue(new JwtUtil(hs256));
+
+        JwtProperties properties = properties(JwtKeyRing.ALGORITHM_RS256, "rs-new", generate(JwtKeyRing.ALGORITHM_RS256));
+        properties.getVerificationKeys().put("hs-old", hs256.getSecret());
+        JwtKeyRing keyRing = JwtKeyRing.of(properties);
+
+        assertTrue(new JwtUtil(properties).validateToken(oldToken));
+        // HMAC密钥不能通过JWKS公开
+        assertEquals(Set.of("rs-new"), keyRing.getPublicKeys().keySet());
+        assertNull(keyRing.getPublicKeys().get("hs-old"));
+    }
+
+    private static KeyPair generate(String algorithm) {
+        switch (algorithm) {
+            case JwtKeyRing.ALGORITHM_RS256:
+                return Jwts.SIG.RS256.keyPair().build();
+            case JwtKeyRing.ALGORITHM_ES256:
+                return Jwts.SIG.ES256.keyPair().build();
+            default:
+                return Jwks.CRV.Ed25519.keyPair().build();
+        }
+    }
+
+    private static JwtProperties properties(String algorithm, String keyId, KeyPair keyPair) {
+        JwtProperties properties = new JwtProperties();
+        properties.setAlgorithm(algorithm);
+        properties.setKeyId(keyId);
+        properties.setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        properties.setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        return properties;
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+
+    private static String issue(JwtUtil jwtUtil) {
+        return jwtUtil.generateToken(1L, "admin", "DEFAULT", JwtUtil.newTokenId(),
+                List.of("ADMIN"), List.of("user:view"));
+    }
+
+    private static String header(String token, String name) {
+        String json = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+        int start = json.indexOf("\"" + name + "\":\"") + name.length() + 4;
+        return json.substring(start, json.indexOf('"', start));
+    }
+}
@@ -0,0 +1,99 @@
+package cn.zhangziming.auth.security.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 路由匹配顺序测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class RouteRegistryTest {
+
+    @Test
+    void configuredRuleWinsOverMethodSpecificSourceRule() {
+        RouteProperties properties = new RouteProperties();
+        properties.setPublicPaths(List.of("/api/public/**"));
+        RouteRegistry registry = registry(properties,
+                new RouteRule("GET", "/api/public/info", true, "sys:info:view"));
+
+        RouteRule rule = registry.match("GET", "/api/public/info");
+        assertEquals(RouteRule.ANY_METHOD, rule.getMethod());
+        assertEquals("/api/public/**", rule.getPattern());
+        assertTrue(registry.isPublic("GET", "/api/public/info"));
+    }
+
+    @Test
+    void configuredAuthRuleIsNotOpenedBySource() {
+        RouteProperties properties = new RouteProperties();
+        properties.setPublicPaths(List.of());
+        RouteProperties.Rule configRule = new RouteProperties.Rule();
+        configRule.setPath("/api/admin/**");
+        configRule.setPermission("sys:admin");
+        properties.setRules(List.of(configRule));
+        RouteRegistry registry = registry(properties, RouteRule.publicRoute("/api/admin/health"));
+
+        assertFalse(registry.isPublic("GET", "/api/admin/health"));
+        assertEquals("sys:admin", registry.match("GET", "/api/admin/health").getPermission());
+    }
+
+    @Test
+    void sourceRuleAppliesWhenNoConfiguredRuleMatches() {
+        RouteProperties properties = new RouteProperties();
+        properties.setPublicPaths(List.of("/api/auth/login"));
+        RouteRegistry registry = registry(properties,
+                new RouteRule("DELETE", "/api/user/{id}", true, "sys:user:delete"));
+
+        assertEquals("sys:user:delete", registry.match("DELETE", "/api/user/1").getPermission());
+        assertNull(registry.match("GET", "/api/user/1"));
+    }
+
+    @Test
+    void tableMatchesExactBeforeWildcardBeforeDoubleWildcard() {
+        RouteTable table = RouteTable.compile(List.of(
+                new RouteRule(RouteRule.ANY_METHOD, "/api/**", true, "tail"),
+                new RouteRule(RouteRule.ANY_METHOD, "/api/user/*", true, "single"),
+                new RouteRule(RouteRule.ANY_METHOD, "/api/user/me", true, "exact")));
+
+        assertEquals("exact", table.match("GET", "/api/user/me").getPermission());
+        assertEquals("single", table.match("GET", "/api/user/1").getPermission());
+        assertEquals("tail", table.match("GET", "/api/role/1").getPermission());
+    }
+
+    @Test
+    void tableMatchesMethodSpecificBeforeAnyMethod() {
+        RouteTable table = RouteTable.compile(List.of(
+                new RouteRule(RouteRule.ANY_METHOD, "/api/user", true, "any"),
+                new RouteRule("POST", "/api/user", true, "post")));
+
+        assertEquals("post", table.match("POST", "/api/user").getPermission());
+        assertEquals("any", table.match("GET", "/api/user").getPermission());
+    }
+
+    @Test
+    void pathIsDecodedAndNormalizedBeforeMatching() {
+        assertEquals("/api/user/list", RouteRegistry.pathWithinApplication("/app/api/user/%6Cist", "/app"));
+        assertEquals("/api/user/list", RouteRegistry.normalizePath("/api//user;jsessionid=1/./list"));
+        assertEquals("/api/user/list", RouteRegistry.normalizePath("/api/public/../user/list"));
+        // 编码的斜杠解码后参与".."回退
+        assertEquals("/api/user/list", RouteRegistry.normalizePath("/api/public%2F..%2Fuser/list"));
+        assertEquals("/", RouteRegistry.normalizePath("/../.."));
+        assertEquals("/api/%zz", RouteRegistry.normalizePath("/api/%zz"));
+    }
+
+    private static RouteRegistry registry(RouteProperties properties, RouteRule... sourceRules) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("routeRuleSource", (RouteRuleSource) () -> List.of(sourceRules));
+        RouteRegistry registry = new RouteRegistry(properties, beanFactory.getBeanProvider(RouteRuleSource.class));
+        registry.reload();
+        return registry;
+    }
+}
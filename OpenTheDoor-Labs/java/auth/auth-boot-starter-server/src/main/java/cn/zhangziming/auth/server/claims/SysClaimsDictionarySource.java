@@ -0,0 +1,211 @@
+package cn.zhangziming.auth.server.claims;
+
+import cn.zhangziming.auth.security.jwt.ClaimsDictionary;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionarySource;
+import cn.zhangziming.auth.server.entity.SysClaimsDictionary;
+import cn.zhangziming.auth.server.entity.SysPermission;
+import cn.zhangziming.auth.server.entity.SysRole;
+import cn.zhangziming.auth.server.mapper.SysClaimsDictionaryMapper;
+import cn.zhangziming.auth.server.mapper.SysPermissionMapper;
+import cn.zhangziming.auth.server.mapper.SysRoleMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 数据库声明字典来源
+ *
+ * <p>字典持久化在sys_claims_dictionary中，每个版本一行，只插入不修改：
+ * <ul>
+ *     <li>当前字典最多每分钟重建一次：取最新一版，把sys_role和sys_permission中新出现的编码追加在末尾，
+ *     已有编码的编号不变；有新编码时插入一个新版本</li>
+ *     <li>内容相同的字典版本一致，多个认证节点同时插入同一版本时以唯一键去重</li>
+ *     <li>未知版本按需从数据库加载，重启或由其他节点签发的Token都能解码；数据库中也没有时返回null，
+ *     Token按STALE_CLAIMS拒绝，客户端刷新后按当前字典重新签发</li>
+ * </ul>
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+public class SysClaimsDictionarySource implements ClaimsDictionarySource {
+
+    /**
+     * 当前字典的重建间隔（毫秒）
+     */
+    private static final long RELOAD_INTERVAL_MILLIS = 60_000L;
+
+    /**
+     * 同一未知版本再次查库的最小间隔（毫秒）
+     */
+    private static final long MISS_RETRY_INTERVAL_MILLIS = 30_000L;
+
+    /**
+     * 内存中最多缓存的版本数，超出后只保留当前版本，其余按需从数据库加载
+     */
+    private static final int MAX_VERSIONS = 64;
+
+    /**
+     * 编码分隔符
+     */
+    private static final String SEPARATOR = "\n";
+
+    private final SysRoleMapper roleMapper;
+
+    private final SysPermissionMapper permissionMapper;
+
+    private final SysClaimsDictionaryMapper dictionaryMapper;
+
+    /**
+     * 版本 -> 字典
+     */
+    private final Map<String, ClaimsDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    /**
+     * 版本 -> 最近一次在数据库中未找到的时间
+     */
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile ClaimsDictionary current;
+
+    private volatile long loadedAt;
+
+    public SysClaimsDictionarySource(SysRoleMapper roleMapper, SysPermissionMapper permissionMapper,
+                                     SysClaimsDictionaryMapper dictionaryMapper) {
+        this.roleMapper = roleMapper;
+        this.permissionMapper = permissionMapper;
+        this.dictionaryMapper = dictionaryMapper;
+    }
+
+    @Override
+    public ClaimsDictionary current() {
+        if (isStale()) {
+            reload();
+        }
+        return current;
+    }
+
+    @Override
+    public ClaimsDictionary get(String version) {
+        ClaimsDictionary dictionary = dictionaries.get(version);
+        if (dictionary != null) {
+            return dictionary;
+        }
+        Long missedAt = misses.get(version);
+        if (missedAt != null && System.currentTimeMillis() - missedAt < MISS_RETRY_INTERVAL_MILLIS) {
+            return null;
+        }
+        try {
+            dictionary = toDictionary(dictionaryMapper.selectOne(new LambdaQueryWrapper<SysClaimsDictionary>()
+                    .eq(SysClaimsDictionary::getVersion, version)));
+        } catch (Exception e) {
+            log.warn("加载声明字典失败: version={}, {}", version, e.getMessage());
+            return null;
+        }
+        if (dictionary == null) {
+            if (misses.size() >= MAX_VERSIONS) {
+                misses.clear();
+            }
+            misses.put(version, System.currentTimeMillis());
+            return null;
+        }
+        misses.remove(version);
+        cache(dictionary);
+        return dictionary;
+    }
+
+    private boolean isStale() {
+        return current == null || System.currentTimeMillis() - loadedAt >= RELOAD_INTERVAL_MILLIS;
+    }
+
+    /**
+     * 在最新一版后追加新编码，得到当前字典；失败时继续使用上一版
+     */
+    private void reload() {
+        reloadLock.lock();
+        try {
+            if (!isStale()) {
+                return;
+            }
+            loadedAt = System.currentTimeMillis();
+            List<String> roles = roleMapper.selectList(new LambdaQueryWrapper<SysRole>()
+                            .select(SysRole::getRoleCode)
+                            .eq(SysRole::getStatus, 1))
+                    .stream().map(SysRole::getRoleCode).filter(Objects::nonNull).toList();
+            List<String> permissions = permissionMapper.selectList(new LambdaQueryWrapper<SysPermission>()
+                            .select(SysPermission::getPermissionCode)
+                            .eq(SysPermission::getStatus, 1))
+                    .stream().map(SysPermission::getPermissionCode).filter(Objects::nonNull).toList();
+            ClaimsDictionary latest = toDictionary(dictionaryMapper.selectOne(
+                    new LambdaQueryWrapper<SysClaimsDictionary>()
+                            .orderByDesc(SysClaimsDictionary::getId)
+                            .last("LIMIT 1")));
+            ClaimsDictionary dictionary = latest == null
+                    ? ClaimsDictionary.of(roles, permissions) : latest.extend(roles, permissions);
+            if (dictionary != latest) {
+                persist(dictionary);
+            }
+            cache(dictionary);
+            ClaimsDictionary previous = current;
+            current = dictionary;
+            if (previous == null || !previous.getVersion().equals(dictionary.getVersion())) {
+                log.info("声明字典已更新: version={}, roles={}, permissions={}", dictionary.getVersion(),
+                        dictionary.getRoles().size(), dictionary.getPermissions().size());
+            }
+        } catch (Exception e) {
+            log.warn("加载声明字典失败，继续使用当前字典: {}", e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void persist(ClaimsDictionary dictionary) {
+        SysClaimsDictionary entity = new SysClaimsDictionary();
+        entity.setVersion(dictionary.getVersion());
+        entity.setRoles(String.join(SEPARATOR, dictionary.getRoles()));
+        entity.setPermissions(String.join(SEPARATOR, dictionary.getPermissions()));
+        try {
+            dictionaryMapper.insert(entity);
+        } catch (DuplicateKeyException e) {
+            // 其他节点已插入同一版本
+        }
+    }
+
+    private void cache(ClaimsDictionary dictionary) {
+        if (dictionaries.size() >= MAX_VERSIONS) {
+            ClaimsDictionary keep = current;
+            dictionaries.keySet().removeIf(version -> keep == null || !version.equals(keep.getVersion()));
+        }
+        dictionaries.put(dictionary.getVersion(), dictionary);
+    }
+
+    /**
+     * 还原数据库中的字典，内容与版本号不符时视为不存在
+     */
+    private static ClaimsDictionary toDictionary(SysClaimsDictionary entity) {
+        if (entity == null) {
+            return null;
+        }
+        try {
+            return ClaimsDictionary.restore(entity.getVersion(), split(entity.getRoles()),
+                    split(entity.getPermissions()));
+        } catch (IllegalArgumentException e) {
+            log.warn("声明字典内容与版本不符，已忽略: version={}", entity.getVersion());
+            return null;
+        }
+    }
+
+    private static List<String> split(String codes) {
+        return codes == null || codes.isEmpty() ? List.of() : List.of(codes.split(SEPARATOR));
+    }
+}
@@ -0,0 +1,35 @@
+package cn.zhangziming.auth.server.config;
+
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import cn.zhangziming.auth.server.role.RbacModelBroadcaster;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * RBAC模型同步配置
+ *
+ * <p>订阅模型变更广播频道，与用户权限缓存是否启用无关
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth-boot.redis", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RbacModelSyncConfig {
+
+    /**
+     * 订阅模型变更广播
+     */
+    @Bean
+    public RedisMessageListenerContainer rbacModelListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    RbacModelBroadcaster rbacModelBroadcaster) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(rbacModelBroadcaster, new ChannelTopic(CacheConstant.RBAC_MODEL_CHANNEL));
+        return container;
+    }
+}
@@ -1,7 +1,10 @@
 package cn.zhangziming.auth.server.config;
 
 import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.route.RouteRegistry;
 import cn.zhangziming.auth.server.filter.ServerJwtAuthenticationFilter;
+import cn.zhangziming.auth.server.route.RouteAuthorizationManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,6 +28,9 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityFilterChainConfig {
 
     private final JwtUtil jwtUtil;
+    private final TokenRenewer tokenRenewer;
+    private final RouteRegistry routeRegistry;
+    private final RouteAuthorizationManager routeAuthorizationManager;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -41,17 +47,14 @@ public class SecurityFilterChainConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 
                 // 添加JWT认证过滤器（Server版本，会设置SecurityContext）
-                .addFilterBefore(new ServerJwtAuthenticationFilter(jwtUtil), 
+                .addFilterBefore(new ServerJwtAuthenticationFilter(jwtUtil,
+                                tokenRenewer.isEnabled() ? tokenRenewer : null, routeRegistry),
                         UsernamePasswordAuthenticationFilter.class)
                 
-                // 配置权限
+                // 配置权限：公开路径、认证要求和接口权限统一由路由表决定
+                // （auth-boot.security.routes + sys_api，sys_api变更后自动重新加载）
                 .authorizeHttpRequests(auth -> auth
-                        // 公开接口 - 使用更宽松的匹配
-                        .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/doc.html", "/webjars/**", "/swagger-resources/**", "/v3/api-docs/**").permitAll()
-                        .requestMatchers("/error").permitAll()
-                        // 其他接口需要认证
-                        .anyRequest().authenticated()
+                        .anyRequest().access(routeAuthorizationManager)
                 );
         
         System.out.println("✅ SecurityFilterChain 配置完成！（已添加JWT过滤器）");
@@ -0,0 +1,66 @@
+package cn.zhangziming.auth.server.config;
+
+import cn.zhangziming.auth.redis.model.SessionInfo;
+import cn.zhangziming.auth.redis.service.SessionService;
+import cn.zhangziming.auth.security.jwt.TokenRenewalHandler;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
+import cn.zhangziming.auth.server.entity.SysUser;
+import cn.zhangziming.auth.server.mapper.SysUserMapper;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader.UserAuthorities;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Token续期处理配置
+ *
+ * <p>静默续期以会话为准：会话不存在（已登出、被踢下线）或用户已禁用时不续期，新Token重新加载角色和权限，
+ * 并把会话指向新Token，登出和踢下线时才能吊销到它
+ * <p>未启用会话存储时不注册，静默续期随之关闭
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth-boot.redis.session", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TokenRenewalHandlerConfig {
+
+    @Bean
+    public TokenRenewalHandler sessionTokenRenewalHandler(SessionService sessionService, SysUserMapper userMapper,
+                                                          UserAuthorityLoader userAuthorityLoader) {
+        return new SessionTokenRenewalHandler(sessionService, userMapper, userAuthorityLoader);
+    }
+
+    /**
+     * 基于会话存储的续期处理
+     */
+    @RequiredArgsConstructor
+    static class SessionTokenRenewalHandler implements TokenRenewalHandler {
+
+        private final SessionService sessionService;
+        private final SysUserMapper userMapper;
+        private final UserAuthorityLoader userAuthorityLoader;
+
+        @Override
+        public RenewalGrant load(VerifiedToken previous) {
+            SessionInfo session = sessionService.findByAccessTokenId(previous.getUserId(), previous.getTokenId());
+            if (session == null) {
+                return null;
+            }
+            SysUser user = userMapper.selectById(previous.getUserId());
+            if (user == null || user.getStatus() == null || user.getStatus() != 1) {
+                return null;
+            }
+            UserAuthorities authorities = userAuthorityLoader.load(user.getId());
+            return new RenewalGrant(session.getSessionId(), session.getExpiresAt(),
+                    authorities.getRoleCodes(), authorities.getPermissionCodes());
+        }
+
+        @Override
+        public boolean onRenewed(VerifiedToken previous, RenewalGrant grant, String tokenId, long expirationMillis) {
+            return sessionService.renew(previous.getUserId(), grant.getSessionId(), tokenId, expirationMillis);
+        }
+    }
+}
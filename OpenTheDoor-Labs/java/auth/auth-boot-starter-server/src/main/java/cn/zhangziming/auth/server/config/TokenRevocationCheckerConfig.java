@@ -0,0 +1,25 @@
+package cn.zhangziming.auth.server.config;
+
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
+import cn.zhangziming.auth.security.jwt.TokenRevocationChecker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Token吊销检查配置
+ *
+ * <p>把Redis模块的吊销服务接入JwtUtil，验签通过后按jti检查吊销状态
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth-boot.redis.token-revocation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TokenRevocationCheckerConfig {
+
+    @Bean
+    public TokenRevocationChecker tokenRevocationChecker(TokenRevocationService tokenRevocationService) {
+        return tokenRevocationService::isRevoked;
+    }
+}
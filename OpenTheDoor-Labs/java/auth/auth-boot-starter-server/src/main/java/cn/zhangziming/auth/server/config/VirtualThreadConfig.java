@@ -0,0 +1,104 @@
+package cn.zhangziming.auth.server.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程执行模式
+ *
+ * <p>开启auth-boot.server.virtual-threads后，Tomcat每个请求在独立的虚拟线程上处理，
+ * 阻塞在MySQL/Redis上时只挂起虚拟线程，不再占用平台线程池
+ * <p>虚拟线程需要JDK 21，项目按Java 17编译，这里通过反射创建；运行在JDK 21以下时打印警告并继续使用平台线程池
+ * <p>载体线程钉住（pinning）排查结论：
+ * <ul>
+ *     <li>本项目代码中不在synchronized内做阻塞IO：Token续期的单飞等待用CompletableFuture，路由表重载用ReentrantLock</li>
+ *     <li>BCrypt是纯CPU计算，没有锁，但会长时间占用载体线程；登录的密码校验已放到独立的有界线程池（PasswordHashExecutor）</li>
+ *     <li>mysql-connector-j 9.0之前在执行SQL时持有synchronized，查询期间会钉住载体线程，
+ *     开启虚拟线程时建议升级驱动（覆盖mysql.version属性）；连接池大小同时限制了被钉住的线程数</li>
+ * </ul>
+ * <p>ThreadLocal缓存排查结论：每个请求一个新虚拟线程，ThreadLocal里的对象每次都要重建。
+ * 快速验签的Mac和解码缓冲区改为不绑定线程的小对象池（FastHs256Verifier），
+ * Token指纹改为克隆预先初始化的MessageDigest（TokenFingerprint）；UserContext和MDC本身就是请求级状态，不受影响
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+@ConditionalOnProperty(prefix = "auth-boot.server", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * 支持虚拟线程的最低JDK版本
+     */
+    private static final int MIN_FEATURE_VERSION = 21;
+
+    /**
+     * 不再持有synchronized执行SQL的最低MySQL驱动主版本
+     */
+    private static final int MIN_MYSQL_DRIVER_MAJOR_VERSION = 9;
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadExecutor("auth-vt-");
+        if (executor == null) {
+            log.warn("当前JDK {}不支持虚拟线程（需要JDK {}+），继续使用平台线程池",
+                    Runtime.version().feature(), MIN_FEATURE_VERSION);
+            return protocolHandler -> {
+            };
+        }
+        warnIfMysqlDriverPins();
+        log.info("Tomcat请求处理已切换为虚拟线程");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     *
+     * @param prefix 线程名前缀
+     * @return 执行器，JDK不支持时返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor(String prefix) {
+        if (Runtime.version().feature() < MIN_FEATURE_VERSION) {
+            return null;
+        }
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            log.warn("创建虚拟线程执行器失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 旧版MySQL驱动执行SQL时会钉住载体线程，启动时提示升级
+     */
+    private static void warnIfMysqlDriverPins() {
+        try {
+            Class<?> constants = Class.forName("com.mysql.cj.Constants");
+            String major = (String) constants.getField("CJ_MAJOR_VERSION").get(null);
+            if (Integer.parseInt(major) < MIN_MYSQL_DRIVER_MAJOR_VERSION) {
+                log.warn("mysql-connector-j {}在执行SQL时持有synchronized，会钉住虚拟线程的载体线程，建议升级到{}.x",
+                        constants.getField("CJ_VERSION").get(null), MIN_MYSQL_DRIVER_MAJOR_VERSION);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 未使用MySQL驱动或无法识别版本，不做提示
+        }
+    }
+}
@@ -5,12 +5,16 @@ import cn.zhangziming.auth.security.context.UserContext;
 import cn.zhangziming.auth.server.dto.LoginRequest;
 import cn.zhangziming.auth.server.dto.LoginResponse;
 import cn.zhangziming.auth.server.service.IAuthService;
+import cn.zhangziming.auth.server.vo.SessionVO;
 import cn.zhangziming.auth.server.vo.UserVO;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 认证控制器
  *
@@ -27,11 +31,11 @@ public class AuthController {
 
     /**
      * 用户登录
+     * 异步处理：密码校验期间释放Servlet线程，校验完成后再写回响应
      */
     @PostMapping("/login")
-    public Result<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        LoginResponse response = authService.login(request);
-        return Result.success(response);
+    public CompletableFuture<Result<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(Result::success);
     }
 
     /**
@@ -62,5 +66,29 @@ public class AuthController {
         UserVO userInfo = authService.getCurrentUserInfo();
         return Result.success(userInfo);
     }
-}
 
+    /**
+     * 查询当前用户的登录会话
+     */
+    @GetMapping("/sessions")
+    public Result<List<SessionVO>> listSessions() {
+        return Result.success(authService.listSessions(UserContext.getUserId()));
+    }
+
+    /**
+     * 下线当前用户的指定会话
+     */
+    @DeleteMapping("/sessions/{sessionId}")
+    public Result<Void> removeSession(@PathVariable String sessionId) {
+        authService.removeSession(UserContext.getUserId(), sessionId);
+        return Result.success();
+    }
+
+    /**
+     * 下线当前用户的全部会话（所有设备）
+     */
+    @PostMapping("/logout-all")
+    public Result<Integer> logoutAll() {
+        return Result.success(authService.logoutAll(UserContext.getUserId()));
+    }
+}
@@ -0,0 +1,112 @@
+package cn.zhangziming.auth.server.controller;
+
+import cn.zhangziming.auth.security.jwks.RemoteClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionary;
+import cn.zhangziming.auth.server.claims.SysClaimsDictionarySource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 声明字典控制器
+ *
+ * <p>发布Token中角色/权限位图的解码字典，资源服务按Token中的字典版本拉取
+ * <p>指定版本的字典内容不会变化，可长期缓存；当前版本随权限数据变化，只缓存一分钟
+ * <p>字典包含全部角色和权限编码。配置auth-boot.server.claims-dictionary.api-key后，
+ * 请求头{@value RemoteClaimsDictionarySource#API_KEY_HEADER}必须携带该密钥，否则返回401；
+ * 未配置时任何人都能读取，启动时打印警告
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@RestController
+public class ClaimsDictionaryController {
+
+    private final SysClaimsDictionarySource dictionarySource;
+
+    /**
+     * 访问密钥（UTF-8字节），为null时不校验
+     */
+    private final byte[] apiKey;
+
+    public ClaimsDictionaryController(SysClaimsDictionarySource dictionarySource,
+                                      @Value("${auth-boot.server.claims-dictionary.api-key:}") String apiKey) {
+        this.dictionarySource = dictionarySource;
+        this.apiKey = apiKey.isEmpty() ? null : apiKey.getBytes(StandardCharsets.UTF_8);
+        if (this.apiKey == null) {
+            log.warn("声明字典接口未配置访问密钥（auth-boot.server.claims-dictionary.api-key），全部角色和权限编码可公开读取");
+        }
+    }
+
+    /**
+     * 获取当前字典
+     */
+    @GetMapping("/.well-known/claims-dictionary")
+    public ResponseEntity<Map<String, Object>> current(
+            @RequestHeader(value = RemoteClaimsDictionarySource.API_KEY_HEADER, required = false) String key) {
+        if (!authorized(key)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ClaimsDictionary dictionary = dictionarySource.current();
+        if (dictionary == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl(CacheControl.maxAge(1, TimeUnit.MINUTES)))
+                .body(toBody(dictionary));
+    }
+
+    /**
+     * 获取指定版本的字典
+     */
+    @GetMapping("/.well-known/claims-dictionary/{version}")
+    public ResponseEntity<Map<String, Object>> version(@PathVariable String version,
+            @RequestHeader(value = RemoteClaimsDictionarySource.API_KEY_HEADER, required = false) String key) {
+        if (!authorized(key)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        ClaimsDictionary dictionary = dictionarySource.get(version);
+        if (dictionary == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS)))
+                .body(toBody(dictionary));
+    }
+
+    /**
+     * 常量时间比较访问密钥
+     */
+    private boolean authorized(String key) {
+        return apiKey == null
+                || (key != null && MessageDigest.isEqual(apiKey, key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 需要密钥时不允许共享缓存
+     */
+    private CacheControl cacheControl(CacheControl cacheControl) {
+        return apiKey == null ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+    }
+
+    private static Map<String, Object> toBody(ClaimsDictionary dictionary) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", dictionary.getVersion());
+        body.put("roles", dictionary.getRoles());
+        body.put("permissions", dictionary.getPermissions());
+        return body;
+    }
+}
@@ -0,0 +1,61 @@
+package cn.zhangziming.auth.server.controller;
+
+import cn.zhangziming.auth.security.jwt.JwtKeyRing;
+import cn.zhangziming.auth.security.jwt.JwtUtil;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWKS控制器
+ *
+ * <p>按RFC 7517发布验签公钥，资源服务只需拉取公钥即可本地验签，不再持有签名密钥
+ * <p>HS256模式下共享密钥不能公开，返回空的keys数组
+ * <p>密钥环启动后不可变，JSON只在构造时生成一次
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@RestController
+public class JwksController {
+
+    /**
+     * 预生成的JWK Set JSON
+     */
+    private final String jwkSetJson;
+
+    public JwksController(JwtUtil jwtUtil) {
+        JwtKeyRing keyRing = jwtUtil.getJwtCodec().getKeyRing();
+        StringJoiner keys = new StringJoiner(",", "{\"keys\":[", "]}");
+        keyRing.getPublicKeys().forEach((kid, publicKey) -> {
+            PublicJwk<?> jwk = Jwks.builder()
+                    .key(publicKey)
+                    .id(kid)
+                    .algorithm(keyRing.getAlgorithm())
+                    .publicKeyUse("sig")
+                    .build();
+            keys.add(Jwks.json(jwk));
+        });
+        this.jwkSetJson = keys.toString();
+        log.info("JWKS已发布: {}个公钥", keyRing.getPublicKeys().size());
+    }
+
+    /**
+     * 获取验签公钥集合
+     */
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(jwkSetJson);
+    }
+}
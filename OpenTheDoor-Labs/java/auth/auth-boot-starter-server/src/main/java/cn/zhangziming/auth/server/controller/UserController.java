@@ -4,13 +4,20 @@ import cn.zhangziming.auth.common.model.PageRequest;
 import cn.zhangziming.auth.common.model.PageResult;
 import cn.zhangziming.auth.common.model.Result;
 import cn.zhangziming.auth.server.dto.UserDTO;
+import cn.zhangziming.auth.server.service.IAuthService;
+import cn.zhangziming.auth.server.service.IUserImportService;
 import cn.zhangziming.auth.server.service.IUserService;
+import cn.zhangziming.auth.server.vo.SessionVO;
+import cn.zhangziming.auth.server.vo.UserImportVO;
 import cn.zhangziming.auth.server.vo.UserVO;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
 
 /**
  * 用户管理控制器
@@ -25,6 +32,8 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final IUserService userService;
+    private final IAuthService authService;
+    private final IUserImportService userImportService;
 
     /**
      * 分页查询用户列表
@@ -35,6 +44,25 @@ public class UserController {
         return Result.success(result);
     }
 
+    /**
+     * 批量导入用户（CSV或JSON），返回任务ID，后台执行
+     */
+    @PostMapping("/import")
+    public Result<String> importUsers(@RequestParam("file") MultipartFile file,
+                                      @RequestParam(defaultValue = "DEFAULT") String tenantId) {
+        String jobId = userImportService.startImport(file, tenantId);
+        return Result.success(jobId);
+    }
+
+    /**
+     * 查询导入进度和失败行明细
+     */
+    @GetMapping("/import/{jobId}")
+    public Result<UserImportVO> getImport(@PathVariable String jobId) {
+        UserImportVO job = userImportService.getImport(jobId);
+        return Result.success(job);
+    }
+
     /**
      * 查询用户详情
      */
@@ -103,5 +131,29 @@ public class UserController {
         userService.updateStatus(id, status);
         return Result.success();
     }
-}
 
+    /**
+     * 查询用户的登录会话
+     */
+    @GetMapping("/{id}/sessions")
+    public Result<List<SessionVO>> listSessions(@PathVariable Long id) {
+        return Result.success(authService.listSessions(id));
+    }
+
+    /**
+     * 强制下线用户的指定会话
+     */
+    @DeleteMapping("/{id}/sessions/{sessionId}")
+    public Result<Void> kickSession(@PathVariable Long id, @PathVariable String sessionId) {
+        authService.removeSession(id, sessionId);
+        return Result.success();
+    }
+
+    /**
+     * 强制下线用户的全部会话
+     */
+    @DeleteMapping("/{id}/sessions")
+    public Result<Integer> kickUser(@PathVariable Long id) {
+        return Result.success(authService.logoutAll(id));
+    }
+}
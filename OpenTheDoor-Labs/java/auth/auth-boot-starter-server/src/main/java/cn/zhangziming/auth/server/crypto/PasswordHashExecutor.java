@@ -0,0 +1,136 @@
+package cn.zhangziming.auth.server.crypto;
+
+import cn.zhangziming.auth.common.exception.TooManyRequestsException;
+import cn.zhangziming.auth.security.context.ContextSnapshot;
+import cn.zhangziming.auth.security.util.SecurityUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登录密码校验线程池（舱壁）
+ *
+ * <p>BCrypt每次校验占用一个核几十毫秒，撞库流量下如果在请求线程上计算，会占满所有CPU，
+ * 拖慢同一节点上的Token校验和管理接口。登录的密码校验统一提交到这里：
+ * <ul>
+ *     <li>线程数固定（默认CPU核数的一半），登录最多占用这么多核</li>
+ *     <li>等待队列有界，队列已满时立即抛出{@link TooManyRequestsException}（HTTP 429），不排队等待</li>
+ *     <li>排队超过最长等待时间的任务不再计算（客户端多半已经超时），同样返回429</li>
+ * </ul>
+ * <p>调用方拿到的是CompletableFuture，配合Spring MVC异步请求，计算期间不占用Servlet线程；
+ * 哈希线程上只做哈希计算，调用方应把后续的查库、Token生成等切回其他线程池（thenApplyAsync），
+ * 避免占用有界的哈希线程。用户上下文和链路追踪的MDC通过{@link ContextSnapshot}随任务传递
+ * <p>登录后按新策略重新哈希等后台任务不占用登录线程池：由单独的单线程（低优先级）执行，
+ * 只在登录没有排队时提交，后台队列已满时直接放弃，下次登录再处理
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+public class PasswordHashExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 后台哈希任务线程池，单线程，最多占用一个核
+     */
+    private final ThreadPoolExecutor backgroundExecutor;
+
+    /**
+     * 任务最长排队时间（毫秒）
+     */
+    private final long maxWaitMillis;
+
+    public PasswordHashExecutor(@Value("${auth-boot.server.password-hash.threads:0}") int threads,
+                                @Value("${auth-boot.server.password-hash.queue-capacity:64}") int queueCapacity,
+                                @Value("${auth-boot.server.password-hash.max-wait:2000}") long maxWaitMillis,
+                                @Value("${auth-boot.server.password-hash.background-queue-capacity:16}")
+                                int backgroundQueueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.maxWaitMillis = maxWaitMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "auth-password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.backgroundExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(backgroundQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "auth-password-rehash");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("登录密码校验线程池: threads={}, queueCapacity={}, maxWait={}ms", poolSize, queueCapacity, maxWaitMillis);
+    }
+
+    /**
+     * 异步校验密码
+     *
+     * @param rawPassword     原始密码
+     * @param encodedPassword 加密后的密码
+     * @return 校验结果，true-匹配 false-不匹配
+     * @throws TooManyRequestsException 等待队列已满
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        long submitTime = System.nanoTime();
+        try {
+            executor.execute(ContextSnapshot.capture().wrap(() -> {
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitTime) > maxWaitMillis) {
+                    future.completeExceptionally(new TooManyRequestsException("登录请求过多，请稍后再试"));
+                    return;
+                }
+                try {
+                    future.complete(SecurityUtil.matchPassword(rawPassword, encodedPassword));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.warn("登录密码校验队列已满: queued={}", executor.getQueue().size());
+            throw new TooManyRequestsException("登录请求过多，请稍后再试");
+        }
+        return future;
+    }
+
+    /**
+     * 提交后台哈希任务，登录有排队或后台队列已满时放弃
+     *
+     * @param task 任务
+     * @return true-已提交 false-未执行
+     */
+    public boolean trySubmit(Runnable task) {
+        if (!executor.getQueue().isEmpty()) {
+            return false;
+        }
+        try {
+            backgroundExecutor.execute(ContextSnapshot.capture().wrap(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("后台哈希任务执行失败", e);
+                }
+            }));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        backgroundExecutor.shutdownNow();
+    }
+}
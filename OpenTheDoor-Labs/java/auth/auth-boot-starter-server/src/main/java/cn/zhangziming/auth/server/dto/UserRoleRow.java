@@ -0,0 +1,70 @@
+package cn.zhangziming.auth.server.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 用户角色联表查询结果
+ *
+ * <p>sys_user_role关联sys_role的一行，一次查询得到一批用户各自的角色
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+public class UserRoleRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 角色ID
+     */
+    private Long roleId;
+
+    /**
+     * 角色编码
+     */
+    private String roleCode;
+
+    /**
+     * 角色名称
+     */
+    private String roleName;
+
+    /**
+     * 角色级别
+     */
+    private Integer roleLevel;
+
+    /**
+     * 上级角色ID
+     */
+    private Long parentId;
+
+    /**
+     * 状态
+     */
+    private Integer status;
+
+    /**
+     * 租户ID
+     */
+    private String tenantId;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
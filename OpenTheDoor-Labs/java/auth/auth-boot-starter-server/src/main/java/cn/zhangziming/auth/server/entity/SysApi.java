@@ -50,6 +50,12 @@ public class SysApi extends BaseEntity {
      */
     private Integer requireAuth;
 
+    /**
+     * 访问所需权限编码
+     * 为空时只要求认证
+     */
+    private String permissionCode;
+
     /**
      * 状态
      * 0-禁用 1-正常
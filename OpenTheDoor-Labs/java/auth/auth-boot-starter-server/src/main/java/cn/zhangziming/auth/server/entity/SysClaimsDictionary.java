@@ -0,0 +1,50 @@
+package cn.zhangziming.auth.server.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 声明字典实体
+ *
+ * <p>每个字典版本一行，只插入不修改，已签发Token中的字典版本在任何节点上都能解析
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+@TableName("sys_claims_dictionary")
+public class SysClaimsDictionary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID，越大越新
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 字典版本
+     */
+    private String version;
+
+    /**
+     * 角色编码，按编号顺序以换行分隔
+     */
+    private String roles;
+
+    /**
+     * 权限编码，按编号顺序以换行分隔
+     */
+    private String permissions;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
@@ -34,6 +34,12 @@ public class SysRole extends BaseEntity {
      */
     private Integer roleLevel;
 
+    /**
+     * 上级角色ID
+     * 0表示没有上级；上级角色继承本角色的全部权限，级别必须小于本角色
+     */
+    private Long parentId;
+
     /**
      * 数据范围
      * 1-全部 2-本部门及下级 3-本部门 4-仅本人 5-自定义
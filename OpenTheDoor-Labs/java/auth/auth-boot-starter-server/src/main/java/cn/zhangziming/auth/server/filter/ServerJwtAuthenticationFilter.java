@@ -4,29 +4,32 @@ import cn.zhangziming.auth.common.constant.CommonConstant;
 import cn.zhangziming.auth.security.context.UserContext;
 import cn.zhangziming.auth.security.context.UserInfo;
 import cn.zhangziming.auth.security.jwt.JwtUtil;
-import io.jsonwebtoken.Claims;
+import cn.zhangziming.auth.security.jwt.TokenRenewer;
+import cn.zhangziming.auth.security.route.RouteProperties;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import cn.zhangziming.auth.security.jwt.TokenValidationResult;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Server端JWT认证过滤器
  * 
  * <p>从请求头中提取JWT Token，解析并设置Spring Security上下文
+ * <p>启用静默续期时，即将过期的Token在响应头中返回新Token
  *
  * @author zhangziming
  * @since 2024-10-29
@@ -38,22 +41,26 @@ public class ServerJwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
 
     /**
-     * 不需要认证的路径
+     * 静默续期，为null时不启用
      */
-    private static final Set<String> EXCLUDE_PATHS = new HashSet<>(Arrays.asList(
-            "/api/auth/login",
-            "/api/auth/register",
-            "/api/auth/refresh"
-    ));
+    private final TokenRenewer tokenRenewer;
+
+    /**
+     * 路由表，公开路由跳过认证
+     */
+    private final RouteRegistry routeRegistry;
+
+    public ServerJwtAuthenticationFilter(JwtUtil jwtUtil) {
+        this(jwtUtil, null, new RouteRegistry(new RouteProperties()));
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                      HttpServletResponse response,
                                      FilterChain filterChain) throws ServletException, IOException {
-        String requestUri = request.getRequestURI();
-        
-        // 跳过不需要认证的路径
-        if (shouldSkipFilter(requestUri)) {
+        // 跳过公开路由
+        if (routeRegistry.isPublic(request.getMethod(),
+                RouteRegistry.pathWithinApplication(request.getRequestURI(), request.getContextPath()))) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -63,18 +70,17 @@ public class ServerJwtAuthenticationFilter extends OncePerRequestFilter {
             String token = extractToken(request);
 
             if (token != null && !token.isEmpty()) {
-                // 2. 验证Token
-                if (jwtUtil.validateToken(token)) {
-                    // 3. 解析Token获取用户信息
-                    Claims claims = jwtUtil.parseToken(token);
-                    
-                    // 4. 构建用户上下文
-                    UserInfo userInfo = buildUserInfo(claims);
+                // 2. 验签并解析Token（每个请求只验签一次）
+                TokenValidationResult result = jwtUtil.validate(token);
+                if (result.isValid()) {
+                    VerifiedToken verifiedToken = result.getVerifiedToken();
+                    // 3. 构建用户上下文
+                    UserInfo userInfo = verifiedToken.toUserInfo();
                     
-                    // 5. 设置到ThreadLocal
+                    // 4. 设置到ThreadLocal
                     UserContext.setCurrentUser(userInfo);
                     
-                    // 6. 设置Spring Security上下文（关键！）
+                    // 5. 设置Spring Security上下文（关键！）
                     List<SimpleGrantedAuthority> authorities = userInfo.getPermissions() != null ?
                             userInfo.getPermissions().stream()
                                     .map(SimpleGrantedAuthority::new)
@@ -89,22 +95,25 @@ public class ServerJwtAuthenticationFilter extends OncePerRequestFilter {
                             );
                     
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    renewIfNeeded(verifiedToken, response);
                     
                     log.debug("JWT认证成功并设置Security上下文: userId={}, username={}", 
                             userInfo.getUserId(), userInfo.getUsername());
                 } else {
-                    log.warn("Token验证失败: {}", token);
+                    // 失败次数和限流日志由JwtUtil统一记录
+                    log.debug("Token验证失败: reason={}", result.getStatus());
+                    challengeIfStale(result, response);
                 }
             }
 
-            // 7. 继续过滤链
+            // 6. 继续过滤链
             filterChain.doFilter(request, response);
 
         } catch (Exception e) {
             log.error("JWT认证失败", e);
             filterChain.doFilter(request, response);
         } finally {
-            // 8. 清除上下文
+            // 7. 清除上下文
             UserContext.clear();
             SecurityContextHolder.clearContext();
         }
@@ -124,36 +133,26 @@ public class ServerJwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * 构建用户信息
+     * Token即将过期时在响应头中返回新Token
      */
-    private UserInfo buildUserInfo(Claims claims) {
-        UserInfo userInfo = new UserInfo();
-        userInfo.setUserId(claims.get("userId", Long.class));
-        userInfo.setUsername(claims.getSubject());
-        userInfo.setTenantId(claims.get("tenantId", String.class));
-        
-        // 解析角色
-        @SuppressWarnings("unchecked")
-        List<String> roles = claims.get("roles", List.class);
-        if (roles != null) {
-            userInfo.setRoles(new HashSet<>(roles));
+    private void renewIfNeeded(VerifiedToken verifiedToken, HttpServletResponse response) {
+        if (tokenRenewer == null) {
+            return;
         }
-        
-        // 解析权限
-        @SuppressWarnings("unchecked")
-        List<String> permissions = claims.get("permissions", List.class);
-        if (permissions != null) {
-            userInfo.setPermissions(new HashSet<>(permissions));
+        String renewed = tokenRenewer.renewIfNeeded(verifiedToken);
+        if (renewed != null) {
+            response.setHeader(tokenRenewer.getHeader(), renewed);
+            response.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, tokenRenewer.getHeader());
         }
-        
-        return userInfo;
     }
 
     /**
-     * 是否跳过过滤
+     * 字典版本无法解析时提示客户端刷新Token，请求继续按未认证处理
      */
-    private boolean shouldSkipFilter(String requestUri) {
-        return EXCLUDE_PATHS.stream().anyMatch(requestUri::startsWith);
+    private static void challengeIfStale(TokenValidationResult result, HttpServletResponse response) {
+        if (result.getStatus() == TokenValidationResult.Status.STALE_CLAIMS) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, TokenValidationResult.STALE_CLAIMS_CHALLENGE);
+            response.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.WWW_AUTHENTICATE);
+        }
     }
 }
-
@@ -0,0 +1,184 @@
+package cn.zhangziming.auth.server.importer;
+
+import cn.zhangziming.auth.server.dto.UserDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV用户导入读取器
+ *
+ * <p>第一行为表头，列名与{@link UserDTO}字段对应（username、password、nickname、email、phone、avatar、gender、status、userType），
+ * 不区分大小写，未知列忽略；username、password列必须存在
+ * <p>按RFC 4180解析：字段可用双引号包裹，引号内可包含逗号和换行，两个双引号表示一个双引号；忽略UTF-8 BOM和空行
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class CsvUserImportReader implements UserImportReader {
+
+    /**
+     * 单个字段的最大长度，防止缺少闭合引号时把整个文件读进一个字段
+     */
+    private static final int MAX_FIELD_LENGTH = 4096;
+
+    /**
+     * 单条记录的最大列数，与字段长度一起限制一条记录占用的内存
+     */
+    private static final int MAX_COLUMNS = 64;
+
+    private final BufferedReader reader;
+
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    /**
+     * 当前读取位置所在的行号
+     */
+    private long line = 1;
+
+    public CsvUserImportReader(InputStream input) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("CSV文件为空");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new IOException("CSV表头缺少username或password列");
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (true) {
+            long rowNumber = line;
+            List<String> record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            try {
+                return Row.of(rowNumber, toUser(record));
+            } catch (NumberFormatException e) {
+                return Row.error(rowNumber, "数字格式错误: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private UserDTO toUser(List<String> record) {
+        UserDTO user = new UserDTO();
+        user.setUsername(text(record, "username"));
+        user.setPassword(text(record, "password"));
+        user.setNickname(text(record, "nickname"));
+        user.setEmail(text(record, "email"));
+        user.setPhone(text(record, "phone"));
+        user.setAvatar(text(record, "avatar"));
+        user.setGender(number(record, "gender"));
+        user.setStatus(number(record, "status"));
+        user.setUserType(number(record, "usertype"));
+        return user;
+    }
+
+    /**
+     * 取列值，列不存在或为空串时返回null
+     */
+    private String text(List<String> record, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private Integer number(List<String> record, String column) {
+        String value = text(record, column);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    /**
+     * 读取一条记录，文件结束时返回null
+     */
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("第" + line + "行引号未闭合");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append(field, c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                if (fields.size() + 1 >= MAX_COLUMNS) {
+                    throw new IOException("第" + line + "行列数超过" + MAX_COLUMNS);
+                }
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c < 0) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (c >= 0) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                append(field, c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private void append(StringBuilder field, int c) throws IOException {
+        if (field.length() >= MAX_FIELD_LENGTH) {
+            throw new IOException("第" + line + "行字段过长");
+        }
+        field.append((char) c);
+    }
+}
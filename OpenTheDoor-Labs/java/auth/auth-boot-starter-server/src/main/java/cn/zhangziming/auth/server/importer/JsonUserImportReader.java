@@ -0,0 +1,62 @@
+package cn.zhangziming.auth.server.importer;
+
+import cn.zhangziming.auth.server.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JSON用户导入读取器
+ *
+ * <p>文件为用户对象数组，字段与{@link UserDTO}相同；用流式解析器逐个读取数组元素，不把整个数组读进内存
+ * <p>单个元素字段类型错误只记为该行失败，继续读取后续元素
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public class JsonUserImportReader implements UserImportReader {
+
+    private final ObjectMapper objectMapper;
+
+    private final JsonParser parser;
+
+    private long index;
+
+    public JsonUserImportReader(ObjectMapper objectMapper, InputStream input) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(input);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IOException("JSON文件应为用户对象数组");
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        long rowNumber = ++index;
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return Row.error(rowNumber, "数组元素不是对象");
+        }
+        JsonNode node = objectMapper.readTree(parser);
+        try {
+            return Row.of(rowNumber, objectMapper.treeToValue(node, UserDTO.class));
+        } catch (JsonProcessingException e) {
+            return Row.error(rowNumber, "字段格式错误: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
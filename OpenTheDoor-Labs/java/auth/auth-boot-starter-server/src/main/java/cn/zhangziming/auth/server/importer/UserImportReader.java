@@ -0,0 +1,58 @@
+package cn.zhangziming.auth.server.importer;
+
+import cn.zhangziming.auth.server.dto.UserDTO;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 用户导入文件读取器
+ *
+ * <p>逐行读取，任意时刻只持有当前一行，内存占用与文件大小无关
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface UserImportReader extends Closeable {
+
+    /**
+     * 读取下一行
+     *
+     * @return 下一行，读完时返回null
+     * @throws IOException 读取失败或文件整体格式错误
+     */
+    Row next() throws IOException;
+
+    /**
+     * 导入文件中的一行
+     */
+    @Getter
+    @RequiredArgsConstructor
+    class Row {
+
+        /**
+         * 行号（CSV为数据所在的起始行，表头为第1行；JSON为数组下标加1）
+         */
+        private final long rowNumber;
+
+        /**
+         * 解析出的用户，解析失败时为null
+         */
+        private final UserDTO user;
+
+        /**
+         * 解析失败原因
+         */
+        private final String error;
+
+        public static Row of(long rowNumber, UserDTO user) {
+            return new Row(rowNumber, user, null);
+        }
+
+        public static Row error(long rowNumber, String error) {
+            return new Row(rowNumber, null, error);
+        }
+    }
+}
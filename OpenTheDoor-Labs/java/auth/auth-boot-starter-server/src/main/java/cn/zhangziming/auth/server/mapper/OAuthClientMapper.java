@@ -1,7 +1,7 @@
 package cn.zhangziming.auth.server.mapper;
 
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
 import cn.zhangziming.auth.server.entity.OAuthClient;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 /**
  * OAuth客户端Mapper
@@ -9,6 +9,6 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  * @author zhangziming
  * @since 2024-10-29
  */
-public interface OAuthClientMapper extends BaseMapper<OAuthClient> {
+public interface OAuthClientMapper extends BatchBaseMapper<OAuthClient> {
 }
 
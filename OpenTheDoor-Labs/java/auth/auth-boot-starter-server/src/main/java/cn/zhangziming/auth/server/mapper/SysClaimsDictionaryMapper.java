@@ -0,0 +1,13 @@
+package cn.zhangziming.auth.server.mapper;
+
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
+import cn.zhangziming.auth.server.entity.SysClaimsDictionary;
+
+/**
+ * 声明字典Mapper
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface SysClaimsDictionaryMapper extends BatchBaseMapper<SysClaimsDictionary> {
+}
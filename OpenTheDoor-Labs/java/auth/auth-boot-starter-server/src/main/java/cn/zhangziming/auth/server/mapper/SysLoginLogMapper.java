@@ -1,7 +1,7 @@
 package cn.zhangziming.auth.server.mapper;
 
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
 import cn.zhangziming.auth.server.entity.SysLoginLog;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 /**
  * 登录日志Mapper
@@ -9,6 +9,6 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  * @author zhangziming
  * @since 2024-10-29
  */
-public interface SysLoginLogMapper extends BaseMapper<SysLoginLog> {
+public interface SysLoginLogMapper extends BatchBaseMapper<SysLoginLog> {
 }
 
@@ -1,7 +1,7 @@
 package cn.zhangziming.auth.server.mapper;
 
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
 import cn.zhangziming.auth.server.entity.SysMenu;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 /**
  * 系统菜单Mapper
@@ -9,6 +9,6 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  * @author zhangziming
  * @since 2024-10-29
  */
-public interface SysMenuMapper extends BaseMapper<SysMenu> {
+public interface SysMenuMapper extends BatchBaseMapper<SysMenu> {
 }
 
@@ -1,17 +1,61 @@
 package cn.zhangziming.auth.server.mapper;
 
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
 import cn.zhangziming.auth.server.entity.SysUser;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
- * 系统用户Mapper
+ * 用户Mapper
  *
  * @author zhangziming
  * @since 2024-10-29
  */
-public interface SysUserMapper extends BaseMapper<SysUser> {
-    
-    // MyBatis Plus已提供基础CRUD方法
-    // 可以在这里添加自定义SQL查询方法
-}
+public interface SysUserMapper extends BatchBaseMapper<SysUser> {
+
+    /**
+     * 查询租户内已存在的用户名
+     * 唯一索引不含删除标志，已逻辑删除的用户也占用用户名，因此不经过逻辑删除插件
+     *
+     * @param tenantId  租户ID
+     * @param usernames 待检查的用户名，不能为空
+     * @return 已存在的用户名
+     */
+    @Select("<script>"
+            + "SELECT username FROM sys_user WHERE tenant_id = #{tenantId} AND username IN"
+            + " <foreach collection='usernames' item='value' open='(' separator=',' close=')'>#{value}</foreach>"
+            + "</script>")
+    List<String> selectExistingUsernames(@Param("tenantId") String tenantId,
+                                         @Param("usernames") Collection<String> usernames);
 
+    /**
+     * 查询租户内已存在的邮箱（含已逻辑删除的用户）
+     *
+     * @param tenantId 租户ID
+     * @param emails   待检查的邮箱，不能为空
+     * @return 已存在的邮箱
+     */
+    @Select("<script>"
+            + "SELECT email FROM sys_user WHERE tenant_id = #{tenantId} AND email IN"
+            + " <foreach collection='emails' item='value' open='(' separator=',' close=')'>#{value}</foreach>"
+            + "</script>")
+    List<String> selectExistingEmails(@Param("tenantId") String tenantId,
+                                      @Param("emails") Collection<String> emails);
+
+    /**
+     * 查询租户内已存在的手机号（含已逻辑删除的用户）
+     *
+     * @param tenantId 租户ID
+     * @param phones   待检查的手机号，不能为空
+     * @return 已存在的手机号
+     */
+    @Select("<script>"
+            + "SELECT phone FROM sys_user WHERE tenant_id = #{tenantId} AND phone IN"
+            + " <foreach collection='phones' item='value' open='(' separator=',' close=')'>#{value}</foreach>"
+            + "</script>")
+    List<String> selectExistingPhones(@Param("tenantId") String tenantId,
+                                      @Param("phones") Collection<String> phones);
+}
@@ -1,7 +1,13 @@
 package cn.zhangziming.auth.server.mapper;
 
+import cn.zhangziming.auth.mybatis.base.BatchBaseMapper;
+import cn.zhangziming.auth.server.dto.UserRoleRow;
 import cn.zhangziming.auth.server.entity.SysUserRole;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 用户角色关联Mapper
@@ -9,6 +15,22 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  * @author zhangziming
  * @since 2024-10-29
  */
-public interface SysUserRoleMapper extends BaseMapper<SysUserRole> {
-}
+public interface SysUserRoleMapper extends BatchBaseMapper<SysUserRole> {
 
+    /**
+     * 联表查询一批用户的角色
+     * 自定义SQL不经过逻辑删除插件，显式排除已删除的角色
+     *
+     * @param userIds 用户ID，不能为空
+     * @return 每个用户每个角色一行
+     */
+    @Select("<script>"
+            + "SELECT ur.user_id, r.id AS role_id, r.role_code, r.role_name, r.role_level, r.parent_id,"
+            + " r.status, r.tenant_id, r.create_time, r.update_time"
+            + " FROM sys_user_role ur"
+            + " INNER JOIN sys_role r ON r.id = ur.role_id AND r.is_deleted = 0"
+            + " WHERE ur.user_id IN"
+            + " <foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>"
+            + "</script>")
+    List<UserRoleRow> selectRolesByUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,596 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.redis.service.UserAuthorityCache.EvictionKind;
+import cn.zhangziming.auth.security.access.PermissionTrie;
+import cn.zhangziming.auth.server.entity.SysPermission;
+import cn.zhangziming.auth.server.entity.SysRole;
+import cn.zhangziming.auth.server.entity.SysRolePermission;
+import cn.zhangziming.auth.server.entity.SysUserRole;
+import cn.zhangziming.auth.server.mapper.SysPermissionMapper;
+import cn.zhangziming.auth.server.mapper.SysRoleMapper;
+import cn.zhangziming.auth.server.mapper.SysRolePermissionMapper;
+import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * 内存RBAC引擎
+ *
+ * <p>启动时每张表一次批量查询加载角色、权限、角色→权限、用户→角色，之后由角色/用户服务的写操作在事务提交后增量更新；
+ * 回滚的变更不会进入内存
+ * <p>读取只访问{@link RbacSnapshot}，不加锁、不访问数据库，权限判断在微秒级；写入串行执行，复制受影响的表后整体替换快照，
+ * 角色或角色→权限变化时全量重新计算有效权限闭包
+ * <p>auth-boot.server.rbac.user-roles=false时不在内存中保存用户→角色（用户量很大时），
+ * 用户的角色改由两级缓存或数据库提供，角色和权限仍由引擎计算
+ * <p>其他节点的变更通过{@link RbacModelBroadcaster}的模型变更广播和用户权限缓存的失效广播同步，并定期全量重建兜底：
+ * 按广播的类型只重新加载变化的部分，短时间内的多条广播合并为一次加载，在后台线程上执行，不占用订阅线程
+ * <p>角色和角色→权限的变更在本节点更新后总是广播，不论是否有用户持有该角色，也不依赖用户权限缓存是否启用
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+public class RbacEngine implements SmartInitializingSingleton, DisposableBean {
+
+    private final SysRoleMapper roleMapper;
+
+    private final SysPermissionMapper permissionMapper;
+
+    private final SysRolePermissionMapper rolePermissionMapper;
+
+    private final SysUserRoleMapper userRoleMapper;
+
+    private final RbacModelBroadcaster modelBroadcaster;
+
+    /**
+     * 是否在内存中保存用户→角色
+     */
+    private final boolean userRolesEnabled;
+
+    /**
+     * 全量重建间隔（秒）
+     */
+    private final long reloadInterval;
+
+    private final AtomicReference<RbacSnapshot> snapshot = new AtomicReference<>(RbacSnapshot.EMPTY);
+
+    /**
+     * 收到失效广播后延迟加载的时间（毫秒），期间的广播合并为一次加载；
+     * 需远小于缓存二次删除的延迟，加载期间按旧模型回填到Redis的值才能被二次删除清除
+     */
+    private static final long REMOTE_RELOAD_DELAY_MILLIS = 100L;
+
+    /**
+     * 写锁，重建时查询数据库，不用synchronized以免钉住虚拟线程的载体线程
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 待处理的远程变更的锁
+     */
+    private final ReentrantLock remoteLock = new ReentrantLock();
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean loaded;
+
+    /**
+     * 待处理的远程变更：是否需要全量重建、是否需要重新加载角色和权限、需要重新加载用户→角色的用户
+     */
+    private boolean remoteReloadAll;
+
+    private boolean remoteReloadRoles;
+
+    private Set<Long> remoteUserIds = new HashSet<>();
+
+    /**
+     * 已安排但尚未开始的远程加载，加载完成时完成；没有时为null
+     */
+    private CompletableFuture<Void> remoteReload;
+
+    public RbacEngine(SysRoleMapper roleMapper, SysPermissionMapper permissionMapper,
+                      SysRolePermissionMapper rolePermissionMapper, SysUserRoleMapper userRoleMapper,
+                      RbacModelBroadcaster modelBroadcaster,
+                      @Value("${auth-boot.server.rbac.user-roles:true}") boolean userRolesEnabled,
+                      @Value("${auth-boot.server.rbac.reload-interval:300}") long reloadInterval) {
+        this.roleMapper = roleMapper;
+        this.permissionMapper = permissionMapper;
+        this.rolePermissionMapper = rolePermissionMapper;
+        this.userRoleMapper = userRoleMapper;
+        this.modelBroadcaster = modelBroadcaster;
+        this.userRolesEnabled = userRolesEnabled;
+        this.reloadInterval = reloadInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-rbac-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("RBAC模型加载失败，首次读取时重试: {}", e.getMessage());
+        }
+        scheduler.scheduleWithFixedDelay(this::reloadQuietly, reloadInterval, reloadInterval, TimeUnit.SECONDS);
+        // 其他节点的角色或角色→权限变更
+        modelBroadcaster.addRemoteListener(() -> onRemoteEviction(Set.of(), EvictionKind.ROLE_PERMISSIONS));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 是否在内存中保存了用户→角色，为false时{@link #getRoleIds}不可用
+     */
+    public boolean isUserRolesLoaded() {
+        return userRolesEnabled;
+    }
+
+    /**
+     * 用户直接持有的角色ID（不含继承）
+     *
+     * @param userId 用户ID
+     * @return 角色ID
+     */
+    public Set<Long> getRoleIds(Long userId) {
+        RbacSnapshot current = current();
+        if (current.userRoles == null) {
+            throw new IllegalStateException("未在内存中加载用户角色");
+        }
+        return current.getRoleIds(userId);
+    }
+
+    /**
+     * 获取角色
+     *
+     * @param roleId 角色ID
+     * @return 角色（只读），不存在时返回null
+     */
+    public SysRole getRole(Long roleId) {
+        return current().roles.get(roleId);
+    }
+
+    /**
+     * 获取权限
+     *
+     * @param permissionId 权限ID
+     * @return 权限（只读，含禁用的），不存在时返回null
+     */
+    public SysPermission getPermission(Long permissionId) {
+        return current().permissions.get(permissionId);
+    }
+
+    /**
+     * 获取多个角色的有效权限ID
+     *
+     * @param roleIds 角色ID
+     * @return 有效权限ID（含继承的权限）
+     */
+    public Set<Long> getEffectivePermissionIds(Collection<Long> roleIds) {
+        return current().getEffectivePermissionIds(roleIds);
+    }
+
+    /**
+     * 获取角色自身及其所有上级角色ID，即有效权限包含该角色权限的全部角色
+     *
+     * @param roleId 角色ID
+     * @return 角色ID（含自身）
+     */
+    public Set<Long> getInheritingRoleIds(Long roleId) {
+        return current().getInheritingRoleIds(roleId);
+    }
+
+    /**
+     * 一组角色的启用权限编码（含继承）
+     *
+     * @param roleIds 角色ID
+     * @return 权限编码（不可变）
+     */
+    public Set<String> getPermissionCodes(Collection<Long> roleIds) {
+        return current().getAuthority(Set.copyOf(roleIds)).permissionCodes;
+    }
+
+    /**
+     * 一组角色的启用权限前缀树（含继承），支持通配符授权
+     *
+     * @param roleIds 角色ID
+     * @return 权限前缀树
+     */
+    public PermissionTrie getPermissionTrie(Collection<Long> roleIds) {
+        return current().getAuthority(Set.copyOf(roleIds)).trie;
+    }
+
+    // ==================== 增量更新（事务提交后生效） ====================
+
+    /**
+     * 角色已创建或更新
+     *
+     * @param role 角色的完整数据
+     */
+    public void onRoleSaved(SysRole role) {
+        SysRole copy = copyOf(role);
+        afterCommit(() -> {
+            updateRoles(roles -> {
+                roles.put(copy.getId(), copy);
+                return roles;
+            }, null);
+            modelBroadcaster.publish();
+        });
+    }
+
+    /**
+     * 角色已删除，其下级角色挂到它的上级下
+     *
+     * @param roleId 角色ID
+     */
+    public void onRoleDeleted(Long roleId) {
+        afterCommit(() -> {
+            updateRoles(roles -> {
+                SysRole removed = roles.remove(roleId);
+                Long parentId = removed != null && removed.getParentId() != null ? removed.getParentId() : 0L;
+                roles.replaceAll((id, role) -> {
+                    if (!roleId.equals(role.getParentId())) {
+                        return role;
+                    }
+                    SysRole child = copyOf(role);
+                    child.setParentId(parentId);
+                    return child;
+                });
+                return roles;
+            }, rolePermissions -> {
+                rolePermissions.remove(roleId);
+                return rolePermissions;
+            });
+            modelBroadcaster.publish();
+        });
+    }
+
+    /**
+     * 角色的直接权限已变更
+     *
+     * @param roleId        角色ID
+     * @param permissionIds 新的直接权限ID
+     */
+    public void onRolePermissionsChanged(Long roleId, Collection<Long> permissionIds) {
+        Set<Long> permissions = permissionIds != null ? Set.copyOf(permissionIds) : Set.of();
+        afterCommit(() -> {
+            updateRoles(null, rolePermissions -> {
+                rolePermissions.put(roleId, permissions);
+                return rolePermissions;
+            });
+            modelBroadcaster.publish();
+        });
+    }
+
+    /**
+     * 用户的角色分配已变更
+     *
+     * @param userId  用户ID
+     * @param roleIds 新的角色ID
+     */
+    public void onUserRolesChanged(Long userId, Collection<Long> roleIds) {
+        if (!userRolesEnabled) {
+            return;
+        }
+        Set<Long> assigned = roleIds != null ? Set.copyOf(roleIds) : Set.of();
+        afterCommit(() -> updateUserRoles(Map.of(userId, assigned)));
+    }
+
+    /**
+     * 用户已删除
+     *
+     * @param userId 用户ID
+     */
+    public void onUserDeleted(Long userId) {
+        if (!userRolesEnabled) {
+            return;
+        }
+        afterCommit(() -> updateUserRoles(Map.of(userId, Set.of())));
+    }
+
+    /**
+     * 其他节点的用户权限缓存失效广播或模型变更广播
+     * 只记录待加载的部分，由后台线程延迟合并加载：用户的角色分配变更只重新加载这些用户的用户→角色，
+     * 角色的权限或继承关系变更重新加载角色、权限和角色→权限，整体失效时全量重建
+     *
+     * @param userIds 失效的用户ID，整体失效时为null
+     * @param kind    失效类型
+     * @return 包含本次变更的加载完成（成功或失败）时完成
+     */
+    public CompletableFuture<Void> onRemoteEviction(Collection<Long> userIds, EvictionKind kind) {
+        if (kind == EvictionKind.USER_ROLES && !userRolesEnabled) {
+            // 用户的角色不在内存中，模型无需更新
+            return CompletableFuture.completedFuture(null);
+        }
+        remoteLock.lock();
+        try {
+            switch (kind) {
+                case ALL -> remoteReloadAll = true;
+                case ROLE_PERMISSIONS -> remoteReloadRoles = true;
+                case USER_ROLES -> remoteUserIds.addAll(userIds);
+            }
+            if (remoteReload == null) {
+                remoteReload = new CompletableFuture<>();
+                try {
+                    scheduler.schedule(this::applyRemoteChanges, REMOTE_RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 正在关闭
+                    remoteReload.complete(null);
+                }
+            }
+            return remoteReload;
+        } finally {
+            remoteLock.unlock();
+        }
+    }
+
+    /**
+     * 取出待处理的远程变更并加载；加载开始后到达的广播安排下一次加载，不会被本次读到的旧数据覆盖
+     */
+    private void applyRemoteChanges() {
+        boolean all;
+        boolean roles;
+        Set<Long> userIds;
+        CompletableFuture<Void> done;
+        remoteLock.lock();
+        try {
+            all = remoteReloadAll;
+            roles = remoteReloadRoles;
+            userIds = remoteUserIds;
+            done = remoteReload;
+            remoteReloadAll = false;
+            remoteReloadRoles = false;
+            remoteUserIds = new HashSet<>();
+            remoteReload = null;
+        } finally {
+            remoteLock.unlock();
+        }
+        try {
+            if (all) {
+                reload();
+            } else {
+                if (roles) {
+                    reloadRoles();
+                }
+                reloadUserRoles(userIds);
+            }
+        } catch (Exception e) {
+            log.warn("RBAC模型同步远程变更失败，等待定期重建: {}", e.getMessage());
+        } finally {
+            done.complete(null);
+        }
+    }
+
+    // ==================== 加载 ====================
+
+    /**
+     * 从数据库全量重建
+     * 查询在写锁内进行，避免较早读到的数据覆盖随后提交的增量变更
+     */
+    public void reload() {
+        writeLock.lock();
+        try {
+            Map<Long, SysRole> roles = loadRoles();
+            Map<Long, SysPermission> permissions = loadPermissions();
+            Map<Long, Set<Long>> rolePermissions = loadRolePermissions();
+            Map<Long, Set<Long>>[] userRoles = null;
+            int edges = 0;
+            if (userRolesEnabled) {
+                userRoles = newShards();
+                for (SysUserRole userRole : userRoleMapper.selectList(new LambdaQueryWrapper<SysUserRole>()
+                        .select(SysUserRole::getUserId, SysUserRole::getRoleId))) {
+                    userRoles[RbacSnapshot.shard(userRole.getUserId())]
+                            .computeIfAbsent(userRole.getUserId(), key -> new HashSet<>())
+                            .add(userRole.getRoleId());
+                    edges++;
+                }
+                for (Map<Long, Set<Long>> shard : userRoles) {
+                    shard.replaceAll((userId, roleIds) -> Set.copyOf(roleIds));
+                }
+            }
+            snapshot.set(RbacSnapshot.build(roles, permissions, rolePermissions, userRoles));
+            loaded = true;
+            log.debug("RBAC模型已重建: roles={}, permissions={}, userRoles={}", roles.size(), permissions.size(), edges);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 重新加载角色、权限和角色→权限
+     */
+    public void reloadRoles() {
+        writeLock.lock();
+        try {
+            snapshot.set(current().withRoles(loadRoles(), loadPermissions(), loadRolePermissions()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 重新加载指定用户的用户→角色
+     *
+     * @param userIds 用户ID
+     */
+    public void reloadUserRoles(Collection<Long> userIds) {
+        if (!userRolesEnabled || userIds.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Map<Long, Set<Long>> assigned = new HashMap<>();
+            userIds.forEach(userId -> assigned.put(userId, new HashSet<>()));
+            for (SysUserRole userRole : userRoleMapper.selectList(new LambdaQueryWrapper<SysUserRole>()
+                    .select(SysUserRole::getUserId, SysUserRole::getRoleId)
+                    .in(SysUserRole::getUserId, userIds))) {
+                assigned.get(userRole.getUserId()).add(userRole.getRoleId());
+            }
+            updateUserRoles(assigned);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("RBAC模型重建失败，继续使用当前快照: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前快照；启动时加载失败的在此重试，加载成功后读取不再加锁
+     */
+    private RbacSnapshot current() {
+        if (!loaded) {
+            writeLock.lock();
+            try {
+                if (!loaded) {
+                    reload();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return snapshot.get();
+    }
+
+    private Map<Long, SysRole> loadRoles() {
+        Map<Long, SysRole> roles = new HashMap<>();
+        for (SysRole role : roleMapper.selectList(null)) {
+            roles.put(role.getId(), role);
+        }
+        return roles;
+    }
+
+    private Map<Long, SysPermission> loadPermissions() {
+        Map<Long, SysPermission> permissions = new HashMap<>();
+        for (SysPermission permission : permissionMapper.selectList(null)) {
+            permissions.put(permission.getId(), permission);
+        }
+        return permissions;
+    }
+
+    private Map<Long, Set<Long>> loadRolePermissions() {
+        Map<Long, Set<Long>> rolePermissions = new HashMap<>();
+        for (SysRolePermission rolePermission : rolePermissionMapper.selectList(
+                new LambdaQueryWrapper<SysRolePermission>()
+                        .select(SysRolePermission::getRoleId, SysRolePermission::getPermissionId))) {
+            rolePermissions.computeIfAbsent(rolePermission.getRoleId(), key -> new HashSet<>())
+                    .add(rolePermission.getPermissionId());
+        }
+        rolePermissions.replaceAll((roleId, permissionIds) -> Set.copyOf(permissionIds));
+        return rolePermissions;
+    }
+
+    // ==================== 写时复制 ====================
+
+    /**
+     * 复制角色表和/或角色→权限表，修改后重新计算闭包并替换快照
+     */
+    private void updateRoles(UnaryOperator<Map<Long, SysRole>> rolesUpdate,
+                             UnaryOperator<Map<Long, Set<Long>>> rolePermissionsUpdate) {
+        writeLock.lock();
+        try {
+            RbacSnapshot current = current();
+            Map<Long, SysRole> roles = rolesUpdate != null
+                    ? rolesUpdate.apply(new HashMap<>(current.roles)) : current.roles;
+            Map<Long, Set<Long>> rolePermissions = rolePermissionsUpdate != null
+                    ? rolePermissionsUpdate.apply(new HashMap<>(current.rolePermissions)) : current.rolePermissions;
+            snapshot.set(current.withRoles(roles, current.permissions, rolePermissions));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 只复制涉及的分片，替换其中的用户→角色
+     */
+    private void updateUserRoles(Map<Long, Set<Long>> assigned) {
+        writeLock.lock();
+        try {
+            RbacSnapshot current = current();
+            if (current.userRoles == null) {
+                return;
+            }
+            Map<Long, Set<Long>>[] userRoles = current.userRoles.clone();
+            Set<Integer> copied = new HashSet<>();
+            assigned.forEach((userId, roleIds) -> {
+                int shard = RbacSnapshot.shard(userId);
+                if (copied.add(shard)) {
+                    userRoles[shard] = new HashMap<>(userRoles[shard]);
+                }
+                if (roleIds.isEmpty()) {
+                    userRoles[shard].remove(userId);
+                } else {
+                    userRoles[shard].put(userId, Set.copyOf(roleIds));
+                }
+            });
+            snapshot.set(current.withUserRoles(userRoles));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, Set<Long>>[] newShards() {
+        Map<Long, Set<Long>>[] shards = new Map[RbacSnapshot.USER_SHARDS];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new HashMap<>();
+        }
+        return shards;
+    }
+
+    private static SysRole copyOf(SysRole role) {
+        SysRole copy = new SysRole();
+        BeanUtils.copyProperties(role, copy);
+        return copy;
+    }
+
+    /**
+     * 有事务时在提交后执行，没有事务时立即执行
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * RBAC模型变更广播
+ *
+ * <p>角色创建、更新、删除和角色的权限分配提交后广播一次，不论是否有用户持有该角色，也不依赖用户权限缓存是否启用；
+ * 其他节点收到后重新加载角色、权限和角色→权限，之后按用户→角色计算权限时使用的是新模型
+ * <p>消息内容为发送节点ID，忽略本节点发出的广播；未启用Redis时不广播，只靠定期全量重建同步
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RbacModelBroadcaster implements MessageListener {
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    /**
+     * 节点ID，用于忽略自己发出的广播
+     */
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final List<Runnable> remoteListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 广播本节点的模型变更，需在事务提交后调用；发送失败只记录日志，由其他节点的定期重建兜底
+     */
+    public void publish() {
+        StringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (template == null) {
+            return;
+        }
+        try {
+            template.convertAndSend(CacheConstant.RBAC_MODEL_CHANNEL, nodeId);
+        } catch (Exception e) {
+            log.warn("RBAC模型变更广播失败，其他节点等待定期重建: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 注册其他节点模型变更的监听，在订阅线程上调用，不应阻塞
+     *
+     * @param listener 监听
+     */
+    public void addRemoteListener(Runnable listener) {
+        remoteListeners.add(listener);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        for (Runnable listener : remoteListeners) {
+            listener.run();
+        }
+    }
+}
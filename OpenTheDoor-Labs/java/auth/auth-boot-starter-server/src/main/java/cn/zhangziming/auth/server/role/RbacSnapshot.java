@@ -0,0 +1,221 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.security.access.PermissionTrie;
+import cn.zhangziming.auth.server.entity.SysPermission;
+import cn.zhangziming.auth.server.entity.SysRole;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RBAC模型快照
+ *
+ * <p>角色、权限、角色→权限、用户→角色在内存中的副本，以及按继承关系算好的有效权限闭包（上级角色继承下级的全部权限）
+ * <p>快照创建后不再修改，读取不加锁；变更由{@link RbacEngine}复制受影响的部分生成新快照，未变的部分在新旧快照间共享
+ * <p>角色、继承关系或角色→权限变化时，新快照按全部角色重新计算闭包（不只是受影响的上级链），耗时与角色数和分配数成线性；
+ * 只有用户→角色变化时沿用原闭包
+ * <p>用户→角色按用户ID分片，单个用户的变更只复制一个分片
+ * <p>同一组角色的权限编码和前缀树在快照内按需计算一次；只有用户→角色变化时新快照沿用这些结果
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+final class RbacSnapshot {
+
+    /**
+     * 用户→角色分片数
+     */
+    static final int USER_SHARDS = 64;
+
+    /**
+     * 单个快照最多缓存的角色组合数，超出后按需计算不再缓存
+     */
+    private static final int MAX_AUTHORITIES = 4096;
+
+    static final RbacSnapshot EMPTY = build(Map.of(), Map.of(), Map.of(), null);
+
+    /**
+     * 角色ID -> 角色，实体视为只读
+     */
+    final Map<Long, SysRole> roles;
+
+    /**
+     * 权限ID -> 权限（含禁用的），实体视为只读
+     */
+    final Map<Long, SysPermission> permissions;
+
+    /**
+     * 角色ID -> 直接分配的权限ID
+     */
+    final Map<Long, Set<Long>> rolePermissions;
+
+    /**
+     * 用户ID分片 -> 用户ID -> 角色ID；未加载用户→角色时为null
+     */
+    final Map<Long, Set<Long>>[] userRoles;
+
+    /**
+     * 角色ID -> 有效权限ID
+     */
+    private final Map<Long, Set<Long>> effectivePermissions;
+
+    /**
+     * 角色组合 -> 权限编码和前缀树
+     */
+    private final Map<Set<Long>, Authority> authorities;
+
+    private RbacSnapshot(Map<Long, SysRole> roles, Map<Long, SysPermission> permissions,
+                         Map<Long, Set<Long>> rolePermissions, Map<Long, Set<Long>>[] userRoles,
+                         Map<Long, Set<Long>> effectivePermissions, Map<Set<Long>, Authority> authorities) {
+        this.roles = roles;
+        this.permissions = permissions;
+        this.rolePermissions = rolePermissions;
+        this.userRoles = userRoles;
+        this.effectivePermissions = effectivePermissions;
+        this.authorities = authorities;
+    }
+
+    /**
+     * 创建快照并计算有效权限闭包
+     */
+    static RbacSnapshot build(Map<Long, SysRole> roles, Map<Long, SysPermission> permissions,
+                              Map<Long, Set<Long>> rolePermissions, Map<Long, Set<Long>>[] userRoles) {
+        return new RbacSnapshot(roles, permissions, rolePermissions, userRoles,
+                computeClosures(roles, rolePermissions), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 替换角色、权限相关的部分，重新计算闭包，沿用用户→角色
+     */
+    RbacSnapshot withRoles(Map<Long, SysRole> roles, Map<Long, SysPermission> permissions,
+                           Map<Long, Set<Long>> rolePermissions) {
+        return build(roles, permissions, rolePermissions, userRoles);
+    }
+
+    /**
+     * 替换用户→角色，沿用闭包和已计算的角色组合
+     */
+    RbacSnapshot withUserRoles(Map<Long, Set<Long>>[] userRoles) {
+        return new RbacSnapshot(roles, permissions, rolePermissions, userRoles, effectivePermissions, authorities);
+    }
+
+    static int shard(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), USER_SHARDS);
+    }
+
+    /**
+     * 用户直接持有的角色ID
+     */
+    Set<Long> getRoleIds(Long userId) {
+        return userRoles[shard(userId)].getOrDefault(userId, Set.of());
+    }
+
+    Set<Long> getEffectivePermissionIds(Collection<Long> roleIds) {
+        if (roleIds.size() == 1) {
+            return effectivePermissions.getOrDefault(roleIds.iterator().next(), Set.of());
+        }
+        Set<Long> permissionIds = new HashSet<>();
+        for (Long roleId : roleIds) {
+            permissionIds.addAll(effectivePermissions.getOrDefault(roleId, Set.of()));
+        }
+        return permissionIds;
+    }
+
+    /**
+     * 角色自身及其所有上级角色ID
+     */
+    Set<Long> getInheritingRoleIds(Long roleId) {
+        Set<Long> roleIds = new HashSet<>();
+        Long current = roleId;
+        while (current != null && current != 0 && roleIds.add(current)) {
+            SysRole role = roles.get(current);
+            current = role != null ? role.getParentId() : null;
+        }
+        return roleIds;
+    }
+
+    /**
+     * 一组角色的启用权限编码和前缀树
+     *
+     * @param roleIds 角色ID，需为不可变集合
+     */
+    Authority getAuthority(Set<Long> roleIds) {
+        Authority authority = authorities.get(roleIds);
+        if (authority != null) {
+            return authority;
+        }
+        Set<String> codes = new HashSet<>();
+        for (Long permissionId : getEffectivePermissionIds(roleIds)) {
+            SysPermission permission = permissions.get(permissionId);
+            if (permission != null && Integer.valueOf(1).equals(permission.getStatus())) {
+                codes.add(permission.getPermissionCode());
+            }
+        }
+        authority = new Authority(Set.copyOf(codes), PermissionTrie.compile(codes));
+        if (authorities.size() < MAX_AUTHORITIES) {
+            authorities.putIfAbsent(roleIds, authority);
+        }
+        return authority;
+    }
+
+    /**
+     * 深度优先计算每个角色的闭包；数据被直接改库成环时跳过成环的边
+     */
+    private static Map<Long, Set<Long>> computeClosures(Map<Long, SysRole> roles,
+                                                        Map<Long, Set<Long>> rolePermissions) {
+        Map<Long, Set<Long>> children = new HashMap<>();
+        for (SysRole role : roles.values()) {
+            Long parentId = role.getParentId();
+            if (parentId != null && parentId != 0) {
+                children.computeIfAbsent(parentId, key -> new HashSet<>()).add(role.getId());
+            }
+        }
+        Map<Long, Set<Long>> computed = new HashMap<>();
+        for (Long roleId : roles.keySet()) {
+            computeClosure(roleId, children, rolePermissions, computed, new HashSet<>());
+        }
+        return computed;
+    }
+
+    private static Set<Long> computeClosure(Long roleId, Map<Long, Set<Long>> children,
+                                            Map<Long, Set<Long>> rolePermissions,
+                                            Map<Long, Set<Long>> computed, Set<Long> path) {
+        Set<Long> done = computed.get(roleId);
+        if (done != null) {
+            return done;
+        }
+        if (!path.add(roleId)) {
+            log.warn("角色继承关系成环，已忽略: roleId={}", roleId);
+            return Set.of();
+        }
+        Set<Long> permissionIds = new HashSet<>(rolePermissions.getOrDefault(roleId, Set.of()));
+        for (Long child : children.getOrDefault(roleId, Set.of())) {
+            permissionIds.addAll(computeClosure(child, children, rolePermissions, computed, path));
+        }
+        path.remove(roleId);
+        Set<Long> closure = Set.copyOf(permissionIds);
+        computed.put(roleId, closure);
+        return closure;
+    }
+
+    /**
+     * 一组角色的启用权限
+     */
+    static final class Authority {
+
+        final Set<String> permissionCodes;
+
+        final PermissionTrie trie;
+
+        Authority(Set<String> permissionCodes, PermissionTrie trie) {
+            this.permissionCodes = permissionCodes;
+            this.trie = trie;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.redis.service.UserAuthorityCache;
+import cn.zhangziming.auth.server.entity.SysUserRole;
+import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 用户角色/权限缓存失效
+ *
+ * <p>在角色分配、权限分配和继承关系变更的事务中调用，按变更范围计算受影响的用户，事务提交后失效缓存；回滚时不失效
+ * <p>角色的权限变更会影响持有该角色及其所有上级角色的用户（上级继承下级的权限）
+ * <p>未启用用户权限缓存时不做任何事；其他节点的RBAC模型由{@link RbacModelBroadcaster}同步，不依赖这里的失效广播
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Component
+@RequiredArgsConstructor
+public class UserAuthorityEvictor {
+
+    private final SysUserRoleMapper userRoleMapper;
+    private final RbacEngine rbacEngine;
+    private final ObjectProvider<UserAuthorityCache> userAuthorityCache;
+
+    @PostConstruct
+    public void init() {
+        // 其他节点变更了角色或权限分配，先更新本节点的RBAC模型，再重新加载权限
+        userAuthorityCache.ifAvailable(cache -> cache.addRemoteEvictionListener(rbacEngine::onRemoteEviction));
+    }
+
+    /**
+     * 用户的角色分配已变更
+     *
+     * @param userId 用户ID
+     */
+    public void onUserRolesChanged(Long userId) {
+        UserAuthorityCache cache = userAuthorityCache.getIfAvailable();
+        if (cache != null) {
+            RbacEngine.afterCommit(() -> cache.evictRoles(List.of(userId)));
+        }
+    }
+
+    /**
+     * 角色的有效权限已变更（权限分配、上级角色变更、下级角色删除）
+     * 需在变更提交前调用，此时内存中的继承关系仍是变更前的，按它计算上级链
+     *
+     * @param roleIds 权限发生变化的角色ID
+     */
+    public void onRolePermissionsChanged(Long... roleIds) {
+        UserAuthorityCache cache = userAuthorityCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        Set<Long> affectedRoleIds = new HashSet<>();
+        for (Long roleId : roleIds) {
+            if (roleId != null && roleId != 0) {
+                affectedRoleIds.addAll(rbacEngine.getInheritingRoleIds(roleId));
+            }
+        }
+        if (affectedRoleIds.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = userRoleMapper.selectList(new LambdaQueryWrapper<SysUserRole>()
+                        .select(SysUserRole::getUserId)
+                        .in(SysUserRole::getRoleId, affectedRoleIds))
+                .stream()
+                .map(SysUserRole::getUserId)
+                .distinct()
+                .toList();
+        if (!userIds.isEmpty()) {
+            RbacEngine.afterCommit(() -> cache.evictPermissions(userIds));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.redis.service.UserAuthorityCache;
+import cn.zhangziming.auth.server.dto.UserRoleRow;
+import cn.zhangziming.auth.server.entity.SysPermission;
+import cn.zhangziming.auth.server.entity.SysRole;
+import cn.zhangziming.auth.server.entity.SysUserRole;
+import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import cn.zhangziming.auth.server.vo.PermissionVO;
+import cn.zhangziming.auth.server.vo.RoleVO;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 用户角色/权限批量加载
+ *
+ * <p>角色、权限和有效权限闭包（含继承）取自{@link RbacEngine}；用户的角色在引擎保存了用户→角色时也取自内存，否则：
+ * <ul>
+ *     <li>单个用户（登录、续期、UserDetails、用户详情、权限检查）经过用户权限两级缓存，未命中时查询数据库</li>
+ *     <li>一批用户（用户列表分页）联表查询一次，逐个走缓存在冷缓存时会变成每个用户一次查询</li>
+ * </ul>
+ * <p>用户列表分页、用户详情、登录和UserDetails加载都经过这里，不再按用户逐个查询
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Component
+@RequiredArgsConstructor
+public class UserAuthorityLoader {
+
+    private final SysUserRoleMapper userRoleMapper;
+    private final RbacEngine rbacEngine;
+    private final ObjectProvider<UserAuthorityCache> userAuthorityCache;
+
+    /**
+     * 加载单个用户的角色和权限
+     *
+     * @param userId 用户ID
+     * @return 角色和权限
+     */
+    public UserAuthorities load(Long userId) {
+        return load(List.of(userId)).get(userId);
+    }
+
+    /**
+     * 批量加载用户的角色和权限
+     *
+     * @param userIds 用户ID
+     * @return 用户ID -> 角色和权限，每个传入的用户都有对应项（没有角色时为空列表）
+     */
+    public Map<Long, UserAuthorities> load(Collection<Long> userIds) {
+        Map<Long, UserAuthorities> result = new LinkedHashMap<>();
+        if (userIds.isEmpty()) {
+            return result;
+        }
+
+        // 1. 用户的角色：内存中有用户→角色或只加载一个用户时按角色ID取角色，否则联表查询
+        Map<Long, List<RoleVO>> rolesByUser = new HashMap<>();
+        if (rbacEngine.isUserRolesLoaded() || userIds.size() == 1) {
+            for (Long userId : userIds) {
+                List<RoleVO> roles = new ArrayList<>();
+                for (Long roleId : loadRoleIds(userId)) {
+                    SysRole role = rbacEngine.getRole(roleId);
+                    if (role != null) {
+                        roles.add(toRoleVO(role));
+                    }
+                }
+                rolesByUser.put(userId, roles);
+            }
+        } else {
+            for (UserRoleRow row : userRoleMapper.selectRolesByUserIds(new LinkedHashSet<>(userIds))) {
+                rolesByUser.computeIfAbsent(row.getUserId(), key -> new ArrayList<>()).add(toRoleVO(row));
+            }
+        }
+
+        // 2. 按角色闭包取启用的有效权限
+        for (Long userId : userIds) {
+            List<RoleVO> roles = rolesByUser.getOrDefault(userId, new ArrayList<>());
+            List<PermissionVO> permissions = new ArrayList<>();
+            if (!roles.isEmpty()) {
+                for (Long permissionId : rbacEngine.getEffectivePermissionIds(
+                        roles.stream().map(RoleVO::getRoleId).toList())) {
+                    SysPermission permission = rbacEngine.getPermission(permissionId);
+                    if (permission != null && Integer.valueOf(1).equals(permission.getStatus())) {
+                        permissions.add(toPermissionVO(permission));
+                    }
+                }
+            }
+            result.put(userId, new UserAuthorities(roles, permissions));
+        }
+        return result;
+    }
+
+    /**
+     * 用户直接持有的角色ID（不含继承），内存中没有用户→角色时依次查用户权限缓存和数据库
+     *
+     * @param userId 用户ID
+     * @return 角色ID
+     */
+    public Set<Long> loadRoleIds(Long userId) {
+        if (rbacEngine.isUserRolesLoaded()) {
+            return rbacEngine.getRoleIds(userId);
+        }
+        UserAuthorityCache cache = userAuthorityCache.getIfAvailable();
+        return cache != null ? cache.getRoleIds(userId, this::queryRoleIds) : queryRoleIds(userId);
+    }
+
+    private Set<Long> queryRoleIds(Long userId) {
+        return userRoleMapper.selectList(new LambdaQueryWrapper<SysUserRole>()
+                        .select(SysUserRole::getRoleId)
+                        .eq(SysUserRole::getUserId, userId))
+                .stream()
+                .map(SysUserRole::getRoleId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 按角色闭包取启用的有效权限编码
+     *
+     * @param roleIds 角色ID
+     * @return 权限编码（含继承）
+     */
+    public Set<String> loadPermissionCodes(Collection<Long> roleIds) {
+        return roleIds.isEmpty() ? Set.of() : rbacEngine.getPermissionCodes(roleIds);
+    }
+
+    private static RoleVO toRoleVO(UserRoleRow row) {
+        RoleVO vo = new RoleVO();
+        BeanUtils.copyProperties(row, vo);
+        return vo;
+    }
+
+    private static RoleVO toRoleVO(SysRole role) {
+        RoleVO vo = new RoleVO();
+        BeanUtils.copyProperties(role, vo);
+        vo.setRoleId(role.getId());
+        return vo;
+    }
+
+    private static PermissionVO toPermissionVO(SysPermission permission) {
+        PermissionVO vo = new PermissionVO();
+        BeanUtils.copyProperties(permission, vo);
+        vo.setPermissionId(permission.getId());
+        return vo;
+    }
+
+    /**
+     * 用户的角色和权限
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class UserAuthorities {
+
+        /**
+         * 角色
+         */
+        private final List<RoleVO> roles;
+
+        /**
+         * 启用的有效权限（含继承）
+         */
+        private final List<PermissionVO> permissions;
+
+        /**
+         * 角色编码
+         */
+        public Set<String> getRoleCodes() {
+            return roles.stream().map(RoleVO::getRoleCode).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        /**
+         * 权限编码
+         */
+        public Set<String> getPermissionCodes() {
+            return permissions.stream().map(PermissionVO::getPermissionCode).collect(Collectors.toSet());
+        }
+    }
+}
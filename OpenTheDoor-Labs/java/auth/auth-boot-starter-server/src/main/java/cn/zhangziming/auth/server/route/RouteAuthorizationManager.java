@@ -0,0 +1,61 @@
+package cn.zhangziming.auth.server.route;
+
+import cn.zhangziming.auth.security.context.UserContext;
+import cn.zhangziming.auth.security.context.UserInfo;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import cn.zhangziming.auth.security.route.RouteRule;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * 基于路由表的鉴权
+ *
+ * <p>公开路由直接放行；未登记的路由要求认证；登记了权限的路由还要求持有对应权限
+ * <p>权限先按GrantedAuthority精确匹配，未命中时按当前用户的通配符授权判断（如 system:user:*）
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Component
+@RequiredArgsConstructor
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final RouteRegistry routeRegistry;
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        RouteRule rule = routeRegistry.match(request.getMethod(),
+                RouteRegistry.pathWithinApplication(request.getRequestURI(), request.getContextPath()));
+        if (rule != null && !rule.isRequireAuth()) {
+            return GRANTED;
+        }
+        Authentication current = authentication.get();
+        if (current == null || !current.isAuthenticated() || current instanceof AnonymousAuthenticationToken) {
+            return DENIED;
+        }
+        if (rule == null || rule.getPermission() == null) {
+            return GRANTED;
+        }
+        for (GrantedAuthority authority : current.getAuthorities()) {
+            if (rule.getPermission().equals(authority.getAuthority())) {
+                return GRANTED;
+            }
+        }
+        UserInfo userInfo = UserContext.getCurrentUser();
+        return userInfo != null && userInfo.hasPermission(rule.getPermission()) ? GRANTED : DENIED;
+    }
+}
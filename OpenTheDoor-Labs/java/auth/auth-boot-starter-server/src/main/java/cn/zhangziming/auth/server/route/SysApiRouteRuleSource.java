@@ -0,0 +1,60 @@
+package cn.zhangziming.auth.server.route;
+
+import cn.zhangziming.auth.security.route.RouteRule;
+import cn.zhangziming.auth.security.route.RouteRuleSource;
+import cn.zhangziming.auth.server.entity.SysApi;
+import cn.zhangziming.auth.server.mapper.SysApiMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sys_api路由规则来源
+ *
+ * <p>启用状态的API按路径、方法、是否认证、所需权限编译进路由表
+ * <p>版本取未删除记录数和最后更新时间，增删改任一记录都会触发重新加载
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Component
+@RequiredArgsConstructor
+public class SysApiRouteRuleSource implements RouteRuleSource {
+
+    private final SysApiMapper sysApiMapper;
+
+    @Override
+    public List<RouteRule> loadRules() {
+        LambdaQueryWrapper<SysApi> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(SysApi::getApiPath, SysApi::getApiMethod, SysApi::getRequireAuth, SysApi::getPermissionCode)
+                .eq(SysApi::getStatus, 1);
+        List<SysApi> apis = sysApiMapper.selectList(queryWrapper);
+
+        List<RouteRule> rules = new ArrayList<>(apis.size());
+        for (SysApi api : apis) {
+            if (api.getApiPath() == null) {
+                continue;
+            }
+            boolean requireAuth = api.getRequireAuth() == null || api.getRequireAuth() != 0;
+            rules.add(new RouteRule(api.getApiMethod(), api.getApiPath(), requireAuth, api.getPermissionCode()));
+        }
+        return rules;
+    }
+
+    @Override
+    public String getVersion() {
+        QueryWrapper<SysApi> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("COUNT(*) AS total", "MAX(update_time) AS last_update");
+        List<Map<String, Object>> rows = sysApiMapper.selectMaps(queryWrapper);
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return "0";
+        }
+        Map<String, Object> row = rows.get(0);
+        return row.get("total") + "@" + row.get("last_update");
+    }
+}
@@ -2,8 +2,12 @@ package cn.zhangziming.auth.server.service;
 
 import cn.zhangziming.auth.server.dto.LoginRequest;
 import cn.zhangziming.auth.server.dto.LoginResponse;
+import cn.zhangziming.auth.server.vo.SessionVO;
 import cn.zhangziming.auth.server.vo.UserVO;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 认证服务接口
  *
@@ -14,11 +18,12 @@ public interface IAuthService {
 
     /**
      * 用户登录
+     * 密码校验在登录密码校验线程池上异步执行，校验线程池队列已满时抛出限流异常
      *
      * @param request 登录请求
      * @return 登录响应(包含token和用户信息)
      */
-    LoginResponse login(LoginRequest request);
+    CompletableFuture<LoginResponse> login(LoginRequest request);
 
     /**
      * 用户登出
@@ -49,5 +54,28 @@ public interface IAuthService {
      * @return 用户信息
      */
     UserVO getCurrentUserInfo();
-}
 
+    /**
+     * 查询用户的登录会话
+     *
+     * @param userId 用户ID
+     * @return 会话列表（按登录时间倒序）
+     */
+    List<SessionVO> listSessions(Long userId);
+
+    /**
+     * 下线用户的指定会话
+     *
+     * @param userId    用户ID
+     * @param sessionId 会话ID
+     */
+    void removeSession(Long userId, String sessionId);
+
+    /**
+     * 下线用户的全部会话（所有设备）
+     *
+     * @param userId 用户ID
+     * @return 下线的会话数
+     */
+    int logoutAll(Long userId);
+}
@@ -0,0 +1,31 @@
+package cn.zhangziming.auth.server.service;
+
+import cn.zhangziming.auth.server.vo.UserImportVO;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 用户批量导入服务接口
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+public interface IUserImportService {
+
+    /**
+     * 提交导入任务，文件保存后在后台导入
+     * 任务归属于当前登录用户及其租户，只有同一用户能查询
+     *
+     * @param file     CSV或JSON文件
+     * @param tenantId 租户ID
+     * @return 任务ID
+     */
+    String startImport(MultipartFile file, String tenantId);
+
+    /**
+     * 查询导入进度和失败行明细，只能查询当前用户提交的任务
+     *
+     * @param jobId 任务ID
+     * @return 导入任务
+     */
+    UserImportVO getImport(String jobId);
+}
@@ -2,24 +2,41 @@ package cn.zhangziming.auth.server.service.impl;
 
 import cn.zhangziming.auth.common.constant.ErrorCode;
 import cn.zhangziming.auth.common.exception.BusinessException;
-import cn.zhangziming.auth.redis.constant.CacheConstant;
-import cn.zhangziming.auth.redis.service.RedisService;
+import cn.zhangziming.auth.redis.model.SessionInfo;
+import cn.zhangziming.auth.redis.service.SessionService;
+import cn.zhangziming.auth.redis.service.TokenRevocationService;
 import cn.zhangziming.auth.security.context.UserContext;
 import cn.zhangziming.auth.security.context.UserInfo;
 import cn.zhangziming.auth.security.jwt.JwtProperties;
 import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenValidationResult;
+import cn.zhangziming.auth.security.jwt.VerifiedToken;
 import cn.zhangziming.auth.security.util.SecurityUtil;
 import cn.zhangziming.auth.server.dto.LoginRequest;
+import cn.zhangziming.auth.server.crypto.PasswordHashExecutor;
 import cn.zhangziming.auth.server.dto.LoginResponse;
 import cn.zhangziming.auth.server.entity.SysUser;
 import cn.zhangziming.auth.server.mapper.SysUserMapper;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader.UserAuthorities;
 import cn.zhangziming.auth.server.service.IAuthService;
+import cn.zhangziming.auth.server.vo.SessionVO;
 import cn.zhangziming.auth.server.vo.UserVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 认证服务实现
  *
@@ -32,12 +49,16 @@ import org.springframework.stereotype.Service;
 public class AuthServiceImpl implements IAuthService {
 
     private final SysUserMapper userMapper;
+    private final PasswordHashExecutor passwordHashExecutor;
+    private final AsyncTaskExecutor applicationTaskExecutor;
+    private final UserAuthorityLoader userAuthorityLoader;
     private final JwtUtil jwtUtil;
     private final JwtProperties jwtProperties;
-    private final RedisService redisService;
+    private final ObjectProvider<TokenRevocationService> tokenRevocationService;
+    private final ObjectProvider<SessionService> sessionService;
 
     @Override
-    public LoginResponse login(LoginRequest request) {
+    public CompletableFuture<LoginResponse> login(LoginRequest request) {
         log.info("用户登录: username={}, tenantId={}", request.getUsername(), request.getTenantId());
 
         // 1. 查询用户
@@ -52,12 +73,41 @@ public class AuthServiceImpl implements IAuthService {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND, "用户不存在");
         }
 
-        // 2. 验证密码
-        if (!SecurityUtil.matchPassword(request.getPassword(), user.getPassword())) {
-            log.warn("密码错误: username={}", request.getUsername());
-            throw new BusinessException(ErrorCode.PASSWORD_ERROR, "密码错误");
+        // 2. 验证密码（在登录密码校验线程池上计算，队列已满时直接返回429）
+        //    校验结果回到应用线程池处理（带上下文传递装饰器），查库、写Redis和签发Token不占用哈希线程
+        return passwordHashExecutor.matches(request.getPassword(), user.getPassword())
+                .thenApplyAsync(matched -> {
+                    if (!matched) {
+                        log.warn("密码错误: username={}", request.getUsername());
+                        throw new BusinessException(ErrorCode.PASSWORD_ERROR, "密码错误");
+                    }
+                    // 哈希算法或成本参数已调整：按当前策略重新哈希，不阻塞登录响应
+                    if (SecurityUtil.needsRehash(user.getPassword())) {
+                        passwordHashExecutor.trySubmit(() -> rehashPassword(user, request.getPassword()));
+                    }
+                    return completeLogin(user);
+                }, applicationTaskExecutor);
+    }
+
+    /**
+     * 按当前策略重新哈希密码
+     * 只在密码未被并发修改时更新，不修改密码更新时间
+     */
+    private void rehashPassword(SysUser user, String rawPassword) {
+        String encodedPassword = SecurityUtil.encryptPassword(rawPassword);
+        int updated = userMapper.update(null, new LambdaUpdateWrapper<SysUser>()
+                .set(SysUser::getPassword, encodedPassword)
+                .eq(SysUser::getId, user.getId())
+                .eq(SysUser::getPassword, user.getPassword()));
+        if (updated > 0) {
+            log.info("密码已按当前策略重新哈希: userId={}", user.getId());
         }
+    }
 
+    /**
+     * 密码校验通过后：检查用户状态、生成Token、登记会话
+     */
+    private LoginResponse completeLogin(SysUser user) {
         // 3. 检查用户状态
         if (user.getStatus() == 0) {
             throw new BusinessException(ErrorCode.USER_DISABLED, "用户已被禁用");
@@ -66,16 +116,28 @@ public class AuthServiceImpl implements IAuthService {
             throw new BusinessException(ErrorCode.USER_LOCKED, "用户已被锁定");
         }
 
-        // 4. 生成Token
-        String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getTenantId());
-        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername(), user.getTenantId());
+        // 4. 生成Token（会话ID即RefreshToken的jti；角色和权限按声明字典压缩写入AccessToken）
+        UserAuthorities authorities = userAuthorityLoader.load(user.getId());
+        Set<String> roleCodes = authorities.getRoleCodes();
+        Set<String> permissionCodes = authorities.getPermissionCodes();
+        String accessTokenId = JwtUtil.newTokenId();
+        String sessionId = JwtUtil.newTokenId();
+        long now = System.currentTimeMillis();
+        String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getTenantId(), accessTokenId,
+                roleCodes, permissionCodes);
+        String refreshToken = jwtUtil.generateRefreshToken(user.getId(), user.getUsername(), user.getTenantId(), sessionId);
 
-        // 5. 存储Token到Redis
-        String tokenKey = CacheConstant.TOKEN_CACHE_PREFIX + accessToken;
-        redisService.set(tokenKey, user.getId(), jwtProperties.getExpireTime());
+        // 5. 登记会话
+        SessionService sessions = sessionService.getIfAvailable();
+        if (sessions != null) {
+            sessions.create(user.getId(), new SessionInfo(sessionId, accessTokenId,
+                    now + jwtProperties.getExpireTime() * 1000, now + jwtProperties.getRefreshExpireTime() * 1000, now));
+        }
 
         // 6. 构建响应
         UserVO userVO = buildUserVO(user);
+        userVO.setRoleCodes(roleCodes);
+        userVO.setPermissionCodes(permissionCodes);
         
         log.info("用户登录成功: userId={}, username={}", user.getId(), user.getUsername());
 
@@ -92,33 +154,75 @@ public class AuthServiceImpl implements IAuthService {
     public void logout(String token) {
         log.info("用户登出");
         
-        // 从Redis删除Token
-        String tokenKey = CacheConstant.TOKEN_CACHE_PREFIX + token;
-        redisService.delete(tokenKey);
+        // 按jti吊销Token，吊销记录保留到Token过期
+        VerifiedToken verifiedToken = jwtUtil.tryVerify(token).orElse(null);
+        if (verifiedToken == null) {
+            log.info("Token已失效，无需登出");
+            return;
+        }
+        // 下线所在会话（同时吊销RefreshToken）；找不到会话时只吊销AccessToken
+        SessionService sessions = sessionService.getIfAvailable();
+        SessionInfo session = sessions != null && verifiedToken.getTokenId() != null
+                ? sessions.findByAccessTokenId(verifiedToken.getUserId(), verifiedToken.getTokenId())
+                : null;
+        if (session != null) {
+            sessions.remove(verifiedToken.getUserId(), session.getSessionId());
+        } else {
+            TokenRevocationService revocationService = tokenRevocationService.getIfAvailable();
+            if (revocationService != null && verifiedToken.getTokenId() != null) {
+                revocationService.revoke(verifiedToken.getTokenId(), verifiedToken.getExpirationMillis());
+            }
+        }
         
-        log.info("用户登出成功");
+        log.info("用户登出成功: userId={}", verifiedToken.getUserId());
     }
 
     @Override
     public String refreshToken(String refreshToken) {
         log.info("刷新Token");
 
-        // 1. 验证RefreshToken
-        if (!jwtUtil.validateToken(refreshToken)) {
+        // 1. 验签RefreshToken（只验签一次）
+        TokenValidationResult result = jwtUtil.validate(refreshToken);
+        if (result.getStatus() == TokenValidationResult.Status.EXPIRED) {
+            throw new BusinessException(ErrorCode.TOKEN_EXPIRED, "Token已过期");
+        }
+        if (!result.isValid()) {
+            throw new BusinessException(ErrorCode.TOKEN_INVALID, "Token无效");
+        }
+        VerifiedToken verifiedToken = result.getVerifiedToken();
+        if (!verifiedToken.isRefreshToken()) {
+            // AccessToken不能用来换取新Token，否则登出后未过期的旧AccessToken可以无限续命
             throw new BusinessException(ErrorCode.TOKEN_INVALID, "Token无效");
         }
 
-        // 2. 提取用户信息
-        Long userId = jwtUtil.extractUserId(refreshToken);
-        String username = jwtUtil.extractUsername(refreshToken);
-        String tenantId = jwtUtil.extractTenantId(refreshToken);
+        // 2. 提取用户信息，并检查用户状态（与静默续期一致，禁用或锁定的用户不能刷新）
+        Long userId = verifiedToken.getUserId();
+        String username = verifiedToken.getUsername();
+        String tenantId = verifiedToken.getTenantId();
+        SysUser user = userMapper.selectById(userId);
+        if (user == null || user.getStatus() == null) {
+            throw new BusinessException(ErrorCode.TOKEN_INVALID, "Token无效");
+        }
+        if (user.getStatus() == 2) {
+            throw new BusinessException(ErrorCode.USER_LOCKED, "用户已被锁定");
+        }
+        if (user.getStatus() != 1) {
+            throw new BusinessException(ErrorCode.USER_DISABLED, "用户已被禁用");
+        }
 
-        // 3. 生成新的AccessToken
-        String newAccessToken = jwtUtil.generateToken(userId, username, tenantId);
+        // 3. 生成新的AccessToken（重新加载角色和权限，授权变更在刷新后生效）
+        String accessTokenId = JwtUtil.newTokenId();
+        long now = System.currentTimeMillis();
+        UserAuthorities authorities = userAuthorityLoader.load(userId);
+        String newAccessToken = jwtUtil.generateToken(userId, username, tenantId, accessTokenId,
+                authorities.getRoleCodes(), authorities.getPermissionCodes());
 
-        // 4. 存储新Token到Redis
-        String tokenKey = CacheConstant.TOKEN_CACHE_PREFIX + newAccessToken;
-        redisService.set(tokenKey, userId, jwtProperties.getExpireTime());
+        // 4. 会话指向新的AccessToken；会话已下线（登出、被踢、超出上限）时拒绝，新Token不会返回
+        SessionService sessions = sessionService.getIfAvailable();
+        if (sessions != null && (verifiedToken.getTokenId() == null || !sessions.renew(userId,
+                verifiedToken.getTokenId(), accessTokenId, now + jwtProperties.getExpireTime() * 1000))) {
+            throw new BusinessException(ErrorCode.TOKEN_INVALID, "会话已失效，请重新登录");
+        }
 
         log.info("Token刷新成功: userId={}", userId);
 
@@ -127,14 +231,8 @@ public class AuthServiceImpl implements IAuthService {
 
     @Override
     public boolean validateToken(String token) {
-        // 验证JWT格式和签名
-        if (!jwtUtil.validateToken(token)) {
-            return false;
-        }
-
-        // 检查Redis中是否存在
-        String tokenKey = CacheConstant.TOKEN_CACHE_PREFIX + token;
-        return redisService.hasKey(tokenKey);
+        // 验签并检查吊销状态（本地布隆过滤器，正常Token不访问Redis）
+        return jwtUtil.validateToken(token);
     }
 
     @Override
@@ -155,6 +253,45 @@ public class AuthServiceImpl implements IAuthService {
         return buildUserVO(user);
     }
 
+    @Override
+    public List<SessionVO> listSessions(Long userId) {
+        SessionService sessions = sessionService.getIfAvailable();
+        if (sessions == null) {
+            return List.of();
+        }
+        return sessions.list(userId).stream().map(this::buildSessionVO).toList();
+    }
+
+    @Override
+    public void removeSession(Long userId, String sessionId) {
+        SessionService sessions = sessionService.getIfAvailable();
+        if (sessions == null || !sessions.remove(userId, sessionId)) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "会话不存在");
+        }
+        log.info("会话已下线: userId={}, sessionId={}", userId, sessionId);
+    }
+
+    @Override
+    public int logoutAll(Long userId) {
+        SessionService sessions = sessionService.getIfAvailable();
+        return sessions != null ? sessions.removeAll(userId) : 0;
+    }
+
+    /**
+     * 构建会话VO
+     */
+    private SessionVO buildSessionVO(SessionInfo session) {
+        SessionVO sessionVO = new SessionVO();
+        sessionVO.setSessionId(session.getSessionId());
+        sessionVO.setLoginTime(toLocalDateTime(session.getLoginTime()));
+        sessionVO.setExpireTime(toLocalDateTime(session.getExpiresAt()));
+        return sessionVO;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
     /**
      * 构建用户VO
      */
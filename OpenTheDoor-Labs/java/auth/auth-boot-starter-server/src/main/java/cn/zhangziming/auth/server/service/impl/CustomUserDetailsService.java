@@ -2,8 +2,8 @@ package cn.zhangziming.auth.server.service.impl;
 
 import cn.zhangziming.auth.server.entity.SysUser;
 import cn.zhangziming.auth.server.mapper.SysUserMapper;
-import cn.zhangziming.auth.server.service.IPermissionService;
-import cn.zhangziming.auth.server.service.IRoleService;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader.UserAuthorities;
 import cn.zhangziming.auth.server.vo.RoleVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -36,8 +36,7 @@ import java.util.stream.Collectors;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final SysUserMapper userMapper;
-    private final IRoleService roleService;
-    private final IPermissionService permissionService;
+    private final UserAuthorityLoader userAuthorityLoader;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -91,8 +90,11 @@ public class CustomUserDetailsService implements UserDetailsService {
         List<GrantedAuthority> authorities = new ArrayList<>();
 
         try {
+            // 角色和权限一起加载（联表查询角色 + 一次权限查询）
+            UserAuthorities userAuthorities = userAuthorityLoader.load(userId);
+
             // 1. 加载角色
-            List<RoleVO> roles = roleService.getUserRoles(userId);
+            List<RoleVO> roles = userAuthorities.getRoles();
             if (roles != null && !roles.isEmpty()) {
                 // 添加角色权限（以ROLE_前缀标识）
                 authorities.addAll(roles.stream()
@@ -101,7 +103,7 @@ public class CustomUserDetailsService implements UserDetailsService {
             }
 
             // 2. 加载权限
-            Set<String> permissionCodes = permissionService.getUserPermissionCodes(userId);
+            Set<String> permissionCodes = userAuthorities.getPermissionCodes();
             if (permissionCodes != null && !permissionCodes.isEmpty()) {
                 // 添加权限
                 authorities.addAll(permissionCodes.stream()
@@ -1,21 +1,21 @@
 package cn.zhangziming.auth.server.service.impl;
 
+import cn.zhangziming.auth.redis.service.UserAuthorityCache;
+import cn.zhangziming.auth.security.access.PermissionTrie;
 import cn.zhangziming.auth.server.entity.SysPermission;
-import cn.zhangziming.auth.server.entity.SysRolePermission;
-import cn.zhangziming.auth.server.entity.SysUserRole;
 import cn.zhangziming.auth.server.mapper.SysPermissionMapper;
-import cn.zhangziming.auth.server.mapper.SysRolePermissionMapper;
-import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import cn.zhangziming.auth.server.role.RbacEngine;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
 import cn.zhangziming.auth.server.service.IPermissionService;
 import cn.zhangziming.auth.server.vo.PermissionVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -33,8 +33,9 @@ import java.util.stream.Collectors;
 public class PermissionServiceImpl implements IPermissionService {
 
     private final SysPermissionMapper permissionMapper;
-    private final SysUserRoleMapper userRoleMapper;
-    private final SysRolePermissionMapper rolePermissionMapper;
+    private final UserAuthorityLoader userAuthorityLoader;
+    private final RbacEngine rbacEngine;
+    private final ObjectProvider<UserAuthorityCache> userAuthorityCache;
 
     @Override
     public List<PermissionVO> listAllPermissions() {
@@ -63,52 +64,27 @@ public class PermissionServiceImpl implements IPermissionService {
 
     @Override
     public List<PermissionVO> getUserPermissions(Long userId) {
-        // 1. 查询用户角色
-        LambdaQueryWrapper<SysUserRole> userRoleWrapper = new LambdaQueryWrapper<>();
-        userRoleWrapper.eq(SysUserRole::getUserId, userId);
-        List<SysUserRole> userRoles = userRoleMapper.selectList(userRoleWrapper);
-
-        if (CollectionUtils.isEmpty(userRoles)) {
-            return new ArrayList<>();
-        }
-
-        // 2. 查询角色权限
-        List<Long> roleIds = userRoles.stream()
-                .map(SysUserRole::getRoleId)
-                .collect(Collectors.toList());
-
-        LambdaQueryWrapper<SysRolePermission> rolePermWrapper = new LambdaQueryWrapper<>();
-        rolePermWrapper.in(SysRolePermission::getRoleId, roleIds);
-        List<SysRolePermission> rolePermissions = rolePermissionMapper.selectList(rolePermWrapper);
-
-        if (CollectionUtils.isEmpty(rolePermissions)) {
-            return new ArrayList<>();
-        }
-
-        // 3. 查询权限详情
-        Set<Long> permissionIds = rolePermissions.stream()
-                .map(SysRolePermission::getPermissionId)
-                .collect(Collectors.toSet());
-
-        List<SysPermission> permissions = permissionMapper.selectBatchIds(permissionIds);
-        return permissions.stream()
-                .filter(p -> p.getStatus() == 1) // 只返回启用的权限
-                .map(this::convertToVO)
-                .collect(Collectors.toList());
+        // 角色取自内存（或一次联表查询），权限取自RBAC模型
+        return userAuthorityLoader.load(userId).getPermissions();
     }
 
     @Override
     public Set<String> getUserPermissionCodes(Long userId) {
-        List<PermissionVO> permissions = getUserPermissions(userId);
-        return permissions.stream()
-                .map(PermissionVO::getPermissionCode)
-                .collect(Collectors.toSet());
+        if (rbacEngine.isUserRolesLoaded()) {
+            return rbacEngine.getPermissionCodes(rbacEngine.getRoleIds(userId));
+        }
+        UserAuthorityCache cache = userAuthorityCache.getIfAvailable();
+        if (cache == null) {
+            return userAuthorityLoader.loadPermissionCodes(userAuthorityLoader.loadRoleIds(userId));
+        }
+        // 本地缓存 -> Redis -> 数据库；权限未命中时角色ID也优先取缓存（loadRoleIds经过同一缓存）
+        return cache.getPermissionCodes(userId, id -> userAuthorityLoader.loadPermissionCodes(
+                userAuthorityLoader.loadRoleIds(id)));
     }
 
     @Override
     public boolean hasPermission(Long userId, String permissionCode) {
-        Set<String> permissionCodes = getUserPermissionCodes(userId);
-        return permissionCodes.contains(permissionCode);
+        return getUserPermissionTrie(userId).implies(permissionCode);
     }
 
     @Override
@@ -116,8 +92,13 @@ public class PermissionServiceImpl implements IPermissionService {
         if (CollectionUtils.isEmpty(permissionCodes)) {
             return true;
         }
-        Set<String> userPermissions = getUserPermissionCodes(userId);
-        return userPermissions.containsAll(permissionCodes);
+        PermissionTrie userPermissions = getUserPermissionTrie(userId);
+        for (String code : permissionCodes) {
+            if (!userPermissions.implies(code)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -125,15 +106,25 @@ public class PermissionServiceImpl implements IPermissionService {
         if (CollectionUtils.isEmpty(permissionCodes)) {
             return true;
         }
-        Set<String> userPermissions = getUserPermissionCodes(userId);
+        PermissionTrie userPermissions = getUserPermissionTrie(userId);
         for (String code : permissionCodes) {
-            if (userPermissions.contains(code)) {
+            if (userPermissions.implies(code)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * 用户权限前缀树，内存中有用户→角色时直接取RBAC模型中按角色组合缓存的前缀树
+     */
+    private PermissionTrie getUserPermissionTrie(Long userId) {
+        if (rbacEngine.isUserRolesLoaded()) {
+            return rbacEngine.getPermissionTrie(rbacEngine.getRoleIds(userId));
+        }
+        return PermissionTrie.compile(getUserPermissionCodes(userId));
+    }
+
     /**
      * 转换为VO
      */
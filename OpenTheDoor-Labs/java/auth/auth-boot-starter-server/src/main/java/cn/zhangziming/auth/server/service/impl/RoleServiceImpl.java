@@ -16,10 +16,14 @@ import cn.zhangziming.auth.server.mapper.SysRoleMapper;
 import cn.zhangziming.auth.server.mapper.SysRolePermissionMapper;
 import cn.zhangziming.auth.server.mapper.SysUserMapper;
 import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import cn.zhangziming.auth.server.role.RbacEngine;
+import cn.zhangziming.auth.server.role.UserAuthorityEvictor;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
 import cn.zhangziming.auth.server.service.IRoleService;
 import cn.zhangziming.auth.server.vo.PermissionVO;
 import cn.zhangziming.auth.server.vo.RoleVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,8 +32,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +54,9 @@ public class RoleServiceImpl implements IRoleService {
     private final SysRolePermissionMapper rolePermissionMapper;
     private final SysUserRoleMapper userRoleMapper;
     private final SysUserMapper userMapper;
+    private final RbacEngine rbacEngine;
+    private final UserAuthorityLoader userAuthorityLoader;
+    private final UserAuthorityEvictor userAuthorityEvictor;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -60,6 +69,7 @@ public class RoleServiceImpl implements IRoleService {
         if (roleMapper.selectCount(wrapper) > 0) {
             throw new BusinessException(ErrorCode.ROLE_CODE_EXISTS, "角色编码已存在");
         }
+        checkHierarchy(null, roleDTO.getTenantId(), roleDTO.getParentId(), roleDTO.getRoleLevel());
 
         // 2. 创建角色
         SysRole role = new SysRole();
@@ -69,8 +79,12 @@ public class RoleServiceImpl implements IRoleService {
         if (role.getStatus() == null) {
             role.setStatus(1); // 默认正常
         }
+        if (role.getParentId() == null) {
+            role.setParentId(0L); // 默认没有上级
+        }
 
         roleMapper.insert(role);
+        rbacEngine.onRoleSaved(role);
 
         // 3. 分配权限
         if (!CollectionUtils.isEmpty(roleDTO.getPermissionIds())) {
@@ -86,8 +100,8 @@ public class RoleServiceImpl implements IRoleService {
     public void updateRole(RoleDTO roleDTO) {
         log.info("更新角色: roleId={}", roleDTO.getId());
 
-        // 1. 检查角色是否存在
-        SysRole existRole = roleMapper.selectById(roleDTO.getId());
+        // 1. 检查角色是否存在，锁定角色行，同一角色的继承关系变更串行执行
+        SysRole existRole = lockRole(roleDTO.getId());
         if (existRole == null) {
             throw new BusinessException(ErrorCode.ROLE_NOT_FOUND, "角色不存在");
         }
@@ -102,12 +116,23 @@ public class RoleServiceImpl implements IRoleService {
             }
         }
 
-        // 3. 更新角色
+        // 3. 检查继承关系（未传的字段保持原值）
+        Long parentId = roleDTO.getParentId() != null ? roleDTO.getParentId() : existRole.getParentId();
+        Integer roleLevel = roleDTO.getRoleLevel() != null ? roleDTO.getRoleLevel() : existRole.getRoleLevel();
+        String tenantId = roleDTO.getTenantId() != null ? roleDTO.getTenantId() : existRole.getTenantId();
+        checkHierarchy(existRole.getId(), tenantId, parentId, roleLevel);
+
+        // 4. 更新角色
         SysRole role = new SysRole();
         BeanUtils.copyProperties(roleDTO, role);
         roleMapper.updateById(role);
+        rbacEngine.onRoleSaved(roleMapper.selectById(role.getId()));
+        if (roleDTO.getParentId() != null && !roleDTO.getParentId().equals(existRole.getParentId())) {
+            // 原上级链失去、新上级链获得本角色的权限
+            userAuthorityEvictor.onRolePermissionsChanged(existRole.getParentId(), roleDTO.getParentId());
+        }
 
-        // 4. 更新权限
+        // 5. 更新权限
         if (roleDTO.getPermissionIds() != null) {
             assignPermissions(role.getId(), roleDTO.getPermissionIds());
         }
@@ -120,10 +145,18 @@ public class RoleServiceImpl implements IRoleService {
     public void deleteRole(Long roleId) {
         log.info("删除角色: roleId={}", roleId);
 
-        SysRole role = roleMapper.selectById(roleId);
+        // 按先下级后上级的顺序锁定下级、本角色和上级，下级改挂到上级期间继承关系不会被并发修改
+        roleMapper.selectList(new LambdaQueryWrapper<SysRole>()
+                .select(SysRole::getId)
+                .eq(SysRole::getParentId, roleId)
+                .last("FOR UPDATE"));
+        SysRole role = lockRole(roleId);
         if (role == null) {
             throw new BusinessException(ErrorCode.ROLE_NOT_FOUND, "角色不存在");
         }
+        if (role.getParentId() != null && role.getParentId() != 0) {
+            lockRole(role.getParentId());
+        }
 
         // 1. 检查是否有用户使用该角色
         LambdaQueryWrapper<SysUserRole> wrapper = new LambdaQueryWrapper<>();
@@ -137,8 +170,16 @@ public class RoleServiceImpl implements IRoleService {
         rpWrapper.eq(SysRolePermission::getRoleId, roleId);
         rolePermissionMapper.delete(rpWrapper);
 
-        // 3. 删除角色（逻辑删除）
+        // 3. 下级角色挂到被删除角色的上级下（级别仍满足上级小于下级）
+        roleMapper.update(null, new LambdaUpdateWrapper<SysRole>()
+                .set(SysRole::getParentId, role.getParentId() != null ? role.getParentId() : 0L)
+                .eq(SysRole::getParentId, roleId));
+
+        // 4. 删除角色（逻辑删除）
         roleMapper.deleteById(roleId);
+        rbacEngine.onRoleDeleted(roleId);
+        // 没有用户直接持有该角色，但上级链继承了它的权限
+        userAuthorityEvictor.onRolePermissionsChanged(role.getParentId());
 
         log.info("删除角色成功: roleId={}", roleId);
     }
@@ -183,29 +224,47 @@ public class RoleServiceImpl implements IRoleService {
     public void assignPermissions(Long roleId, List<Long> permissionIds) {
         log.info("分配权限给角色: roleId={}, permissionIds={}", roleId, permissionIds);
 
-        // 1. 检查角色是否存在
-        SysRole role = roleMapper.selectById(roleId);
+        // 1. 检查角色是否存在，锁定角色行，同一角色的分配串行执行
+        SysRole role = lockRole(roleId);
         if (role == null) {
             throw new BusinessException(ErrorCode.ROLE_NOT_FOUND, "角色不存在");
         }
 
-        // 2. 删除原有权限
-        LambdaQueryWrapper<SysRolePermission> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(SysRolePermission::getRoleId, roleId);
-        rolePermissionMapper.delete(wrapper);
-
-        // 3. 添加新权限
-        if (!CollectionUtils.isEmpty(permissionIds)) {
-            for (Long permissionId : permissionIds) {
-                SysRolePermission rolePermission = new SysRolePermission();
-                rolePermission.setRoleId(roleId);
-                rolePermission.setPermissionId(permissionId);
-                rolePermission.setTenantId(role.getTenantId()); // 设置租户ID
-                rolePermissionMapper.insert(rolePermission);
-            }
+        // 2. 与现有分配求差集
+        Set<Long> target = permissionIds != null ? new LinkedHashSet<>(permissionIds) : new LinkedHashSet<>();
+        Set<Long> current = rolePermissionMapper.selectList(new LambdaQueryWrapper<SysRolePermission>()
+                        .select(SysRolePermission::getPermissionId)
+                        .eq(SysRolePermission::getRoleId, roleId))
+                .stream()
+                .map(SysRolePermission::getPermissionId)
+                .collect(Collectors.toSet());
+        List<Long> removed = current.stream().filter(id -> !target.contains(id)).toList();
+        List<SysRolePermission> added = target.stream()
+                .filter(id -> !current.contains(id))
+                .map(permissionId -> {
+                    SysRolePermission rolePermission = new SysRolePermission();
+                    rolePermission.setRoleId(roleId);
+                    rolePermission.setPermissionId(permissionId);
+                    rolePermission.setTenantId(role.getTenantId()); // 设置租户ID
+                    return rolePermission;
+                })
+                .toList();
+        if (removed.isEmpty() && added.isEmpty()) {
+            log.info("角色权限未变化: roleId={}", roleId);
+            return;
         }
 
-        log.info("分配权限成功: roleId={}", roleId);
+        // 3. 一条语句删除移除的权限，多行插入新增的权限
+        if (!removed.isEmpty()) {
+            rolePermissionMapper.delete(new LambdaQueryWrapper<SysRolePermission>()
+                    .eq(SysRolePermission::getRoleId, roleId)
+                    .in(SysRolePermission::getPermissionId, removed));
+        }
+        rolePermissionMapper.insertBatch(added);
+        rbacEngine.onRolePermissionsChanged(roleId, target);
+        userAuthorityEvictor.onRolePermissionsChanged(roleId);
+
+        log.info("分配权限成功: roleId={}, added={}, removed={}", roleId, added.size(), removed.size());
     }
 
     @Override
@@ -221,24 +280,8 @@ public class RoleServiceImpl implements IRoleService {
 
     @Override
     public List<RoleVO> getUserRoles(Long userId) {
-        // 1. 查询用户角色关联
-        LambdaQueryWrapper<SysUserRole> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(SysUserRole::getUserId, userId);
-        List<SysUserRole> userRoles = userRoleMapper.selectList(wrapper);
-
-        if (CollectionUtils.isEmpty(userRoles)) {
-            return new ArrayList<>();
-        }
-
-        // 2. 查询角色信息
-        List<Long> roleIds = userRoles.stream()
-                .map(SysUserRole::getRoleId)
-                .collect(Collectors.toList());
-
-        List<SysRole> roles = roleMapper.selectBatchIds(roleIds);
-        return roles.stream()
-                .map(role -> convertToVO(role, false))
-                .collect(Collectors.toList());
+        // 联表查询，一条SQL
+        return userAuthorityLoader.load(userId).getRoles();
     }
 
     @Override
@@ -246,27 +289,105 @@ public class RoleServiceImpl implements IRoleService {
     public void assignRolesToUser(Long userId, List<Long> roleIds) {
         log.info("分配角色给用户: userId={}, roleIds={}", userId, roleIds);
 
-        // 1. 删除原有角色
-        LambdaQueryWrapper<SysUserRole> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(SysUserRole::getUserId, userId);
-        userRoleMapper.delete(wrapper);
-
-        // 2. 添加新角色
-        if (!CollectionUtils.isEmpty(roleIds)) {
-            // 获取用户租户ID
-            SysUser user = userMapper.selectById(userId);
-            String tenantId = user != null ? user.getTenantId() : "DEFAULT";
-            
-            for (Long roleId : roleIds) {
-                SysUserRole userRole = new SysUserRole();
-                userRole.setUserId(userId);
-                userRole.setRoleId(roleId);
-                userRole.setTenantId(tenantId); // 设置租户ID
-                userRoleMapper.insert(userRole);
+        // 1. 获取用户租户ID，锁定用户行，同一用户的分配串行执行
+        SysUser user = userMapper.selectOne(new LambdaQueryWrapper<SysUser>()
+                .eq(SysUser::getId, userId)
+                .last("FOR UPDATE"));
+        String tenantId = user != null ? user.getTenantId() : "DEFAULT";
+
+        // 2. 与现有分配求差集
+        Set<Long> target = roleIds != null ? new LinkedHashSet<>(roleIds) : new LinkedHashSet<>();
+        Set<Long> current = userRoleMapper.selectList(new LambdaQueryWrapper<SysUserRole>()
+                        .select(SysUserRole::getRoleId)
+                        .eq(SysUserRole::getUserId, userId))
+                .stream()
+                .map(SysUserRole::getRoleId)
+                .collect(Collectors.toSet());
+        List<Long> removed = current.stream().filter(id -> !target.contains(id)).toList();
+        List<SysUserRole> added = target.stream()
+                .filter(id -> !current.contains(id))
+                .map(roleId -> {
+                    SysUserRole userRole = new SysUserRole();
+                    userRole.setUserId(userId);
+                    userRole.setRoleId(roleId);
+                    userRole.setTenantId(tenantId); // 设置租户ID
+                    return userRole;
+                })
+                .toList();
+        if (removed.isEmpty() && added.isEmpty()) {
+            log.info("用户角色未变化: userId={}", userId);
+            return;
+        }
+
+        // 3. 一条语句删除移除的角色，多行插入新增的角色
+        if (!removed.isEmpty()) {
+            userRoleMapper.delete(new LambdaQueryWrapper<SysUserRole>()
+                    .eq(SysUserRole::getUserId, userId)
+                    .in(SysUserRole::getRoleId, removed));
+        }
+        userRoleMapper.insertBatch(added);
+        rbacEngine.onUserRolesChanged(userId, target);
+        userAuthorityEvictor.onUserRolesChanged(userId);
+
+        log.info("分配角色成功: userId={}, added={}, removed={}", userId, added.size(), removed.size());
+    }
+
+    /**
+     * 检查继承关系：上级角色存在且级别小于本角色，已有下级角色的级别都大于本角色，上下级属于同一租户
+     * 级别严格递增保证继承关系不会成环
+     *
+     * <p>需在事务中调用，调用方已锁定本角色行，这里再锁定上级角色行：修改某个角色的级别和把其他角色挂到它下面
+     * 都要锁它的行，两者串行执行，不会各自通过检查后一起提交成环；下级角色在本角色加锁之后查询，能看到已提交的挂载。
+     * 加锁顺序总是先下级后上级，只有两个变更互相把对方设为上级（本就会有一个失败）时才会死锁，由数据库回滚其中一个
+     *
+     * @param roleId    角色ID，新建时为null
+     * @param tenantId  本角色的租户ID
+     * @param parentId  上级角色ID，0或null表示没有上级
+     * @param roleLevel 角色级别，null按0处理
+     */
+    private void checkHierarchy(Long roleId, String tenantId, Long parentId, Integer roleLevel) {
+        int level = roleLevel != null ? roleLevel : 0;
+        if (parentId != null && parentId != 0) {
+            if (parentId.equals(roleId)) {
+                throw new BusinessException(ErrorCode.ROLE_HIERARCHY_INVALID, "上级角色不能是自己");
+            }
+            SysRole parent = lockRole(parentId);
+            if (parent == null) {
+                throw new BusinessException(ErrorCode.ROLE_NOT_FOUND, "上级角色不存在");
+            }
+            if (!Objects.equals(parent.getTenantId(), tenantId)) {
+                throw new BusinessException(ErrorCode.ROLE_HIERARCHY_INVALID, "上级角色必须属于同一租户");
+            }
+            if (levelOf(parent) >= level) {
+                throw new BusinessException(ErrorCode.ROLE_HIERARCHY_INVALID, "上级角色的级别必须小于本角色");
+            }
+        }
+        if (roleId != null) {
+            List<SysRole> children = roleMapper.selectList(new LambdaQueryWrapper<SysRole>()
+                    .select(SysRole::getId, SysRole::getRoleLevel, SysRole::getTenantId)
+                    .eq(SysRole::getParentId, roleId));
+            for (SysRole child : children) {
+                if (!Objects.equals(child.getTenantId(), tenantId)) {
+                    throw new BusinessException(ErrorCode.ROLE_HIERARCHY_INVALID, "下级角色必须属于同一租户");
+                }
+                if (levelOf(child) <= level) {
+                    throw new BusinessException(ErrorCode.ROLE_HIERARCHY_INVALID, "下级角色的级别必须大于本角色");
+                }
             }
         }
+    }
+
+    /**
+     * 查询并锁定角色行（SELECT ... FOR UPDATE），需在事务中调用
+     */
+    private SysRole lockRole(Long roleId) {
+        return roleMapper.selectOne(new LambdaQueryWrapper<SysRole>()
+                .eq(SysRole::getId, roleId)
+                .last("FOR UPDATE"));
+    }
 
-        log.info("分配角色成功: userId={}", userId);
+    private static int levelOf(SysRole role) {
+        return role.getRoleLevel() != null ? role.getRoleLevel() : 0;
     }
 
     /**
@@ -0,0 +1,465 @@
+package cn.zhangziming.auth.server.service.impl;
+
+import cn.zhangziming.auth.common.constant.ErrorCode;
+import cn.zhangziming.auth.common.exception.BusinessException;
+import cn.zhangziming.auth.security.context.UserContext;
+import cn.zhangziming.auth.security.util.SecurityUtil;
+import cn.zhangziming.auth.server.dto.UserDTO;
+import cn.zhangziming.auth.server.entity.SysUser;
+import cn.zhangziming.auth.server.importer.CsvUserImportReader;
+import cn.zhangziming.auth.server.importer.JsonUserImportReader;
+import cn.zhangziming.auth.server.importer.UserImportReader;
+import cn.zhangziming.auth.server.importer.UserImportReader.Row;
+import cn.zhangziming.auth.server.mapper.SysUserMapper;
+import cn.zhangziming.auth.server.service.IUserImportService;
+import cn.zhangziming.auth.server.vo.UserImportVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 用户批量导入服务实现
+ *
+ * <p>上传的文件先落到临时文件，后台任务流式逐行读取，每批（默认500行）：
+ * <ol>
+ *     <li>逐行校验字段（与创建用户相同的校验规则），并检查批内用户名/邮箱/手机号重复</li>
+ *     <li>每个唯一字段一条IN查询，对照租户内已有用户（含已逻辑删除的，唯一索引不含删除标志）</li>
+ *     <li>在有界线程池上并行计算BCrypt，不占用请求线程</li>
+ *     <li>单事务多行插入；与并发创建的用户冲突时退回逐行插入，只有冲突的行失败</li>
+ * </ol>
+ * <p>内存占用只与批大小有关；已完成的批次已提交，任务中止时不回滚
+ * <p>任务状态保存在当前节点内存中，完成1小时后清理；查询进度需要访问提交任务的节点
+ * <p>任务记录提交人及其租户，查询时两者都一致才返回，其他用户按任务不存在处理（失败行明细包含用户名）
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements IUserImportService, DisposableBean {
+
+    private static final String STATUS_WAITING = "WAITING";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 已结束任务的保留时间（小时）
+     */
+    private static final long JOB_RETENTION_HOURS = 1L;
+
+    /**
+     * 排队中的任务数上限
+     */
+    private static final int MAX_WAITING_JOBS = 4;
+
+    private final SysUserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 每批行数
+     */
+    private final int batchSize;
+
+    /**
+     * 每个任务最多保留的失败行明细
+     */
+    private final int maxErrors;
+
+    /**
+     * 导入任务线程，同一时间只执行一个任务
+     */
+    private final ThreadPoolExecutor jobExecutor;
+
+    /**
+     * 密码哈希线程池
+     */
+    private final ThreadPoolExecutor hashExecutor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public UserImportServiceImpl(SysUserMapper userMapper, ObjectMapper objectMapper, Validator validator,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${auth-boot.server.user-import.batch-size:500}") int batchSize,
+                                 @Value("${auth-boot.server.user-import.hash-threads:0}") int hashThreads,
+                                 @Value("${auth-boot.server.user-import.max-errors:1000}") int maxErrors) {
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        // 默认只用一半CPU计算哈希，给登录等在线请求留出余量
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.jobExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_WAITING_JOBS), namedThreads("auth-user-import"));
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(batchSize), namedThreads("auth-import-hash"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public String startImport(MultipartFile file, String tenantId) {
+        Long submitterId = UserContext.getUserId();
+        if (submitterId == null) {
+            throw new BusinessException(ErrorCode.UNAUTHORIZED, "未登录");
+        }
+        String format = detectFormat(file);
+        Path temp;
+        try {
+            temp = Files.createTempFile("user-import-", "." + format);
+            file.transferTo(temp);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_SERVER_ERROR, "保存导入文件失败", e);
+        }
+
+        removeExpiredJobs();
+        Job job = new Job(UUID.randomUUID().toString().replace("-", ""), tenantId,
+                submitterId, UserContext.getTenantId());
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job, temp, format));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteQuietly(temp);
+            throw new BusinessException(ErrorCode.USER_IMPORT_BUSY, "导入任务过多，请稍后再试");
+        }
+        log.info("提交用户导入任务: jobId={}, tenantId={}, submitter={}, file={}, size={}",
+                job.id, tenantId, submitterId, file.getOriginalFilename(), file.getSize());
+        return job.id;
+    }
+
+    @Override
+    public UserImportVO getImport(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.isOwnedBy(UserContext.getUserId(), UserContext.getTenantId())) {
+            throw new BusinessException(ErrorCode.USER_IMPORT_NOT_FOUND, "导入任务不存在");
+        }
+        return job.toVO();
+    }
+
+    @Override
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * 执行导入任务
+     */
+    private void run(Job job, Path file, String format) {
+        job.status = STATUS_RUNNING;
+        job.startTime = LocalDateTime.now();
+        try (InputStream input = Files.newInputStream(file);
+             UserImportReader reader = "json".equals(format)
+                     ? new JsonUserImportReader(objectMapper, input)
+                     : new CsvUserImportReader(input)) {
+            List<Row> batch = new ArrayList<>(batchSize);
+            Row row;
+            while ((row = reader.next()) != null) {
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    importBatch(job, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(job, batch);
+            }
+            job.status = STATUS_COMPLETED;
+        } catch (IOException e) {
+            job.abort("文件格式错误: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort("导入被中断");
+        } catch (Exception e) {
+            log.error("用户导入任务异常: jobId={}", job.id, e);
+            job.abort("导入中止: " + e.getMessage());
+        } finally {
+            job.finishTime = LocalDateTime.now();
+            deleteQuietly(file);
+            log.info("用户导入任务结束: jobId={}, status={}, processed={}, succeeded={}, failed={}",
+                    job.id, job.status, job.processed.get(), job.succeeded.get(), job.failed.get());
+        }
+    }
+
+    /**
+     * 导入一批
+     */
+    private void importBatch(Job job, List<Row> rows) throws InterruptedException, ExecutionException {
+        // 1. 字段校验和批内查重
+        List<Row> candidates = new ArrayList<>(rows.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        for (Row row : rows) {
+            if (row.getError() != null) {
+                job.reject(row, row.getError());
+                continue;
+            }
+            UserDTO user = row.getUser();
+            Set<ConstraintViolation<UserDTO>> violations =
+                    validator.validate(user, Default.class, UserDTO.CreateGroup.class);
+            if (!violations.isEmpty()) {
+                job.reject(row, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            String duplicate = usernames.contains(key(user.getUsername())) ? "文件中用户名重复"
+                    : user.getEmail() != null && emails.contains(key(user.getEmail())) ? "文件中邮箱重复"
+                    : user.getPhone() != null && phones.contains(user.getPhone()) ? "文件中手机号重复"
+                    : null;
+            if (duplicate != null) {
+                job.reject(row, duplicate);
+                continue;
+            }
+            usernames.add(key(user.getUsername()));
+            if (user.getEmail() != null) {
+                emails.add(key(user.getEmail()));
+            }
+            if (user.getPhone() != null) {
+                phones.add(user.getPhone());
+            }
+            candidates.add(row);
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // 2. 每个唯一字段一条查询
+        String tenantId = job.tenantId;
+        Set<String> existingUsernames = keys(userMapper.selectExistingUsernames(tenantId, usernames));
+        Set<String> existingEmails = emails.isEmpty() ? Set.of()
+                : keys(userMapper.selectExistingEmails(tenantId, emails));
+        Set<String> existingPhones = phones.isEmpty() ? Set.of()
+                : new HashSet<>(userMapper.selectExistingPhones(tenantId, phones));
+        List<Row> accepted = new ArrayList<>(candidates.size());
+        for (Row row : candidates) {
+            UserDTO user = row.getUser();
+            if (existingUsernames.contains(key(user.getUsername()))) {
+                job.reject(row, "用户名已存在");
+            } else if (user.getEmail() != null && existingEmails.contains(key(user.getEmail()))) {
+                job.reject(row, "邮箱已存在");
+            } else if (user.getPhone() != null && existingPhones.contains(user.getPhone())) {
+                job.reject(row, "手机号已存在");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // 3. 并行计算密码哈希
+        List<Callable<String>> tasks = new ArrayList<>(accepted.size());
+        for (Row row : accepted) {
+            String password = row.getUser().getPassword();
+            tasks.add(() -> SecurityUtil.encryptPassword(password));
+        }
+        List<Future<String>> hashes = hashExecutor.invokeAll(tasks);
+        LocalDateTime now = LocalDateTime.now();
+        List<SysUser> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            users.add(toEntity(accepted.get(i).getUser(), tenantId, hashes.get(i).get(), now));
+        }
+
+        // 4. 多行插入，与并发创建的用户冲突时逐行插入
+        try {
+            transactionTemplate.executeWithoutResult(status -> userMapper.insertBatch(users));
+            job.accept(users.size());
+        } catch (DuplicateKeyException e) {
+            log.warn("用户导入批量插入冲突，改为逐行插入: jobId={}, rows={}", job.id, users.size());
+            for (int i = 0; i < users.size(); i++) {
+                SysUser user = users.get(i);
+                user.setId(null);
+                try {
+                    userMapper.insert(user);
+                    job.accept(1);
+                } catch (DuplicateKeyException ex) {
+                    job.reject(accepted.get(i), "用户名、邮箱或手机号已存在");
+                }
+            }
+        }
+    }
+
+    private static SysUser toEntity(UserDTO dto, String tenantId, String passwordHash, LocalDateTime now) {
+        SysUser user = new SysUser();
+        BeanUtils.copyProperties(dto, user);
+        user.setId(null);
+        user.setTenantId(tenantId);
+        user.setPassword(passwordHash);
+        user.setPasswordUpdateTime(now);
+        // 多行插入会写入所有列，未提供的字段显式设置与表默认值相同的值
+        if (user.getStatus() == null) {
+            user.setStatus(1);
+        }
+        if (user.getUserType() == null) {
+            user.setUserType(1);
+        }
+        if (user.getGender() == null) {
+            user.setGender(0);
+        }
+        return user;
+    }
+
+    private static String detectFormat(MultipartFile file) {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        String contentType = file.getContentType() != null ? file.getContentType() : "";
+        if (name.endsWith(".json") || contentType.contains("json")) {
+            return "json";
+        }
+        if (name.endsWith(".csv") || contentType.contains("csv")) {
+            return "csv";
+        }
+        throw new BusinessException(ErrorCode.USER_IMPORT_FORMAT_ERROR, "只支持CSV或JSON文件");
+    }
+
+    /**
+     * 用户名和邮箱按表的排序规则不区分大小写
+     */
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> keys(Collection<String> values) {
+        Set<String> keys = new HashSet<>(values.size());
+        values.forEach(value -> keys.add(key(value)));
+        return keys;
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minusHours(JOB_RETENTION_HOURS);
+        jobs.values().removeIf(job -> job.finishTime != null && job.finishTime.isBefore(expiry));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导入临时文件失败: {}", file, e);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 导入任务，只由任务线程修改，查询时复制为VO
+     */
+    private class Job {
+
+        private final String id;
+        private final String tenantId;
+        /**
+         * 提交人及其租户（与导入的目标租户可能不同）
+         */
+        private final Long submitterId;
+        private final String submitterTenantId;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<UserImportVO.RowError> errors = new CopyOnWriteArrayList<>();
+        private volatile String status = STATUS_WAITING;
+        private volatile String message;
+        private volatile LocalDateTime startTime;
+        private volatile LocalDateTime finishTime;
+
+        private Job(String id, String tenantId, Long submitterId, String submitterTenantId) {
+            this.id = id;
+            this.tenantId = tenantId;
+            this.submitterId = submitterId;
+            this.submitterTenantId = submitterTenantId;
+        }
+
+        private boolean isOwnedBy(Long userId, String userTenantId) {
+            return submitterId.equals(userId) && Objects.equals(submitterTenantId, userTenantId);
+        }
+
+        private void accept(int rows) {
+            processed.addAndGet(rows);
+            succeeded.addAndGet(rows);
+        }
+
+        private void reject(Row row, String reason) {
+            processed.incrementAndGet();
+            failed.incrementAndGet();
+            if (errors.size() < maxErrors) {
+                UserImportVO.RowError error = new UserImportVO.RowError();
+                error.setRowNumber(row.getRowNumber());
+                error.setUsername(row.getUser() != null ? row.getUser().getUsername() : null);
+                error.setMessage(reason);
+                errors.add(error);
+            }
+        }
+
+        private void abort(String reason) {
+            status = STATUS_FAILED;
+            message = reason;
+        }
+
+        private UserImportVO toVO() {
+            UserImportVO vo = new UserImportVO();
+            vo.setJobId(id);
+            vo.setStatus(status);
+            vo.setTenantId(tenantId);
+            vo.setProcessed(processed.get());
+            vo.setSucceeded(succeeded.get());
+            vo.setFailed(failed.get());
+            vo.setMessage(message);
+            vo.setStartTime(startTime);
+            vo.setFinishTime(finishTime);
+            vo.setErrors(new ArrayList<>(errors));
+            return vo;
+        }
+    }
+}
@@ -9,11 +9,11 @@ import cn.zhangziming.auth.security.util.SecurityUtil;
 import cn.zhangziming.auth.server.dto.UserDTO;
 import cn.zhangziming.auth.server.entity.SysUser;
 import cn.zhangziming.auth.server.mapper.SysUserMapper;
-import cn.zhangziming.auth.server.service.IPermissionService;
-import cn.zhangziming.auth.server.service.IRoleService;
+import cn.zhangziming.auth.server.role.RbacEngine;
+import cn.zhangziming.auth.server.role.UserAuthorityEvictor;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader.UserAuthorities;
 import cn.zhangziming.auth.server.service.IUserService;
-import cn.zhangziming.auth.server.vo.PermissionVO;
-import cn.zhangziming.auth.server.vo.RoleVO;
 import cn.zhangziming.auth.server.vo.UserVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -25,6 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -39,8 +40,9 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements IUserService {
 
     private final SysUserMapper userMapper;
-    private final IRoleService roleService;
-    private final IPermissionService permissionService;
+    private final UserAuthorityLoader userAuthorityLoader;
+    private final RbacEngine rbacEngine;
+    private final UserAuthorityEvictor userAuthorityEvictor;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -139,6 +141,8 @@ public class UserServiceImpl implements IUserService {
 
         // 逻辑删除
         userMapper.deleteById(userId);
+        rbacEngine.onUserDeleted(userId);
+        userAuthorityEvictor.onUserRolesChanged(userId);
 
         log.info("删除用户成功: userId={}", userId);
     }
@@ -149,7 +153,7 @@ public class UserServiceImpl implements IUserService {
         if (user == null) {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND, "用户不存在");
         }
-        return convertToVO(user);
+        return convertToVO(user, userAuthorityLoader.load(userId));
     }
 
     @Override
@@ -166,8 +170,11 @@ public class UserServiceImpl implements IUserService {
                 new LambdaQueryWrapper<SysUser>().orderByDesc(SysUser::getCreateTime)
         );
 
+        // 整页用户的角色和权限批量加载，不按行查询
+        Map<Long, UserAuthorities> authorities = userAuthorityLoader.load(
+                page.getRecords().stream().map(SysUser::getId).toList());
         List<UserVO> voList = page.getRecords().stream()
-                .map(this::convertToVO)
+                .map(user -> convertToVO(user, authorities.get(user.getId())))
                 .collect(Collectors.toList());
 
         return PageResult.build(page.getTotal(), (int) page.getCurrent(), (int) page.getSize(), voList);
@@ -232,26 +239,21 @@ public class UserServiceImpl implements IUserService {
 
     /**
      * 转换为VO
+     *
+     * @param user        用户实体
+     * @param authorities 已加载的角色和权限
      */
-    private UserVO convertToVO(SysUser user) {
+    private UserVO convertToVO(SysUser user, UserAuthorities authorities) {
         UserVO vo = new UserVO();
         BeanUtils.copyProperties(user, vo);
         vo.setUserId(user.getId());
         
-        // 加载用户角色和权限
-        List<RoleVO> roles = roleService.getUserRoles(user.getId());
-        List<PermissionVO> permissions = permissionService.getUserPermissions(user.getId());
-        
-        vo.setRoles(roles);
-        vo.setPermissions(permissions);
+        vo.setRoles(authorities.getRoles());
+        vo.setPermissions(authorities.getPermissions());
         
         // 设置角色编码和权限编码集合
-        vo.setRoleCodes(roles.stream()
-                .map(role -> role.getRoleCode())
-                .collect(Collectors.toSet()));
-        vo.setPermissionCodes(permissions.stream()
-                .map(perm -> perm.getPermissionCode())
-                .collect(Collectors.toSet()));
+        vo.setRoleCodes(authorities.getRoleCodes());
+        vo.setPermissionCodes(authorities.getPermissionCodes());
         
         return vo;
     }
@@ -37,6 +37,18 @@ public class RoleVO implements Serializable {
      */
     private String description;
 
+    /**
+     * 角色级别
+     * 数字越小权限越大
+     */
+    private Integer roleLevel;
+
+    /**
+     * 上级角色ID
+     * 0表示没有上级
+     */
+    private Long parentId;
+
     /**
      * 状态
      * 0-禁用 1-正常
@@ -0,0 +1,33 @@
+package cn.zhangziming.auth.server.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 登录会话视图对象
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+public class SessionVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 会话ID
+     */
+    private String sessionId;
+
+    /**
+     * 登录时间
+     */
+    private LocalDateTime loginTime;
+
+    /**
+     * 会话过期时间
+     */
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,94 @@
+package cn.zhangziming.auth.server.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 用户导入任务视图对象
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+@Data
+public class UserImportVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 状态
+     * WAITING-排队中 RUNNING-导入中 COMPLETED-已完成 FAILED-已中止
+     */
+    private String status;
+
+    /**
+     * 租户ID
+     */
+    private String tenantId;
+
+    /**
+     * 已处理行数
+     */
+    private long processed;
+
+    /**
+     * 成功行数
+     */
+    private long succeeded;
+
+    /**
+     * 失败行数
+     */
+    private long failed;
+
+    /**
+     * 中止原因（文件格式错误等）
+     */
+    private String message;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 失败行明细（最多保留配置的条数，超出部分只计入失败行数）
+     */
+    private List<RowError> errors;
+
+    /**
+     * 失败行
+     */
+    @Data
+    public static class RowError implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 行号
+         */
+        private long rowNumber;
+
+        /**
+         * 用户名
+         */
+        private String username;
+
+        /**
+         * 失败原因
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,231 @@
+package cn.zhangziming.auth.server.controller;
+
+import cn.zhangziming.auth.security.jwks.JwksKeySource;
+import cn.zhangziming.auth.security.jwt.ClaimsDictionarySource;
+import cn.zhangziming.auth.security.jwt.JwtKeyRing;
+import cn.zhangziming.auth.security.jwt.JwtKeySource;
+import cn.zhangziming.auth.security.jwt.JwtProperties;
+import cn.zhangziming.auth.security.jwt.JwtUtil;
+import cn.zhangziming.auth.security.jwt.TokenRevocationChecker;
+import cn.zhangziming.auth.security.jwt.TokenValidationResult;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JWKS发布与远程验签往返测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class JwksControllerTest {
+
+    private HttpServer server;
+
+    /**
+     * 认证服务当前发布的JWK Set
+     */
+    private volatile String published = "{\"keys\":[]}";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/.well-known/jwks.json", exchange -> {
+            byte[] body = published.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void publishedKeysContainOnlyPublicParameters(String algorithm) {
+        JwtUtil jwtUtil = new JwtUtil(properties(algorithm, "k1", generate(algorithm)));
+
+        String json = new JwksController(jwtUtil).jwks().getBody();
+        JwkSet jwkSet = Jwks.setParser().build().parse(json);
+
+        assertEquals(1, jwkSet.size());
+        Jwk<?> jwk = jwkSet.iterator().next();
+        assertEquals("k1", jwk.getId());
+        assertEquals(algorithm, jwk.getAlgorithm());
+        assertEquals("sig", jwk.get("use"));
+        assertEquals(jwtUtil.getJwtCodec().getKeyRing().getPublicKeys().get("k1"), jwk.toKey());
+        // 私钥参数不能出现在JWKS中
+        assertFalse(json.contains("\"d\""), json);
+    }
+
+    @Test
+    void hs256PublishesEmptyKeySet() {
+        JwtProperties properties = new JwtProperties();
+        properties.setVerificationKeys(new HashMap<>(Map.of("old", "old-secret-key-which-is-at-least-32-bytes")));
+
+        assertEquals("{\"keys\":[]}", new JwksController(new JwtUtil(properties)).jwks().getBody());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {JwtKeyRing.ALGORITHM_RS256, JwtKeyRing.ALGORITHM_ES256, JwtKeyRing.ALGORITHM_EDDSA})
+    void tokenVerifiesThroughRemoteJwks(String algorithm) {
+        JwtUtil issuer = new JwtUtil(properties(algorithm, "k1", generate(algorithm)));
+        published = new JwksController(issuer).jwks().getBody();
+        String token = issue(issuer);
+
+        JwksKeySource keySource = keySource();
+        try {
+            JwtUtil resource = resourceServer(keySource);
+
+            assertFalse(resource.canSign());
+            TokenValidationResult result = resource.validate(token);
+            assertEquals(TokenValidationResult.Status.VALID, result.getStatus());
+            assertEquals(1L, result.getVerifiedToken().getUserId());
+            // 其他密钥签发的同kid Token必须拒绝
+            String forged = issue(new JwtUtil(properties(algorithm, "k1", generate(algorithm))));
+            assertEquals(TokenValidationResult.Status.BAD_SIGNATURE, resource.validate(forged).getStatus());
+        } finally {
+            keySource.destroy();
+        }
+    }
+
+    @Test
+    void rotatedKeysAreResolvedByKid() throws InterruptedException {
+        KeyPair oldKeyPair = generate(JwtKeyRing.ALGORITHM_ES256);
+        KeyPair newKeyPair = generate(JwtKeyRing.ALGORITHM_ES256);
+        JwtUtil before = new JwtUtil(properties(JwtKeyRing.ALGORITHM_ES256, "2024-01", oldKeyPair));
+        published = new JwksController(before).jwks().getBody();
+        String oldToken = issue(before);
+
+        JwksKeySource keySource = keySource();
+        try {
+            JwtUtil resource = resourceServer(keySource);
+            assertTrue(resource.validateToken(oldToken));
+
+            // 认证服务轮换：新密钥签名，旧公钥继续发布
+            JwtProperties rotated = properties(JwtKeyRing.ALGORITHM_ES256, "2024-02", newKeyPair);
+            rotated.getVerificationPublicKeys().put("2024-01", pem("PUBLIC KEY", oldKeyPair.getPublic().getEncoded()));
+            JwtUtil after = new JwtUtil(rotated);
+            published = new JwksController(after).jwks().getBody();
+            String newToken = issue(after);
+
+            // 定期刷新后两个kid都可验签
+            waitForKey(keySource, "2024-02");
+            assertEquals(Set.of("2024-02", "2024-01"), keyIds(keySource));
+            assertTrue(resource.validateToken(oldToken));
+            assertTrue(resource.validateToken(newToken));
+            // 多个公钥时未携带kid的Token无法确定密钥
+            assertNull(keySource.getVerificationKey(null));
+        } finally {
+            keySource.destroy();
+        }
+    }
+
+    @Test
+    void symmetricKeysInJwksAreIgnored() {
+        KeyPair keyPair = generate(JwtKeyRing.ALGORITHM_RS256);
+        String rsa = Jwks.json(Jwks.builder().key(keyPair.getPublic()).id("rsa").build());
+        // 对称密钥只能手工拼出，Jwks.json不序列化私密参数
+        String oct = "{\"kty\":\"oct\",\"kid\":\"oct\",\"k\":\""
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(Jwts.SIG.HS256.key().build().getEncoded())
+                + "\"}";
+        published = "{\"keys\":[" + rsa + "," + oct + "]}";
+
+        JwksKeySource keySource = keySource();
+        try {
+            assertNotNull(keySource.getVerificationKey("rsa"));
+            assertNull(keySource.getVerificationKey("oct"));
+            assertEquals(Set.of("rsa"), keyIds(keySource));
+        } finally {
+            keySource.destroy();
+        }
+    }
+
+    private JwksKeySource keySource() {
+        String uri = "http://127.0.0.1:" + server.getAddress().getPort() + "/.well-known/jwks.json";
+        return new JwksKeySource(uri, 1, 5);
+    }
+
+    private static JwtUtil resourceServer(JwksKeySource keySource) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("jwksKeySource", keySource);
+        return new JwtUtil(new JwtProperties(), beanFactory.getBeanProvider(JwtKeySource.class),
+                beanFactory.getBeanProvider(TokenRevocationChecker.class),
+                beanFactory.getBeanProvider(ClaimsDictionarySource.class));
+    }
+
+    private static void waitForKey(JwksKeySource keySource, String keyId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (!keyIds(keySource).contains(keyId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+    }
+
+    private static Set<String> keyIds(JwksKeySource keySource) {
+        Set<String> keyIds = new HashSet<>();
+        keySource.getKeyIds().forEach(keyIds::add);
+        return keyIds;
+    }
+
+    private static KeyPair generate(String algorithm) {
+        switch (algorithm) {
+            case JwtKeyRing.ALGORITHM_RS256:
+                return Jwts.SIG.RS256.keyPair().build();
+            case JwtKeyRing.ALGORITHM_ES256:
+                return Jwts.SIG.ES256.keyPair().build();
+            default:
+                return Jwks.CRV.Ed25519.keyPair().build();
+        }
+    }
+
+    private static JwtProperties properties(String algorithm, String keyId, KeyPair keyPair) {
+        JwtProperties properties = new JwtProperties();
+        properties.setAlgorithm(algorithm);
+        properties.setKeyId(keyId);
+        properties.setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        properties.setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        return properties;
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+
+    private static String issue(JwtUtil jwtUtil) {
+        return jwtUtil.generateToken(1L, "admin", "DEFAULT", JwtUtil.newTokenId(),
+                List.of("ADMIN"), List.of("user:view"));
+    }
+}
@@ -0,0 +1,95 @@
+package cn.zhangziming.auth.server.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV用户导入读取器测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class CsvUserImportReaderTest {
+
+    @Test
+    void headerIsCaseInsensitiveAndUnknownColumnsAreIgnored() throws IOException {
+        try (CsvUserImportReader reader = reader("\uFEFFUserName,PASSWORD,extra,Gender,userType\n"
+                + "alice,secret,x,1,2\n")) {
+            UserImportReader.Row row = reader.next();
+
+            assertEquals(2L, row.getRowNumber());
+            assertEquals("alice", row.getUser().getUsername());
+            assertEquals("secret", row.getUser().getPassword());
+            assertEquals(1, row.getUser().getGender());
+            assertEquals(2, row.getUser().getUserType());
+            assertNull(row.getUser().getNickname());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void quotedFieldsFollowRfc4180() throws IOException {
+        try (CsvUserImportReader reader = reader("username,password,nickname\r\n"
+                + "alice,secret,\"Smith, \"\"Al\"\"\nJr\"\r\n"
+                + "\n"
+                + "bob,pw,\n")) {
+            UserImportReader.Row first = reader.next();
+            UserImportReader.Row second = reader.next();
+
+            assertEquals("Smith, \"Al\"\nJr", first.getUser().getNickname());
+            assertEquals(2L, first.getRowNumber());
+            // 引号内换行和空行都计入行号
+            assertEquals(5L, second.getRowNumber());
+            assertEquals("bob", second.getUser().getUsername());
+            assertNull(second.getUser().getNickname());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void invalidNumberIsReportedPerRow() throws IOException {
+        try (CsvUserImportReader reader = reader("username,password,status\nalice,secret,x\nbob,pw,1\n")) {
+            UserImportReader.Row bad = reader.next();
+            UserImportReader.Row good = reader.next();
+
+            assertNull(bad.getUser());
+            assertTrue(bad.getError().startsWith("数字格式错误"), bad.getError());
+            assertEquals(1, good.getUser().getStatus());
+        }
+    }
+
+    @Test
+    void missingRequiredColumnIsRejected() {
+        assertThrows(IOException.class, () -> reader("username,nickname\nalice,A\n"));
+        assertThrows(IOException.class, () -> reader(""));
+    }
+
+    @Test
+    void unclosedQuoteIsRejected() throws IOException {
+        try (CsvUserImportReader reader = reader("username,password\nalice,\"secret\n")) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    @Test
+    void oversizedRecordIsRejected() throws IOException {
+        try (CsvUserImportReader reader = reader("username,password\nalice," + "x".repeat(5000) + "\n")) {
+            assertThrows(IOException.class, reader::next);
+        }
+        try (CsvUserImportReader reader = reader("username,password\n" + ",".repeat(100) + "\n")) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    private static CsvUserImportReader reader(String csv) throws IOException {
+        return new CsvUserImportReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
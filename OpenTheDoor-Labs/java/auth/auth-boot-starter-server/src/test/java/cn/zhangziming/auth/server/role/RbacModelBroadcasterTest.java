@@ -0,0 +1,67 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.redis.constant.CacheConstant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * RBAC模型变更广播测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class RbacModelBroadcasterTest {
+
+    @Test
+    void ownBroadcastIsIgnoredAndOtherNodesAreNotified() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RbacModelBroadcaster self = broadcaster(template);
+        RbacModelBroadcaster other = broadcaster(mock(StringRedisTemplate.class));
+        AtomicInteger selfReloads = new AtomicInteger();
+        AtomicInteger otherReloads = new AtomicInteger();
+        self.addRemoteListener(selfReloads::incrementAndGet);
+        other.addRemoteListener(otherReloads::incrementAndGet);
+        // 把发出的消息投递给两个节点
+        doAnswer(invocation -> {
+            byte[] body = invocation.getArgument(1, String.class).getBytes(StandardCharsets.UTF_8);
+            DefaultMessage message = new DefaultMessage(
+                    CacheConstant.RBAC_MODEL_CHANNEL.getBytes(StandardCharsets.UTF_8), body);
+            self.onMessage(message, null);
+            other.onMessage(message, null);
+            return 1L;
+        }).when(template).convertAndSend(eq(CacheConstant.RBAC_MODEL_CHANNEL), anyString());
+
+        self.publish();
+
+        verify(template).convertAndSend(eq(CacheConstant.RBAC_MODEL_CHANNEL), anyString());
+        assertEquals(0, selfReloads.get());
+        assertEquals(1, otherReloads.get());
+    }
+
+    @Test
+    void publishWithoutRedisIsNoop() {
+        RbacModelBroadcaster broadcaster = new RbacModelBroadcaster(
+                new DefaultListableBeanFactory().getBeanProvider(StringRedisTemplate.class));
+
+        assertDoesNotThrow(broadcaster::publish);
+    }
+
+    private static RbacModelBroadcaster broadcaster(StringRedisTemplate template) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("stringRedisTemplate", template);
+        return new RbacModelBroadcaster(beanFactory.getBeanProvider(StringRedisTemplate.class));
+    }
+}
@@ -0,0 +1,111 @@
+package cn.zhangziming.auth.server.role;
+
+import cn.zhangziming.auth.server.entity.SysPermission;
+import cn.zhangziming.auth.server.entity.SysRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RBAC模型快照闭包测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class RbacSnapshotTest {
+
+    @Test
+    void parentInheritsWholeChain() {
+        RbacSnapshot snapshot = RbacSnapshot.build(
+                roles(role(1L, 0L), role(2L, 1L), role(3L, 2L)),
+                permissions(10L, 20L, 30L),
+                Map.of(1L, Set.of(10L), 2L, Set.of(20L), 3L, Set.of(30L)),
+                null);
+
+        assertEquals(Set.of(10L, 20L, 30L), snapshot.getEffectivePermissionIds(List.of(1L)));
+        assertEquals(Set.of(20L, 30L), snapshot.getEffectivePermissionIds(List.of(2L)));
+        assertEquals(Set.of(30L), snapshot.getEffectivePermissionIds(List.of(3L)));
+        assertEquals(Set.of(1L, 2L, 3L), snapshot.getInheritingRoleIds(3L));
+    }
+
+    @Test
+    void cyclicGraphTerminatesAndKeepsOwnPermissions() {
+        // 直接改库造成 1 -> 2 -> 1 的环，3 挂在 1 下
+        RbacSnapshot snapshot = RbacSnapshot.build(
+                roles(role(1L, 2L), role(2L, 1L), role(3L, 1L)),
+                permissions(10L, 20L, 30L),
+                Map.of(1L, Set.of(10L), 2L, Set.of(20L), 3L, Set.of(30L)),
+                null);
+
+        Set<Long> first = snapshot.getEffectivePermissionIds(List.of(1L));
+        Set<Long> second = snapshot.getEffectivePermissionIds(List.of(2L));
+        assertTrue(first.containsAll(Set.of(10L, 30L)), first.toString());
+        assertTrue(second.contains(20L), second.toString());
+        // 环上至少有一个角色拿到了另一个的权限，成环的边只跳过一条
+        assertTrue(first.contains(20L) || second.contains(10L));
+        assertEquals(Set.of(30L), snapshot.getEffectivePermissionIds(List.of(3L)));
+        assertEquals(Set.of(1L, 2L, 3L), snapshot.getInheritingRoleIds(3L));
+    }
+
+    @Test
+    void selfParentTerminates() {
+        RbacSnapshot snapshot = RbacSnapshot.build(
+                roles(role(1L, 1L)),
+                permissions(10L),
+                Map.of(1L, Set.of(10L)),
+                null);
+
+        assertEquals(Set.of(10L), snapshot.getEffectivePermissionIds(List.of(1L)));
+        assertEquals(Set.of(1L), snapshot.getInheritingRoleIds(1L));
+    }
+
+    @Test
+    void withRolesRecomputesClosure() {
+        RbacSnapshot before = RbacSnapshot.build(
+                roles(role(1L, 0L), role(2L, 0L)),
+                permissions(10L, 20L),
+                Map.of(1L, Set.of(10L), 2L, Set.of(20L)),
+                null);
+
+        RbacSnapshot after = before.withRoles(roles(role(1L, 0L), role(2L, 1L)), before.permissions,
+                before.rolePermissions);
+
+        assertEquals(Set.of(10L), before.getEffectivePermissionIds(List.of(1L)));
+        assertEquals(Set.of(10L, 20L), after.getEffectivePermissionIds(List.of(1L)));
+    }
+
+    private static SysRole role(Long id, Long parentId) {
+        SysRole role = new SysRole();
+        role.setId(id);
+        role.setParentId(parentId);
+        role.setRoleCode("R" + id);
+        role.setStatus(1);
+        return role;
+    }
+
+    private static Map<Long, SysRole> roles(SysRole... roles) {
+        Map<Long, SysRole> result = new HashMap<>();
+        for (SysRole role : roles) {
+            result.put(role.getId(), role);
+        }
+        return result;
+    }
+
+    private static Map<Long, SysPermission> permissions(Long... ids) {
+        Map<Long, SysPermission> result = new HashMap<>();
+        for (Long id : ids) {
+            SysPermission permission = new SysPermission();
+            permission.setId(id);
+            permission.setPermissionCode("p" + id);
+            permission.setStatus(1);
+            result.put(id, permission);
+        }
+        return result;
+    }
+}
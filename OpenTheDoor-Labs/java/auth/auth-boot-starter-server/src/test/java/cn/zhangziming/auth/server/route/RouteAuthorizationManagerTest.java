@@ -0,0 +1,77 @@
+package cn.zhangziming.auth.server.route;
+
+import cn.zhangziming.auth.security.route.RouteProperties;
+import cn.zhangziming.auth.security.route.RouteRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 路由鉴权测试
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class RouteAuthorizationManagerTest {
+
+    private final RouteAuthorizationManager manager = new RouteAuthorizationManager(registry());
+
+    @Test
+    void permissionRuleAppliesToPlainPath() {
+        assertFalse(check(user("user:view"), "/api/user/list"));
+        assertTrue(check(user("user:list"), "/api/user/list"));
+    }
+
+    @Test
+    void encodedPathDoesNotBypassPermissionRule() {
+        // %6C 即 l，解码后是 /api/user/list
+        assertFalse(check(user("user:view"), "/api/user/%6Cist"));
+        assertFalse(check(user("user:view"), "/api/user;x=1/list"));
+        assertFalse(check(user("user:view"), "/api/public/../user/list"));
+        assertFalse(check(user("user:view"), "/api//user/list"));
+        assertTrue(check(user("user:list"), "/api/user/%6Cist"));
+    }
+
+    @Test
+    void contextPathIsStrippedBeforeMatching() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/user/%6Cist");
+        request.setContextPath("/app");
+
+        assertFalse(manager.check(() -> user("user:view"), new RequestAuthorizationContext(request)).isGranted());
+    }
+
+    @Test
+    void publicPathNeedsNoAuthentication() {
+        assertTrue(check(null, "/api/public/info"));
+        assertFalse(check(null, "/api/user/list"));
+    }
+
+    private boolean check(Authentication authentication, String requestUri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+        return manager.check(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+    }
+
+    private static Authentication user(String permission) {
+        return new UsernamePasswordAuthenticationToken("tester", null,
+                List.of(new SimpleGrantedAuthority(permission)));
+    }
+
+    private static RouteRegistry registry() {
+        RouteProperties properties = new RouteProperties();
+        properties.setPublicPaths(List.of("/api/public/**"));
+        RouteProperties.Rule rule = new RouteProperties.Rule();
+        rule.setMethod("GET");
+        rule.setPath("/api/user/list");
+        rule.setPermission("user:list");
+        properties.setRules(List.of(rule));
+        return new RouteRegistry(properties);
+    }
+}
@@ -0,0 +1,230 @@
+package cn.zhangziming.auth.server.service.impl;
+
+import cn.zhangziming.auth.server.entity.SysRole;
+import cn.zhangziming.auth.server.entity.SysRolePermission;
+import cn.zhangziming.auth.server.entity.SysUser;
+import cn.zhangziming.auth.server.entity.SysUserRole;
+import cn.zhangziming.auth.server.mapper.SysPermissionMapper;
+import cn.zhangziming.auth.server.mapper.SysRoleMapper;
+import cn.zhangziming.auth.server.mapper.SysRolePermissionMapper;
+import cn.zhangziming.auth.server.mapper.SysUserMapper;
+import cn.zhangziming.auth.server.mapper.SysUserRoleMapper;
+import cn.zhangziming.auth.server.role.RbacEngine;
+import cn.zhangziming.auth.server.role.UserAuthorityEvictor;
+import cn.zhangziming.auth.server.role.UserAuthorityLoader;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 角色/用户分配差量写入测试
+ *
+ * <p>只删除移除的、只插入新增的；没有变化时不写库，也不更新内存模型和缓存
+ *
+ * @author zhangziming
+ * @since 2024-10-29
+ */
+class RoleServiceImplTest {
+
+    private static final Long ROLE_ID = 1L;
+
+    private static final Long USER_ID = 100L;
+
+    private SysRoleMapper roleMapper;
+
+    private SysRolePermissionMapper rolePermissionMapper;
+
+    private SysUserRoleMapper userRoleMapper;
+
+    private SysUserMapper userMapper;
+
+    private RbacEngine rbacEngine;
+
+    private UserAuthorityEvictor userAuthorityEvictor;
+
+    private RoleServiceImpl roleService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件解析列名依赖表信息，测试中没有启动MyBatis-Plus
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, SysRolePermission.class);
+        TableInfoHelper.initTableInfo(assistant, SysUserRole.class);
+        TableInfoHelper.initTableInfo(assistant, SysRole.class);
+        TableInfoHelper.initTableInfo(assistant, SysUser.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        roleMapper = mock(SysRoleMapper.class);
+        rolePermissionMapper = mock(SysRolePermissionMapper.class);
+        userRoleMapper = mock(SysUserRoleMapper.class);
+        userMapper = mock(SysUserMapper.class);
+        rbacEngine = mock(RbacEngine.class);
+        userAuthorityEvictor = mock(UserAuthorityEvictor.class);
+        roleService = new RoleServiceImpl(roleMapper, mock(SysPermissionMapper.class), rolePermissionMapper,
+                userRoleMapper, userMapper, rbacEngine, mock(UserAuthorityLoader.class), userAuthorityEvictor);
+
+        SysRole role = new SysRole();
+        role.setId(ROLE_ID);
+        role.setTenantId("T1");
+        when(roleMapper.selectOne(any())).thenReturn(role);
+        SysUser user = new SysUser();
+        user.setId(USER_ID);
+        user.setTenantId("T1");
+        when(userMapper.selectOne(any())).thenReturn(user);
+    }
+
+    // ==================== 角色的权限 ====================
+
+    @Test
+    void assignPermissionsInsertsOnlyAdded() {
+        currentPermissions(10L, 20L);
+
+        roleService.assignPermissions(ROLE_ID, List.of(10L, 20L, 30L));
+
+        verify(rolePermissionMapper, never()).delete(any());
+        assertEquals(Set.of(30L), insertedPermissionIds());
+        verify(rbacEngine).onRolePermissionsChanged(eq(ROLE_ID), eq(Set.of(10L, 20L, 30L)));
+        verify(userAuthorityEvictor).onRolePermissionsChanged(ROLE_ID);
+    }
+
+    @Test
+    void assignPermissionsDeletesOnlyRemoved() {
+        currentPermissions(10L, 20L, 30L);
+
+        roleService.assignPermissions(ROLE_ID, List.of(20L));
+
+        assertEquals(Set.of(10L, 30L), deletedIds(rolePermissionMapper, ROLE_ID));
+        assertEquals(Set.of(), insertedPermissionIds());
+        verify(rbacEngine).onRolePermissionsChanged(eq(ROLE_ID), eq(Set.of(20L)));
+    }
+
+    @Test
+    void assignPermissionsAddsAndRemovesInOneCall() {
+        currentPermissions(10L, 20L);
+
+        roleService.assignPermissions(ROLE_ID, List.of(20L, 30L, 30L));
+
+        assertEquals(Set.of(10L), deletedIds(rolePermissionMapper, ROLE_ID));
+        assertEquals(Set.of(30L), insertedPermissionIds());
+    }
+
+    @Test
+    void unchangedPermissionsWriteNothing() {
+        currentPermissions(10L, 20L);
+
+        roleService.assignPermissions(ROLE_ID, List.of(20L, 10L));
+
+        verify(rolePermissionMapper, never()).delete(any());
+        verify(rolePermissionMapper, never()).insertBatch(anyCollection());
+        verify(rbacEngine, never()).onRolePermissionsChanged(anyLong(), anyCollection());
+        verify(userAuthorityEvictor, never()).onRolePermissionsChanged(any(Long[].class));
+    }
+
+    // ==================== 用户的角色 ====================
+
+    @Test
+    void assignRolesInsertsAddedAndDeletesRemoved() {
+        currentRoles(1L, 2L);
+
+        roleService.assignRolesToUser(USER_ID, List.of(2L, 3L));
+
+        assertEquals(Set.of(1L), deletedIds(userRoleMapper, USER_ID));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SysUserRole>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(userRoleMapper).insertBatch(captor.capture());
+        assertEquals(Set.of(3L), captor.getValue().stream().map(SysUserRole::getRoleId).collect(Collectors.toSet()));
+        SysUserRole added = captor.getValue().iterator().next();
+        assertEquals(USER_ID, added.getUserId());
+        assertEquals("T1", added.getTenantId());
+        verify(rbacEngine).onUserRolesChanged(eq(USER_ID), eq(Set.of(2L, 3L)));
+        verify(userAuthorityEvictor).onUserRolesChanged(USER_ID);
+    }
+
+    @Test
+    void clearingRolesDeletesAll() {
+        currentRoles(1L, 2L);
+
+        roleService.assignRolesToUser(USER_ID, null);
+
+        assertEquals(Set.of(1L, 2L), deletedIds(userRoleMapper, USER_ID));
+        verify(rbacEngine).onUserRolesChanged(eq(USER_ID), eq(Set.of()));
+    }
+
+    @Test
+    void unchangedRolesWriteNothing() {
+        currentRoles(1L, 2L);
+
+        roleService.assignRolesToUser(USER_ID, List.of(1L, 2L));
+
+        verify(userRoleMapper, never()).delete(any());
+        verify(userRoleMapper, never()).insertBatch(anyCollection());
+        verify(rbacEngine, never()).onUserRolesChanged(anyLong(), anyCollection());
+        verify(userAuthorityEvictor, never()).onUserRolesChanged(anyLong());
+    }
+
+    private void currentPermissions(Long... permissionIds) {
+        when(rolePermissionMapper.selectList(any())).thenReturn(List.of(permissionIds).stream().map(id -> {
+            SysRolePermission rolePermission = new SysRolePermission();
+            rolePermission.setRoleId(ROLE_ID);
+            rolePermission.setPermissionId(id);
+            return rolePermission;
+        }).toList());
+    }
+
+    private void currentRoles(Long... roleIds) {
+        when(userRoleMapper.selectList(any())).thenReturn(List.of(roleIds).stream().map(id -> {
+            SysUserRole userRole = new SysUserRole();
+            userRole.setUserId(USER_ID);
+            userRole.setRoleId(id);
+            return userRole;
+        }).toList());
+    }
+
+    private Set<Long> insertedPermissionIds() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<SysRolePermission>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(rolePermissionMapper).insertBatch(captor.capture());
+        captor.getValue().forEach(rolePermission -> assertEquals("T1", rolePermission.getTenantId()));
+        return captor.getValue().stream().map(SysRolePermission::getPermissionId).collect(Collectors.toSet());
+    }
+
+    /**
+     * 删除条件中除归属ID（角色或用户）之外的参数，即被移除的ID
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Set<Long> deletedIds(BaseMapper<?> mapper, Long ownerId) {
+        ArgumentCaptor<Wrapper> captor = ArgumentCaptor.forClass(Wrapper.class);
+        verify((BaseMapper) mapper).delete(captor.capture());
+        AbstractWrapper<?, ?, ?> wrapper = (AbstractWrapper<?, ?, ?>) captor.getValue();
+        wrapper.getSqlSegment();
+        Set<Long> ids = new TreeSet<>();
+        wrapper.getParamNameValuePairs().values().forEach(value -> ids.add((Long) value));
+        ids.remove(ownerId);
+        return ids;
+    }
+}
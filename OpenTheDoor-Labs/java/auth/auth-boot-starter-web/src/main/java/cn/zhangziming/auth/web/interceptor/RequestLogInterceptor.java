@@ -1,5 +1,6 @@
 package cn.zhangziming.auth.web.interceptor;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,11 @@ public class RequestLogInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求（如登录）处理完成后的再次分派，开始时间和请求信息在首次分派时已记录
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        
         // 记录请求开始时间
         request.setAttribute(START_TIME_ATTR, System.currentTimeMillis());
         
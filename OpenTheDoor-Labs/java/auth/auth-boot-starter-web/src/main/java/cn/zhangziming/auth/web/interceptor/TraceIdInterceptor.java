@@ -5,7 +5,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import java.util.UUID;
 
@@ -13,12 +13,15 @@ import java.util.UUID;
  * 链路追踪拦截器
  * 
  * <p>为每个请求生成唯一的TraceId，方便日志追踪和问题排查
+ * <p>异步请求再次分派时沿用首次分派的TraceId；首次分派结束时清理MDC，避免残留在容器线程上
  *
  * @author zhangziming
  * @since 2024-10-29
  */
 @Slf4j
-public class TraceIdInterceptor implements HandlerInterceptor {
+public class TraceIdInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String TRACE_ID_ATTR = TraceIdInterceptor.class.getName() + ".traceId";
 
     /**
      * 请求前置处理
@@ -26,10 +29,15 @@ public class TraceIdInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        // 从请求头获取TraceId，如果没有则生成新的
-        String traceId = request.getHeader(CommonConstant.TRACE_ID_HEADER);
-        if (traceId == null || traceId.trim().isEmpty()) {
-            traceId = generateTraceId();
+        // 异步请求再次分派时沿用已生成的TraceId
+        String traceId = (String) request.getAttribute(TRACE_ID_ATTR);
+        if (traceId == null) {
+            // 从请求头获取TraceId，如果没有则生成新的
+            traceId = request.getHeader(CommonConstant.TRACE_ID_HEADER);
+            if (traceId == null || traceId.trim().isEmpty()) {
+                traceId = generateTraceId();
+            }
+            request.setAttribute(TRACE_ID_ATTR, traceId);
         }
         
         // 放入MDC，供日志使用
@@ -41,6 +49,16 @@ public class TraceIdInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 异步处理开始，容器线程即将释放
+     * 此时不会调用afterCompletion，在这里清理
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        MDC.remove(CommonConstant.TRACE_ID_HEADER);
+    }
+
     /**
      * 请求完成后清理
      * 避免内存泄漏
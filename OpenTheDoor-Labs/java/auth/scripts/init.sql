@@ -72,6 +72,7 @@ CREATE TABLE `sys_role` (
   `role_code` VARCHAR(64) NOT NULL COMMENT '角色编码',
   `role_name` VARCHAR(64) NOT NULL COMMENT '角色名称',
   `role_level` INT DEFAULT 0 COMMENT '角色级别(数字越小权限越大)',
+  `parent_id` BIGINT DEFAULT 0 COMMENT '上级角色ID(上级继承本角色的权限,级别必须小于本角色)',
   `data_scope` TINYINT DEFAULT 1 COMMENT '数据范围(1:全部 2:本部门及下级 3:本部门 4:仅本人 5:自定义)',
   `status` TINYINT NOT NULL DEFAULT 1 COMMENT '状态(0:禁用 1:正常)',
   `tenant_id` VARCHAR(32) NOT NULL COMMENT '租户ID',
@@ -84,6 +85,7 @@ CREATE TABLE `sys_role` (
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_role_code_tenant` (`role_code`, `tenant_id`),
   KEY `idx_tenant_id` (`tenant_id`),
+  KEY `idx_parent_id` (`parent_id`),
   KEY `idx_status` (`status`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='角色表';
 
@@ -181,6 +183,7 @@ CREATE TABLE `sys_api` (
   `api_method` VARCHAR(16) NOT NULL COMMENT '请求方法(GET/POST/PUT/DELETE)',
   `api_category` VARCHAR(64) DEFAULT NULL COMMENT 'API分类',
   `require_auth` TINYINT DEFAULT 1 COMMENT '是否需要认证(0:否 1:是)',
+  `permission_code` VARCHAR(128) DEFAULT NULL COMMENT '访问所需权限编码',
   `status` TINYINT NOT NULL DEFAULT 1 COMMENT '状态',
   `tenant_id` VARCHAR(32) NOT NULL COMMENT '租户ID',
   `remark` VARCHAR(500) DEFAULT NULL COMMENT '备注',
@@ -194,6 +197,17 @@ CREATE TABLE `sys_api` (
   KEY `idx_tenant_id` (`tenant_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='API接口表';
 
+-- 声明字典表（Token中角色/权限位图的解码字典，只插入不修改）
+CREATE TABLE `sys_claims_dictionary` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `version` VARCHAR(32) NOT NULL COMMENT '字典版本',
+  `roles` MEDIUMTEXT NOT NULL COMMENT '角色编码(按编号顺序,换行分隔)',
+  `permissions` MEDIUMTEXT NOT NULL COMMENT '权限编码(按编号顺序,换行分隔)',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_version` (`version`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='声明字典表';
+
 -- =========================================
 -- 4. 租户模块
 -- =========================================
@@ -332,11 +346,11 @@ INSERT INTO `sys_user` (`id`, `username`, `password`, `nickname`, `status`, `use
 VALUES (1, 'admin', '$2a$10$N.zmdr9k7uOCQb376NoUnuTJ8iAt6Z5EHsM8lE9lBOsl7iKTVKIUi', '超级管理员', 1, 3, 'DEFAULT', NOW());
 
 -- 默认角色
-INSERT INTO `sys_role` (`id`, `role_code`, `role_name`, `role_level`, `tenant_id`, `create_time`) 
+INSERT INTO `sys_role` (`id`, `role_code`, `role_name`, `role_level`, `parent_id`, `tenant_id`, `create_time`) 
 VALUES 
-(1, 'SUPER_ADMIN', '超级管理员', 0, 'DEFAULT', NOW()),
-(2, 'ADMIN', '管理员', 1, 'DEFAULT', NOW()),
-(3, 'USER', '普通用户', 2, 'DEFAULT', NOW());
+(1, 'SUPER_ADMIN', '超级管理员', 0, 0, 'DEFAULT', NOW()),
+(2, 'ADMIN', '管理员', 1, 1, 'DEFAULT', NOW()),
+(3, 'USER', '普通用户', 2, 2, 'DEFAULT', NOW());
 
 -- 用户角色关联
 INSERT INTO `sys_user_role` (`user_id`, `role_id`, `tenant_id`, `create_time`) 
@@ -0,0 +1,147 @@
+#!/bin/bash
+
+# ========================================
+# 虚拟线程 / 平台线程池 压测对比
+# ========================================
+#
+# 用法:
+#   mvn -pl auth-boot-starter-server -am package -DskipTests
+#   JAVA_HOME=/path/to/jdk21 ./scripts/load-test-virtual-threads.sh auth-boot-starter-server/target/auth-boot-starter-server-1.0.0-SNAPSHOT.jar
+#
+# 同一个jar依次以平台线程池和虚拟线程两种模式启动，用相同的并发请求压测，
+# 输出吞吐量、延迟分位数和失败数。需要先准备好数据库和Redis（scripts/init.sql + test-data.sql）
+# 压测的是以IO为主的用户分页查询（MySQL + 鉴权时的Redis），虚拟线程的收益体现在这类阻塞等待上；
+# 登录以BCrypt为主，是CPU密集的，且由独立的有界线程池处理、队列满时返回429，不适合用来比较线程模型。
+# 每种模式启动后只登录一次拿到Token，之后的请求都带同一个Token
+# 平台线程池模式下把Tomcat最大线程数调小（THREADS），模拟线程耗尽的情况
+
+JAR=$1
+PORT="${PORT:-18080}"
+TENANT_ID="DEFAULT"
+REQUESTS="${REQUESTS:-5000}"       # 每种模式的请求总数
+CONCURRENCY="${CONCURRENCY:-200}"  # 并发数
+THREADS="${THREADS:-50}"           # 平台线程池模式的Tomcat最大线程数
+JAVA_BIN="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+TARGET_PATH="${TARGET_PATH:-/api/user/list?pageNum=1&pageSize=20}"  # 压测的接口
+
+# 颜色定义
+GREEN='\033[0;32m'
+RED='\033[0;31m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+if [ -z "$JAR" ] || [ ! -f "$JAR" ]; then
+    echo -e "${RED}错误: 请指定auth-boot-starter-server的可执行jar${NC}"
+    exit 1
+fi
+
+JAVA_VERSION=$("$JAVA_BIN" -version 2>&1 | head -n1 | grep -oE '"[0-9]+' | tr -d '"')
+if [ "$JAVA_VERSION" -lt 21 ]; then
+    echo -e "${YELLOW}警告: 当前JDK $JAVA_VERSION 不支持虚拟线程，两种模式实际都使用平台线程池${NC}"
+fi
+
+BASE_URL="http://localhost:$PORT"
+LOGIN_DATA="{\"username\":\"admin\",\"password\":\"admin123\",\"tenantId\":\"$TENANT_ID\"}"
+SERVER_PID=""
+
+# 停止服务
+stop_server() {
+    if [ -n "$SERVER_PID" ]; then
+        kill "$SERVER_PID" 2>/dev/null
+        wait "$SERVER_PID" 2>/dev/null
+        SERVER_PID=""
+    fi
+}
+trap stop_server EXIT
+
+# 启动服务并等待就绪
+start_server() {
+    local mode=$1
+    shift
+    "$JAVA_BIN" -jar "$JAR" --server.port="$PORT" "$@" > "/tmp/auth-load-$mode.log" 2>&1 &
+    SERVER_PID=$!
+    for _ in $(seq 1 60); do
+        if curl -s -o /dev/null "$BASE_URL/.well-known/jwks.json"; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo -e "${RED}错误: 服务启动超时，日志见 /tmp/auth-load-$mode.log${NC}"
+    exit 1
+}
+
+# 登录获取访问Token
+login() {
+    local response
+    response=$(curl -s -X POST "$BASE_URL/api/auth/login" \
+        -H "Content-Type: application/json" \
+        -d "$LOGIN_DATA")
+    ACCESS_TOKEN=$(echo "$response" | grep -o '"accessToken":"[^"]*"' | cut -d'"' -f4)
+    if [ -z "$ACCESS_TOKEN" ]; then
+        echo -e "${RED}错误: 登录失败: $response${NC}"
+        exit 1
+    fi
+}
+
+# 单次请求，输出: HTTP状态码 耗时(秒)
+request_once() {
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" "$BASE_URL$TARGET_PATH" \
+        -H "Authorization: Bearer $ACCESS_TOKEN"
+}
+export -f request_once
+export BASE_URL TARGET_PATH
+
+# 压测并统计
+run_load() {
+    local mode=$1
+    local result="/tmp/auth-load-$mode.txt"
+
+    login
+    export ACCESS_TOKEN
+
+    # 预热
+    seq 1 200 | xargs -P 20 -I{} bash -c request_once > /dev/null
+
+    local start end
+    start=$(date +%s.%N)
+    seq 1 "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} bash -c request_once > "$result"
+    end=$(date +%s.%N)
+
+    local failed
+    failed=$(awk '$1 < 200 || $1 >= 300' "$result" | wc -l)
+    awk '{print $2}' "$result" | sort -n | awk -v mode="$mode" -v failed="$failed" \
+        -v elapsed="$(echo "$end - $start" | bc)" '
+        { latency[NR] = $1 }
+        END {
+            printf "%-10s 吞吐: %8.1f req/s  p50: %6.0fms  p95: %6.0fms  p99: %6.0fms  失败: %d/%d\n",
+                mode, NR / elapsed,
+                latency[int(NR * 0.50)] * 1000, latency[int(NR * 0.95)] * 1000,
+                latency[int(NR * 0.99)] * 1000, failed, NR
+        }'
+}
+
+echo "========================================="
+echo "  虚拟线程压测对比"
+echo "========================================="
+echo "JDK: $JAVA_VERSION  接口: GET $TARGET_PATH  请求数: $REQUESTS  并发: $CONCURRENCY  平台线程数: $THREADS"
+echo ""
+
+echo -e "${YELLOW}[1/2] 平台线程池${NC}"
+start_server platform --auth-boot.server.virtual-threads=false --server.tomcat.threads.max="$THREADS"
+PLATFORM_RESULT=$(run_load platform)
+stop_server
+
+echo -e "${YELLOW}[2/2] 虚拟线程${NC}"
+start_server virtual --auth-boot.server.virtual-threads=true
+VIRTUAL_RESULT=$(run_load virtual)
+stop_server
+
+echo ""
+echo "========================================="
+echo "  对比结果"
+echo "========================================="
+echo "$PLATFORM_RESULT"
+echo "$VIRTUAL_RESULT"
+echo ""
+echo -e "${GREEN}服务日志: /tmp/auth-load-platform.log, /tmp/auth-load-virtual.log${NC}"
+echo "提示: 虚拟线程模式下日志中出现mysql-connector-j警告时，SQL执行期间载体线程仍会被钉住"